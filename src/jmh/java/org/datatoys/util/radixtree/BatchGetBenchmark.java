@@ -0,0 +1,75 @@
+package org.datatoys.util.radixtree;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares looking up a batch of keys one by one with {@link RadixTrie#getAll(CharSequence[], Object[])}, which sorts
+ * the batch and shares the descent through the prefixes of consecutive keys.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchGetBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"REVERSE_DOMAIN", "URL", "RANDOM_NUMERIC"})
+    KeyDistribution distribution;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"10000", "100000"})
+    int batchSize;
+
+    private RadixTrie<Integer> trie;
+    private CharSequence[] batch;
+    private Integer[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = distribution.generate(size, SEED);
+        trie = new RadixTrie<>();
+        for (int i = 0; i < keys.size(); i++) {
+            trie.put(keys.get(i), i);
+        }
+        Random random = new Random(SEED);
+        batch = new CharSequence[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = keys.get(random.nextInt(keys.size()));
+        }
+        values = new Integer[batchSize];
+    }
+
+    @Benchmark
+    public Integer[] get() {
+        for (int i = 0; i < batch.length; i++) {
+            values[i] = trie.get(batch[i]);
+        }
+        return values;
+    }
+
+    @Benchmark
+    public Integer[] getAll() {
+        trie.getAll(batch, values);
+        return values;
+    }
+}
@@ -0,0 +1,74 @@
+package org.datatoys.util.radixtree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the burst threshold of {@link BurstRadixTrie} trades build time, which pays for shifting suffixes in
+ * larger buckets, against lookup time, on the high entropy keys the burst trie is meant for. {@link RadixTrieBenchmark}
+ * compares the default threshold with the other maps.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BurstThresholdBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"RANDOM_NUMERIC", "RANDOM_HEX"})
+    KeyDistribution distribution;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"16", "64", "256"})
+    int burstThreshold;
+
+    private String[] keys;
+    private BurstRadixTrie<Integer> trie;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> generated = distribution.generate(size, SEED);
+        keys = generated.toArray(new String[generated.size()]);
+        trie = fill();
+    }
+
+    private BurstRadixTrie<Integer> fill() {
+        BurstRadixTrie<Integer> target = new BurstRadixTrie<>(burstThreshold);
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i], i);
+        }
+        return target;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public BurstRadixTrie<Integer> putAll() {
+        return fill();
+    }
+
+    @Benchmark
+    public Integer get() {
+        int current = cursor;
+        cursor = current + 1 == keys.length ? 0 : current + 1;
+        return trie.get(keys[current]);
+    }
+}
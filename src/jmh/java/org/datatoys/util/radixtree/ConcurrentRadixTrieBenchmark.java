@@ -0,0 +1,118 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of a shared map under a mixed read/write load, to compare how the thread safe options scale with the
+ * number of threads.
+ * <p>
+ * {@link #main(String[])} runs the benchmark for 1, 2, 4... threads up to the number of processors. A single thread
+ * count can be run with {@code gradle jmh -PjmhInclude=ConcurrentRadixTrieBenchmark -PjmhThreads=<n>}.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentRadixTrieBenchmark {
+
+    private static final long SEED = 42;
+
+    public enum Implementation {
+        CONCURRENT_RADIX_TRIE {
+            @Override
+            Map<String, Integer> create() {
+                return new ConcurrentRadixTrie<>();
+            }
+        },
+        SYNCHRONIZED_RADIX_TRIE {
+            @Override
+            Map<String, Integer> create() {
+                return Collections.synchronizedMap(new RadixTrie<Integer>());
+            }
+        },
+        CONCURRENT_SKIP_LIST_MAP {
+            @Override
+            Map<String, Integer> create() {
+                return new ConcurrentSkipListMap<>();
+            }
+        };
+
+        abstract Map<String, Integer> create();
+    }
+
+    @Param({"CONCURRENT_RADIX_TRIE", "SYNCHRONIZED_RADIX_TRIE", "CONCURRENT_SKIP_LIST_MAP"})
+    Implementation implementation;
+
+    @Param({"REVERSE_DOMAIN", "RANDOM_NUMERIC"})
+    KeyDistribution distribution;
+
+    @Param({"100000"})
+    int size;
+
+    /**
+     * Percentage of the operations that are puts; the rest are gets.
+     */
+    @Param({"0", "10"})
+    int writePercent;
+
+    private String[] keys;
+    private Map<String, Integer> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> generated = distribution.generate(size, SEED);
+        keys = generated.toArray(new String[generated.size()]);
+        map = implementation.create();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public Integer readWrite() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int idx = random.nextInt(keys.length);
+        if (random.nextInt(100) < writePercent) {
+            return map.put(keys[idx], idx);
+        }
+        return map.get(keys[idx]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(threads * 2, processors)) {
+            Options options = new OptionsBuilder()
+                .include(ConcurrentRadixTrieBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+}
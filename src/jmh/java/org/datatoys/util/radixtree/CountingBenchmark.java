@@ -0,0 +1,73 @@
+package org.datatoys.util.radixtree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares counting key occurrences with boxed values in a {@link RadixTrie} and with unboxed values in an
+ * {@link IntRadixTrie}. The "gc.alloc.rate.norm" lines show the boxing cost.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CountingBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"REVERSE_DOMAIN", "RANDOM_NUMERIC", "URL"})
+    KeyDistribution distribution;
+
+    @Param({"100000"})
+    int size;
+
+    private String[] keys;
+    private RadixTrie<Integer> boxed;
+    private IntRadixTrie unboxed;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> generated = distribution.generate(size, SEED);
+        keys = generated.toArray(new String[generated.size()]);
+        boxed = new RadixTrie<>();
+        unboxed = new IntRadixTrie();
+        for (String key : keys) {
+            boxed.put(key, 0);
+            unboxed.putInt(key, 0);
+        }
+    }
+
+    private String nextKey() {
+        int current = cursor;
+        cursor = current + 1 == keys.length ? 0 : current + 1;
+        return keys[current];
+    }
+
+    @Benchmark
+    public Integer boxedIncrement() {
+        String key = nextKey();
+        Integer count = boxed.get(key);
+        return boxed.put(key, count == null ? 1 : count + 1);
+    }
+
+    @Benchmark
+    public int unboxedIncrement() {
+        return unboxed.increment(nextKey());
+    }
+}
@@ -0,0 +1,106 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link RadixTrie#fuzzyMatches(String, int)} with computing the edit distance to every key, for queries
+ * that are keys with one character replaced.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FuzzyMatchBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"REVERSE_DOMAIN", "URL"})
+    KeyDistribution distribution;
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"1", "2"})
+    int maxEdits;
+
+    private RadixTrie<Integer> radixTrie;
+    private String[] queries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = distribution.generate(size, SEED);
+        radixTrie = new RadixTrie<>();
+        for (int i = 0; i < keys.size(); i++) {
+            radixTrie.put(keys.get(i), i);
+        }
+        Random random = new Random(SEED);
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            char[] query = keys.get(random.nextInt(keys.size())).toCharArray();
+            query[random.nextInt(query.length)] = 'x';
+            queries[i] = new String(query);
+        }
+    }
+
+    private String nextQuery() {
+        int current = cursor;
+        cursor = (current + 1) & (queries.length - 1);
+        return queries[current];
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> trieWalk() {
+        return radixTrie.fuzzyMatches(nextQuery(), maxEdits);
+    }
+
+    @Benchmark
+    public List<String> keyScan() {
+        String query = nextQuery();
+        List<String> matches = new ArrayList<>();
+        for (String key : radixTrie.keySet()) {
+            if (Math.abs(key.length() - query.length()) <= maxEdits && levenshtein(key, query) <= maxEdits) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], row[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,118 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Key generators for the benchmarks, shaped after the data the trie is used with.
+ * <p>
+ * Generators are deterministic for a given seed and always return distinct keys, in random order.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Reverse domain names such as "com.google.mail": a handful of top level prefixes with a wide second level.
+     */
+    REVERSE_DOMAIN {
+        private final String[] tlds = {"com", "org", "net", "edu", "gov", "io", "de", "uk"};
+        private final String[] hosts = {"mail", "www", "plus", "maps", "docs", "api", "cdn", "static", "m", "dev"};
+
+        @Override
+        String nextKey(int index, Random random) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(tlds[random.nextInt(tlds.length)]).append('.');
+            appendWord(builder, random);
+            builder.append('.').append(hosts[random.nextInt(hosts.length)]);
+            if (random.nextBoolean()) {
+                builder.append('.');
+                appendWord(builder, random);
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * String representations of random ints, the same keys as RadixTriePutGetTests.mainTestInsert.
+     */
+    RANDOM_NUMERIC {
+        @Override
+        String nextKey(int index, Random random) {
+            return String.valueOf(random.nextInt());
+        }
+    },
+
+    /**
+     * Hex representations of random longs, such as hashes or ids: every character is one of sixteen, at every level.
+     */
+    RANDOM_HEX {
+        @Override
+        String nextKey(int index, Random random) {
+            return Long.toHexString(random.nextLong());
+        }
+    },
+
+    /**
+     * Long URLs that share a long common prefix and only diverge close to their end.
+     */
+    URL {
+        @Override
+        String nextKey(int index, Random random) {
+            StringBuilder builder = new StringBuilder("https://www.example.com/catalog/");
+            builder.append("category-").append(random.nextInt(20)).append('/');
+            builder.append("section-").append(random.nextInt(50)).append('/');
+            builder.append("item?id=").append(random.nextInt(Integer.MAX_VALUE));
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Every string over the digits, shortest first: each edge of the resulting trie is a single character and
+     * every node holds a value. This is the degenerate case the README warns about.
+     */
+    DEGENERATE {
+        @Override
+        String nextKey(int index, Random random) {
+            // the index written in bijective base ten, which enumerates the strings shortest first
+            StringBuilder builder = new StringBuilder();
+            for (long n = index + 1L; n > 0; n = (n - 1) / DIGITS.length()) {
+                builder.append(DIGITS.charAt((int) ((n - 1) % DIGITS.length())));
+            }
+            return builder.reverse().toString();
+        }
+    };
+
+    private static final String DIGITS = "0123456789";
+    private static final String[] SYLLABLES = {"go", "o", "gle", "ya", "hoo", "wi", "ki", "pe", "di", "a", "bing",
+        "ama", "zon", "ex", "am", "ple", "foo", "bar", "baz", "net", "flix", "sta", "ck"};
+
+    /**
+     * @return {@code count} distinct keys in random order
+     */
+    List<String> generate(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> keys = new LinkedHashSet<>(count * 2);
+        for (int index = 0; keys.size() < count; index++) {
+            keys.add(nextKey(index, random));
+        }
+        List<String> result = new ArrayList<>(keys);
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /**
+     * @return the key of the given attempt, drawn from the random source by the sampled distributions and computed
+     * from the index by the enumerated ones
+     */
+    abstract String nextKey(int index, Random random);
+
+    private static void appendWord(StringBuilder builder, Random random) {
+        int syllables = 1 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+    }
+}
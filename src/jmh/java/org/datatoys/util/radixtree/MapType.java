@@ -0,0 +1,124 @@
+package org.datatoys.util.radixtree;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The map implementations the trie is benchmarked against.
+ */
+public enum MapType {
+
+    RADIX_TRIE {
+        @Override
+        <V> Map<String, V> create() {
+            return new RadixTrie<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((RadixTrie<?>) map).countWithPrefix(prefix);
+        }
+    },
+
+    FROZEN_RADIX_TRIE {
+        @Override
+        <V> Map<String, V> create() {
+            return new RadixTrie<>();
+        }
+
+        @Override
+        <V> Map<String, V> prepare(Map<String, V> filled) {
+            return ((RadixTrie<V>) filled).freeze();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((FrozenRadixTrie<?>) map).countWithPrefix(prefix);
+        }
+    },
+
+    UTF8_RADIX_TRIE {
+        @Override
+        <V> Map<String, V> create() {
+            return new Utf8RadixTrie<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((Utf8RadixTrie<?>) map).countWithPrefix(prefix);
+        }
+    },
+
+    ARENA_RADIX_TRIE {
+        @Override
+        <V> Map<String, V> create() {
+            return new ArenaRadixTrie<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((ArenaRadixTrie<?>) map).countWithPrefix(prefix);
+        }
+    },
+
+    BURST_RADIX_TRIE {
+        @Override
+        <V> Map<String, V> create() {
+            return new BurstRadixTrie<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((BurstRadixTrie<?>) map).countWithPrefix(prefix);
+        }
+    },
+
+    TREE_MAP {
+        @Override
+        <V> Map<String, V> create() {
+            return new TreeMap<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return ((TreeMap<String, ?>) map).subMap(prefix, prefix + Character.MAX_VALUE).size();
+        }
+    },
+
+    HASH_MAP {
+        @Override
+        <V> Map<String, V> create() {
+            return new HashMap<>();
+        }
+
+        @Override
+        int countWithPrefix(Map<String, ?> map, String prefix) {
+            return countByScan(map, prefix);
+        }
+    };
+
+    abstract <V> Map<String, V> create();
+
+    /**
+     * Turns a map filled through {@link #create()} into the map that is read by the benchmarks.
+     */
+    <V> Map<String, V> prepare(Map<String, V> filled) {
+        return filled;
+    }
+
+    /**
+     * Counts the keys starting with the given prefix, in the cheapest way the map supports.
+     */
+    abstract int countWithPrefix(Map<String, ?> map, String prefix);
+
+    private static int countByScan(Map<String, ?> map, String prefix) {
+        int count = 0;
+        for (String key : map.keySet()) {
+            if (key.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link RadixTrie#match(String)} and {@link RadixTrie#match(Pattern)} with filtering the key set with the
+ * equivalent regular expression, for reverse domain names. The last glob starts with a star, so no subtree can be
+ * skipped below the root.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatchBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"com.*.mail", "org.?a*.www.*", "*.api"})
+    String glob;
+
+    private RadixTrie<Integer> radixTrie;
+    private Pattern regex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = KeyDistribution.REVERSE_DOMAIN.generate(size, SEED);
+        radixTrie = new RadixTrie<>();
+        for (int i = 0; i < keys.size(); i++) {
+            radixTrie.put(keys.get(i), i);
+        }
+        StringBuilder expression = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            expression.append(c == '*' ? ".*" : c == '?' ? "." : Pattern.quote(String.valueOf(c)));
+        }
+        regex = Pattern.compile(expression.toString());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> globWalk() {
+        return radixTrie.match(glob);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Integer>> regexWalk() {
+        return radixTrie.match(regex);
+    }
+
+    @Benchmark
+    public List<String> keyScan() {
+        Matcher matcher = regex.matcher("");
+        List<String> matches = new ArrayList<>();
+        for (String key : radixTrie.keySet()) {
+            if (matcher.reset(key).matches()) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,83 @@
+package org.datatoys.util.radixtree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares joining per-shard tries into one with {@link RadixTrie#putAll(java.util.Map)} against
+ * {@link RadixTrie#merge(RadixTrie, BinaryOperator)}, which walks the tries in parallel and copies the subtrees found in
+ * a single shard whole.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MergeBenchmark {
+
+    private static final long SEED = 42;
+
+    private static final BinaryOperator<Integer> LAST = new BinaryOperator<Integer>() {
+        @Override
+        public Integer apply(Integer v1, Integer v2) {
+            return v2;
+        }
+    };
+
+    @Param({"REVERSE_DOMAIN", "URL", "RANDOM_NUMERIC"})
+    KeyDistribution distribution;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"4", "16"})
+    int shards;
+
+    private RadixTrie<Integer>[] parts;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        List<String> keys = distribution.generate(size, SEED);
+        parts = (RadixTrie<Integer>[]) new RadixTrie<?>[shards];
+        for (int i = 0; i < shards; i++) {
+            parts[i] = new RadixTrie<>();
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            parts[i % shards].put(keys.get(i), i);
+        }
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> putAll() {
+        RadixTrie<Integer> joined = new RadixTrie<>();
+        for (RadixTrie<Integer> part : parts) {
+            joined.putAll(part);
+        }
+        return joined;
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> merge() {
+        RadixTrie<Integer> joined = new RadixTrie<>();
+        for (RadixTrie<Integer> part : parts) {
+            joined.merge(part, LAST);
+        }
+        return joined;
+    }
+}
@@ -0,0 +1,83 @@
+package org.datatoys.util.radixtree;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of publishing a new version of a map after a few changes: a deep copy of a {@link RadixTrie}
+ * through {@code putAll}, against applying the changes with a {@link PersistentRadixTrie.Editor} and taking a
+ * snapshot, which copies only the nodes on the changed paths.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PublishBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"URL", "REVERSE_DOMAIN"})
+    KeyDistribution distribution;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"10", "1000"})
+    int changesPerPublish;
+
+    private String[] keys;
+    private RadixTrie<Integer> published;
+    private PersistentRadixTrie.Editor<Integer> editor;
+    private Random random;
+    private int version;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> generated = distribution.generate(size, SEED);
+        keys = generated.toArray(new String[generated.size()]);
+        published = new RadixTrie<>();
+        editor = PersistentRadixTrie.<Integer>empty().edit();
+        for (int i = 0; i < keys.length; i++) {
+            published.put(keys[i], i);
+            editor.put(keys[i], i);
+        }
+        random = new Random(SEED);
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> deepCopy() {
+        RadixTrie<Integer> copy = new RadixTrie<>();
+        copy.putAll(published);
+        version++;
+        for (int i = 0; i < changesPerPublish; i++) {
+            copy.put(keys[random.nextInt(keys.length)], version);
+        }
+        published = copy;
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentRadixTrie<Integer> editAndSnapshot() {
+        version++;
+        for (int i = 0; i < changesPerPublish; i++) {
+            editor.put(keys[random.nextInt(keys.length)], version);
+        }
+        return editor.snapshot();
+    }
+}
@@ -0,0 +1,138 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the radix trie with {@link java.util.TreeMap} and {@link java.util.HashMap} on the same keys.
+ * <p>
+ * Run with {@code gradle jmh}; the GC profiler is enabled there, so the "gc.alloc.rate.norm" lines give the bytes
+ * allocated per operation.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RadixTrieBenchmark {
+
+    private static final long SEED = 42;
+    private static final int PREFIX_COUNT = 1024;
+
+    @Param({"RADIX_TRIE", "FROZEN_RADIX_TRIE", "UTF8_RADIX_TRIE", "ARENA_RADIX_TRIE", "BURST_RADIX_TRIE", "TREE_MAP", "HASH_MAP"})
+    MapType mapType;
+
+    @Param({"REVERSE_DOMAIN", "RANDOM_NUMERIC", "RANDOM_HEX", "URL", "DEGENERATE"})
+    KeyDistribution distribution;
+
+    @Param({"100000"})
+    int size;
+
+    private String[] keys;
+    private String[] missingKeys;
+    private String[] prefixes;
+    private Map<String, Integer> map;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> generated = distribution.generate(size, SEED);
+        keys = generated.toArray(new String[generated.size()]);
+
+        // appending a character no generator produces guarantees a miss that still shares the whole key as prefix
+        missingKeys = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            missingKeys[i] = keys[i] + '~';
+        }
+
+        Random random = new Random(SEED);
+        prefixes = new String[PREFIX_COUNT];
+        for (int i = 0; i < PREFIX_COUNT; i++) {
+            String key = keys[random.nextInt(keys.length)];
+            prefixes[i] = key.substring(0, Math.max(1, key.length() / 2));
+        }
+
+        map = mapType.prepare(fill(mapType.<Integer>create()));
+
+        List<String> shuffled = new ArrayList<>(generated);
+        Collections.shuffle(shuffled, random);
+        keys = shuffled.toArray(new String[shuffled.size()]);
+    }
+
+    private Map<String, Integer> fill(Map<String, Integer> target) {
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i], i);
+        }
+        return target;
+    }
+
+    private int next(int bound) {
+        int current = cursor;
+        cursor = current + 1 == bound ? 0 : current + 1;
+        return current;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, Integer> putAll() {
+        return mapType.prepare(fill(mapType.<Integer>create()));
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(keys[next(keys.length)]);
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+        return map.containsKey(keys[next(keys.length)]);
+    }
+
+    @Benchmark
+    public boolean containsKeyMiss() {
+        return map.containsKey(missingKeys[next(missingKeys.length)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterateEntrySet(Blackhole blackhole) {
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterateKeySet(Blackhole blackhole) {
+        for (String key : map.keySet()) {
+            blackhole.consume(key);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int countWithPrefix() {
+        return mapType.countWithPrefix(map, prefixes[next(prefixes.length)]);
+    }
+}
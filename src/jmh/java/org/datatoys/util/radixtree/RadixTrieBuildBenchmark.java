@@ -0,0 +1,121 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building a radix trie with repeated puts against a batched {@code putAll}, which sorts the keys and shares
+ * the descent through common prefixes, against the bulk loaders, from sorted and from unsorted input, and against
+ * repeated puts into an {@link ArenaRadixTrie}, whose splits allocate no label arrays.
+ * <p>
+ * Run with {@code gradle jmh -PjmhInclude=RadixTrieBuildBenchmark}.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RadixTrieBuildBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"REVERSE_DOMAIN", "RANDOM_NUMERIC", "URL", "DEGENERATE"})
+    KeyDistribution distribution;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    private List<Map.Entry<String, Integer>> shuffled;
+    private List<Map.Entry<String, Integer>> sorted;
+    private Map<String, Integer> unsorted;
+    private ForkJoinPool singleThread;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = distribution.generate(size, SEED);
+        unsorted = new HashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            unsorted.put(keys.get(i), i);
+        }
+        sorted = new ArrayList<>(new TreeMap<>(unsorted).entrySet());
+        shuffled = new ArrayList<>(sorted);
+        Collections.shuffle(shuffled, new Random(SEED));
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> putUnsorted() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (Map.Entry<String, Integer> entry : shuffled) {
+            trie.put(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> putSorted() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (Map.Entry<String, Integer> entry : sorted) {
+            trie.put(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> putAllUnsorted() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.putAll(unsorted);
+        return trie;
+    }
+
+    @Benchmark
+    public ArenaRadixTrie<Integer> putUnsortedArena() {
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        for (Map.Entry<String, Integer> entry : shuffled) {
+            trie.put(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> fromSorted() {
+        return RadixTrie.fromSorted(sorted.iterator());
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> copyOfUnsorted() {
+        return RadixTrie.copyOf(unsorted);
+    }
+
+    @Benchmark
+    public RadixTrie<Integer> copyOfUnsortedSingleThread() {
+        return RadixTrie.copyOf(unsorted, singleThread);
+    }
+}
@@ -0,0 +1,65 @@
+package org.datatoys.util.radixtree;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * Checks the memory estimates of {@link RadixTrie#stats()} against the heap actually used by tries built from every
+ * {@link KeyDistribution}. Every trie maps its keys to one shared value, and the keys are garbage once put, so the heap
+ * released when the trie is dropped is its structure alone.
+ * <p>
+ * Heap measurements depend on the collector and on whatever else the JVM allocates, so this is not a unit test: run it
+ * in a JVM of its own with {@code gradle footprint}. It exits with status 1 if an estimate is off by more than the
+ * tolerance; the unit tests only check the per node accounting, which is deterministic.
+ */
+public final class RadixTrieFootprint {
+
+    private static final Integer VALUE = 1;
+    private static final int KEYS = 200000;
+    // allowed relative difference between the estimated and the measured size
+    private static final double TOLERANCE = 0.1;
+
+    // keeps the trie being measured reachable, which a local variable the JIT sees as dead does not
+    private static RadixTrie<Integer> measuredTrie;
+
+    private RadixTrieFootprint() {
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // the lowest of a few collections, which leaves out objects allocated meanwhile by other threads
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    public static void main(String[] args) {
+        boolean withinTolerance = true;
+        for (KeyDistribution distribution : KeyDistribution.values()) {
+            List<String> keys = distribution.generate(KEYS, 17);
+            measuredTrie = new RadixTrie<>();
+            for (String key : keys) {
+                measuredTrie.put(key, VALUE);
+            }
+            keys = null;
+            RadixTrieStats stats = measuredTrie.stats();
+            // measured as the heap released by dropping the trie
+            long withTrie = usedHeap();
+            measuredTrie = null;
+            long measured = withTrie - usedHeap();
+            long estimated = stats.estimatedBytes();
+            double difference = (double) (estimated - measured) / measured;
+            withinTolerance &= Math.abs(difference) <= TOLERANCE;
+            System.out.printf("%-15s estimated %,12d bytes, measured %,12d bytes (%+.1f%%)%n",
+                distribution, estimated, measured, difference * 100);
+        }
+        if (!withinTolerance) {
+            System.out.printf("estimates are off by more than %.0f%%%n", TOLERANCE * 100);
+            System.exit(1);
+        }
+    }
+}
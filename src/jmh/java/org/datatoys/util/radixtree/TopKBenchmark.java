@@ -0,0 +1,95 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the best first {@link ScoredRadixTrie#topK(String, int)} with walking every key of the prefix view of a
+ * {@link RadixTrie} and keeping the k best, on short prefixes whose subtrees hold most of the keys.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopKBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"REVERSE_DOMAIN", "URL"})
+    KeyDistribution distribution;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"10"})
+    int k;
+
+    private ScoredRadixTrie<String> scored;
+    private RadixTrie<Double> scores;
+    private String[] prefixes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = distribution.generate(size, SEED);
+        Random random = new Random(SEED);
+        scored = new ScoredRadixTrie<>();
+        scores = new RadixTrie<>();
+        prefixes = new String[256];
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            double score = random.nextDouble();
+            scored.put(key, key, score);
+            scores.put(key, score);
+            if (i < prefixes.length) {
+                prefixes[i] = key.substring(0, Math.min(2, key.length()));
+            }
+        }
+    }
+
+    private String nextPrefix() {
+        int current = cursor;
+        cursor = (current + 1) & (prefixes.length - 1);
+        return prefixes[current];
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, String>> bestFirst() {
+        return scored.topK(nextPrefix(), k);
+    }
+
+    @Benchmark
+    public List<String> prefixScan() {
+        PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<String, Double> entry : scores.prefixMap(nextPrefix()).entrySet()) {
+            best.add(entry);
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        List<String> top = new ArrayList<>(k);
+        while (!best.isEmpty()) {
+            top.add(best.poll().getKey());
+        }
+        return top;
+    }
+}
@@ -0,0 +1,432 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A radix trie whose edge labels are slices of large shared char[] slabs, a {@link CharArena}, instead of a char[]
+ * per node, for large tries where the array headers and the allocations of splits add up.
+ * <p>
+ * A node keeps the slab, offset and length of its label. Splitting a node on insert only divides its slice between
+ * the node and a new child, without allocating or copying any chars; only the chars of a new key that no label holds
+ * yet are appended to the arena. Merging a node into its only child on remove reuses the slices too when they are
+ * adjacent, which they are right after a split or a compaction, and otherwise appends the joined label.
+ * <p>
+ * Removed and replaced labels leave dead chars in the slabs. Once they outnumber the live chars, a removal compacts
+ * the arena: the labels are copied depth first into fresh slabs, which drops the dead chars and lays out every path
+ * contiguously. {@link #compact()} does it on demand.
+ * <p>
+ * Keys are iterated in sorted order. Null values are not stored: putting a null value removes the key. This
+ * implementation is not thread safe, and its iterators are fail-fast.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ArenaRadixTrie<V> extends AbstractMap<String, V> {
+
+    // package private for unit testing
+    ArenaRadixTrieNode<V> root = new ArenaRadixTrieNode<>();
+    CharArena arena = new CharArena();
+    // number of structural modifications, for the fail-fast iterators
+    private int modCount;
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? get((CharSequence) key) : null;
+    }
+
+    public V get(CharSequence key) {
+        ArenaRadixTrieNode<V> node = getNode(key);
+        return node != null ? node.value : null;
+    }
+
+    private ArenaRadixTrieNode<V> getNode(CharSequence key) {
+        ArenaRadixTrieNode<V> node = root;
+        char[][] slabs = arena.slabs;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null) {
+                return null;
+            }
+            // the first character matched when finding the child
+            int length = node.length;
+            if (end - offset < length) {
+                return null;
+            }
+            char[] slab = slabs[node.slab];
+            int from = node.offset;
+            for (int idx = 1; idx < length; idx++) {
+                if (slab[from + idx] != key.charAt(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
+        if (value == null) {
+            // null marks the absence of a value, so mapping a key to null removes it
+            return remove(key);
+        }
+        V oldValue = insert(key, value);
+        if (oldValue == null) {
+            adjustSizes(key, 1);
+            modCount++;
+        }
+        return oldValue;
+    }
+
+    private V insert(String key, V value) {
+        ArenaRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (true) {
+            char first = key.charAt(offset);
+            int index = node.childIndex(first);
+            if (index < 0) {
+                // no child shares a first char with the key: the rest of the key is a new leaf
+                ArenaRadixTrieNode<V> leaf = new ArenaRadixTrieNode<>();
+                leaf.setLabel(arena.append(key, offset, end), end - offset);
+                leaf.value = value;
+                node.addChild(-index - 1, leaf, first);
+                return null;
+            }
+            ArenaRadixTrieNode<V> child = node.children[index];
+            int commonCharacters = commonPrefixLength(child, key, offset, end);
+            if (commonCharacters < child.length) {
+                splitNode(child, commonCharacters);
+                if (offset + commonCharacters == end) {
+                    // the key ends exactly at the split point, the node keeping the start of the label is its node
+                    child.value = value;
+                    return null;
+                }
+            } else if (offset + commonCharacters == end) {
+                V oldValue = child.value;
+                child.value = value;
+                return oldValue;
+            }
+            node = child;
+            offset += commonCharacters;
+        }
+    }
+
+    private int commonPrefixLength(ArenaRadixTrieNode<V> node, CharSequence key, int offset, int end) {
+        char[] slab = arena.slabs[node.slab];
+        int from = node.offset;
+        int length = Math.min(node.length, end - offset);
+        int idx = 0;
+        while (idx < length && slab[from + idx] == key.charAt(offset + idx)) {
+            idx++;
+        }
+        return idx;
+    }
+
+    /**
+     * Splits a node in place: it keeps the first chars of its label, and a new child takes over the rest of the
+     * label along with the value and children. Both slices stay in the same run of chars, nothing is copied.
+     */
+    private void splitNode(ArenaRadixTrieNode<V> node, int commonCharacters) {
+        ArenaRadixTrieNode<V> child = new ArenaRadixTrieNode<>();
+        node.moveContentsTo(child);
+        child.slab = node.slab;
+        child.offset = node.offset + commonCharacters;
+        child.length = node.length - commonCharacters;
+        node.length = commonCharacters;
+        node.addChild(0, child, arena.slabs[child.slab][child.offset]);
+    }
+
+    /**
+     * Adds delta to the subtree size of every node on the path of an existing key.
+     */
+    private void adjustSizes(CharSequence key, int delta) {
+        ArenaRadixTrieNode<V> node = root;
+        node.size += delta;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            node.size += delta;
+            offset += node.length;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String keyStr = (String) key;
+        ArenaRadixTrieNode<V> node = getNode(keyStr);
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V oldValue = node.value;
+        removeExisting(keyStr);
+        compactIfMostlyDead();
+        return oldValue;
+    }
+
+    private void compactIfMostlyDead() {
+        long deadChars = arena.deadChars();
+        if (deadChars > arena.liveChars() && deadChars >= CharArena.SLAB_SIZE) {
+            compact();
+        }
+    }
+
+    /**
+     * Removes a key known to be in the trie, keeping it compressed as {@link RadixTrie#removeValue} does: the node of
+     * the key is unlinked if it has no children, which may leave its parent to be merged, or merged with its child if
+     * it has only one.
+     *
+     * @return the node that absorbed the label of a merged parent, or null if no node was merged
+     */
+    private ArenaRadixTrieNode<V> removeExisting(String key) {
+        ArenaRadixTrieNode<V> grandparent = null;
+        ArenaRadixTrieNode<V> parent = null;
+        ArenaRadixTrieNode<V> node = root;
+        node.size--;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            grandparent = parent;
+            parent = node;
+            node = node.findChild(key.charAt(offset));
+            node.size--;
+            offset += node.length;
+        }
+        node.value = null;
+        modCount++;
+        if (parent == null) {
+            return null;
+        }
+        if (node.childCount == 0) {
+            char first = arena.slabs[node.slab][node.offset];
+            parent.removeChild(parent.childIndex(first));
+            arena.release(node.length);
+            if (grandparent != null && parent.value == null && parent.childCount == 1) {
+                return mergeWithOnlyChild(grandparent, parent);
+            }
+        } else if (node.childCount == 1) {
+            return mergeWithOnlyChild(parent, node);
+        }
+        return null;
+    }
+
+    /**
+     * Replaces a node without a value by its only child, whose label is prefixed with the label of the node. The
+     * slices are joined in place when they are adjacent, otherwise the joined label is appended to the arena.
+     */
+    private ArenaRadixTrieNode<V> mergeWithOnlyChild(ArenaRadixTrieNode<V> parent, ArenaRadixTrieNode<V> node) {
+        ArenaRadixTrieNode<V> child = node.children[0];
+        if (node.slab == child.slab && node.offset + node.length == child.offset) {
+            child.offset = node.offset;
+            child.length += node.length;
+        } else {
+            int length = node.length + child.length;
+            char[][] slabs = arena.slabs;
+            long address = arena.append(slabs[node.slab], node.offset, node.length, slabs[child.slab], child.offset, child.length);
+            arena.release(length);
+            child.setLabel(address, length);
+        }
+        char first = arena.slabs[child.slab][child.offset];
+        parent.children[parent.childIndex(first)] = child;
+        return child;
+    }
+
+    /**
+     * Copies the live labels into a new arena, depth first, and drops the old slabs with their dead chars. The labels
+     * of a path end up next to each other, which keeps later merges from copying.
+     */
+    @SuppressWarnings("unchecked")
+    public void compact() {
+        char[][] slabs = arena.slabs;
+        CharArena compacted = new CharArena();
+        ArenaRadixTrieNode<V>[] stack = (ArenaRadixTrieNode<V>[]) new ArenaRadixTrieNode<?>[16];
+        int top = 0;
+        for (int i = root.childCount - 1; i >= 0; i--) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = root.children[i];
+        }
+        while (top > 0) {
+            ArenaRadixTrieNode<V> node = stack[--top];
+            node.setLabel(compacted.append(slabs[node.slab], node.offset, node.length), node.length);
+            // push in reverse, so that the first child is copied right after its parent
+            for (int i = node.childCount - 1; i >= 0; i--) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = node.children[i];
+            }
+        }
+        arena = compacted;
+    }
+
+    @Override
+    public void clear() {
+        root = new ArenaRadixTrieNode<>();
+        arena = new CharArena();
+        modCount++;
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        ArenaRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = prefix.length();
+        while (offset < end) {
+            ArenaRadixTrieNode<V> child = node.findChild(prefix.charAt(offset));
+            if (child == null) {
+                return 0;
+            }
+            int commonCharacters = commonPrefixLength(child, prefix, offset, end);
+            if (offset + commonCharacters == end) {
+                return child.size;
+            } else if (commonCharacters < child.length) {
+                return 0;
+            }
+            node = child;
+            offset += commonCharacters;
+        }
+        return node.size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ArenaRadixTrie.this.size();
+            }
+
+            @Override
+            public void clear() {
+                ArenaRadixTrie.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Walks the trie depth first in key order, with an explicit stack.
+     * <p>
+     * Removing the key last returned may merge a node into the node on top of the stack, as in the iterators of
+     * {@link RadixTrie}; its entry is then moved back to the key length of the merged node. A compaction only moves
+     * labels, and the stack holds nodes, so it does not disturb the iteration.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        @SuppressWarnings("unchecked")
+        private ArenaRadixTrieNode<V>[] stack = (ArenaRadixTrieNode<V>[]) new ArenaRadixTrieNode<?>[16];
+        // for every node on the stack, the length of its parent's key
+        private int[] parentLengths = new int[16];
+        private int top;
+        private char[] keyPath = new char[16];
+        private int keyLength;
+
+        private int remaining = root.size;
+        private String lastKey;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            pushChildren(root);
+        }
+
+        private void pushChildren(ArenaRadixTrieNode<V> node) {
+            // push in reverse, so that the smallest child is visited first
+            for (int i = node.childCount - 1; i >= 0; i--) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    parentLengths = Arrays.copyOf(parentLengths, top * 2);
+                }
+                stack[top] = node.children[i];
+                parentLengths[top] = keyLength;
+                top++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (top > 0) {
+                ArenaRadixTrieNode<V> node = stack[--top];
+                stack[top] = null;
+                keyLength = parentLengths[top];
+                int length = node.length;
+                if (keyLength + length > keyPath.length) {
+                    keyPath = Arrays.copyOf(keyPath, Math.max(keyLength + length, keyPath.length * 2));
+                }
+                System.arraycopy(arena.slabs[node.slab], node.offset, keyPath, keyLength, length);
+                keyLength += length;
+                pushChildren(node);
+                if (node.value != null) {
+                    remaining--;
+                    lastKey = new String(keyPath, 0, keyLength);
+                    return new SimpleImmutableEntry<>(lastKey, node.value);
+                }
+            }
+            // the subtree sizes promised more values than the trie holds
+            throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            ArenaRadixTrieNode<V> next = top > 0 ? stack[top - 1] : null;
+            int nextLength = next != null ? next.length : 0;
+            ArenaRadixTrieNode<V> merged = removeExisting(lastKey);
+            if (merged != null && merged == next) {
+                parentLengths[top - 1] -= merged.length - nextLength;
+            }
+            compactIfMostlyDead();
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+
+/**
+ * A node of {@link ArenaRadixTrie}, whose edge label is a slice of a slab of the trie's {@link CharArena} instead of
+ * a char[] of its own.
+ * <p>
+ * The children are kept in an array sorted by their first char, with the first chars alongside in a char[], so that
+ * finding a child reads neither the arena nor the children themselves: small nodes scan the first chars, wider nodes
+ * binary search them. Both arrays have spare capacity, and only the first childCount entries are used.
+ */
+final class ArenaRadixTrieNode<V> {
+
+    static final int SCAN_MAX_FANOUT = 8;
+
+    // the label is slabs[slab][offset..offset+length) of the arena
+    int slab;
+    int offset;
+    int length;
+    V value;
+    // number of values in the subtree rooted at this node, including its own
+    int size;
+
+    ArenaRadixTrieNode<V>[] children;
+    char[] firstChars;
+    int childCount;
+
+    void setLabel(long address, int length) {
+        this.slab = CharArena.slab(address);
+        this.offset = CharArena.offset(address);
+        this.length = length;
+    }
+
+    /**
+     * @return the index of the child starting with the given character if there is one, otherwise
+     * (-(insertion point) - 1), with the same convention as {@link Arrays#binarySearch(char[], char)}
+     */
+    int childIndex(char c) {
+        char[] firstChars = this.firstChars;
+        int childCount = this.childCount;
+        if (childCount <= SCAN_MAX_FANOUT) {
+            for (int i = 0; i < childCount; i++) {
+                char first = firstChars[i];
+                if (first == c) {
+                    return i;
+                } else if (first > c) {
+                    return -(i + 1);
+                }
+            }
+            return -(childCount + 1);
+        }
+        return Arrays.binarySearch(firstChars, 0, childCount, c);
+    }
+
+    /**
+     * @return the child whose label starts with the given character, or null if there is none
+     */
+    ArenaRadixTrieNode<V> findChild(char c) {
+        int index = childIndex(c);
+        return index >= 0 ? children[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void addChild(int index, ArenaRadixTrieNode<V> child, char first) {
+        if (children == null) {
+            children = (ArenaRadixTrieNode<V>[]) new ArenaRadixTrieNode<?>[2];
+            firstChars = new char[2];
+        } else if (childCount == children.length) {
+            int capacity = childCount + (childCount >> 1) + 1;
+            children = Arrays.copyOf(children, capacity);
+            firstChars = Arrays.copyOf(firstChars, capacity);
+        }
+        System.arraycopy(children, index, children, index + 1, childCount - index);
+        System.arraycopy(firstChars, index, firstChars, index + 1, childCount - index);
+        children[index] = child;
+        firstChars[index] = first;
+        childCount++;
+    }
+
+    /**
+     * Removes a child, releasing the children arrays when it was the last one.
+     */
+    void removeChild(int index) {
+        childCount--;
+        if (childCount == 0) {
+            children = null;
+            firstChars = null;
+            return;
+        }
+        System.arraycopy(children, index + 1, children, index, childCount - index);
+        System.arraycopy(firstChars, index + 1, firstChars, index, childCount - index);
+        children[childCount] = null;
+    }
+
+    /**
+     * Moves the value and children of this node, which is being split, to the node taking over the end of its label.
+     */
+    void moveContentsTo(ArenaRadixTrieNode<V> node) {
+        node.value = value;
+        node.size = size;
+        node.children = children;
+        node.firstChars = firstChars;
+        node.childCount = childCount;
+        value = null;
+        children = null;
+        firstChars = null;
+        childCount = 0;
+    }
+}
@@ -0,0 +1,427 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A radix trie whose lower levels are buckets of key suffixes, in the manner of a burst trie or HAT-trie, for keys
+ * of high entropy such as random numbers or hashes.
+ * <p>
+ * On such keys a {@link RadixTrie} degenerates towards a plain trie: the top levels fan out over every digit, one
+ * char per level, and every key ends in a leaf of its own. Here a subtree holding few keys is a single bucket
+ * instead, the sorted suffixes of its keys stored back to back in one char[]. A bucket bursts only when it holds
+ * more than the burst threshold of keys: it becomes an inner node whose children are new buckets, one per first char
+ * of the suffixes, each labelled with the longest common prefix of its suffixes. The trie thus has about one node per
+ * threshold keys, and a lookup follows a few nodes before binary searching a compact bucket.
+ * <p>
+ * Keys are iterated in sorted order, as in {@link RadixTrie}. Buckets do not merge back into their parent when keys
+ * are removed, but a bucket left empty is unlinked. Null values are not stored: putting a null value removes the key.
+ * This implementation is not thread safe, and its iterators are fail-fast.
+ */
+@SuppressWarnings("WeakerAccess")
+public class BurstRadixTrie<V> extends AbstractMap<String, V> {
+
+    public static final int DEFAULT_BURST_THRESHOLD = 64;
+
+    private final int burstThreshold;
+    // package private for unit testing
+    BurstRadixTrieNode<V> root = BurstRadixTrieNode.newBucket(null);
+    // number of structural modifications, for the fail-fast iterators
+    private int modCount;
+
+    public BurstRadixTrie() {
+        this(DEFAULT_BURST_THRESHOLD);
+    }
+
+    /**
+     * @param burstThreshold the number of keys a bucket holds before it bursts into nodes
+     */
+    public BurstRadixTrie(int burstThreshold) {
+        if (burstThreshold < 1) {
+            throw new IllegalArgumentException("Burst threshold must be positive: " + burstThreshold);
+        }
+        this.burstThreshold = burstThreshold;
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? get((CharSequence) key) : null;
+    }
+
+    public V get(CharSequence key) {
+        BurstRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (!node.isBucket()) {
+            if (offset == end) {
+                return node.value;
+            }
+            RadixTrieNode<V> child = node.findChild(key.charAt(offset));
+            if (child == null) {
+                return null;
+            }
+            // the first character matched when finding the child
+            char[] chars = child.chars;
+            int length = chars.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (chars[idx] != key.charAt(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+            node = (BurstRadixTrieNode<V>) child;
+        }
+        int index = node.find(key, offset, end);
+        return index >= 0 ? node.valueAt(index) : null;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
+        if (value == null) {
+            // null marks the absence of a value, so mapping a key to null removes it
+            return remove(key);
+        }
+        BurstRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (!node.isBucket()) {
+            if (offset == end) {
+                V oldValue = node.value;
+                node.value = value;
+                if (oldValue == null) {
+                    keyAdded(key);
+                }
+                return oldValue;
+            }
+            int index = node.childIndex(key.charAt(offset));
+            if (index < 0) {
+                // no child starts with the next char: a new bucket holds the rest of the key
+                BurstRadixTrieNode<V> bucket = BurstRadixTrieNode.newBucket(new char[]{key.charAt(offset)});
+                bucket.insert(0, key, offset + 1, end, value);
+                node.addChild(-index - 1, bucket);
+                keyAdded(key);
+                return null;
+            }
+            BurstRadixTrieNode<V> child = (BurstRadixTrieNode<V>) node.children.get(index);
+            int commonCharacters = RadixTrie.numCharsInCommonPrefix(child.chars, key, offset, end);
+            if (commonCharacters < child.chars.length) {
+                child = splitChild(node, index, child, commonCharacters);
+            }
+            node = child;
+            offset += commonCharacters;
+        }
+        int index = node.find(key, offset, end);
+        if (index >= 0) {
+            return node.setValueAt(index, value);
+        }
+        node.insert(-index - 1, key, offset, end, value);
+        keyAdded(key);
+        if (node.count > burstThreshold) {
+            node.burst(burstThreshold);
+        }
+        return null;
+    }
+
+    /**
+     * Puts an inner node holding the first chars of a child between the child and its parent.
+     *
+     * @return the new inner node
+     */
+    private static <V> BurstRadixTrieNode<V> splitChild(BurstRadixTrieNode<V> parent, int index, BurstRadixTrieNode<V> child, int commonCharacters) {
+        BurstRadixTrieNode<V> node = new BurstRadixTrieNode<>();
+        node.chars = Arrays.copyOf(child.chars, commonCharacters);
+        node.size = child.size;
+        child.chars = Arrays.copyOfRange(child.chars, commonCharacters, child.chars.length);
+        parent.replaceChild(index, node);
+        node.addChild(0, child);
+        return node;
+    }
+
+    /**
+     * Counts a new key in the subtree sizes along its path, down to its bucket or inner node.
+     */
+    private void keyAdded(String key) {
+        adjustSizes(key, 1);
+        modCount++;
+    }
+
+    private void adjustSizes(String key, int delta) {
+        BurstRadixTrieNode<V> node = root;
+        node.size += delta;
+        int offset = 0;
+        int end = key.length();
+        while (!node.isBucket() && offset < end) {
+            node = (BurstRadixTrieNode<V>) node.findChild(key.charAt(offset));
+            node.size += delta;
+            offset += node.chars.length;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String keyStr = (String) key;
+        V oldValue = get(keyStr);
+        if (oldValue != null) {
+            removeExisting(keyStr);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Removes a key known to be in the trie. An emptied bucket is unlinked and an inner node left without a value is
+     * unlinked or merged with its only child, as in {@link RadixTrie#removeValue}, which keeps inner nodes holding a
+     * value or at least two children.
+     *
+     * @return the node that absorbed the chars of a merged parent, or null if no node was merged
+     */
+    private RadixTrieNode<V> removeExisting(String key) {
+        adjustSizes(key, -1);
+        modCount++;
+        BurstRadixTrieNode<V> grandparent = null;
+        BurstRadixTrieNode<V> parent = null;
+        BurstRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (!node.isBucket() && offset < end) {
+            grandparent = parent;
+            parent = node;
+            node = (BurstRadixTrieNode<V>) node.findChild(key.charAt(offset));
+            offset += node.chars.length;
+        }
+        if (node.isBucket()) {
+            node.removeAt(node.find(key, offset, end));
+            return node.count == 0 && parent != null ? RadixTrie.unlinkChild(grandparent, parent, node) : null;
+        }
+        node.value = null;
+        if (parent == null) {
+            return null;
+        } else if (node.children == null) {
+            return RadixTrie.unlinkChild(grandparent, parent, node);
+        } else if (node.children.size() == 1) {
+            return RadixTrie.mergeWithOnlyChild(parent, node);
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        root = BurstRadixTrieNode.newBucket(null);
+        modCount++;
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered from subtree sizes down to the bucket of
+     * the prefix, if it ends in one
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        BurstRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = prefix.length();
+        while (!node.isBucket()) {
+            if (offset == end) {
+                return node.size;
+            }
+            RadixTrieNode<V> child = node.findChild(prefix.charAt(offset));
+            if (child == null) {
+                return 0;
+            }
+            int commonCharacters = RadixTrie.numCharsInCommonPrefix(child.chars, prefix, offset, end);
+            if (offset + commonCharacters == end) {
+                return child.size;
+            } else if (commonCharacters < child.chars.length) {
+                return 0;
+            }
+            node = (BurstRadixTrieNode<V>) child;
+            offset += commonCharacters;
+        }
+        return node.countWithPrefix(prefix, offset, end);
+    }
+
+    /**
+     * Walks the trie to report its shape and an estimate of the memory it retains, buckets included.
+     */
+    public RadixTrieStats stats() {
+        return RadixTrieStats.of(root);
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return BurstRadixTrie.this.size();
+            }
+
+            @Override
+            public void clear() {
+                BurstRadixTrie.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Walks the trie depth first in key order, with an explicit stack, and each bucket in the order of its suffixes.
+     * <p>
+     * Removing the key last returned may merge a node into the node on top of the stack, as in the iterators of
+     * {@link RadixTrie}; its entry is then moved back to the key length of the merged node.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        @SuppressWarnings("unchecked")
+        private BurstRadixTrieNode<V>[] stack = (BurstRadixTrieNode<V>[]) new BurstRadixTrieNode<?>[16];
+        // for every node on the stack, the length of its parent's key
+        private int[] parentLengths = new int[16];
+        private int top;
+        private char[] keyPath = new char[16];
+        private int keyLength;
+
+        // the bucket being walked, and the index of its next suffix
+        private BurstRadixTrieNode<V> bucket;
+        private int bucketIndex;
+        private int bucketKeyLength;
+
+        private int remaining = root.size;
+        private String lastKey;
+        private boolean lastInBucket;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            if (root.isBucket()) {
+                bucket = root;
+            } else {
+                pushChildren(root);
+            }
+        }
+
+        private void pushChildren(BurstRadixTrieNode<V> node) {
+            List<RadixTrieNode<V>> children = node.children;
+            if (children == null) {
+                return;
+            }
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    parentLengths = Arrays.copyOf(parentLengths, top * 2);
+                }
+                stack[top] = (BurstRadixTrieNode<V>) children.get(i);
+                parentLengths[top] = keyLength;
+                top++;
+            }
+        }
+
+        private void appendToKey(char[] chars, int from, int to) {
+            int length = to - from;
+            if (keyLength + length > keyPath.length) {
+                keyPath = Arrays.copyOf(keyPath, Math.max(keyLength + length, keyPath.length * 2));
+            }
+            System.arraycopy(chars, from, keyPath, keyLength, length);
+            keyLength += length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                if (bucket != null && bucketIndex < bucket.count) {
+                    keyLength = bucketKeyLength;
+                    appendToKey(bucket.suffixes, bucket.start(bucketIndex), bucket.ends[bucketIndex]);
+                    V value = bucket.valueAt(bucketIndex++);
+                    lastInBucket = true;
+                    return returnEntry(value);
+                }
+                bucket = null;
+                if (top == 0) {
+                    // the subtree sizes promised more values than the trie holds
+                    throw new ConcurrentModificationException();
+                }
+                BurstRadixTrieNode<V> node = stack[--top];
+                stack[top] = null;
+                keyLength = parentLengths[top];
+                appendToKey(node.chars, 0, node.chars.length);
+                if (node.isBucket()) {
+                    bucket = node;
+                    bucketIndex = 0;
+                    bucketKeyLength = keyLength;
+                    continue;
+                }
+                pushChildren(node);
+                if (node.value != null) {
+                    lastInBucket = false;
+                    return returnEntry(node.value);
+                }
+            }
+        }
+
+        private Map.Entry<String, V> returnEntry(V value) {
+            remaining--;
+            lastKey = new String(keyPath, 0, keyLength);
+            return new SimpleImmutableEntry<>(lastKey, value);
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            BurstRadixTrieNode<V> next = top > 0 ? stack[top - 1] : null;
+            int nextLength = next != null ? next.chars.length : 0;
+            RadixTrieNode<V> merged = removeExisting(lastKey);
+            if (merged != null && merged == next) {
+                parentLengths[top - 1] -= merged.chars.length - nextLength;
+            }
+            if (lastInBucket) {
+                // the following suffixes moved down by one
+                bucketIndex--;
+            }
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+
+/**
+ * A node of {@link BurstRadixTrie}: either an inner node, with a value and children like any {@link RadixTrieNode},
+ * or a bucket, a leaf holding the keys of its whole subtree as sorted suffixes after its own key.
+ * <p>
+ * The suffixes of a bucket are stored back to back in one char[], suffix i ending at ends[i] and starting where
+ * suffix i - 1 ends, with its value in values[i]. Lookups binary search the suffixes in place, so a bucket is three
+ * arrays however many keys it holds, instead of a node, a label and a children list per key.
+ */
+final class BurstRadixTrieNode<V> extends RadixTrieNode<V> {
+
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    // the bucket, all null for inner nodes
+    char[] suffixes;
+    int[] ends;
+    Object[] values;
+    int count;
+
+    /**
+     * @return a new, empty bucket with the given label
+     */
+    static <V> BurstRadixTrieNode<V> newBucket(char[] chars, int capacity) {
+        BurstRadixTrieNode<V> node = new BurstRadixTrieNode<>();
+        node.chars = chars;
+        node.suffixes = new char[capacity * 2];
+        node.ends = new int[capacity];
+        node.values = new Object[capacity];
+        return node;
+    }
+
+    static <V> BurstRadixTrieNode<V> newBucket(char[] chars) {
+        return newBucket(chars, INITIAL_BUCKET_CAPACITY);
+    }
+
+    @Override
+    RadixTrieNode<V> newNode() {
+        return new BurstRadixTrieNode<>();
+    }
+
+    boolean isBucket() {
+        return ends != null;
+    }
+
+    int start(int index) {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    V setValueAt(int index, V value) {
+        V oldValue = valueAt(index);
+        values[index] = value;
+        return oldValue;
+    }
+
+    /**
+     * @return the index of the suffix equal to key[offset..end) if there is one, otherwise (-(insertion point) - 1),
+     * with the same convention as {@link Arrays#binarySearch(char[], char)}
+     */
+    int find(CharSequence key, int offset, int end) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, key, offset, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Compares a suffix with key[offset..end) char by char, as {@link String#compareTo(String)} does.
+     */
+    private int compare(int index, CharSequence key, int offset, int end) {
+        char[] suffixes = this.suffixes;
+        int from = start(index);
+        int suffixLength = ends[index] - from;
+        int keyLength = end - offset;
+        for (int idx = 0, length = Math.min(suffixLength, keyLength); idx < length; idx++) {
+            int diff = suffixes[from + idx] - key.charAt(offset + idx);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return suffixLength - keyLength;
+    }
+
+    /**
+     * @return the number of suffixes starting with prefix[offset..end)
+     */
+    int countWithPrefix(CharSequence prefix, int offset, int end) {
+        int index = find(prefix, offset, end);
+        int first = index >= 0 ? index : -index - 1;
+        int length = end - offset;
+        int last = first;
+        // the suffixes starting with the prefix sort right after it
+        outer:
+        for (; last < count; last++) {
+            int from = start(last);
+            if (ends[last] - from < length) {
+                break;
+            }
+            for (int idx = 0; idx < length; idx++) {
+                if (suffixes[from + idx] != prefix.charAt(offset + idx)) {
+                    break outer;
+                }
+            }
+        }
+        return last - first;
+    }
+
+    /**
+     * Inserts key[offset..end) as the suffix at the given index, shifting the following suffixes.
+     */
+    void insert(int index, String key, int offset, int end, V value) {
+        int length = end - offset;
+        int used = count == 0 ? 0 : ends[count - 1];
+        if (used + length > suffixes.length) {
+            suffixes = Arrays.copyOf(suffixes, Math.max(used + length, suffixes.length + (suffixes.length >> 1)));
+        }
+        if (count == ends.length) {
+            int capacity = count + (count >> 1) + 1;
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int from = start(index);
+        System.arraycopy(suffixes, from, suffixes, from + length, used - from);
+        key.getChars(offset, end, suffixes, from);
+        System.arraycopy(ends, index, ends, index + 1, count - index);
+        System.arraycopy(values, index, values, index + 1, count - index);
+        count++;
+        ends[index] = from + length;
+        values[index] = value;
+        for (int i = index + 1; i < count; i++) {
+            ends[i] += length;
+        }
+    }
+
+    /**
+     * Appends chars[from..to) as the last suffix; the bucket must have room for it.
+     */
+    private void append(char[] chars, int from, int to, Object value) {
+        int start = count == 0 ? 0 : ends[count - 1];
+        System.arraycopy(chars, from, suffixes, start, to - from);
+        ends[count] = start + to - from;
+        values[count] = value;
+        count++;
+    }
+
+    /**
+     * Removes the suffix at the given index, shifting the following suffixes.
+     */
+    void removeAt(int index) {
+        int from = start(index);
+        int to = ends[index];
+        int length = to - from;
+        System.arraycopy(suffixes, to, suffixes, from, ends[count - 1] - to);
+        System.arraycopy(ends, index + 1, ends, index, count - index - 1);
+        System.arraycopy(values, index + 1, values, index, count - index - 1);
+        count--;
+        values[count] = null;
+        for (int i = index; i < count; i++) {
+            ends[i] -= length;
+        }
+    }
+
+    /**
+     * Turns this bucket into an inner node. The empty suffix, if any, becomes the value of the node, and the other
+     * suffixes are grouped by their first char into new buckets, each labelled with the longest common prefix of its
+     * group. A new bucket still holding more than the threshold bursts in turn.
+     */
+    @SuppressWarnings("unchecked")
+    void burst(int threshold) {
+        char[] suffixes = this.suffixes;
+        int[] ends = this.ends;
+        Object[] values = this.values;
+        int count = this.count;
+        this.suffixes = null;
+        this.ends = null;
+        this.values = null;
+        this.count = 0;
+
+        int i = 0;
+        if (ends[0] == 0) {
+            // the empty suffix sorts first
+            value = (V) values[0];
+            i = 1;
+        }
+        while (i < count) {
+            int from = i == 0 ? 0 : ends[i - 1];
+            char first = suffixes[from];
+            int j = i + 1;
+            while (j < count && suffixes[ends[j - 1]] == first) {
+                j++;
+            }
+            // sorted suffixes: the common prefix of the first and last of the group is common to all of them
+            int lastFrom = j == 1 ? 0 : ends[j - 2];
+            int common = commonPrefixLength(suffixes, from, ends[i], lastFrom, ends[j - 1]);
+            BurstRadixTrieNode<V> bucket = newBucket(Arrays.copyOfRange(suffixes, from, from + common), j - i);
+            int length = ends[j - 1] - from - (j - i) * common;
+            if (length > bucket.suffixes.length) {
+                bucket.suffixes = new char[length];
+            }
+            for (int k = i; k < j; k++) {
+                bucket.append(suffixes, (k == 0 ? 0 : ends[k - 1]) + common, ends[k], values[k]);
+            }
+            bucket.size = j - i;
+            addChild(children == null ? 0 : children.size(), bucket);
+            if (bucket.count > threshold) {
+                bucket.burst(threshold);
+            }
+            i = j;
+        }
+    }
+
+    private static int commonPrefixLength(char[] chars, int from1, int to1, int from2, int to2) {
+        int length = Math.min(to1 - from1, to2 - from2);
+        int idx = 0;
+        while (idx < length && chars[from1 + idx] == chars[from2 + idx]) {
+            idx++;
+        }
+        return idx;
+    }
+}
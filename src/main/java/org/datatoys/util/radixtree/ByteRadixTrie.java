@@ -0,0 +1,543 @@
+package org.datatoys.util.radixtree;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A radix trie keyed by byte sequences, for binary keys and for text stored as UTF-8 (see {@link Utf8RadixTrie}).
+ * <p>
+ * Edge labels are byte[], so ASCII text takes half the memory of the char[] labels of {@link RadixTrie}. Keys are
+ * ordered as unsigned bytes, lexicographically, as by {@link #KEY_ORDER}, which for UTF-8 is the code point order of
+ * the text.
+ * <p>
+ * A byte[] has no value equality, so this is not a {@link Map}. Keys are copied when stored, and lookups take a
+ * byte[] range or the remaining bytes of a {@link ByteBuffer}, read without copying or moving its position. Iteration
+ * returns the entries in key order, with a fresh copy of each key.
+ * <p>
+ * Like {@link RadixTrie}, this implementation is not thread safe, does not store null values, and keeps subtree sizes
+ * for {@link #countWithPrefix(byte[])}. Its iterators are fail-fast.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ByteRadixTrie<V> implements Iterable<Map.Entry<byte[], V>> {
+
+    /**
+     * Unsigned lexicographic order of byte arrays, the iteration order of the trie.
+     */
+    public static final Comparator<byte[]> KEY_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] b1, byte[] b2) {
+            int length = Math.min(b1.length, b2.length);
+            for (int idx = 0; idx < length; idx++) {
+                int diff = (b1[idx] & 0xFF) - (b2[idx] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return b1.length - b2.length;
+        }
+    };
+
+    // package private for unit testing
+    ByteRadixTrieNode<V> root = new ByteRadixTrieNode<>();
+    private int size;
+    // number of structural modifications, for the fail-fast iterators
+    private int modCount;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size < 1;
+    }
+
+    public boolean containsKey(byte[] key) {
+        return get(key) != null;
+    }
+
+    public boolean containsKey(ByteBuffer key) {
+        return get(key) != null;
+    }
+
+    public V get(byte[] key) {
+        return get(key, 0, key.length);
+    }
+
+    /**
+     * Looks up the value of the key held in {@code key[off..off+len)}, without copying it.
+     */
+    public V get(byte[] key, int off, int len) {
+        if (off < 0 || len < 0 || off + len > key.length) {
+            throw new IndexOutOfBoundsException("Invalid key range [" + off + ", " + (off + len) + ") for a buffer of length " + key.length);
+        }
+        ByteRadixTrieNode<V> node = getNode(root, key, off, off + len);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Looks up the value of the key held in the remaining bytes of the buffer, without copying them or changing the
+     * position of the buffer.
+     */
+    public V get(ByteBuffer key) {
+        ByteRadixTrieNode<V> node = root;
+        int offset = key.position();
+        int end = key.limit();
+        while (offset < end) {
+            node = node.findChild(key.get(offset) & 0xFF);
+            if (node == null) {
+                return null;
+            }
+            byte[] bytes = node.bytes;
+            int length = bytes.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (bytes[idx] != key.get(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node.value;
+    }
+
+    /**
+     * Looks up a key given as a sequence of chars below 0x80, each standing for the byte with the same value, so that
+     * ASCII text is found without encoding it.
+     */
+    V getAscii(CharSequence key) {
+        ByteRadixTrieNode<V> node = getAsciiNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes a key given as ASCII chars, as {@link #getAscii(CharSequence)} looks it up.
+     */
+    V removeAscii(CharSequence key) {
+        ByteRadixTrieNode<V> node = getAsciiNode(key);
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V oldValue = node.value;
+        node.value = null;
+        ByteRadixTrieNode<V> grandparent = null;
+        ByteRadixTrieNode<V> parent = null;
+        node = root;
+        node.size--;
+        for (int offset = 0, end = key.length(); offset < end; offset += node.bytes.length) {
+            grandparent = parent;
+            parent = node;
+            node = node.findChild(key.charAt(offset));
+            node.size--;
+        }
+        compact(grandparent, parent, node);
+        size--;
+        modCount++;
+        return oldValue;
+    }
+
+    /**
+     * Counts the keys starting with a prefix given as ASCII chars, as {@link #getAscii(CharSequence)} looks it up.
+     */
+    int countWithPrefixAscii(CharSequence prefix) {
+        ByteRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = prefix.length();
+        while (offset < end) {
+            ByteRadixTrieNode<V> child = node.findChild(prefix.charAt(offset));
+            if (child == null) {
+                return 0;
+            }
+            byte[] bytes = child.bytes;
+            int length = Math.min(bytes.length, end - offset);
+            for (int idx = 1; idx < length; idx++) {
+                if (bytes[idx] != prefix.charAt(offset + idx)) {
+                    return 0;
+                }
+            }
+            node = child;
+            offset += bytes.length;
+        }
+        return node.size;
+    }
+
+    private ByteRadixTrieNode<V> getAsciiNode(CharSequence key) {
+        ByteRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null) {
+                return null;
+            }
+            byte[] bytes = node.bytes;
+            int length = bytes.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (bytes[idx] != key.charAt(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node;
+    }
+
+    /**
+     * Maps the key to the value, copying the key. Putting a null value removes the key.
+     */
+    public V put(byte[] key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.length == 0) {
+            throw new IllegalArgumentException("Supplied key is empty: cannot map values based on empty keys");
+        }
+        if (value == null) {
+            // null marks the absence of a value, so mapping a key to null removes it
+            return remove(key);
+        }
+        V oldValue = insert(root, key, 0, key.length, value);
+        if (oldValue == null) {
+            adjustSizes(root, key, 0, key.length, 1);
+            size++;
+            modCount++;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Maps the key held in the remaining bytes of the buffer to the value, without changing the position of the
+     * buffer.
+     */
+    public V put(ByteBuffer key, V value) {
+        byte[] bytes = new byte[key.remaining()];
+        key.duplicate().get(bytes);
+        return put(bytes, value);
+    }
+
+    public V remove(byte[] key) {
+        ByteRadixTrieNode<V> node = getNode(root, key, 0, key.length);
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V oldValue = node.value;
+        node.value = null;
+        removeValue(root, key, 0, key.length);
+        size--;
+        modCount++;
+        return oldValue;
+    }
+
+    public V remove(ByteBuffer key) {
+        byte[] bytes = new byte[key.remaining()];
+        key.duplicate().get(bytes);
+        return remove(bytes);
+    }
+
+    public void clear() {
+        root = new ByteRadixTrieNode<>();
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(byte[] prefix) {
+        ByteRadixTrieNode<V> node = getPrefixNode(root, prefix);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @return the entries of the trie in {@link #KEY_ORDER}
+     */
+    @Override
+    public Iterator<Map.Entry<byte[], V>> iterator() {
+        return new EntryIterator();
+    }
+
+    private static <V> V insert(ByteRadixTrieNode<V> node, byte[] key, int offset, int end, V value) {
+        while (true) {
+            int first = key[offset] & 0xFF;
+            ByteRadixTrieNode<V> child = node.findChild(first);
+            if (child == null) {
+                // no child shares a first byte with the key: insert a new leaf, keeping the children sorted
+                ByteRadixTrieNode<V> leaf = new ByteRadixTrieNode<>();
+                leaf.bytes = Arrays.copyOfRange(key, offset, end);
+                leaf.value = value;
+                node.addChild(-node.childIndex(first) - 1, leaf);
+                return null;
+            }
+            int commonBytes = numBytesInCommonPrefix(child.bytes, key, offset, end);
+            int keyLength = end - offset;
+            if (commonBytes < child.bytes.length) {
+                // split the child, which becomes the parent of its own remainder
+                reparentChildNode(child, commonBytes);
+                if (commonBytes == keyLength) {
+                    // the key ends exactly at the split point, the new parent node holds its value
+                    child.value = value;
+                    return null;
+                }
+            } else if (commonBytes == keyLength) {
+                V oldValue = child.value;
+                child.value = value;
+                return oldValue;
+            }
+            node = child;
+            offset += commonBytes;
+        }
+    }
+
+    /**
+     * Adds delta to the subtree size of every node on the path of an existing key, starting at the given node.
+     */
+    private static <V> void adjustSizes(ByteRadixTrieNode<V> node, byte[] key, int offset, int end, int delta) {
+        node.size += delta;
+        while (offset < end) {
+            node = node.findChild(key[offset] & 0xFF);
+            node.size += delta;
+            offset += node.bytes.length;
+        }
+    }
+
+    /**
+     * Takes the value of an existing key, already cleared from its node by the caller, out of the subtree sizes on
+     * its path below the given node, and keeps the trie compressed, as {@link RadixTrie} does: the node is unlinked if
+     * it has no children left, which may leave its parent to be merged, or merged with its child if it has only one.
+     *
+     * @return the node that absorbed the bytes of a merged parent, or null if no node was merged
+     */
+    static <V> ByteRadixTrieNode<V> removeValue(ByteRadixTrieNode<V> node, byte[] key, int offset, int end) {
+        ByteRadixTrieNode<V> grandparent = null;
+        ByteRadixTrieNode<V> parent = null;
+        node.size--;
+        while (offset < end) {
+            grandparent = parent;
+            parent = node;
+            node = node.findChild(key[offset] & 0xFF);
+            node.size--;
+            offset += node.bytes.length;
+        }
+        return compact(grandparent, parent, node);
+    }
+
+    /**
+     * Unlinks or merges a node whose value was just removed, given its parent and grandparent, each null if the node
+     * is the root or a child of the root.
+     *
+     * @return the node that absorbed the bytes of a merged parent, or null if no node was merged
+     */
+    private static <V> ByteRadixTrieNode<V> compact(ByteRadixTrieNode<V> grandparent, ByteRadixTrieNode<V> parent,
+                                                    ByteRadixTrieNode<V> node) {
+        if (parent == null) {
+            return null;
+        }
+        if (node.children == null) {
+            return unlinkChild(grandparent, parent, node);
+        } else if (node.children.size() == 1) {
+            return mergeWithOnlyChild(parent, node);
+        }
+        return null;
+    }
+
+    /**
+     * Unlinks a node from its parent. A parent left without a value and with a single child is merged with that
+     * child, unless it is the root, which has no grandparent.
+     *
+     * @return the node that absorbed the bytes of the parent, or null if it was not merged
+     */
+    static <V> ByteRadixTrieNode<V> unlinkChild(ByteRadixTrieNode<V> grandparent, ByteRadixTrieNode<V> parent,
+                                                ByteRadixTrieNode<V> node) {
+        parent.removeChild(parent.childIndex(node.first()));
+        if (grandparent != null && parent.value == null && parent.children != null && parent.children.size() == 1) {
+            return mergeWithOnlyChild(grandparent, parent);
+        }
+        return null;
+    }
+
+    /**
+     * Replaces a node without a value by its only child, whose bytes are prefixed with the bytes of the node. The
+     * child keeps its identity, so that iterators holding it stay valid.
+     */
+    static <V> ByteRadixTrieNode<V> mergeWithOnlyChild(ByteRadixTrieNode<V> parent, ByteRadixTrieNode<V> node) {
+        ByteRadixTrieNode<V> child = node.children.get(0);
+        byte[] bytes = Arrays.copyOf(node.bytes, node.bytes.length + child.bytes.length);
+        System.arraycopy(child.bytes, 0, bytes, node.bytes.length, child.bytes.length);
+        child.bytes = bytes;
+        parent.replaceChild(parent.childIndex(child.first()), child);
+        return child;
+    }
+
+    private static <V> void reparentChildNode(ByteRadixTrieNode<V> node, int commonBytes) {
+        ByteRadixTrieNode<V> child = new ByteRadixTrieNode<>();
+        child.value = node.value;
+        child.size = node.size;
+        node.moveChildrenTo(child);
+        child.bytes = Arrays.copyOfRange(node.bytes, commonBytes, node.bytes.length);
+        node.value = null;
+        node.bytes = Arrays.copyOf(node.bytes, commonBytes);
+        node.addChild(0, child);
+    }
+
+    private static int numBytesInCommonPrefix(byte[] prefix, byte[] key, int offset, int end) {
+        int length = Math.min(prefix.length, end - offset);
+        int idx = 0;
+        while (idx < length && prefix[idx] == key[offset + idx]) {
+            idx++;
+        }
+        return idx;
+    }
+
+    static <V> ByteRadixTrieNode<V> getNode(ByteRadixTrieNode<V> node, byte[] key, int offset, int end) {
+        while (offset < end) {
+            node = node.findChild(key[offset] & 0xFF);
+            if (node == null) {
+                return null;
+            }
+            // the first byte matched when finding the child
+            byte[] bytes = node.bytes;
+            int length = bytes.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (bytes[idx] != key[offset + idx]) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node.bytes != null ? node : null;
+    }
+
+    static <V> ByteRadixTrieNode<V> getPrefixNode(ByteRadixTrieNode<V> node, byte[] prefix) {
+        int offset = 0;
+        int end = prefix.length;
+        while (offset < end) {
+            ByteRadixTrieNode<V> child = node.findChild(prefix[offset] & 0xFF);
+            if (child == null) {
+                return null;
+            }
+            int commonBytes = numBytesInCommonPrefix(child.bytes, prefix, offset, end);
+            if (offset + commonBytes == end) {
+                return child;
+            } else if (commonBytes < child.bytes.length) {
+                return null;
+            }
+            node = child;
+            offset += commonBytes;
+        }
+        return node;
+    }
+
+    /**
+     * Walks the trie depth first in key order, with an explicit stack.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<byte[], V>> {
+        @SuppressWarnings("unchecked")
+        private ByteRadixTrieNode<V>[] stack = (ByteRadixTrieNode<V>[]) new ByteRadixTrieNode<?>[16];
+        private int[] parentLengths = new int[16];
+        private int top;
+        private byte[] keyPath = new byte[16];
+        private int keyLength;
+
+        private int remaining = root.size;
+        private byte[] lastKey;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            pushChildren(root);
+        }
+
+        private void push(ByteRadixTrieNode<V> node, int parentLength) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                parentLengths = Arrays.copyOf(parentLengths, top * 2);
+            }
+            stack[top] = node;
+            parentLengths[top] = parentLength;
+            top++;
+        }
+
+        private void pushChildren(ByteRadixTrieNode<V> node) {
+            List<ByteRadixTrieNode<V>> children = node.children;
+            if (children == null) {
+                return;
+            }
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                ByteRadixTrieNode<V> child = children.get(i);
+                if (child.size > 0) {
+                    push(child, keyLength);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<byte[], V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (top > 0) {
+                ByteRadixTrieNode<V> node = stack[--top];
+                keyLength = parentLengths[top];
+                byte[] bytes = node.bytes;
+                if (keyLength + bytes.length > keyPath.length) {
+                    keyPath = Arrays.copyOf(keyPath, Math.max(keyLength + bytes.length, keyPath.length * 2));
+                }
+                System.arraycopy(bytes, 0, keyPath, keyLength, bytes.length);
+                keyLength += bytes.length;
+                pushChildren(node);
+                if (node.value != null) {
+                    remaining--;
+                    lastKey = Arrays.copyOf(keyPath, keyLength);
+                    return new AbstractMap.SimpleImmutableEntry<>(lastKey, node.value);
+                }
+            }
+            // the subtree sizes promised more values than the trie holds
+            throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            ByteRadixTrieNode<V> node = getNode(root, lastKey, 0, lastKey.length);
+            node.value = null;
+            ByteRadixTrieNode<V> next = top > 0 ? stack[top - 1] : null;
+            int nextLength = next != null ? next.bytes.length : 0;
+            ByteRadixTrieNode<V> merged = removeValue(root, lastKey, 0, lastKey.length);
+            if (merged != null && merged == next) {
+                // the next node took the bytes of its parent, which are no longer part of its parent key
+                parentLengths[top - 1] -= merged.bytes.length - nextLength;
+            }
+            size--;
+            modCount++;
+            lastKey = null;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node in the byte keyed radix tree, the counterpart of {@link RadixTrieNode} with a byte[] label.
+ * <p>
+ * Children are sorted by their first byte, compared as an unsigned value, and indexed with the same three layouts
+ * as {@link RadixTrieNode}: a scan for small nodes, a direct table for dense nodes, and a binary search over the
+ * first bytes for any other node. The indexing code mirrors that of RadixTrieNode line for line, with unsigned bytes
+ * for chars: a change to either class should be made to both.
+ */
+class ByteRadixTrieNode<V> {
+
+    byte[] bytes;
+    List<ByteRadixTrieNode<V>> children;
+    V value;
+    // number of values in the subtree rooted at this node, including its own
+    int size;
+
+    // lookup index over the first byte of each child; at most one of the two is set, see reindex()
+    byte[] firstBytes;
+    ByteRadixTrieNode<V>[] direct;
+    int directBase;
+
+    /**
+     * @return the first byte of the label as an unsigned value
+     */
+    int first() {
+        return bytes[0] & 0xFF;
+    }
+
+    /**
+     * @param b an unsigned byte value
+     * @return the child whose label starts with the given byte, or null if there is none
+     */
+    ByteRadixTrieNode<V> findChild(int b) {
+        ByteRadixTrieNode<V>[] direct = this.direct;
+        if (direct != null) {
+            int slot = b - directBase;
+            return slot >= 0 && slot < direct.length ? direct[slot] : null;
+        }
+        List<ByteRadixTrieNode<V>> children = this.children;
+        if (children == null) {
+            return null;
+        }
+        if (firstBytes != null) {
+            int idx = binarySearch(firstBytes, b);
+            return idx >= 0 ? children.get(idx) : null;
+        }
+        for (int i = 0, n = children.size(); i < n; i++) {
+            ByteRadixTrieNode<V> child = children.get(i);
+            int first = child.first();
+            if (first == b) {
+                return child;
+            } else if (first > b) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the index in the children list of the child starting with the given unsigned byte if there is one,
+     * otherwise (-(insertion point) - 1)
+     */
+    int childIndex(int b) {
+        List<ByteRadixTrieNode<V>> children = this.children;
+        if (children == null) {
+            return -1;
+        }
+        if (firstBytes != null) {
+            return binarySearch(firstBytes, b);
+        }
+        int low = 0;
+        int high = children.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int first = children.get(mid).first();
+            if (first < b) {
+                low = mid + 1;
+            } else if (first > b) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int binarySearch(byte[] sorted, int b) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int first = sorted[mid] & 0xFF;
+            if (first < b) {
+                low = mid + 1;
+            } else if (first > b) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    void addChild(int index, ByteRadixTrieNode<V> child) {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        children.add(index, child);
+        ByteRadixTrieNode<V>[] direct = this.direct;
+        int slot = child.first() - directBase;
+        if (direct != null && slot >= 0 && slot < direct.length) {
+            // the table already covers the new byte, no need to change the layout
+            direct[slot] = child;
+        } else {
+            reindex();
+        }
+    }
+
+    ByteRadixTrieNode<V> removeChild(int index) {
+        ByteRadixTrieNode<V> child = children.remove(index);
+        if (children.isEmpty()) {
+            children = null;
+        }
+        reindex();
+        return child;
+    }
+
+    /**
+     * Replaces a child by a node starting with the same byte, which keeps the layout of the index.
+     */
+    void replaceChild(int index, ByteRadixTrieNode<V> child) {
+        children.set(index, child);
+        if (direct != null) {
+            direct[child.first() - directBase] = child;
+        }
+    }
+
+    /**
+     * Moves the children of this node, along with their index, to the given node.
+     */
+    void moveChildrenTo(ByteRadixTrieNode<V> node) {
+        node.children = children;
+        node.firstBytes = firstBytes;
+        node.direct = direct;
+        node.directBase = directBase;
+        children = null;
+        firstBytes = null;
+        direct = null;
+        directBase = 0;
+    }
+
+    /**
+     * Picks the lookup layout for the current children and rebuilds its index.
+     */
+    @SuppressWarnings("unchecked")
+    void reindex() {
+        firstBytes = null;
+        direct = null;
+        directBase = 0;
+        List<ByteRadixTrieNode<V>> children = this.children;
+        int fanout = children == null ? 0 : children.size();
+        if (fanout <= RadixTrieNode.SCAN_MAX_FANOUT) {
+            return;
+        }
+        int min = children.get(0).first();
+        int max = children.get(fanout - 1).first();
+        int span = max - min + 1;
+        if (span <= fanout * RadixTrieNode.DIRECT_MAX_SPAN_PER_CHILD) {
+            ByteRadixTrieNode<V>[] table = (ByteRadixTrieNode<V>[]) new ByteRadixTrieNode<?>[span];
+            for (int i = 0; i < fanout; i++) {
+                ByteRadixTrieNode<V> child = children.get(i);
+                table[child.first() - min] = child;
+            }
+            direct = table;
+            directBase = min;
+        } else {
+            byte[] index = new byte[fanout];
+            for (int i = 0; i < fanout; i++) {
+                index[i] = children.get(i).bytes[0];
+            }
+            firstBytes = index;
+        }
+    }
+}
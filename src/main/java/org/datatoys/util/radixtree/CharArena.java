@@ -0,0 +1,117 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+
+/**
+ * The chars of the edge labels of an {@link ArenaRadixTrie}, appended to large shared slabs instead of a char[] per
+ * node. A label is a slice of one slab, addressed by the slab number and an offset, packed in a long by
+ * {@link #append}.
+ * <p>
+ * Slabs are only appended to. A label that is discarded or replaced leaves dead chars behind, which are counted so
+ * that the trie can {@link ArenaRadixTrie#compact() compact} its labels into a new arena once there are enough of
+ * them. Labels longer than a slab get a slab of their own.
+ */
+final class CharArena {
+
+    static final int SLAB_SIZE = 1 << 15;
+
+    char[][] slabs = new char[4][];
+    private int slabCount;
+    // the slab being filled, and the number of chars used in it
+    private int current = -1;
+    private int position = SLAB_SIZE;
+
+    private long allocatedChars;
+    private long liveChars;
+
+    static int slab(long address) {
+        return (int) (address >>> 32);
+    }
+
+    static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Copies key[from..to) into the arena as a new live label.
+     *
+     * @return the address of the copy, see {@link #slab(long)} and {@link #offset(long)}
+     */
+    long append(CharSequence key, int from, int to) {
+        long address = allocate(to - from);
+        char[] slab = slabs[slab(address)];
+        int offset = offset(address);
+        if (key instanceof String) {
+            ((String) key).getChars(from, to, slab, offset);
+        } else {
+            for (int idx = from; idx < to; idx++) {
+                slab[offset++] = key.charAt(idx);
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Copies the label in slab[offset..offset+length) of another arena, or of this one, as a new live label.
+     */
+    long append(char[] slab, int offset, int length) {
+        long address = allocate(length);
+        System.arraycopy(slab, offset, slabs[slab(address)], offset(address), length);
+        return address;
+    }
+
+    /**
+     * Appends the concatenation of two labels, given as slab ranges, as a new live label.
+     */
+    long append(char[] slab1, int offset1, int length1, char[] slab2, int offset2, int length2) {
+        long address = allocate(length1 + length2);
+        char[] slab = slabs[slab(address)];
+        int offset = offset(address);
+        System.arraycopy(slab1, offset1, slab, offset, length1);
+        System.arraycopy(slab2, offset2, slab, offset + length1, length2);
+        return address;
+    }
+
+    private long allocate(int length) {
+        allocatedChars += length;
+        liveChars += length;
+        if (length > SLAB_SIZE) {
+            // a slab of its own, leaving the current slab to be filled
+            return ((long) addSlab(new char[length]) << 32);
+        }
+        if (position + length > SLAB_SIZE) {
+            current = addSlab(new char[SLAB_SIZE]);
+            position = 0;
+        }
+        long address = ((long) current << 32) | position;
+        position += length;
+        return address;
+    }
+
+    private int addSlab(char[] slab) {
+        if (slabCount == slabs.length) {
+            slabs = Arrays.copyOf(slabs, slabCount * 2);
+        }
+        slabs[slabCount] = slab;
+        return slabCount++;
+    }
+
+    /**
+     * Counts the chars of a label that is no longer used as dead.
+     */
+    void release(int length) {
+        liveChars -= length;
+    }
+
+    int slabCount() {
+        return slabCount;
+    }
+
+    long liveChars() {
+        return liveChars;
+    }
+
+    long deadChars() {
+        return allocatedChars - liveChars;
+    }
+}
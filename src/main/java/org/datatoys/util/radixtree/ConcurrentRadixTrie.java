@@ -0,0 +1,575 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread safe radix trie.
+ * <p>
+ * Every node holds a single volatile reference to an immutable {@link State}: its value and its outgoing edges,
+ * sorted by first character. Writers never modify a state in place, they build a new one and install it with a
+ * compare-and-set on the node, retrying on contention. Readers only follow volatile references, so they never block
+ * and never retry.
+ * <p>
+ * Splitting an edge replaces the edge in the parent's state with one pointing to a new middle node, which in turn
+ * points to the original child: the child node itself is never copied, so concurrent writes to it are not lost.
+ * Removing the last value of a leaf marks it with a tombstone state, after which the leaf can no longer change, and
+ * then unlinks it from its parent. Writers that run into a tombstone help unlinking it and retry. Removals do not
+ * merge edges back together.
+ * <p>
+ * As with {@link java.util.concurrent.ConcurrentHashMap}, neither keys nor values may be null, iteration is weakly
+ * consistent and in sorted key order, and {@link #size()} is an estimate while writes are in flight.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ConcurrentRadixTrie<V> extends AbstractMap<String, V> implements ConcurrentMap<String, V> {
+
+    private static final int PUT = 0;
+    private static final int PUT_IF_ABSENT = 1;
+    private static final int REPLACE = 2;
+    private static final int REPLACE_IF_EQUAL = 3;
+    private static final int REMOVE = 4;
+    private static final int REMOVE_IF_EQUAL = 5;
+
+    private static final char[][] NO_LABELS = new char[0][];
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+    private static final State<?> TOMBSTONE = State.empty();
+
+    private final Node<V> root = new Node<>(State.<V>empty());
+    private final LongAdder size = new LongAdder();
+
+    @Override
+    public int size() {
+        long sum = size.sum();
+        return sum < 0 ? 0 : sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.sum() <= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? get((String) key) : null;
+    }
+
+    /**
+     * Looks up a key without locking and without allocating.
+     */
+    public V get(CharSequence key) {
+        Node<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (true) {
+            State<V> state = node.state;
+            if (offset == end) {
+                return node == root ? null : state.value;
+            }
+            int idx = state.indexOf(key.charAt(offset));
+            if (idx < 0) {
+                return null;
+            }
+            char[] label = state.labels[idx];
+            if (end - offset < label.length || !regionMatches(label, key, offset)) {
+                return null;
+            }
+            node = state.children[idx];
+            offset += label.length;
+        }
+    }
+
+    @Override
+    public V put(String key, V value) {
+        return update(key, null, checkValue(value), PUT);
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+        return update(key, null, checkValue(value), PUT_IF_ABSENT);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+        return update(key, null, checkValue(value), REPLACE);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+        checkValue(oldValue);
+        V previous = update(key, oldValue, checkValue(newValue), REPLACE_IF_EQUAL);
+        return oldValue.equals(previous);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof String ? update((String) key, null, null, REMOVE) : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof String) || value == null) {
+            return false;
+        }
+        V previous = update((String) key, value, null, REMOVE_IF_EQUAL);
+        return value.equals(previous);
+    }
+
+    /**
+     * Computes and inserts a value if the key is absent. The mapping function runs at most once per call, outside of
+     * any atomic section: if another thread inserts a value for the key meanwhile, that value wins and is returned.
+     */
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V computed = mappingFunction.apply(key);
+        if (computed == null) {
+            return null;
+        }
+        V previous = putIfAbsent(key, computed);
+        return previous != null ? previous : computed;
+    }
+
+    @Override
+    public void clear() {
+        for (Iterator<String> it = keySet().iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentRadixTrie.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                V value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                return ConcurrentRadixTrie.this.remove(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void clear() {
+                ConcurrentRadixTrie.this.clear();
+            }
+        };
+    }
+
+    private static <V> V checkValue(V value) {
+        if (value == null) {
+            throw new NullPointerException("Supplied value is null: null values are not supported");
+        }
+        return value;
+    }
+
+    private static void checkKey(String key) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
+    }
+
+    private static boolean applies(int mode, Object current, Object expected) {
+        switch (mode) {
+            case PUT:
+            case REMOVE:
+                return true;
+            case PUT_IF_ABSENT:
+                return current == null;
+            case REPLACE:
+                return current != null;
+            default:
+                return current != null && current.equals(expected);
+        }
+    }
+
+    /**
+     * The single write path. Applies the change described by mode to the key and returns the value the key had at the
+     * moment the change took effect, or the current value if the change did not apply.
+     */
+    private V update(String key, Object expected, V newValue, int mode) {
+        checkKey(key);
+        int end = key.length();
+        boolean needsPresent = mode != PUT && mode != PUT_IF_ABSENT;
+        restart:
+        while (true) {
+            Node<V> parent = null;
+            Node<V> node = root;
+            int offset = 0;
+            while (true) {
+                State<V> state = node.state;
+                if (state == TOMBSTONE) {
+                    unlink(parent, node);
+                    continue restart;
+                }
+                if (offset == end) {
+                    V current = state.value;
+                    if (!applies(mode, current, expected) || current == newValue) {
+                        return current;
+                    }
+                    if (newValue == null && state.children.length == 0) {
+                        // the leaf becomes empty: bury it, then take it out of its parent
+                        if (node.cas(state, tombstone())) {
+                            size.decrement();
+                            unlink(parent, node);
+                            return current;
+                        }
+                    } else if (node.cas(state, state.withValue(newValue))) {
+                        if (current == null) {
+                            size.increment();
+                        } else if (newValue == null) {
+                            size.decrement();
+                        }
+                        return current;
+                    }
+                    continue;
+                }
+                char c = key.charAt(offset);
+                int idx = state.indexOf(c);
+                if (idx < 0) {
+                    if (needsPresent) {
+                        return null;
+                    }
+                    Node<V> leaf = new Node<>(new State<>(newValue, noLabels(), noChildren()));
+                    if (node.cas(state, state.withChild(-idx - 1, substring(key, offset, end), leaf))) {
+                        size.increment();
+                        return null;
+                    }
+                    continue;
+                }
+                char[] label = state.labels[idx];
+                int common = commonPrefix(label, key, offset, end);
+                if (common == label.length) {
+                    parent = node;
+                    node = state.children[idx];
+                    offset += common;
+                    continue;
+                }
+                if (needsPresent) {
+                    return null;
+                }
+                // the key diverges inside the edge, or ends inside it: put a middle node at the divergence point
+                Node<V> child = state.children[idx];
+                char[] lower = Arrays.copyOfRange(label, common, label.length);
+                State<V> middleState;
+                if (offset + common == end) {
+                    middleState = new State<>(newValue, new char[][]{lower}, newChildren(child));
+                } else {
+                    char[] rest = substring(key, offset + common, end);
+                    Node<V> leaf = new Node<>(new State<>(newValue, noLabels(), noChildren()));
+                    middleState = rest[0] < lower[0]
+                        ? new State<>(null, new char[][]{rest, lower}, newChildren(leaf, child))
+                        : new State<>(null, new char[][]{lower, rest}, newChildren(child, leaf));
+                }
+                Node<V> middle = new Node<>(middleState);
+                if (node.cas(state, state.withEdge(idx, Arrays.copyOf(label, common), middle))) {
+                    size.increment();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the edge from parent to a buried node, if it is still there. When that leaves the parent without a value
+     * and without children, the parent is buried in the same step and unlinked from its own parent by later writers.
+     */
+    private void unlink(Node<V> parent, Node<V> node) {
+        while (true) {
+            State<V> state = parent.state;
+            if (state == TOMBSTONE) {
+                return;
+            }
+            int idx = indexOfChild(state, node);
+            if (idx < 0) {
+                return;
+            }
+            State<V> next = state.value == null && state.children.length == 1 && parent != root
+                ? tombstone()
+                : state.withoutChild(idx);
+            if (parent.cas(state, next)) {
+                return;
+            }
+        }
+    }
+
+    private static <V> int indexOfChild(State<V> state, Node<V> node) {
+        for (int i = 0; i < state.children.length; i++) {
+            if (state.children[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(char[] label, CharSequence key, int offset) {
+        // the first character matched when looking up the edge
+        for (int idx = 1; idx < label.length; idx++) {
+            if (label[idx] != key.charAt(offset + idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int commonPrefix(char[] label, CharSequence key, int offset, int end) {
+        int common = 0;
+        while (common < label.length && offset + common < end && label[common] == key.charAt(offset + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static char[] substring(String key, int offset, int end) {
+        char[] chars = new char[end - offset];
+        key.getChars(offset, end, chars, 0);
+        return chars;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> State<V> tombstone() {
+        return (State<V>) TOMBSTONE;
+    }
+
+    private static char[][] noLabels() {
+        return NO_LABELS;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] noChildren() {
+        return (Node<V>[]) NO_CHILDREN;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newChildren(Node<V> child) {
+        return (Node<V>[]) new Node<?>[]{child};
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] newChildren(Node<V> first, Node<V> second) {
+        return (Node<V>[]) new Node<?>[]{first, second};
+    }
+
+    static final class Node<V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, State.class, "state");
+
+        volatile State<V> state;
+
+        Node(State<V> state) {
+            this.state = state;
+        }
+
+        boolean cas(State<V> expected, State<V> update) {
+            return STATE.compareAndSet(this, expected, update);
+        }
+    }
+
+    /**
+     * The immutable content of a node: its value and its edges, sorted by first character. Edge i is labelled
+     * labels[i] and leads to children[i].
+     */
+    static final class State<V> {
+        final V value;
+        final char[][] labels;
+        final Node<V>[] children;
+
+        State(V value, char[][] labels, Node<V>[] children) {
+            this.value = value;
+            this.labels = labels;
+            this.children = children;
+        }
+
+        static <V> State<V> empty() {
+            return new State<>(null, noLabels(), ConcurrentRadixTrie.<V>noChildren());
+        }
+
+        int indexOf(char c) {
+            char[][] labels = this.labels;
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char first = labels[mid][0];
+                if (first < c) {
+                    low = mid + 1;
+                } else if (first > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        State<V> withValue(V value) {
+            return new State<>(value, labels, children);
+        }
+
+        State<V> withChild(int index, char[] label, Node<V> child) {
+            int length = labels.length;
+            char[][] newLabels = new char[length + 1][];
+            Node<V>[] newChildren = Arrays.copyOf(children, length + 1);
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(labels, index, newLabels, index + 1, length - index);
+            System.arraycopy(children, index, newChildren, index + 1, length - index);
+            newLabels[index] = label;
+            newChildren[index] = child;
+            return new State<>(value, newLabels, newChildren);
+        }
+
+        State<V> withEdge(int index, char[] label, Node<V> child) {
+            char[][] newLabels = labels.clone();
+            Node<V>[] newChildren = children.clone();
+            newLabels[index] = label;
+            newChildren[index] = child;
+            return new State<>(value, newLabels, newChildren);
+        }
+
+        State<V> withoutChild(int index) {
+            int length = labels.length;
+            char[][] newLabels = new char[length - 1][];
+            Node<V>[] newChildren = Arrays.copyOf(children, length - 1);
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, length - index - 1);
+            return new State<>(value, newLabels, newChildren);
+        }
+    }
+
+    /**
+     * A weakly consistent, depth first iterator in sorted key order. Each node's state is read once, when the node is
+     * reached, so the iterator reflects some of the writes that happen while it runs and never throws
+     * {@link java.util.ConcurrentModificationException}.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>> {
+        private final List<Node<V>> stack = new ArrayList<>();
+        private final List<char[]> labels = new ArrayList<>();
+        private int[] parentLengths = new int[16];
+        private final StringBuilder keyPath = new StringBuilder();
+
+        private Map.Entry<String, V> next;
+        private String lastKey;
+
+        EntryIterator() {
+            pushChildren(root.state);
+            advance();
+        }
+
+        private void pushChildren(State<V> state) {
+            int pathLength = keyPath.length();
+            for (int i = state.children.length - 1; i >= 0; i--) {
+                int top = stack.size();
+                if (top == parentLengths.length) {
+                    parentLengths = Arrays.copyOf(parentLengths, top * 2);
+                }
+                parentLengths[top] = pathLength;
+                stack.add(state.children[i]);
+                labels.add(state.labels[i]);
+            }
+        }
+
+        private void advance() {
+            next = null;
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                Node<V> node = stack.remove(top);
+                keyPath.setLength(parentLengths[top]);
+                keyPath.append(labels.remove(top));
+                State<V> state = node.state;
+                pushChildren(state);
+                if (state.value != null) {
+                    next = new Entry(keyPath.toString(), state.value);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, V> entry = next;
+            lastKey = entry.getKey();
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentRadixTrie.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    /**
+     * An entry holding the value seen by the iterator; setting its value writes through to the trie.
+     */
+    private final class Entry extends SimpleEntry<String, V> {
+        private static final long serialVersionUID = 1L;
+
+        Entry(String key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            // put rejects a null value before the entry is changed
+            V oldValue = put(getKey(), value);
+            super.setValue(value);
+            return oldValue;
+        }
+    }
+}
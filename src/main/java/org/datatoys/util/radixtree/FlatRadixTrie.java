@@ -0,0 +1,447 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The read side of an immutable radix trie laid out in flat arrays, shared by the in-heap {@link FrozenRadixTrie}
+ * and the memory-mapped {@link MappedRadixTrie}.
+ * <p>
+ * Nodes are numbered breadth first, so the children of a node are the contiguous range
+ * [firstChild(node), firstChild(node + 1)), sorted by their first character. The label of node i is the chars
+ * [labelStart(i), labelStart(i + 1)) of one shared label sequence. Node 0 is the root.
+ */
+abstract class FlatRadixTrie<V> extends AbstractMap<String, V> {
+
+    /**
+     * @return the number of nodes in the trie, including the root
+     */
+    public abstract int nodeCount();
+
+    abstract int firstChild(int node);
+
+    abstract char firstChar(int node);
+
+    abstract int labelStart(int node);
+
+    abstract char labelChar(int index);
+
+    abstract boolean hasValue(int node);
+
+    abstract V value(int node);
+
+    abstract int subtreeSize(int node);
+
+    @Override
+    public int size() {
+        return subtreeSize(0);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && containsKey((String) key);
+    }
+
+    public boolean containsKey(CharSequence key) {
+        int node = findNode(key);
+        return node >= 0 && hasValue(node);
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? get((String) key) : null;
+    }
+
+    public V get(CharSequence key) {
+        int node = findNode(key);
+        return node < 0 || !hasValue(node) ? null : value(node);
+    }
+
+    /**
+     * @return the child of node whose label starts with c, or -1
+     */
+    int findChild(int node, char c) {
+        int low = firstChild(node);
+        int high = firstChild(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char first = firstChar(mid);
+            if (first < c) {
+                low = mid + 1;
+            } else if (first > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    int findNode(CharSequence key) {
+        int node = 0;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = findChild(node, key.charAt(offset));
+            if (node < 0) {
+                return -1;
+            }
+            int start = labelStart(node);
+            int length = labelStart(node + 1) - start;
+            if (end - offset < length) {
+                return -1;
+            }
+            // the first character matched when finding the child
+            for (int idx = 1; idx < length; idx++) {
+                if (labelChar(start + idx) != key.charAt(offset + idx)) {
+                    return -1;
+                }
+            }
+            offset += length;
+        }
+        return node;
+    }
+
+    /**
+     * Finds the highest node whose key starts with the prefix, appending the rest of its label to nodeKey if given.
+     */
+    int findPrefixNode(CharSequence prefix, StringBuilder nodeKey) {
+        int node = 0;
+        int offset = 0;
+        int end = prefix.length();
+        while (offset < end) {
+            node = findChild(node, prefix.charAt(offset));
+            if (node < 0) {
+                return -1;
+            }
+            int start = labelStart(node);
+            int length = labelStart(node + 1) - start;
+            int idx = 1;
+            while (idx < length && offset + idx < end && labelChar(start + idx) == prefix.charAt(offset + idx)) {
+                idx++;
+            }
+            if (offset + idx == end) {
+                if (nodeKey != null) {
+                    appendLabel(nodeKey, start + idx, start + length);
+                }
+                return node;
+            } else if (idx < length) {
+                return -1;
+            }
+            offset += length;
+        }
+        return node;
+    }
+
+    void appendLabel(StringBuilder builder, int start, int end) {
+        for (int idx = start; idx < end; idx++) {
+            builder.append(labelChar(idx));
+        }
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        int node = findPrefixNode(prefix, null);
+        return node < 0 ? 0 : subtreeSize(node);
+    }
+
+    public boolean hasPrefix(CharSequence prefix) {
+        return countWithPrefix(prefix) > 0;
+    }
+
+    /**
+     * @return the number of keys less than the given key, which is the index of the key if it is present, or the index
+     * of the first key greater than it
+     */
+    public int rankOf(CharSequence key) {
+        int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return the index of the key in sorted order, or -1 if it is not present
+     */
+    public int indexOf(CharSequence key) {
+        int index = search(key);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Counts the keys sorting before the given key, adding up the subtree sizes of the children left of the path of
+     * the key in a single descent.
+     *
+     * @return the index of the key, if it is present; otherwise, (-(insertion point) - 1) as in
+     * {@link Arrays#binarySearch(int[], int)}
+     */
+    private int search(CharSequence key) {
+        int rank = 0;
+        int node = 0;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            // the key of the node is a proper prefix of the key, so it sorts before it
+            if (hasValue(node)) {
+                rank++;
+            }
+            char c = key.charAt(offset);
+            int child = firstChild(node);
+            int last = firstChild(node + 1);
+            while (child < last && firstChar(child) < c) {
+                rank += subtreeSize(child);
+                child++;
+            }
+            if (child == last || firstChar(child) != c) {
+                return -rank - 1;
+            }
+            int start = labelStart(child);
+            int length = labelStart(child + 1) - start;
+            for (int idx = 1; idx < length; idx++) {
+                if (offset + idx == end) {
+                    // the key ends within the label: every key below the child is longer
+                    return -rank - 1;
+                }
+                char labelChar = labelChar(start + idx);
+                if (labelChar != key.charAt(offset + idx)) {
+                    return labelChar < key.charAt(offset + idx) ? -(rank + subtreeSize(child)) - 1 : -rank - 1;
+                }
+            }
+            offset += length;
+            node = child;
+        }
+        return hasValue(node) ? rank : -rank - 1;
+    }
+
+    /**
+     * Finds the key at an index in sorted order, descending into the child whose subtree holds it by the subtree
+     * sizes, without iterating the keys before it.
+     *
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the size
+     */
+    public String keyAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+        StringBuilder key = new StringBuilder();
+        int node = 0;
+        while (true) {
+            if (hasValue(node)) {
+                if (index == 0) {
+                    return key.toString();
+                }
+                index--;
+            }
+            int child = firstChild(node);
+            while (index >= subtreeSize(child)) {
+                index -= subtreeSize(child);
+                child++;
+            }
+            appendLabel(key, labelStart(child), labelStart(child + 1));
+            node = child;
+        }
+    }
+
+    /**
+     * @return the entry of the longest key that is a prefix of the given key, or the key itself, or null if there is
+     * none, found in a single descent
+     * @see RadixTrie#longestPrefixOf(CharSequence)
+     */
+    public Map.Entry<String, V> longestPrefixOf(CharSequence key) {
+        int node = 0;
+        int longest = -1;
+        int longestLength = 0;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = findChild(node, key.charAt(offset));
+            if (node < 0 || !labelMatches(node, key, offset, end)) {
+                break;
+            }
+            offset += labelStart(node + 1) - labelStart(node);
+            if (hasValue(node)) {
+                longest = node;
+                longestLength = offset;
+            }
+        }
+        return longest < 0 ? null : new SimpleImmutableEntry<>(key.subSequence(0, longestLength).toString(), value(longest));
+    }
+
+    /**
+     * @return the entries of all the keys that are a prefix of the given key, including the key itself, shortest key
+     * first, found in a single descent
+     * @see RadixTrie#prefixesOf(CharSequence)
+     */
+    public List<Map.Entry<String, V>> prefixesOf(CharSequence key) {
+        List<Map.Entry<String, V>> prefixes = new ArrayList<>();
+        int node = 0;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = findChild(node, key.charAt(offset));
+            if (node < 0 || !labelMatches(node, key, offset, end)) {
+                break;
+            }
+            offset += labelStart(node + 1) - labelStart(node);
+            if (hasValue(node)) {
+                prefixes.add(new SimpleImmutableEntry<>(key.subSequence(0, offset).toString(), value(node)));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * @return true if the key continues at the offset with the label of the node, whose first character is already
+     * known to match
+     */
+    private boolean labelMatches(int node, CharSequence key, int offset, int end) {
+        int start = labelStart(node);
+        int length = labelStart(node + 1) - start;
+        if (end - offset < length) {
+            return false;
+        }
+        for (int idx = 1; idx < length; idx++) {
+            if (labelChar(start + idx) != key.charAt(offset + idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return an immutable view of the mappings whose keys start with the given prefix, in sorted key order
+     */
+    public Map<String, V> prefixMap(String prefix) {
+        StringBuilder nodeKey = new StringBuilder(prefix);
+        int node = findPrefixNode(prefix, nodeKey);
+        if (node < 0) {
+            return Collections.emptyMap();
+        }
+        return new SubtreeMap(prefix, node, nodeKey.toString());
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new SubtreeEntrySet(0, "");
+    }
+
+    /**
+     * Depth first iteration over the subtree of a node, in sorted key order.
+     */
+    private final class SubtreeIterator implements Iterator<Map.Entry<String, V>> {
+        private int[] stack = new int[16];
+        private int[] parentLengths = new int[16];
+        private int top;
+        private final StringBuilder keyPath = new StringBuilder();
+        private int remaining;
+
+        SubtreeIterator(int node, String nodeKey) {
+            remaining = subtreeSize(node);
+            if (node == 0) {
+                pushChildren(0);
+            } else {
+                keyPath.append(nodeKey, 0, nodeKey.length() - (labelStart(node + 1) - labelStart(node)));
+                push(node, keyPath.length());
+            }
+        }
+
+        private void push(int node, int parentLength) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                parentLengths = Arrays.copyOf(parentLengths, top * 2);
+            }
+            stack[top] = node;
+            parentLengths[top] = parentLength;
+            top++;
+        }
+
+        private void pushChildren(int node) {
+            int pathLength = keyPath.length();
+            for (int child = firstChild(node + 1) - 1; child >= firstChild(node); child--) {
+                push(child, pathLength);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                int node = stack[--top];
+                keyPath.setLength(parentLengths[top]);
+                appendLabel(keyPath, labelStart(node), labelStart(node + 1));
+                pushChildren(node);
+                if (hasValue(node)) {
+                    remaining--;
+                    return new SimpleImmutableEntry<>(keyPath.toString(), value(node));
+                }
+            }
+        }
+    }
+
+    private final class SubtreeEntrySet extends AbstractSet<Map.Entry<String, V>> {
+        private final int node;
+        private final String nodeKey;
+
+        SubtreeEntrySet(int node, String nodeKey) {
+            this.node = node;
+            this.nodeKey = nodeKey;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new SubtreeIterator(node, nodeKey);
+        }
+
+        @Override
+        public int size() {
+            return subtreeSize(node);
+        }
+    }
+
+    private final class SubtreeMap extends AbstractMap<String, V> {
+        private final String prefix;
+        private final int node;
+        private final String nodeKey;
+
+        SubtreeMap(String prefix, int node, String nodeKey) {
+            this.prefix = prefix;
+            this.node = node;
+            this.nodeKey = nodeKey;
+        }
+
+        @Override
+        public int size() {
+            return subtreeSize(node);
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof String && ((String) key).startsWith(prefix) ? FlatRadixTrie.this.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && ((String) key).startsWith(prefix) && FlatRadixTrie.this.containsKey(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new SubtreeEntrySet(node, nodeKey);
+        }
+    }
+}
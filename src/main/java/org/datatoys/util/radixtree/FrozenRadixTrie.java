@@ -0,0 +1,177 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable radix trie stored in a handful of flat arrays, built with {@link RadixTrie#freeze()}.
+ * <p>
+ * Nodes are numbered breadth first, so the children of a node are the contiguous range
+ * [firstChild[node], firstChild[node + 1]), sorted by their first character. The label of node i is
+ * labels[labelStart[i]..labelStart[i + 1]), all labels sharing a single char array, and its value is values[i].
+ * Node 0 is the root. The whole trie is therefore a few arrays, instead of a node, a char[] and a list per node, and
+ * lookups binary search the first characters of a child range that sits next to each other in memory.
+ * <p>
+ * Valueless nodes with a single child are merged with that child while freezing, so the frozen trie is always fully
+ * compressed, even if the source trie had keys removed.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FrozenRadixTrie<V> extends FlatRadixTrie<V> {
+
+    // package private for the on-disk format
+    final int[] firstChild;
+    final char[] firstChars;
+    final int[] labelStart;
+    final char[] labels;
+    final Object[] values;
+    final int[] subtreeSizes;
+
+    FrozenRadixTrie(int[] firstChild, char[] firstChars, int[] labelStart, char[] labels, Object[] values, int[] subtreeSizes) {
+        this.firstChild = firstChild;
+        this.firstChars = firstChars;
+        this.labelStart = labelStart;
+        this.labels = labels;
+        this.values = values;
+        this.subtreeSizes = subtreeSizes;
+    }
+
+    /**
+     * @return a frozen copy of the given map
+     */
+    public static <V> FrozenRadixTrie<V> copyOf(Map<String, ? extends V> map) {
+        if (map instanceof FrozenRadixTrie) {
+            @SuppressWarnings("unchecked")
+            FrozenRadixTrie<V> frozen = (FrozenRadixTrie<V>) map;
+            return frozen;
+        }
+        RadixTrie<V> trie = new RadixTrie<>();
+        trie.putAll(map);
+        return trie.freeze();
+    }
+
+    static <V> FrozenRadixTrie<V> freeze(RadixTrieNode<V> root) {
+        // a compressed trie holding n values has at most 2n nodes, plus the root
+        int capacity = 2 * root.size + 1;
+        List<RadixTrieNode<V>> queue = new ArrayList<>(capacity);
+        int[] firstChild = new int[capacity + 1];
+        int[] labelStart = new int[capacity + 1];
+        char[] firstChars = new char[capacity];
+        Object[] values = new Object[capacity];
+        int[] subtreeSizes = new int[capacity];
+        CharArrayBuilder labels = new CharArrayBuilder();
+
+        queue.add(root);
+        subtreeSizes[0] = root.size;
+        for (int node = 0; node < queue.size(); node++) {
+            labelStart[node] = labels.length;
+            RadixTrieNode<V> source = queue.get(node);
+            if (node > 0) {
+                labels.append(source.chars);
+                firstChars[node] = source.chars[0];
+                // fold valueless single child chains into one label
+                RadixTrieNode<V> only;
+                while (source.value == null && (only = onlyChild(source)) != null) {
+                    source = only;
+                    labels.append(source.chars);
+                }
+                queue.set(node, source);
+                values[node] = source.value;
+                subtreeSizes[node] = source.size;
+            }
+            firstChild[node] = queue.size();
+            if (source.children != null) {
+                for (RadixTrieNode<V> child : source.children) {
+                    if (child.size > 0) {
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+        int nodes = queue.size();
+        firstChild[nodes] = nodes;
+        labelStart[nodes] = labels.length;
+        return new FrozenRadixTrie<>(
+            Arrays.copyOf(firstChild, nodes + 1),
+            Arrays.copyOf(firstChars, nodes),
+            Arrays.copyOf(labelStart, nodes + 1),
+            Arrays.copyOf(labels.chars, labels.length),
+            Arrays.copyOf(values, nodes),
+            Arrays.copyOf(subtreeSizes, nodes));
+    }
+
+    private static <V> RadixTrieNode<V> onlyChild(RadixTrieNode<V> node) {
+        RadixTrieNode<V> only = null;
+        if (node.children != null) {
+            for (RadixTrieNode<V> child : node.children) {
+                if (child.size > 0) {
+                    if (only != null) {
+                        return null;
+                    }
+                    only = child;
+                }
+            }
+        }
+        return only;
+    }
+
+    @Override
+    public int nodeCount() {
+        return values.length;
+    }
+
+    @Override
+    int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    @Override
+    char firstChar(int node) {
+        return firstChars[node];
+    }
+
+    @Override
+    int labelStart(int node) {
+        return labelStart[node];
+    }
+
+    @Override
+    char labelChar(int index) {
+        return labels[index];
+    }
+
+    @Override
+    boolean hasValue(int node) {
+        return values[node] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    V value(int node) {
+        return (V) values[node];
+    }
+
+    @Override
+    int subtreeSize(int node) {
+        return subtreeSizes[node];
+    }
+
+    @Override
+    void appendLabel(StringBuilder builder, int start, int end) {
+        builder.append(labels, start, end - start);
+    }
+
+    private static final class CharArrayBuilder {
+        char[] chars = new char[64];
+        int length;
+
+        void append(char[] source) {
+            if (length + source.length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(length + source.length, chars.length * 2));
+            }
+            System.arraycopy(source, 0, chars, length, source.length);
+            length += source.length;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+
+/**
+ * A glob pattern compiled to a nondeterministic automaton for {@link RadixTrie#match(String)}: {@code *} matches any
+ * sequence of chars, {@code ?} exactly one char, and {@code \} escapes the char after it.
+ * <p>
+ * The pattern is a list of tokens and state i means that the first i tokens have been matched, so the automaton has
+ * one more state than tokens, the last one accepting. A set of states is a bitset, closed over the {@code *} tokens,
+ * which may match nothing. Sets are never modified once built, so that the children of a node can share the set of
+ * their parent.
+ */
+final class GlobPattern {
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY_ONE = 1;
+    private static final byte ANY_SEQUENCE = 2;
+
+    private final byte[] kinds;
+    private final char[] literals;
+    // the number of literals in a row starting at each token
+    private final int[] literalRuns;
+    // the trailing * token, if any: from there on, every continuation of the key matches
+    private final int tail;
+    private final int words;
+
+    GlobPattern(String glob) {
+        int length = glob.length();
+        byte[] kinds = new byte[length];
+        char[] literals = new char[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                // a run of stars is a single star
+                if (count == 0 || kinds[count - 1] != ANY_SEQUENCE) {
+                    kinds[count++] = ANY_SEQUENCE;
+                }
+            } else if (c == '?') {
+                kinds[count++] = ANY_ONE;
+            } else {
+                if (c == '\\') {
+                    if (++i == length) {
+                        throw new IllegalArgumentException("Invalid glob pattern, dangling escape at the end: " + glob);
+                    }
+                    c = glob.charAt(i);
+                }
+                kinds[count] = LITERAL;
+                literals[count++] = c;
+            }
+        }
+        this.kinds = Arrays.copyOf(kinds, count);
+        this.literals = Arrays.copyOf(literals, count);
+        this.literalRuns = new int[count + 1];
+        for (int i = count - 1; i >= 0; i--) {
+            literalRuns[i] = kinds[i] == LITERAL ? literalRuns[i + 1] + 1 : 0;
+        }
+        this.tail = count > 0 && kinds[count - 1] == ANY_SEQUENCE ? count - 1 : count + 1;
+        this.words = (count >>> 6) + 1;
+    }
+
+    /**
+     * @return the states before any char is read
+     */
+    long[] start() {
+        long[] states = new long[words];
+        add(states, 0);
+        return states;
+    }
+
+    boolean accepts(long[] states) {
+        int accepting = kinds.length;
+        return (states[accepting >>> 6] & (1L << accepting)) != 0;
+    }
+
+    /**
+     * @return true if every key continuing from these states matches, the pattern ending with a star already reached
+     */
+    boolean acceptsAll(long[] states) {
+        return tail <= kinds.length && nextState(states, tail) >= 0;
+    }
+
+    /**
+     * Reads the chars of an edge label.
+     *
+     * @return the states after the whole label, or null if no state is left and no key below the edge can match
+     */
+    long[] advance(long[] states, char[] chars) {
+        int offset = 0;
+        int state = singleState(states);
+        while (state >= 0) {
+            // a single state followed by literals compares them with the label at once
+            int run = Math.min(literalRuns[state], chars.length - offset);
+            for (int i = 0; i < run; i++) {
+                if (literals[state + i] != chars[offset + i]) {
+                    return null;
+                }
+            }
+            offset += run;
+            state += run;
+            if (offset == chars.length) {
+                long[] next = new long[words];
+                add(next, state);
+                return next;
+            }
+            if (state == kinds.length) {
+                return null;
+            }
+            if (kinds[state] != ANY_ONE) {
+                states = new long[words];
+                add(states, state);
+                break;
+            }
+            offset++;
+            state++;
+            if (kinds.length > state && kinds[state] == ANY_SEQUENCE) {
+                states = new long[words];
+                add(states, state);
+                break;
+            }
+        }
+        for (; offset < chars.length; offset++) {
+            states = step(states, chars[offset]);
+            if (states == null) {
+                return null;
+            }
+        }
+        return states;
+    }
+
+    private long[] step(long[] states, char c) {
+        long[] next = null;
+        int accepting = kinds.length;
+        for (int state = nextState(states, 0); state >= 0; state = nextState(states, state + 1)) {
+            if (state == accepting) {
+                break;
+            }
+            int target;
+            switch (kinds[state]) {
+                case LITERAL:
+                    if (literals[state] != c) {
+                        continue;
+                    }
+                    target = state + 1;
+                    break;
+                case ANY_ONE:
+                    target = state + 1;
+                    break;
+                default:
+                    target = state;
+            }
+            if (next == null) {
+                next = new long[words];
+            }
+            add(next, target);
+        }
+        return next;
+    }
+
+    /**
+     * Collects the chars the states can read, when they are all literals, so that only the children starting with one
+     * of them need to be visited.
+     *
+     * @return the distinct chars in ascending order, or null if some state reads any char
+     */
+    char[] nextLiterals(long[] states) {
+        char[] chars = new char[4];
+        int count = 0;
+        for (int state = nextState(states, 0); state >= 0; state = nextState(states, state + 1)) {
+            if (state == kinds.length) {
+                // the accepting state reads nothing more
+                break;
+            }
+            if (kinds[state] != LITERAL) {
+                return null;
+            }
+            if (count == chars.length) {
+                chars = Arrays.copyOf(chars, count * 2);
+            }
+            chars[count++] = literals[state];
+        }
+        Arrays.sort(chars, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || chars[distinct - 1] != chars[i]) {
+                chars[distinct++] = chars[i];
+            }
+        }
+        return Arrays.copyOf(chars, distinct);
+    }
+
+    /**
+     * Adds a state along with the states following the stars from it, which they can match without reading a char.
+     */
+    private void add(long[] states, int state) {
+        states[state >>> 6] |= 1L << state;
+        while (state < kinds.length && kinds[state] == ANY_SEQUENCE) {
+            state++;
+            states[state >>> 6] |= 1L << state;
+        }
+    }
+
+    /**
+     * @return the only state of the set, or -1 if there are none or several
+     */
+    private static int singleState(long[] states) {
+        int state = -1;
+        for (int i = 0; i < states.length; i++) {
+            long word = states[i];
+            if (word != 0) {
+                if (state >= 0 || (word & (word - 1)) != 0) {
+                    return -1;
+                }
+                state = (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * @return the first state of the set from the given one, or -1 if there are none
+     */
+    private static int nextState(long[] states, int from) {
+        int i = from >>> 6;
+        if (i >= states.length) {
+            return -1;
+        }
+        long word = states[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == states.length) {
+                return -1;
+            }
+            word = states[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
@@ -0,0 +1,105 @@
+package org.datatoys.util.radixtree;
+
+/**
+ * A radix trie mapping strings to primitive ints, for counters and ids.
+ * <p>
+ * Values are stored unboxed in the nodes, which saves an Integer per key and a pointer hop per lookup, and updating
+ * an existing key, for example with {@link #increment(String)}, allocates nothing. Absent keys are told apart with a
+ * flag rather than null, so 0 is a value like any other: {@link #getInt(CharSequence, int)} returns the given default
+ * for absent keys.
+ * <p>
+ * Keys are iterated with a {@link Cursor}, which returns no objects. This implementation is not thread safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public class IntRadixTrie extends PrimitiveRadixTrie {
+
+    /**
+     * @return the value of the key, or defaultValue if the key has none
+     */
+    public int getInt(CharSequence key, int defaultValue) {
+        PrimitiveRadixTrieNode node = getNode(key);
+        return node != null ? (int) node.longValue : defaultValue;
+    }
+
+    /**
+     * @return the previous value of the key, or 0 if it had none
+     */
+    public int putInt(String key, int value) {
+        PrimitiveRadixTrieNode node = getOrCreateNode(key);
+        int oldValue = node.present ? (int) node.longValue : 0;
+        node.longValue = value;
+        markPresent(node, key);
+        return oldValue;
+    }
+
+    /**
+     * Adds delta to the value of the key, which starts at 0 if the key has no value yet.
+     *
+     * @return the new value of the key
+     */
+    public int addTo(String key, int delta) {
+        PrimitiveRadixTrieNode node = getOrCreateNode(key);
+        int value = (node.present ? (int) node.longValue : 0) + delta;
+        node.longValue = value;
+        markPresent(node, key);
+        return value;
+    }
+
+    /**
+     * @return the new value of the key, see {@link #addTo(String, int)}
+     */
+    public int increment(String key) {
+        return addTo(key, 1);
+    }
+
+    /**
+     * @return the value the key had, or 0 if it had none
+     */
+    public int removeInt(String key) {
+        PrimitiveRadixTrieNode node = removeNode(key);
+        return node != null ? (int) node.longValue : 0;
+    }
+
+    /**
+     * @return a cursor over all keys, in sorted order
+     */
+    public Cursor cursor() {
+        return new Cursor("");
+    }
+
+    /**
+     * @return a cursor over the keys starting with the given prefix, in sorted order
+     */
+    public Cursor cursor(String prefix) {
+        return new Cursor(prefix);
+    }
+
+    /**
+     * A cursor over the keys and int values of the trie, in sorted key order.
+     * <pre>
+     * for (IntRadixTrie.Cursor cursor = trie.cursor(); cursor.next(); ) {
+     *     use(cursor.key(), cursor.value());
+     * }
+     * </pre>
+     */
+    public final class Cursor extends NodeCursor {
+
+        Cursor(String prefix) {
+            super(prefix);
+        }
+
+        /**
+         * @return the value of the key the cursor is at
+         */
+        public int value() {
+            return (int) node().longValue;
+        }
+
+        /**
+         * Replaces the value of the key the cursor is at, which does not invalidate the cursor.
+         */
+        public void setValue(int value) {
+            node().longValue = value;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.datatoys.util.radixtree;
+
+/**
+ * A radix trie mapping strings to primitive longs, for counters, ids and offsets.
+ * <p>
+ * Values are stored unboxed in the nodes, which saves a Long per key and a pointer hop per lookup, and updating
+ * an existing key, for example with {@link #increment(String)}, allocates nothing. Absent keys are told apart with a
+ * flag rather than null, so 0 is a value like any other: {@link #getLong(CharSequence, long)} returns the given default
+ * for absent keys.
+ * <p>
+ * Keys are iterated with a {@link Cursor}, which returns no objects. This implementation is not thread safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public class LongRadixTrie extends PrimitiveRadixTrie {
+
+    /**
+     * @return the value of the key, or defaultValue if the key has none
+     */
+    public long getLong(CharSequence key, long defaultValue) {
+        PrimitiveRadixTrieNode node = getNode(key);
+        return node != null ? node.longValue : defaultValue;
+    }
+
+    /**
+     * @return the previous value of the key, or 0 if it had none
+     */
+    public long putLong(String key, long value) {
+        PrimitiveRadixTrieNode node = getOrCreateNode(key);
+        long oldValue = node.present ? node.longValue : 0;
+        node.longValue = value;
+        markPresent(node, key);
+        return oldValue;
+    }
+
+    /**
+     * Adds delta to the value of the key, which starts at 0 if the key has no value yet.
+     *
+     * @return the new value of the key
+     */
+    public long addTo(String key, long delta) {
+        PrimitiveRadixTrieNode node = getOrCreateNode(key);
+        long value = (node.present ? node.longValue : 0) + delta;
+        node.longValue = value;
+        markPresent(node, key);
+        return value;
+    }
+
+    /**
+     * @return the new value of the key, see {@link #addTo(String, long)}
+     */
+    public long increment(String key) {
+        return addTo(key, 1);
+    }
+
+    /**
+     * @return the value the key had, or 0 if it had none
+     */
+    public long removeLong(String key) {
+        PrimitiveRadixTrieNode node = removeNode(key);
+        return node != null ? node.longValue : 0;
+    }
+
+    /**
+     * @return a cursor over all keys, in sorted order
+     */
+    public Cursor cursor() {
+        return new Cursor("");
+    }
+
+    /**
+     * @return a cursor over the keys starting with the given prefix, in sorted order
+     */
+    public Cursor cursor(String prefix) {
+        return new Cursor(prefix);
+    }
+
+    /**
+     * A cursor over the keys and long values of the trie, in sorted key order.
+     * <pre>
+     * for (LongRadixTrie.Cursor cursor = trie.cursor(); cursor.next(); ) {
+     *     use(cursor.key(), cursor.value());
+     * }
+     * </pre>
+     */
+    public final class Cursor extends NodeCursor {
+
+        Cursor(String prefix) {
+            super(prefix);
+        }
+
+        /**
+         * @return the value of the key the cursor is at
+         */
+        public long value() {
+            return node().longValue;
+        }
+
+        /**
+         * Replaces the value of the key the cursor is at, which does not invalidate the cursor.
+         */
+        public void setValue(long value) {
+            node().longValue = value;
+        }
+    }
+}
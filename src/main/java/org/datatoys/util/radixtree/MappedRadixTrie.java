@@ -0,0 +1,269 @@
+package org.datatoys.util.radixtree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only radix trie served straight out of a memory mapped file, written with
+ * {@link #write(FrozenRadixTrie, ValueCodec, Path)}.
+ * <p>
+ * The file holds the flat arrays of a {@link FrozenRadixTrie}, so opening it maps the file and does nothing else:
+ * lookups, prefix counts, prefix views and sorted iteration all read the mapping directly, and only the keys and
+ * values handed out are ever materialized. Pages are loaded by the operating system as they are touched, and shared
+ * between all the processes mapping the same file.
+ * <p>
+ * The layout, all big endian, is a header of 24 bytes followed by the sections:
+ * <pre>
+ * int    magic ("RDXT"), version, nodeCount, labelLength
+ * long   valueBytes
+ * long   valueOffsets[nodeCount]    offset of the value in the value section, or -1 if the node has no value
+ * int    firstChild[nodeCount + 1]
+ * int    labelStart[nodeCount + 1]
+ * int    subtreeSizes[nodeCount]
+ * char   firstChars[nodeCount]
+ * char   labels[labelLength]
+ * byte   values[valueBytes]         each value is its length as an int followed by its {@link ValueCodec} bytes
+ * </pre>
+ * A single mapping is limited to 2GB, so the file is mapped in segments of 1GB and addressed with long offsets. Every
+ * section starts aligned to the size of its elements, so no long, int or char straddles two segments; the rare value
+ * that does is copied out of the segments it spans before it is decoded.
+ * <p>
+ * Instances are immutable and safe to share between threads. The mappings are released when the trie is garbage
+ * collected.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class MappedRadixTrie<V> extends FlatRadixTrie<V> {
+
+    static final int MAGIC = 0x52445854;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    static final int SEGMENT_SHIFT = 30;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final int segmentShift;
+    private final long segmentMask;
+    private final ByteBuffer[] segments;
+    private final int nodeCount;
+    // file offsets of the sections
+    private final long valueOffsets;
+    private final long firstChild;
+    private final long labelStart;
+    private final long subtreeSizes;
+    private final long firstChars;
+    private final long labels;
+    private final long values;
+    private final ValueCodec<V> codec;
+
+    private MappedRadixTrie(ByteBuffer[] segments, int segmentShift, long fileSize, ValueCodec<V> codec) throws IOException {
+        this.segments = segments;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.codec = codec;
+        if (fileSize < HEADER_BYTES || getInt(0) != MAGIC) {
+            throw new IOException("Not a radix trie file");
+        }
+        if (getInt(4) != VERSION) {
+            throw new IOException("Unsupported radix trie file version " + getInt(4));
+        }
+        nodeCount = getInt(8);
+        int labelLength = getInt(12);
+        long valueBytes = getLong(16);
+        if (fileSize(nodeCount, labelLength, valueBytes) != fileSize) {
+            throw new IOException("Truncated radix trie file");
+        }
+        valueOffsets = HEADER_BYTES;
+        firstChild = valueOffsets + (long) nodeCount * Long.BYTES;
+        labelStart = firstChild + (nodeCount + 1L) * Integer.BYTES;
+        subtreeSizes = labelStart + (nodeCount + 1L) * Integer.BYTES;
+        firstChars = subtreeSizes + (long) nodeCount * Integer.BYTES;
+        labels = firstChars + (long) nodeCount * Character.BYTES;
+        values = labels + (long) labelLength * Character.BYTES;
+    }
+
+    private static long fileSize(long nodeCount, long labelLength, long valueBytes) {
+        return HEADER_BYTES + nodeCount * Long.BYTES + (nodeCount + 1) * 2 * Integer.BYTES + nodeCount * Integer.BYTES
+            + (nodeCount + labelLength) * Character.BYTES + valueBytes;
+    }
+
+    /**
+     * Maps the given trie file.
+     *
+     * @param codec the codec the file was written with
+     * @throws IOException if the file can not be read, or is not a radix trie file
+     */
+    public static <V> MappedRadixTrie<V> open(Path path, ValueCodec<V> codec) throws IOException {
+        return open(path, codec, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Maps the file in segments of 2^segmentShift bytes, small ones letting the tests cross segment boundaries.
+     */
+    static <V> MappedRadixTrie<V> open(Path path, ValueCodec<V> codec, int segmentShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segmentSize = 1L << segmentShift;
+            ByteBuffer[] segments = new ByteBuffer[(int) Math.max(1, (size + segmentSize - 1) >>> segmentShift)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+            }
+            return new MappedRadixTrie<>(segments, segmentShift, size, codec);
+        }
+    }
+
+    /**
+     * Writes the given trie to a file, freezing it first.
+     *
+     * @see #write(FrozenRadixTrie, ValueCodec, Path)
+     */
+    public static <V> void write(RadixTrie<? extends V> trie, ValueCodec<V> codec, Path path) throws IOException {
+        write(trie.freeze(), codec, path);
+    }
+
+    /**
+     * Writes the given trie to a file that can be mapped with {@link #open(Path, ValueCodec)}, replacing the file if
+     * it exists.
+     * <p>
+     * The values are encoded twice, once to lay out the value offsets written before them and once to write them, so
+     * that the encoded values are never held in memory all at once.
+     */
+    public static <V> void write(FrozenRadixTrie<? extends V> trie, ValueCodec<V> codec, Path path) throws IOException {
+        int nodeCount = trie.nodeCount();
+        long[] valueOffsets = new long[nodeCount];
+        long valueBytes = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (trie.hasValue(node)) {
+                valueOffsets[node] = valueBytes;
+                valueBytes += Integer.BYTES + codec.encode(trie.value(node)).length;
+            } else {
+                valueOffsets[node] = -1;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeCount);
+            out.writeInt(trie.labels.length);
+            out.writeLong(valueBytes);
+            for (long offset : valueOffsets) {
+                out.writeLong(offset);
+            }
+            writeInts(out, trie.firstChild);
+            writeInts(out, trie.labelStart);
+            writeInts(out, trie.subtreeSizes);
+            writeChars(out, trie.firstChars);
+            writeChars(out, trie.labels);
+            for (int node = 0; node < nodeCount; node++) {
+                if (trie.hasValue(node)) {
+                    byte[] bytes = codec.encode(trie.value(node));
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+    }
+
+    private static void writeChars(DataOutputStream out, char[] chars) throws IOException {
+        for (char c : chars) {
+            out.writeChar(c);
+        }
+    }
+
+    private int getInt(long position) {
+        return segments[(int) (position >>> segmentShift)].getInt((int) (position & segmentMask));
+    }
+
+    private long getLong(long position) {
+        return segments[(int) (position >>> segmentShift)].getLong((int) (position & segmentMask));
+    }
+
+    private char getChar(long position) {
+        return segments[(int) (position >>> segmentShift)].getChar((int) (position & segmentMask));
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    int firstChild(int node) {
+        return getInt(firstChild + (long) node * Integer.BYTES);
+    }
+
+    @Override
+    char firstChar(int node) {
+        return getChar(firstChars + (long) node * Character.BYTES);
+    }
+
+    @Override
+    int labelStart(int node) {
+        return getInt(labelStart + (long) node * Integer.BYTES);
+    }
+
+    @Override
+    char labelChar(int index) {
+        return getChar(labels + (long) index * Character.BYTES);
+    }
+
+    @Override
+    boolean hasValue(int node) {
+        return getLong(valueOffsets + (long) node * Long.BYTES) >= 0;
+    }
+
+    @Override
+    V value(int node) {
+        long position = values + getLong(valueOffsets + (long) node * Long.BYTES);
+        int segment = (int) (position >>> segmentShift);
+        int offset = (int) (position & segmentMask);
+        // values are not aligned: the length may straddle two segments as well as the bytes
+        int length = offset + Integer.BYTES <= segments[segment].capacity()
+            ? segments[segment].getInt(offset)
+            : copy(position, Integer.BYTES).getInt(0);
+        long start = position + Integer.BYTES;
+        segment = (int) (start >>> segmentShift);
+        offset = (int) (start & segmentMask);
+        if (length == 0) {
+            return codec.decode(EMPTY, 0, 0);
+        }
+        if (offset + (long) length <= segments[segment].capacity()) {
+            return codec.decode(segments[segment], offset, length);
+        }
+        return codec.decode(copy(start, length), 0, length);
+    }
+
+    @Override
+    int subtreeSize(int node) {
+        return getInt(subtreeSizes + (long) node * Integer.BYTES);
+    }
+
+    /**
+     * @return a copy of the bytes at the given position, spanning several segments
+     */
+    private ByteBuffer copy(long position, int length) {
+        int segment = (int) (position >>> segmentShift);
+        int offset = (int) (position & segmentMask);
+        byte[] bytes = new byte[length];
+        for (int idx = 0; idx < length; idx++, offset++) {
+            if (offset == segments[segment].capacity()) {
+                segment++;
+                offset = 0;
+            }
+            bytes[idx] = segments[segment].get(offset);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,450 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable, persistent radix trie: {@link #put(String, Object)} and {@link #remove(String)} return a new version
+ * of the trie and leave this one unchanged.
+ * <p>
+ * A new version copies only the nodes on the path from the root to the changed key, and shares every other subtree
+ * with the version it was made from, so a change costs about as much as an insert into a mutable trie, however large
+ * the trie. Versions are never modified once built, so any number of threads can read a version without locks, for
+ * as long as they hold it. A version is safely published even through a data race: its nodes are reachable from a
+ * final field.
+ * <p>
+ * For a batch of changes, {@link #edit()} returns an {@link Editor}, a mutable trie starting from this version. An
+ * editor copies each node it touches once, and then modifies its copies in place, until {@link Editor#snapshot()}
+ * hands them over to a new version in constant time. A publisher can thus apply a batch of changes to the current
+ * version and publish the snapshot, without copying the whole map.
+ * <p>
+ * Keys are iterated in sorted order, as in {@link RadixTrie}. Null values are not stored: putting a null value removes
+ * the key.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class PersistentRadixTrie<V> implements Iterable<Map.Entry<String, V>> {
+
+    private static final PersistentRadixTrie<Object> EMPTY = new PersistentRadixTrie<>(new PersistentRadixTrieNode<>(null));
+
+    // package private for unit testing
+    final PersistentRadixTrieNode<V> root;
+
+    private PersistentRadixTrie(PersistentRadixTrieNode<V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentRadixTrie<V> empty() {
+        return (PersistentRadixTrie<V>) EMPTY;
+    }
+
+    /**
+     * @return a version holding the entries of the map
+     */
+    public static <V> PersistentRadixTrie<V> copyOf(Map<String, ? extends V> map) {
+        return PersistentRadixTrie.<V>empty().putAll(map);
+    }
+
+    public int size() {
+        return root.size;
+    }
+
+    public boolean isEmpty() {
+        return root.size < 1;
+    }
+
+    public boolean containsKey(CharSequence key) {
+        return get(key) != null;
+    }
+
+    public V get(CharSequence key) {
+        return get(root, key);
+    }
+
+    /**
+     * @return a version mapping the key to the value, or this version if the key is already mapped to that very value
+     */
+    public PersistentRadixTrie<V> put(String key, V value) {
+        if (key != null && value != null && get(key) == value) {
+            return this;
+        }
+        Editor<V> editor = new Editor<>(root, null);
+        editor.put(key, value);
+        return new PersistentRadixTrie<>(editor.root);
+    }
+
+    /**
+     * @return a version without the key, or this version if it does not hold the key
+     */
+    public PersistentRadixTrie<V> remove(String key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Editor<V> editor = new Editor<>(root, null);
+        editor.remove(key);
+        return new PersistentRadixTrie<>(editor.root);
+    }
+
+    /**
+     * @return a version with the entries of the map added, copying every node on the changed paths only once
+     */
+    public PersistentRadixTrie<V> putAll(Map<String, ? extends V> map) {
+        if (map.isEmpty()) {
+            return this;
+        }
+        Editor<V> editor = edit();
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            editor.put(entry.getKey(), entry.getValue());
+        }
+        return editor.snapshot();
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        PersistentRadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = prefix.length();
+        while (offset < end) {
+            PersistentRadixTrieNode<V> child = node.findChild(prefix.charAt(offset));
+            if (child == null) {
+                return 0;
+            }
+            int commonCharacters = RadixTrie.numCharsInCommonPrefix(child.chars, prefix, offset, end);
+            if (offset + commonCharacters == end) {
+                return child.size;
+            } else if (commonCharacters < child.chars.length) {
+                return 0;
+            }
+            node = child;
+            offset += commonCharacters;
+        }
+        return node.size;
+    }
+
+    /**
+     * @return a mutable trie starting from this version, see {@link Editor}
+     */
+    public Editor<V> edit() {
+        return new Editor<>(root, new Object());
+    }
+
+    /**
+     * @return the entries of this version in sorted key order. The iterator does not support removal.
+     */
+    @Override
+    public Iterator<Map.Entry<String, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    /**
+     * @return an unmodifiable {@link Map} view of this version
+     */
+    public Map<String, V> asMap() {
+        return new AbstractMap<String, V>() {
+            @Override
+            public int size() {
+                return PersistentRadixTrie.this.size();
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public V get(Object key) {
+                return key instanceof String ? PersistentRadixTrie.this.get((String) key) : null;
+            }
+
+            @Override
+            public Set<Entry<String, V>> entrySet() {
+                return new AbstractSet<Entry<String, V>>() {
+                    @Override
+                    public Iterator<Entry<String, V>> iterator() {
+                        return PersistentRadixTrie.this.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return PersistentRadixTrie.this.size();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    private static <V> V get(PersistentRadixTrieNode<V> node, CharSequence key) {
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null) {
+                return null;
+            }
+            // the first character matched when finding the child
+            char[] chars = node.chars;
+            int length = chars.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (chars[idx] != key.charAt(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node.value;
+    }
+
+    /**
+     * A mutable trie starting from a version, for applying a batch of changes and publishing them as a new version.
+     * <p>
+     * The first change below a node copies it, and later changes modify the copy in place. {@link #snapshot()} makes
+     * the current contents a version in constant time; the editor then copies the nodes it touches again, so the
+     * snapshot never changes. An editor is not thread safe: it is meant for the single thread writing the versions
+     * that other threads read.
+     */
+    public static final class Editor<V> {
+
+        private PersistentRadixTrieNode<V> root;
+        // the owner of the nodes this editor may modify in place; null to copy every node touched
+        private Object owner;
+        // the nodes on the path of the current change, reused between changes
+        @SuppressWarnings("unchecked")
+        private PersistentRadixTrieNode<V>[] path = (PersistentRadixTrieNode<V>[]) new PersistentRadixTrieNode<?>[16];
+        private int depth;
+
+        private Editor(PersistentRadixTrieNode<V> root, Object owner) {
+            this.root = root;
+            this.owner = owner;
+        }
+
+        public int size() {
+            return root.size;
+        }
+
+        public V get(CharSequence key) {
+            return PersistentRadixTrie.get(root, key);
+        }
+
+        /**
+         * @return the previous value of the key, or null if it had none
+         */
+        public V put(String key, V value) {
+            if (key == null) {
+                throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+            }
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+            }
+            if (value == null) {
+                // null marks the absence of a value, so mapping a key to null removes it
+                return remove(key);
+            }
+            PersistentRadixTrieNode<V> node = root = root.editable(owner);
+            depth = 0;
+            path[0] = node;
+            int offset = 0;
+            int end = key.length();
+            V oldValue = null;
+            while (true) {
+                int index = node.childIndex(key.charAt(offset));
+                if (index < 0) {
+                    // no child shares a first char with the key: the rest of the key is a new leaf
+                    PersistentRadixTrieNode<V> leaf = new PersistentRadixTrieNode<>(owner);
+                    leaf.chars = key.substring(offset).toCharArray();
+                    leaf.value = value;
+                    leaf.size = 1;
+                    node.addChild(-index - 1, leaf);
+                    break;
+                }
+                PersistentRadixTrieNode<V> child = node.children[index];
+                char[] chars = child.chars;
+                int commonCharacters = RadixTrie.numCharsInCommonPrefix(chars, key, offset, end);
+                offset += commonCharacters;
+                if (commonCharacters < chars.length) {
+                    // split the child: a new node holding the common chars takes its place, with the rest below it
+                    PersistentRadixTrieNode<V> rest = child.editable(owner);
+                    rest.chars = Arrays.copyOfRange(chars, commonCharacters, chars.length);
+                    PersistentRadixTrieNode<V> split = new PersistentRadixTrieNode<>(owner);
+                    split.chars = Arrays.copyOf(chars, commonCharacters);
+                    split.size = child.size;
+                    split.addChild(0, rest);
+                    child = split;
+                } else {
+                    child = child.editable(owner);
+                }
+                node.children[index] = child;
+                push(child);
+                if (offset == end) {
+                    oldValue = child.value;
+                    child.value = value;
+                    break;
+                }
+                node = child;
+            }
+            if (oldValue == null) {
+                adjustPathSizes(1);
+            }
+            clearPath();
+            return oldValue;
+        }
+
+        /**
+         * @return the value the key had, or null if it had none
+         */
+        public V remove(String key) {
+            V oldValue = get(key);
+            if (oldValue == null) {
+                return null;
+            }
+            PersistentRadixTrieNode<V> node = root = root.editable(owner);
+            depth = 0;
+            path[0] = node;
+            int offset = 0;
+            int end = key.length();
+            while (offset < end) {
+                int index = node.childIndex(key.charAt(offset));
+                PersistentRadixTrieNode<V> child = node.children[index].editable(owner);
+                node.children[index] = child;
+                push(child);
+                node = child;
+                offset += child.chars.length;
+            }
+            node.value = null;
+            adjustPathSizes(-1);
+            if (depth > 0) {
+                // keep the trie compressed, as RadixTrie.removeValue does
+                PersistentRadixTrieNode<V> parent = path[depth - 1];
+                if (node.children == null) {
+                    parent.removeChild(parent.childIndex(node.chars[0]));
+                    if (depth > 1 && parent.value == null && parent.children != null && parent.children.length == 1) {
+                        mergeWithOnlyChild(path[depth - 2], parent);
+                    }
+                } else if (node.children.length == 1) {
+                    mergeWithOnlyChild(parent, node);
+                }
+            }
+            clearPath();
+            return oldValue;
+        }
+
+        /**
+         * Replaces a node without a value by its only child, whose chars are prefixed with the chars of the node.
+         */
+        private void mergeWithOnlyChild(PersistentRadixTrieNode<V> parent, PersistentRadixTrieNode<V> node) {
+            PersistentRadixTrieNode<V> child = node.children[0].editable(owner);
+            char[] chars = Arrays.copyOf(node.chars, node.chars.length + child.chars.length);
+            System.arraycopy(child.chars, 0, chars, node.chars.length, child.chars.length);
+            child.chars = chars;
+            parent.children[parent.childIndex(chars[0])] = child;
+        }
+
+        private void push(PersistentRadixTrieNode<V> node) {
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth] = node;
+        }
+
+        private void adjustPathSizes(int delta) {
+            for (int i = 0; i <= depth; i++) {
+                path[i].size += delta;
+            }
+        }
+
+        private void clearPath() {
+            Arrays.fill(path, 0, depth + 1, null);
+        }
+
+        /**
+         * Makes the current contents of the editor a version, in constant time. Later changes through this editor do
+         * not affect the version.
+         */
+        public PersistentRadixTrie<V> snapshot() {
+            if (owner != null) {
+                // the nodes of the snapshot must not change: later changes copy them under a new owner
+                owner = new Object();
+            }
+            return new PersistentRadixTrie<>(root);
+        }
+    }
+
+    /**
+     * Walks a version depth first in key order, with an explicit stack. Versions do not change, so the iterator is
+     * never invalidated.
+     */
+    private static final class EntryIterator<V> implements Iterator<Map.Entry<String, V>> {
+        @SuppressWarnings("unchecked")
+        private PersistentRadixTrieNode<V>[] stack = (PersistentRadixTrieNode<V>[]) new PersistentRadixTrieNode<?>[16];
+        // for every node on the stack, the length of its parent's key
+        private int[] parentLengths = new int[16];
+        private int top;
+        private char[] keyPath = new char[16];
+        private int keyLength;
+        private int remaining;
+
+        EntryIterator(PersistentRadixTrieNode<V> root) {
+            remaining = root.size;
+            pushChildren(root);
+        }
+
+        private void pushChildren(PersistentRadixTrieNode<V> node) {
+            PersistentRadixTrieNode<V>[] children = node.children;
+            if (children == null) {
+                return;
+            }
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.length - 1; i >= 0; i--) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    parentLengths = Arrays.copyOf(parentLengths, top * 2);
+                }
+                stack[top] = children[i];
+                parentLengths[top] = keyLength;
+                top++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                PersistentRadixTrieNode<V> node = stack[--top];
+                stack[top] = null;
+                keyLength = parentLengths[top];
+                char[] chars = node.chars;
+                if (keyLength + chars.length > keyPath.length) {
+                    keyPath = Arrays.copyOf(keyPath, Math.max(keyLength + chars.length, keyPath.length * 2));
+                }
+                System.arraycopy(chars, 0, keyPath, keyLength, chars.length);
+                keyLength += chars.length;
+                pushChildren(node);
+                if (node.value != null) {
+                    remaining--;
+                    return new AbstractMap.SimpleImmutableEntry<>(new String(keyPath, 0, keyLength), node.value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+
+/**
+ * A node of {@link PersistentRadixTrie}. Nodes reachable from a version are never modified: changes copy the nodes
+ * on the path of the changed key and share everything else.
+ * <p>
+ * The one exception is a node created by an {@link PersistentRadixTrie.Editor}, which records the editor as its owner
+ * and is modified in place by that editor until its next snapshot, so that a batch of changes copies each node once.
+ * <p>
+ * Children are kept in an array of exactly their number, sorted by first char, with the first chars alongside. The
+ * first chars array is never modified in place, so copies share it; the children array is copied with the node.
+ */
+final class PersistentRadixTrieNode<V> {
+
+    static final int SCAN_MAX_FANOUT = 8;
+
+    // the editor that may modify this node in place, or null
+    private final Object owner;
+
+    char[] chars;
+    V value;
+    // number of values in the subtree rooted at this node, including its own
+    int size;
+    PersistentRadixTrieNode<V>[] children;
+    char[] firstChars;
+
+    PersistentRadixTrieNode(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * @return this node if the given owner may modify it, otherwise a copy the owner may modify
+     */
+    PersistentRadixTrieNode<V> editable(Object owner) {
+        if (owner != null && owner == this.owner) {
+            return this;
+        }
+        PersistentRadixTrieNode<V> copy = new PersistentRadixTrieNode<>(owner);
+        copy.chars = chars;
+        copy.value = value;
+        copy.size = size;
+        copy.children = children == null ? null : children.clone();
+        copy.firstChars = firstChars;
+        return copy;
+    }
+
+    /**
+     * @return the index of the child starting with the given character if there is one, otherwise
+     * (-(insertion point) - 1), with the same convention as {@link Arrays#binarySearch(char[], char)}
+     */
+    int childIndex(char c) {
+        char[] firstChars = this.firstChars;
+        if (firstChars == null) {
+            return -1;
+        }
+        if (firstChars.length <= SCAN_MAX_FANOUT) {
+            for (int i = 0; i < firstChars.length; i++) {
+                char first = firstChars[i];
+                if (first == c) {
+                    return i;
+                } else if (first > c) {
+                    return -(i + 1);
+                }
+            }
+            return -(firstChars.length + 1);
+        }
+        return Arrays.binarySearch(firstChars, c);
+    }
+
+    PersistentRadixTrieNode<V> findChild(char c) {
+        int index = childIndex(c);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * Inserts a child; the node must be editable.
+     */
+    @SuppressWarnings("unchecked")
+    void addChild(int index, PersistentRadixTrieNode<V> child) {
+        int count = children == null ? 0 : children.length;
+        PersistentRadixTrieNode<V>[] newChildren = (PersistentRadixTrieNode<V>[]) new PersistentRadixTrieNode<?>[count + 1];
+        char[] newFirstChars = new char[count + 1];
+        if (count > 0) {
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index, newChildren, index + 1, count - index);
+            System.arraycopy(firstChars, 0, newFirstChars, 0, index);
+            System.arraycopy(firstChars, index, newFirstChars, index + 1, count - index);
+        }
+        newChildren[index] = child;
+        newFirstChars[index] = child.chars[0];
+        children = newChildren;
+        firstChars = newFirstChars;
+    }
+
+    /**
+     * Removes a child, dropping the arrays when it was the last one; the node must be editable.
+     */
+    @SuppressWarnings("unchecked")
+    void removeChild(int index) {
+        int count = children.length - 1;
+        if (count == 0) {
+            children = null;
+            firstChars = null;
+            return;
+        }
+        PersistentRadixTrieNode<V>[] newChildren = (PersistentRadixTrieNode<V>[]) new PersistentRadixTrieNode<?>[count];
+        char[] newFirstChars = new char[count];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(children, index + 1, newChildren, index, count - index);
+        System.arraycopy(firstChars, 0, newFirstChars, 0, index);
+        System.arraycopy(firstChars, index + 1, newFirstChars, index, count - index);
+        children = newChildren;
+        firstChars = newFirstChars;
+    }
+}
@@ -0,0 +1,196 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * The structure shared by {@link IntRadixTrie} and {@link LongRadixTrie}: a radix trie of
+ * {@link PrimitiveRadixTrieNode}s, built with the same insertion code as {@link RadixTrie}.
+ * <p>
+ * Values are stored unboxed in the nodes, so a lookup reads the value from the node it ends at, and updating the
+ * value of an existing key allocates nothing. Presence is a flag on the node, so every value, including 0, can be
+ * stored.
+ */
+abstract class PrimitiveRadixTrie {
+
+    // package private for unit testing
+    PrimitiveRadixTrieNode root = new PrimitiveRadixTrieNode();
+    private int size;
+    // number of structural modifications, for the fail-fast cursors
+    private int modCount;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size < 1;
+    }
+
+    public void clear() {
+        root = new PrimitiveRadixTrieNode();
+        size = 0;
+        modCount++;
+    }
+
+    public boolean containsKey(CharSequence key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        RadixTrieNode<Void> node = RadixTrie.getPrefixNode(root, prefix, null);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @return true if at least one key starts with the given prefix
+     */
+    public boolean hasPrefix(CharSequence prefix) {
+        return countWithPrefix(prefix) > 0;
+    }
+
+    /**
+     * @return the node holding the value of the key, or null if the key has no value
+     */
+    PrimitiveRadixTrieNode getNode(CharSequence key) {
+        PrimitiveRadixTrieNode node = (PrimitiveRadixTrieNode) RadixTrie.getNode(root, key, 0, key.length());
+        return node != null && node.present ? node : null;
+    }
+
+    /**
+     * @return the node of the key, created without a value if there is none yet
+     */
+    PrimitiveRadixTrieNode getOrCreateNode(String key) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
+        return (PrimitiveRadixTrieNode) RadixTrie.getOrCreateNode(root, key, 0, key.length());
+    }
+
+    /**
+     * Marks the node of the given key as holding a value, if it did not already.
+     */
+    void markPresent(PrimitiveRadixTrieNode node, String key) {
+        if (!node.present) {
+            node.present = true;
+            RadixTrie.adjustSizes(root, key, 0, key.length(), 1);
+            size++;
+            modCount++;
+        }
+    }
+
+    /**
+     * Removes the value of the key, which is left in the node returned. The node is unlinked from the trie, as
+     * removals from {@link RadixTrie} are.
+     *
+     * @return the node that held the value of the key, or null if the key had no value
+     */
+    PrimitiveRadixTrieNode removeNode(String key) {
+        PrimitiveRadixTrieNode node = getNode(key);
+        if (node != null) {
+            node.present = false;
+            RadixTrie.removeValue(root, key, 0, key.length());
+            size--;
+            modCount++;
+        }
+        return node;
+    }
+
+    /**
+     * Walks the keys starting with a prefix depth first in sorted key order. Unlike an iterator it returns no
+     * objects: {@link #next()} moves to the next key, whose characters and value are then read from the cursor.
+     * <p>
+     * Cursors are fail-fast: modifying the trie other than by updating the value of an existing key causes a
+     * {@link ConcurrentModificationException}.
+     */
+    abstract class NodeCursor {
+        @SuppressWarnings("unchecked")
+        private RadixTrieNode<Void>[] stack = (RadixTrieNode<Void>[]) new RadixTrieNode<?>[16];
+        private int[] parentLengths = new int[16];
+        private int top;
+        private final StringBuilder keyPath = new StringBuilder();
+        private PrimitiveRadixTrieNode current;
+        private final int expectedModCount = modCount;
+
+        NodeCursor(String prefix) {
+            StringBuilder nodeKey = new StringBuilder(prefix);
+            RadixTrieNode<Void> node = RadixTrie.getPrefixNode(root, prefix, nodeKey);
+            if (node == root) {
+                pushChildren(root);
+            } else if (node != null) {
+                keyPath.append(nodeKey, 0, nodeKey.length() - node.chars.length);
+                push(node, keyPath.length());
+            }
+        }
+
+        private void push(RadixTrieNode<Void> node, int parentLength) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                parentLengths = Arrays.copyOf(parentLengths, top * 2);
+            }
+            stack[top] = node;
+            parentLengths[top] = parentLength;
+            top++;
+        }
+
+        private void pushChildren(RadixTrieNode<Void> node) {
+            List<RadixTrieNode<Void>> children = node.children;
+            if (children == null) {
+                return;
+            }
+            int pathLength = keyPath.length();
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                RadixTrieNode<Void> child = children.get(i);
+                if (child.size > 0) {
+                    push(child, pathLength);
+                }
+            }
+        }
+
+        /**
+         * Moves the cursor to the next key.
+         *
+         * @return false if there are no more keys
+         */
+        public boolean next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (top > 0) {
+                RadixTrieNode<Void> node = stack[--top];
+                keyPath.setLength(parentLengths[top]);
+                keyPath.append(node.chars);
+                pushChildren(node);
+                if (((PrimitiveRadixTrieNode) node).present) {
+                    current = (PrimitiveRadixTrieNode) node;
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        /**
+         * @return the key the cursor is at, which is only valid until the cursor moves; call toString() to keep it
+         */
+        public CharSequence key() {
+            node();
+            return keyPath;
+        }
+
+        PrimitiveRadixTrieNode node() {
+            if (current == null) {
+                throw new IllegalStateException("The cursor is not at a key");
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.datatoys.util.radixtree;
+
+/**
+ * A node of {@link IntRadixTrie} and {@link LongRadixTrie}, holding its value unboxed in {@link #longValue}. The
+ * inherited object value is never set; whether the node holds a value is marked by {@link #present} instead.
+ */
+final class PrimitiveRadixTrieNode extends RadixTrieNode<Void> {
+
+    long longValue;
+    boolean present;
+
+    @Override
+    RadixTrieNode<Void> newNode() {
+        return new PrimitiveRadixTrieNode();
+    }
+
+    @Override
+    boolean hasValue() {
+        return present;
+    }
+}
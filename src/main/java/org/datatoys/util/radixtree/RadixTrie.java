@@ -1,26 +1,70 @@
 package org.datatoys.util.radixtree;
 
+import java.nio.CharBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of a radix trie.
  * <p>
  * This implementation is not thread safe, as it does not synchronize its operations.
  * <p>
- * Non-get/put operations utilize standard java.util collections to accumulate values:
- * thus concurrent modification exceptions are not possible to happen, since the values
- * in the collections are copies of the actual data.
+ * Null values are not stored: null marks a key without a value, so putting a null value removes the key.
+ * <p>
+ * Every node keeps the number of values in its subtree, so {@link #countWithPrefix(CharSequence)} and the size of a
+ * {@link #prefixMap(String) prefix view} are answered with a single descent.
+ * <p>
+ * Removing a key unlinks its node, and merges a node left without a value and with a single child into that child,
+ * so a trie that churns through keys keeps the shape of a trie built from its current keys.
+ * <p>
+ * The key set, values and entry set are live views of the trie, iterated in sorted key order. Their iterators
+ * walk the trie incrementally and are fail-fast: modifying the trie other than through the iterator's own
+ * {@link Iterator#remove()} causes a {@link ConcurrentModificationException}. Their spliterators are sorted and
+ * sized, and split the remaining keys into halves of equal size using the subtree sizes, so that parallel streams
+ * over the trie, see {@link #parallelStream()}, keep every core busy.
+ * <p>
+ * Keys are ordered as by {@link String#compareTo(String)}, which is the order of the sorted children. The navigation
+ * methods of {@link NavigableMap} descend along their key once, so they cost O(key length \u00d7 fanout); the range views
+ * count their size from the subtree sizes, with a descent per bound.
  */
 @SuppressWarnings("WeakerAccess")
-public class RadixTrie<V> implements Map<String, V> {
+public class RadixTrie<V> extends AbstractMap<String, V> implements NavigableMap<String, V> {
 
-    private RadixTrieNode<V> root = new RadixTrieNode<>();
+    // how join() combines the keys of two tries
+    private static final int JOIN_MERGE = 0;
+    private static final int JOIN_RETAIN = 1;
+    private static final int JOIN_REMOVE = 2;
+
+    // package private for unit testing
+    RadixTrieNode<V> root = new RadixTrieNode<>();
     private int size;
+    // number of structural modifications, for the fail-fast iterators
+    private int modCount;
 
     @Override
     public int size() {
@@ -34,19 +78,56 @@ public class RadixTrie<V> implements Map<String, V> {
 
     @Override
     public boolean containsKey(Object key) {
-        return key instanceof String && get(key) != null;
+        return key instanceof String && get((String) key) != null;
+    }
+
+    public boolean containsKey(CharSequence key) {
+        return get(key) != null;
+    }
+
+    public boolean containsKey(char[] buf, int off, int len) {
+        return get(buf, off, len) != null;
     }
 
-    @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public boolean containsValue(Object value) {
-        return values().contains(value);
+        if (value == null) {
+            return false;
+        }
+        for (Iterator<V> it = new ValueIterator(""); it.hasNext(); ) {
+            if (value.equals(it.next())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public V get(Object key) {
-        String keyStr = (String) key;
-        RadixTrieNode<V> node = getNode(root, keyStr.toCharArray(), 0);
+        return key instanceof String ? get((String) key) : null;
+    }
+
+    /**
+     * Looks up the value of a key given as any char sequence, such as a {@link StringBuilder} or a
+     * {@link java.nio.CharBuffer}, without copying it.
+     */
+    public V get(CharSequence key) {
+        RadixTrieNode<V> node = getNode(root, key, 0, key.length());
+        if (node != null) {
+            return node.value;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the value of the key held in {@code buf[off..off+len)}, without copying it.
+     */
+    public V get(char[] buf, int off, int len) {
+        if (off < 0 || len < 0 || off + len > buf.length) {
+            throw new IndexOutOfBoundsException("Invalid key range [" + off + ", " + (off + len) + ") for a buffer of length " + buf.length);
+        }
+        RadixTrieNode<V> node = getNode(root, buf, off, off + len);
         if (node != null) {
             return node.value;
         } else {
@@ -62,275 +143,3098 @@ public class RadixTrie<V> implements Map<String, V> {
             // we *could* allow this if the root is allowed to hold a value.
             throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
         }
-        return putAtNode(this, root, key.toCharArray(), 0, value, true);
+        if (value == null) {
+            // null marks the absence of a value, so mapping a key to null removes it
+            return remove(key);
+        }
+        return putAtNode(this, root, key, 0, key.length(), value, true);
     }
 
     @Override
     public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String keyStr = (String) key;
+        RadixTrieNode<V> node = getNode(root, keyStr, 0, keyStr.length());
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V oldValue = node.value;
+        node.value = null;
+        removeValue(root, keyStr, 0, keyStr.length());
+        size--;
+        modCount++;
+        return oldValue;
+    }
 
-        return null;
+    /**
+     * Removes all the keys starting with the given prefix, by unlinking the subtree holding them.
+     *
+     * @return the number of keys removed
+     */
+    public int removePrefix(CharSequence prefix) {
+        RadixTrieNode<V> node = getPrefixNode(root, prefix, null);
+        if (node == null || node.size == 0) {
+            return 0;
+        }
+        int removed = node.size;
+        if (node == root) {
+            clear();
+            return removed;
+        }
+        RadixTrieNode<V> grandparent = null;
+        RadixTrieNode<V> parent = null;
+        RadixTrieNode<V> current = root;
+        int offset = 0;
+        while (current != node) {
+            current.size -= removed;
+            grandparent = parent;
+            parent = current;
+            current = current.findChild(prefix.charAt(offset));
+            offset += current.chars.length;
+        }
+        unlinkChild(grandparent, parent, node);
+        size -= removed;
+        modCount++;
+        return removed;
     }
 
-    @Override
-    public void putAll(Map<? extends String, ? extends V> map) {
-        for (Map.Entry<? extends String, ? extends V> entry : map.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+    /**
+     * Shrinks the children list of every node to its size, releasing the spare capacity left behind by insertions
+     * and removals. Worth calling on a trie that has stopped growing.
+     */
+    public void trimToSize() {
+        List<RadixTrieNode<V>> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            RadixTrieNode<V> node = stack.remove(stack.size() - 1);
+            if (node.children != null) {
+                node.trimToSize();
+                stack.addAll(node.children);
+            }
         }
     }
 
-    // package private for unit testing
-    static <V> V putAtNode(RadixTrie<V> trie, RadixTrieNode<V> node, char[] key, int offset, V value, boolean incrementSize) {
+    /**
+     * Returns a live view of the mappings whose keys start with the given prefix, in sorted key order.
+     * <p>
+     * The view finds the subtree covering the prefix with a single descent, so its size is known without a walk
+     * and its iteration only visits that subtree. Putting a key that does not start with the prefix through the
+     * view throws an {@link IllegalArgumentException}.
+     */
+    public Map<String, V> prefixMap(String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException("Supplied prefix is null");
+        }
+        return new PrefixMap(prefix);
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        RadixTrieNode<V> node = getPrefixNode(root, prefix, null);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @return true if at least one key starts with the given prefix
+     */
+    public boolean hasPrefix(CharSequence prefix) {
+        return countWithPrefix(prefix) > 0;
+    }
+
+    /**
+     * Finds the longest key of the trie that is a prefix of the given key, or the key itself, in a single descent
+     * along the given key. Routing tables use this to pick the most specific route.
+     *
+     * @return a snapshot of the entry of that key, or null if no key of the trie is a prefix of the given key
+     */
+    public Map.Entry<String, V> longestPrefixOf(CharSequence key) {
+        RadixTrieNode<V> node = root;
+        RadixTrieNode<V> longest = null;
+        int longestLength = 0;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null || !startsWith(key, offset, end, node.chars)) {
+                break;
+            }
+            offset += node.chars.length;
+            if (node.value != null) {
+                longest = node;
+                longestLength = offset;
+            }
+        }
+        return longest == null ? null
+            : new AbstractMap.SimpleImmutableEntry<>(key.subSequence(0, longestLength).toString(), longest.value);
+    }
+
+    /**
+     * Finds all the keys of the trie that are a prefix of the given key, including the key itself, in a single
+     * descent along the given key.
+     *
+     * @return snapshots of the entries of those keys, shortest key first
+     */
+    public List<Map.Entry<String, V>> prefixesOf(CharSequence key) {
+        List<Map.Entry<String, V>> prefixes = new ArrayList<>();
+        RadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null || !startsWith(key, offset, end, node.chars)) {
+                break;
+            }
+            offset += node.chars.length;
+            if (node.value != null) {
+                prefixes.add(new AbstractMap.SimpleImmutableEntry<>(key.subSequence(0, offset).toString(), node.value));
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Finds the keys within the given Levenshtein distance of the query, the number of single character insertions,
+     * deletions and substitutions turning one into the other.
+     * <p>
+     * The trie is walked once, computing one row of the edit distance matrix per character along the edges, so keys
+     * sharing a prefix share its rows. A subtree is skipped as soon as every distance in the row exceeds maxEdits,
+     * since no key below it can come back within the bound.
+     *
+     * @return snapshots of the entries of the matching keys, ranked by distance, and in key order for the same
+     * distance
+     */
+    public List<Map.Entry<String, V>> fuzzyMatches(String query, int maxEdits) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("Invalid maximum number of edits: " + maxEdits);
+        }
+        int columns = query.length() + 1;
+        // rows[i][j] is the distance between the first i chars of the key path and the first j chars of the query
+        int[][] rows = new int[16][];
+        rows[0] = new int[columns];
+        for (int j = 0; j < columns; j++) {
+            rows[0][j] = j;
+        }
+        List<Map.Entry<String, V>> matches = new ArrayList<>();
+        int[] distances = new int[16];
+        int maxDistance = 0;
+
+        List<RadixTrieNode<V>> stack = new ArrayList<>();
+        int[] parentLengths = new int[16];
+        StringBuilder keyPath = new StringBuilder();
+        parentLengths = pushChildren(stack, parentLengths, root, 0);
+        nodes:
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            RadixTrieNode<V> node = stack.remove(top);
+            if (node.size == 0) {
+                continue;
+            }
+            int length = parentLengths[top];
+            keyPath.setLength(length);
+            for (char c : node.chars) {
+                if (length + 1 == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                int[] previous = rows[length];
+                int[] row = rows[length + 1];
+                if (row == null) {
+                    row = rows[length + 1] = new int[columns];
+                }
+                row[0] = previous[0] + 1;
+                int min = row[0];
+                for (int j = 1; j < columns; j++) {
+                    int substitution = previous[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+                    int distance = Math.min(substitution, Math.min(previous[j], row[j - 1]) + 1);
+                    row[j] = distance;
+                    min = Math.min(min, distance);
+                }
+                keyPath.append(c);
+                length++;
+                if (min > maxEdits) {
+                    continue nodes;
+                }
+            }
+            int distance = rows[length][columns - 1];
+            if (node.value != null && distance <= maxEdits) {
+                if (matches.size() == distances.length) {
+                    distances = Arrays.copyOf(distances, distances.length * 2);
+                }
+                distances[matches.size()] = distance;
+                maxDistance = Math.max(maxDistance, distance);
+                matches.add(new AbstractMap.SimpleImmutableEntry<>(keyPath.toString(), node.value));
+            }
+            parentLengths = pushChildren(stack, parentLengths, node, length);
+        }
+        return rankByDistance(matches, distances, maxDistance);
+    }
+
+    /**
+     * Pushes the children of a node in reverse, so that the smallest child is visited first, along with the length
+     * of their parent's key.
+     *
+     * @return the parent lengths, grown if needed
+     */
+    private static <V> int[] pushChildren(List<RadixTrieNode<V>> stack, int[] parentLengths, RadixTrieNode<V> node, int length) {
         List<RadixTrieNode<V>> children = node.children;
         if (children == null) {
-            children = new ArrayList<>();
-            node.children = children;
+            return parentLengths;
         }
-        if (children.isEmpty()) {
-            children.add(createValueNode(key, offset, value));
-            if (incrementSize) {
-                trie.size++;
+        for (int i = children.size() - 1; i >= 0; i--) {
+            int index = stack.size();
+            if (index == parentLengths.length) {
+                parentLengths = Arrays.copyOf(parentLengths, index * 2);
             }
-        } else {
-            boolean inserted = false;
-            for (int i = 0; i < children.size(); i++) {
-                RadixTrieNode<V> child = children.get(i);
-                char[] prefix = child.chars;
-                int commonCharacters = numCharsInCommonPrefix(child.chars, key, offset);
-                if (commonCharacters > 0) {
-                    int prefixLength = prefix.length;
-                    int keyLength = key.length - offset;
-                    if (commonCharacters == keyLength) {
-                        // exact match, replace the node
-                        V oldValue = child.value;
-                        child.value = value;
-                        return oldValue;
-                    } else if (commonCharacters == prefixLength) {
-                        // child node is a prefix for key, descend deeper in the tree
-                        return putAtNode(trie, child, key, offset + commonCharacters, value, true);
-                    } else {
-                        // only partial overlap
-                        // take this child node, and make it into a new parent node of both the incoming data
-                        // and the child data
+            parentLengths[index] = length;
+            stack.add(children.get(i));
+        }
+        return parentLengths;
+    }
 
-                        // first take the data of the child, and insert it under the child with a truncated common prefix
-//                        putAtNode(trie, child, child.chars, commonCharacters, child.value, false); // reparent the previous node data
-                        reparentChildNode(child, commonCharacters);
+    /**
+     * Finds the keys matching a glob pattern, in which {@code *} matches any sequence of chars, including none,
+     * {@code ?} matches exactly one char and {@code \} escapes the char after it: {@code com.*.mail} or
+     * {@code org.foo.?ar}.
+     * <p>
+     * The pattern is compiled to an automaton that reads the trie an edge at a time, comparing runs of literal chars
+     * with the whole label, and a subtree is skipped as soon as no state is left. While the pattern is at literal
+     * chars, only the children starting with one of them are visited, and once it is at a trailing {@code *} the
+     * whole subtree is collected without running the automaton.
+     *
+     * @return snapshots of the entries of the matching keys, in key order
+     * @throws IllegalArgumentException if the pattern ends with a lone escape
+     */
+    public List<Map.Entry<String, V>> match(String glob) {
+        GlobPattern pattern = new GlobPattern(glob);
+        List<Map.Entry<String, V>> matches = new ArrayList<>();
+        List<RadixTrieNode<V>> stack = new ArrayList<>();
+        // the states of the automaton after the key of the parent of each node on the stack, null once they match all
+        List<long[]> parentStates = new ArrayList<>();
+        int[] parentLengths = new int[16];
+        StringBuilder keyPath = new StringBuilder();
+        long[] start = pattern.start();
+        parentLengths = pushCandidates(pattern, stack, parentStates, parentLengths, root, 0,
+                pattern.acceptsAll(start) ? null : start);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            RadixTrieNode<V> node = stack.remove(top);
+            long[] states = parentStates.remove(top);
+            if (node.size == 0) {
+                continue;
+            }
+            if (states != null) {
+                states = pattern.advance(states, node.chars);
+                if (states == null) {
+                    continue;
+                }
+                if (pattern.acceptsAll(states)) {
+                    states = null;
+                }
+            }
+            keyPath.setLength(parentLengths[top]);
+            keyPath.append(node.chars);
+            if (node.value != null && (states == null || pattern.accepts(states))) {
+                matches.add(new AbstractMap.SimpleImmutableEntry<>(keyPath.toString(), node.value));
+            }
+            parentLengths = pushCandidates(pattern, stack, parentStates, parentLengths, node, keyPath.length(), states);
+        }
+        return matches;
+    }
 
-                        // now re-attempt insertion at the
-                        return putAtNode(trie, child, key, offset + commonCharacters, value, true);
-                    }
-                } else {
-                    // no common substring, order by first character
-                    if (key[offset] < prefix[0]) {
-                        // insert here at this index
-                        children.add(i, createValueNode(key, offset, value));
-                        inserted = true;
-                        if (incrementSize) {
-                            trie.size++;
-                        }
-                        break;
+    /**
+     * Pushes the children of a node that can continue a match, the smallest first to be visited, along with the length
+     * of their parent's key and the states after it.
+     *
+     * @return the parent lengths, grown if needed
+     */
+    private static <V> int[] pushCandidates(GlobPattern pattern, List<RadixTrieNode<V>> stack, List<long[]> parentStates,
+                                            int[] parentLengths, RadixTrieNode<V> node, int length, long[] states) {
+        if (node.children == null) {
+            return parentLengths;
+        }
+        int from = stack.size();
+        char[] literals = states == null ? null : pattern.nextLiterals(states);
+        if (literals == null) {
+            parentLengths = pushChildren(stack, parentLengths, node, length);
+        } else {
+            for (int i = literals.length - 1; i >= 0; i--) {
+                RadixTrieNode<V> child = node.findChild(literals[i]);
+                if (child != null) {
+                    int index = stack.size();
+                    if (index == parentLengths.length) {
+                        parentLengths = Arrays.copyOf(parentLengths, index * 2);
                     }
+                    parentLengths[index] = length;
+                    stack.add(child);
                 }
             }
-            if (!inserted) {
-                // insertion is at the end of the list
-                children.add(createValueNode(key, offset, value));
-                if (incrementSize) {
-                    trie.size++;
+        }
+        for (int i = from; i < stack.size(); i++) {
+            parentStates.add(states);
+        }
+        return parentLengths;
+    }
+
+    /**
+     * Finds the keys the regular expression matches entirely, as {@link Matcher#matches()} does.
+     * <p>
+     * The expression is run against the key of every node visited, the labels being read an edge at a time. A subtree
+     * is skipped when the expression fails on the key of its node without having read up to its end
+     * ({@link Matcher#hitEnd()}), since no longer key can then match. Expressions starting with a literal prefix prune
+     * the trie as well as a {@link #prefixMap} would; expressions starting with {@code .*} visit every node.
+     *
+     * @return snapshots of the entries of the matching keys, in key order
+     */
+    public List<Map.Entry<String, V>> match(Pattern pattern) {
+        Matcher matcher = pattern.matcher("");
+        List<Map.Entry<String, V>> matches = new ArrayList<>();
+        List<RadixTrieNode<V>> stack = new ArrayList<>();
+        int[] parentLengths = new int[16];
+        StringBuilder keyPath = new StringBuilder();
+        parentLengths = pushChildren(stack, parentLengths, root, 0);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            RadixTrieNode<V> node = stack.remove(top);
+            if (node.size == 0) {
+                continue;
+            }
+            keyPath.setLength(parentLengths[top]);
+            keyPath.append(node.chars);
+            matcher.reset(keyPath);
+            if (matcher.matches()) {
+                // a match says nothing about longer keys: a|ab matches "a" without reading further
+                if (node.value != null) {
+                    matches.add(new AbstractMap.SimpleImmutableEntry<>(keyPath.toString(), node.value));
                 }
-                return null;
+            } else if (!matcher.hitEnd()) {
+                continue;
             }
+            parentLengths = pushChildren(stack, parentLengths, node, keyPath.length());
         }
-        return null;
+        return matches;
     }
 
-    private static <V> void reparentChildNode(RadixTrieNode<V> node, int commonCharacters) {
-        //create a new child of the node, but with a [commonCharacters..] id
-        RadixTrieNode<V> child = new RadixTrieNode<V>();
-        child.value = node.value;
-        child.children = node.children;
-        int length = node.chars.length - commonCharacters;
-        child.chars = new char[length];
-        System.arraycopy(node.chars, commonCharacters, child.chars, 0, length);
-
-        node.value = null;
-        char[] oldChars = node.chars;
-        node.chars = new char[commonCharacters];
-        System.arraycopy(oldChars, 0, node.chars, 0, commonCharacters);
-        node.children = new ArrayList<>();
-        node.children.add(child);
+    /**
+     * Stable counting sort of the matches, found in key order, by their distance.
+     */
+    private static <T> List<T> rankByDistance(List<T> matches, int[] distances, int maxDistance) {
+        int[] starts = new int[maxDistance + 2];
+        for (int i = 0; i < matches.size(); i++) {
+            starts[distances[i] + 1]++;
+        }
+        for (int d = 1; d < starts.length; d++) {
+            starts[d] += starts[d - 1];
+        }
+        List<T> ranked = new ArrayList<>(Collections.<T>nCopies(matches.size(), null));
+        for (int i = 0; i < matches.size(); i++) {
+            ranked.set(starts[distances[i]]++, matches.get(i));
+        }
+        return ranked;
     }
 
-    static int numCharsInCommonPrefix(char[] prefix, char[] key, int offset) {
-        int keyLength = key.length;
-        int prefixLength = prefix.length;
-        int commonChars = 0;
-        for (int idx = 0; idx < prefixLength && offset < keyLength && prefix[idx] == key[offset]; offset++, idx++) {
-            commonChars++;
+    /**
+     * @return true if the key continues at the offset with the given chars, whose first character is already known
+     * to match
+     */
+    private static boolean startsWith(CharSequence key, int offset, int end, char[] chars) {
+        int length = chars.length;
+        if (end - offset < length) {
+            return false;
         }
-        return commonChars;
+        for (int idx = 1; idx < length; idx++) {
+            if (chars[idx] != key.charAt(offset + idx)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
+    /**
+     * Walks the trie to report its shape and an estimate of the memory its structure retains, for capacity planning
+     * and spotting tries that degenerate into one node per char.
+     */
+    public RadixTrieStats stats() {
+        return RadixTrieStats.of(root);
     }
 
-    static int numCharsInCommonPrefix(String prefix, String key) {
-        int keyLength = key.length();
-        int prefixLength = prefix.length();
-        int commonChars = 0;
-        for (int idx = 0; idx < prefixLength && idx < keyLength && prefix.charAt(idx) == key.charAt(idx); idx++) {
-            commonChars++;
-        }
-        return commonChars;
+    /**
+     * Copies the trie into an immutable, compact {@link FrozenRadixTrie}, for tries that are built once and then only
+     * read. Later changes to this trie are not reflected in the frozen copy.
+     */
+    public FrozenRadixTrie<V> freeze() {
+        return FrozenRadixTrie.freeze(root);
     }
 
-    // package private for unit testing
-    RadixTrieNode<V> getNode(RadixTrieNode<V> node, char[] key, int offset) {
-        if (node.chars != null) {
-            if (offset == key.length) {
-                return node;
+    /**
+     * Builds a trie from entries in strictly ascending key order, in a single pass over them.
+     * <p>
+     * Each key is only compared with the previous one, and every node is created once with its final label, so this
+     * is much faster than putting the keys one by one. Entries with a null value are skipped.
+     *
+     * @throws IllegalArgumentException if the keys are not in strictly ascending order, or a key is empty
+     */
+    public static <V> RadixTrie<V> fromSorted(Iterator<? extends Map.Entry<String, ? extends V>> entries) {
+        RadixTrieBuilder<V> builder = new RadixTrieBuilder<>(0);
+        while (entries.hasNext()) {
+            Map.Entry<String, ? extends V> entry = entries.next();
+            checkKey(entry.getKey());
+            if (entry.getValue() != null) {
+                builder.add(entry.getKey(), entry.getValue());
             }
         }
-        List<RadixTrieNode<V>> children = node.children;
-        if (children == null || children.isEmpty()) {
-            return null;
+        return withRoot(builder.finish());
+    }
+
+    /**
+     * Builds a trie from a stream of entries in strictly ascending key order.
+     *
+     * @see #fromSorted(Iterator)
+     */
+    public static <V> RadixTrie<V> fromSorted(Stream<? extends Map.Entry<String, ? extends V>> entries) {
+        return fromSorted(entries.iterator());
+    }
+
+    /**
+     * Builds a trie holding the mappings of the given map, on the common fork join pool.
+     *
+     * @see #copyOf(Map, ForkJoinPool)
+     */
+    public static <V> RadixTrie<V> copyOf(Map<String, ? extends V> map) {
+        return copyOf(map, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a trie holding the mappings of the given map.
+     * <p>
+     * Maps iterated in ascending key order, such as other radix tries or sorted maps in natural order, are built with
+     * {@link #fromSorted(Iterator)}. The keys of any other map are split on their leading characters, and the
+     * resulting groups are sorted and built as separate subtrees in parallel on the given pool. Null values are
+     * skipped.
+     *
+     * @throws IllegalArgumentException if a key is empty
+     */
+    public static <V> RadixTrie<V> copyOf(Map<String, ? extends V> map, ForkJoinPool pool) {
+        if (map instanceof RadixTrie || map instanceof FlatRadixTrie
+            || map instanceof SortedMap && ((SortedMap<String, ? extends V>) map).comparator() == null) {
+            return fromSorted(map.entrySet().iterator());
         }
-        for (RadixTrieNode<V> childNode : children) {
-            int commonChars = numCharsInCommonPrefix(childNode.chars,key, offset);
-            if (commonChars == childNode.chars.length) {
-                return getNode(childNode, key, offset + commonChars);
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, V>[] entries = (Map.Entry<String, V>[]) new Map.Entry<?, ?>[map.size()];
+        int count = 0;
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            checkKey(entry.getKey());
+            if (entry.getValue() != null) {
+                entries[count++] = new AbstractMap.SimpleImmutableEntry<String, V>(entry);
             }
         }
-        return null;
+        return withRoot(pool.invoke(new RadixTrieBuilder.BuildTask<>(entries, 0, count, 0, true)));
     }
 
-    @Override
-    public void clear() {
-        root = new RadixTrieNode<>();
+    private static void checkKey(String key) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
     }
 
-    @Override
-    public Set<String> keySet() {
-        TrieNodeKeyAccumulator accumulator = new TrieNodeKeyAccumulator();
-        walker.walkTrie(accumulator);
-        return accumulator.getKeys();
+    private static <V> RadixTrie<V> withRoot(RadixTrieNode<V> root) {
+        RadixTrie<V> trie = new RadixTrie<>();
+        trie.root = root;
+        trie.size = root.size;
+        return trie;
     }
 
+    /**
+     * Puts the mappings of the map in ascending key order, so that keys sharing a prefix share the descent through
+     * it, see {@link BatchPath}. The entries of a map that is not sorted in natural order are sorted first.
+     */
     @Override
-    public Collection<V> values() {
-        TrieNodeValueAccumulator valueAccumulator = new TrieNodeValueAccumulator();
-        walker.walkTrie(valueAccumulator);
-        return valueAccumulator.getValues();
+    public void putAll(Map<? extends String, ? extends V> map) {
+        if (map.size() < 2) {
+            for (Map.Entry<? extends String, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        Iterator<? extends Map.Entry<? extends String, ? extends V>> entries;
+        if (map instanceof RadixTrie || map instanceof FlatRadixTrie
+            || map instanceof SortedMap && ((SortedMap<? extends String, ? extends V>) map).comparator() == null) {
+            entries = map.entrySet().iterator();
+        } else {
+            @SuppressWarnings("unchecked")
+            Map.Entry<String, V>[] sorted = (Map.Entry<String, V>[]) map.entrySet().toArray(new Map.Entry<?, ?>[map.size()]);
+            Arrays.sort(sorted, BatchPath.KEY_ORDER);
+            entries = Arrays.asList(sorted).iterator();
+        }
+        BatchPath<V> path = new BatchPath<>(root);
+        while (entries.hasNext()) {
+            Map.Entry<? extends String, ? extends V> entry = entries.next();
+            String key = entry.getKey();
+            checkKey(key);
+            V value = entry.getValue();
+            if (value == null) {
+                // removals may merge nodes of the path, start again from the root
+                remove(key);
+                path.reset();
+            } else if (path.put(key, value) == null) {
+                size++;
+                modCount++;
+            }
+        }
     }
 
-    @Override
-    public Set<Map.Entry<String, V>> entrySet() {
-        TrieNodeEntryAccumulator accumulator = new TrieNodeEntryAccumulator();
-        walker.walkTrie(accumulator);
-        return accumulator.getAccumulator();
+    /**
+     * Adds the mappings of another trie, combining the values of keys present in both with the remapping function, as
+     * {@link Map#merge} does: a null result removes the key.
+     * <p>
+     * Both tries are walked in parallel along their sorted children. Subtrees found only in the other trie are copied
+     * whole below the matching node of this one, without looking up their keys, and prefixes are split at most once
+     * per node rather than once per key, see {@link #join}.
+     */
+    public void merge(RadixTrie<? extends V> other, BinaryOperator<V> remapping) {
+        if (remapping == null) {
+            throw new NullPointerException("Supplied remapping function is null");
+        }
+        join(other, JOIN_MERGE, remapping);
     }
 
-    private static <V> RadixTrieNode<V> createValueNode(char[] key, int offset, V value) {
-        int prefixLength = key.length - offset;
-        RadixTrieNode<V> node = new RadixTrieNode<>();
-        node.value = value;
-        node.chars = new char[prefixLength];
-        System.arraycopy(key, offset, node.chars, 0 , prefixLength);
-        return node;
+    /**
+     * Removes the keys that the other trie does not hold, leaving the intersection of the key sets. Subtrees of this
+     * trie that the other one does not have are dropped whole, see {@link #join}.
+     */
+    public void retainAll(RadixTrie<?> other) {
+        join(other, JOIN_RETAIN, null);
     }
 
-    private interface TrieNodeVisitor<V> {
-        void visitNode(StringBuilder keyPath, RadixTrieNode<V> node);
+    /**
+     * Removes the keys that the other trie holds, leaving the difference of the key sets. Subtrees of this trie that
+     * the other one does not have are left untouched, see {@link #join}.
+     */
+    public void removeAll(RadixTrie<?> other) {
+        join(other, JOIN_REMOVE, null);
     }
 
-    private class TrieNodeWalker {
-        void walkTrie(TrieNodeVisitor<V> visitor) {
-            walkTrie(new StringBuilder(), root, visitor);
+    /**
+     * Walks this trie and another one in parallel, as pairs of a node of this trie and a node of the other trie that
+     * starts at an offset in its chars: the key of the node of this trie is the key of the parent of the other node
+     * followed by the chars of the other node up to the offset. A pair whose offset is the length of the other node's
+     * chars has two nodes of the same key. Otherwise the rest of the other node's chars is the label of a virtual
+     * child of this node, which only its child sharing a first char can have keys in common with.
+     * <p>
+     * A child of this trie that diverges from the other node inside its chars, after the other node's chars end, is
+     * split there, so that the pairs below are aligned. Values and children are changed without regard to sizes and
+     * compression, and the nodes of this trie reached by the walk, the only ones that can change, are then fixed up
+     * from the bottom: children left empty are dropped, nodes left with no value and a single child are merged with
+     * it, which undoes the splits that no key came to use, and subtree sizes are added up again.
+     */
+    @SuppressWarnings("unchecked")
+    private void join(RadixTrie<?> other, int mode, BinaryOperator<V> remapping) {
+        if (other.size == 0 && mode != JOIN_RETAIN) {
+            return;
         }
-
-        private void walkTrie(StringBuilder priorprefix, RadixTrieNode<V> node, TrieNodeVisitor<V> visitor) {
-            visitor.visitNode(priorprefix, node);
-            List<RadixTrieNode<V>> children = node.children;
-            if (children != null && !children.isEmpty()) {
-                for (RadixTrieNode<V> child : children) {
-                    int len = priorprefix.length();
-                    priorprefix.append(child.chars);
-                    walkTrie(priorprefix, child, visitor);
-                    priorprefix.setLength(len);
+        List<RadixTrieNode<V>> touched = new ArrayList<>();
+        List<RadixTrieNode<V>> nodes = new ArrayList<>();
+        List<RadixTrieNode<?>> others = new ArrayList<>();
+        int[] offsets = new int[16];
+        nodes.add(root);
+        others.add(other.root);
+        while (!nodes.isEmpty()) {
+            int top = nodes.size() - 1;
+            RadixTrieNode<V> node = nodes.remove(top);
+            RadixTrieNode<?> otherNode = others.remove(top);
+            int offset = offsets[top];
+            int otherLength = otherNode.chars == null ? 0 : otherNode.chars.length;
+            touched.add(node);
+            if (offset == otherLength) {
+                // both nodes have the same key
+                Object otherValue = otherNode.value;
+                if (mode == JOIN_MERGE) {
+                    if (otherValue != null) {
+                        node.value = node.value == null ? (V) otherValue : remapping.apply(node.value, (V) otherValue);
+                    }
+                } else if (mode == JOIN_RETAIN ? otherValue == null : otherValue != null) {
+                    node.value = null;
+                }
+                if (mode == JOIN_MERGE) {
+                    if (otherNode.children != null) {
+                        offsets = mergeChildren(node, otherNode, nodes, others, offsets);
+                    }
+                } else if (node.children != null) {
+                    for (RadixTrieNode<V> child : node.children) {
+                        RadixTrieNode<?> otherChild = otherNode.findChild(child.chars[0]);
+                        if (otherChild == null) {
+                            if (mode == JOIN_RETAIN) {
+                                child.size = 0;
+                            }
+                        } else {
+                            offsets = pairChild(node, child, otherChild, 0, mode, nodes, others, offsets);
+                        }
+                    }
+                }
+            } else {
+                // the other node is a virtual child of this node, labelled with the rest of its chars
+                if (mode == JOIN_MERGE) {
+                    offsets = mergeChild(node, otherNode, offset, nodes, others, offsets);
+                } else {
+                    if (mode == JOIN_RETAIN) {
+                        node.value = null;
+                    }
+                    if (node.children != null) {
+                        char first = otherNode.chars[offset];
+                        for (RadixTrieNode<V> child : node.children) {
+                            if (child.chars[0] == first) {
+                                offsets = pairChild(node, child, otherNode, offset, mode, nodes, others, offsets);
+                            } else if (mode == JOIN_RETAIN) {
+                                child.size = 0;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = touched.size() - 1; i >= 0; i--) {
+            RadixTrieNode<V> node = touched.get(i);
+            compressChildren(node);
+            int nodeSize = node.value != null ? 1 : 0;
+            if (node.children != null) {
+                for (RadixTrieNode<V> child : node.children) {
+                    nodeSize += child.size;
                 }
             }
+            node.size = nodeSize;
         }
+        size = root.size;
+        modCount++;
     }
 
-    private static class Entry<V> implements Map.Entry<String, V> {
-
-        RadixTrieNode<V> node;
-        String key;
-
-        @Override
-        public String getKey() {
-            return key;
+    /**
+     * Merges the children of the other node into the children of the node, both sorted by first char, in one pass:
+     * children of the other node that the node does not have are copied whole into a new children list, indexed once,
+     * and the others are paired.
+     */
+    private static <V> int[] mergeChildren(RadixTrieNode<V> node, RadixTrieNode<?> otherNode,
+                                           List<RadixTrieNode<V>> nodes, List<RadixTrieNode<?>> others, int[] offsets) {
+        List<RadixTrieNode<V>> children = node.children;
+        int count = children == null ? 0 : children.size();
+        // the new children list, created on the first copy
+        List<RadixTrieNode<V>> merged = null;
+        int index = 0;
+        for (RadixTrieNode<?> otherChild : otherNode.children) {
+            if (otherChild.size == 0) {
+                continue;
+            }
+            char first = otherChild.chars[0];
+            while (index < count && children.get(index).chars[0] < first) {
+                if (merged != null) {
+                    merged.add(children.get(index));
+                }
+                index++;
+            }
+            if (index < count && children.get(index).chars[0] == first) {
+                RadixTrieNode<V> child = children.get(index++);
+                int commonChars = numCharsInCommonPrefix(child.chars, otherChild.chars, 0);
+                if (commonChars < child.chars.length) {
+                    child = splitChild(node, child, commonChars);
+                }
+                if (merged != null) {
+                    merged.add(child);
+                }
+                offsets = pushPair(child, otherChild, commonChars, nodes, others, offsets);
+            } else {
+                if (merged == null) {
+                    merged = new ArrayList<>(count + otherNode.children.size());
+                    if (index > 0) {
+                        merged.addAll(children.subList(0, index));
+                    }
+                }
+                merged.add(copySubtree(node, otherChild, 0));
+            }
+        }
+        if (merged != null) {
+            if (index < count) {
+                merged.addAll(children.subList(index, count));
+            }
+            node.children = merged;
+            node.reindex();
         }
+        return offsets;
+    }
 
-        @Override
-        public V getValue() {
-            return node.value;
+    /**
+     * Merges the other node, from the given offset in its chars, as a child of the node: copied whole if the node has
+     * no child sharing its first char, otherwise paired with that child.
+     */
+    private static <V> int[] mergeChild(RadixTrieNode<V> node, RadixTrieNode<?> otherNode, int offset,
+                                        List<RadixTrieNode<V>> nodes, List<RadixTrieNode<?>> others, int[] offsets) {
+        char first = otherNode.chars[offset];
+        RadixTrieNode<V> child = node.findChild(first);
+        if (child == null) {
+            node.addChild(-node.childIndex(first) - 1, copySubtree(node, otherNode, offset));
+            return offsets;
+        }
+        int commonChars = numCharsInCommonPrefix(child.chars, otherNode.chars, offset);
+        if (commonChars < child.chars.length) {
+            child = splitChild(node, child, commonChars);
         }
+        return pushPair(child, otherNode, offset + commonChars, nodes, others, offsets);
+    }
 
-        @Override
-        public V setValue(V value) {
-            V oldValye = node.value;
-            node.value = value;
-            return oldValye;
+    /**
+     * Pairs a child of this trie with the other node, from the given offset in its chars, when they can have keys in
+     * common, starting with the same char. Otherwise the child is dropped when retaining and left as it is when
+     * removing.
+     */
+    private static <V> int[] pairChild(RadixTrieNode<V> node, RadixTrieNode<V> child, RadixTrieNode<?> otherNode,
+                                       int offset, int mode, List<RadixTrieNode<V>> nodes, List<RadixTrieNode<?>> others,
+                                       int[] offsets) {
+        int commonChars = numCharsInCommonPrefix(child.chars, otherNode.chars, offset);
+        if (commonChars < child.chars.length) {
+            if (offset + commonChars < otherNode.chars.length) {
+                // the keys diverge inside the chars of both nodes
+                if (mode == JOIN_RETAIN) {
+                    child.size = 0;
+                }
+                return offsets;
+            }
+            child = splitChild(node, child, commonChars);
         }
+        return pushPair(child, otherNode, offset + commonChars, nodes, others, offsets);
     }
 
-    private class TrieNodeEntryAccumulator implements TrieNodeVisitor<V> {
-        Set<Map.Entry<String, V>> accumulator = new HashSet<>(size);
+    private static <V> int[] pushPair(RadixTrieNode<V> node, RadixTrieNode<?> otherNode, int offset,
+                                      List<RadixTrieNode<V>> nodes, List<RadixTrieNode<?>> others, int[] offsets) {
+        int top = nodes.size();
+        if (top == offsets.length) {
+            offsets = Arrays.copyOf(offsets, top * 2);
+        }
+        offsets[top] = offset;
+        nodes.add(node);
+        others.add(otherNode);
+        return offsets;
+    }
 
-        @Override
-        public void visitNode(StringBuilder keyPath, RadixTrieNode<V> node) {
-            if (node.value != null) {
-                Entry<V> entry = new Entry<>();
-                entry.key = keyPath.toString();
-                entry.node = node;
-                accumulator.add(entry);
+    /**
+     * Copies the subtree of a node of another trie, with the chars of its root from the given offset on, into new
+     * nodes made by the given node. The values are shared, the sizes copied.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> RadixTrieNode<V> copySubtree(RadixTrieNode<V> parent, RadixTrieNode<?> source, int offset) {
+        RadixTrieNode<V> copy = parent.newNode();
+        copy.chars = Arrays.copyOfRange(source.chars, offset, source.chars.length);
+        if (source.children == null) {
+            copy.value = (V) source.value;
+            copy.size = source.size;
+            return copy;
+        }
+        List<RadixTrieNode<?>> sources = new ArrayList<>();
+        List<RadixTrieNode<V>> copies = new ArrayList<>();
+        sources.add(source);
+        copies.add(copy);
+        while (!sources.isEmpty()) {
+            RadixTrieNode<?> from = sources.remove(sources.size() - 1);
+            RadixTrieNode<V> to = copies.remove(copies.size() - 1);
+            to.value = (V) from.value;
+            to.size = from.size;
+            if (from.children != null) {
+                to.children = new ArrayList<>(from.children.size());
+                for (RadixTrieNode<?> child : from.children) {
+                    RadixTrieNode<V> childCopy = to.newNode();
+                    childCopy.chars = child.chars.clone();
+                    to.children.add(childCopy);
+                    sources.add(child);
+                    copies.add(childCopy);
+                }
+                to.reindex();
             }
         }
+        return copy;
+    }
 
-        Set<Map.Entry<String, V>> getAccumulator() {
-            return accumulator;
+    /**
+     * Drops the children of a node left without values and merges the children left with no value and a single child
+     * with it. The children must have their sizes up to date.
+     */
+    private static <V> void compressChildren(RadixTrieNode<V> node) {
+        List<RadixTrieNode<V>> children = node.children;
+        if (children == null) {
+            return;
+        }
+        int empty = 0;
+        for (int i = 0, n = children.size(); i < n; i++) {
+            RadixTrieNode<V> child = children.get(i);
+            if (child.size == 0) {
+                empty++;
+            } else if (child.value == null && child.children != null && child.children.size() == 1) {
+                mergeWithOnlyChild(node, child);
+            }
+        }
+        if (empty > 0) {
+            List<RadixTrieNode<V>> kept = new ArrayList<>(children.size() - empty);
+            for (RadixTrieNode<V> child : children) {
+                if (child.size > 0) {
+                    kept.add(child);
+                }
+            }
+            node.children = kept.isEmpty() ? null : kept;
+            node.reindex();
         }
     }
 
-    private class TrieNodeValueAccumulator implements TrieNodeVisitor<V> {
+    /**
+     * Looks up a batch of keys, sorted first so that keys sharing a prefix share the descent through it, see
+     * {@link BatchPath}.
+     *
+     * @return the values of the keys in the order of the collection, null for keys without a value
+     */
+    public List<V> getAll(Collection<? extends CharSequence> keys) {
+        CharSequence[] array = keys.toArray(new CharSequence[keys.size()]);
+        @SuppressWarnings("unchecked")
+        V[] values = (V[]) new Object[array.length];
+        getAll(array, values);
+        return Arrays.asList(values);
+    }
 
-        List<V> values = new ArrayList<>(size);
+    /**
+     * Looks up a batch of keys into values[i] for keys[i], sharing the descent through common prefixes as
+     * {@link #getAll(Collection)} does. Keys already in ascending order are looked up without allocating per key or
+     * sorting; otherwise only the sort order of the keys is allocated.
+     *
+     * @throws IllegalArgumentException if the values array is shorter than the keys array
+     */
+    public void getAll(CharSequence[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("Values array of length " + values.length + " cannot hold " + keys.length + " values");
+        }
+        BatchPath<V> path = new BatchPath<>(root);
+        int[] order = BatchPath.sortedOrder(keys);
+        for (int i = 0; i < keys.length; i++) {
+            int index = order == null ? i : order[i];
+            values[index] = path.get(keys[index]);
+        }
+    }
 
-        @Override
-        public void visitNode(StringBuilder keyPath, RadixTrieNode<V> node) {
-            if (node.value != null) {
-                values.add(node.value);
+    // package private for unit testing
+    static <V> V putAtNode(RadixTrie<V> trie, RadixTrieNode<V> node, char[] key, int offset, V value, boolean incrementSize) {
+        return putAtNode(trie, node, CharBuffer.wrap(key), offset, key.length, value, incrementSize);
+    }
+
+    static <V> V putAtNode(RadixTrie<V> trie, RadixTrieNode<V> node, CharSequence key, int offset, int end, V value, boolean incrementSize) {
+        V oldValue = insert(node, key, offset, end, value);
+        int delta = (value != null ? 1 : 0) - (oldValue != null ? 1 : 0);
+        if (delta != 0) {
+            adjustSizes(node, key, offset, end, delta);
+            if (incrementSize) {
+                trie.size += delta;
+                trie.modCount++;
             }
         }
+        return oldValue;
+    }
 
-        List<V> getValues() {
-            return values;
+    private static <V> V insert(RadixTrieNode<V> node, CharSequence key, int offset, int end, V value) {
+        node = getOrCreateNode(node, key, offset, end);
+        V oldValue = node.value;
+        node.value = value;
+        return oldValue;
+    }
+
+    /**
+     * Finds the node of the key below the given node, creating it without a value if the trie has no such node yet.
+     * New nodes are created with {@link RadixTrieNode#newNode()}, and subtree sizes are left to the caller.
+     */
+    static <V> RadixTrieNode<V> getOrCreateNode(RadixTrieNode<V> node, CharSequence key, int offset, int end) {
+        while (true) {
+            RadixTrieNode<V> child = node.findChild(key.charAt(offset));
+            if (child == null) {
+                // no child shares a first character with the key: insert a new leaf, keeping the children sorted
+                child = createNode(node, key, offset, end);
+                node.addChild(-node.childIndex(key.charAt(offset)) - 1, child);
+                return child;
+            }
+            int commonCharacters = numCharsInCommonPrefix(child.chars, key, offset, end);
+            int prefixLength = child.chars.length;
+            int keyLength = end - offset;
+            if (commonCharacters < prefixLength) {
+                // only partial overlap
+                // put a new parent node, holding the common characters, above both the incoming data and the child
+                child = splitChild(node, child, commonCharacters);
+                if (commonCharacters == keyLength) {
+                    // the key ends exactly at the split point, the new parent node is the node of the key
+                    return child;
+                }
+            } else if (commonCharacters == keyLength) {
+                // exact match
+                return child;
+            }
+            // child node is a prefix for key, descend deeper in the tree
+            node = child;
+            offset += commonCharacters;
         }
     }
 
-    private class TrieNodeKeyAccumulator implements TrieNodeVisitor<V> {
-        HashSet<String> keys = new HashSet<>(size);
+    /**
+     * Adds delta to the subtree size of every node on the path of an existing key, starting at the given node.
+     */
+    static <V> void adjustSizes(RadixTrieNode<V> node, CharSequence key, int offset, int end, int delta) {
+        node.size += delta;
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            node.size += delta;
+            offset += node.chars.length;
+        }
+    }
 
-        @Override
-        public void visitNode(StringBuilder keyPath, RadixTrieNode<V> node) {
-            if (node.value != null) {
-                keys.add(keyPath.toString());
-            }
+    /**
+     * Takes the value of an existing key, already cleared from its node by the caller, out of the subtree sizes on
+     * its path below the given node, and keeps the trie compressed: the node is unlinked if it has no children left,
+     * which may leave its parent to be merged, or merged with its child if it has only one.
+     *
+     * @return the node that absorbed the chars of a merged parent, or null if no node was merged
+     */
+    static <V> RadixTrieNode<V> removeValue(RadixTrieNode<V> node, CharSequence key, int offset, int end) {
+        RadixTrieNode<V> grandparent = null;
+        RadixTrieNode<V> parent = null;
+        node.size--;
+        while (offset < end) {
+            grandparent = parent;
+            parent = node;
+            node = node.findChild(key.charAt(offset));
+            node.size--;
+            offset += node.chars.length;
+        }
+        if (parent == null) {
+            return null;
+        }
+        if (node.children == null) {
+            return unlinkChild(grandparent, parent, node);
+        } else if (node.children.size() == 1) {
+            return mergeWithOnlyChild(parent, node);
         }
+        return null;
+    }
 
-        HashSet<String> getKeys() {
-            return keys;
+    /**
+     * Unlinks a node from its parent. A parent left without a value and with a single child is merged with that
+     * child, unless it is the root, which has no grandparent.
+     *
+     * @return the node that absorbed the chars of the parent, or null if it was not merged
+     */
+    static <V> RadixTrieNode<V> unlinkChild(RadixTrieNode<V> grandparent, RadixTrieNode<V> parent, RadixTrieNode<V> node) {
+        parent.removeChild(parent.childIndex(node.chars[0]));
+        if (grandparent != null && !parent.hasValue() && parent.children != null && parent.children.size() == 1) {
+            return mergeWithOnlyChild(grandparent, parent);
         }
+        return null;
+    }
+
+    /**
+     * Replaces a node without a value by its only child, whose chars are prefixed with the chars of the node. The
+     * child keeps its identity, so that iterators holding it stay valid.
+     */
+    static <V> RadixTrieNode<V> mergeWithOnlyChild(RadixTrieNode<V> parent, RadixTrieNode<V> node) {
+        RadixTrieNode<V> child = node.children.get(0);
+        char[] chars = Arrays.copyOf(node.chars, node.chars.length + child.chars.length);
+        System.arraycopy(child.chars, 0, chars, node.chars.length, child.chars.length);
+        child.chars = chars;
+        parent.replaceChild(parent.childIndex(chars[0]), child);
+        return child;
+    }
+
+    /**
+     * Splits a child of the node after its first chars: a new node holding the common characters takes the place of
+     * the child, which moves below it with the rest of its chars, its value and its children. A node thus stays the
+     * node of the same key for as long as it is in the trie, so that the entries handed out for it stay valid.
+     *
+     * @return the new node, without a value
+     */
+    private static <V> RadixTrieNode<V> splitChild(RadixTrieNode<V> node, RadixTrieNode<V> child, int commonCharacters) {
+        // looked up before the chars of the child change
+        int index = node.childIndex(child.chars[0]);
+        RadixTrieNode<V> parent = child.newNode();
+        child.copySubtreeStatsTo(parent);
+        parent.chars = Arrays.copyOf(child.chars, commonCharacters);
+        child.chars = Arrays.copyOfRange(child.chars, commonCharacters, child.chars.length);
+        parent.addChild(0, child);
+        node.replaceChild(index, parent);
+        return parent;
     }
 
-    private final TrieNodeWalker walker = new TrieNodeWalker();
+    static int numCharsInCommonPrefix(char[] prefix, char[] key, int offset) {
+        int keyLength = key.length;
+        int prefixLength = prefix.length;
+        int commonChars = 0;
+        for (int idx = 0; idx < prefixLength && offset < keyLength && prefix[idx] == key[offset]; offset++, idx++) {
+            commonChars++;
+        }
+        return commonChars;
+
+    }
+
+    static int numCharsInCommonPrefix(char[] prefix, CharSequence key, int offset, int end) {
+        int prefixLength = prefix.length;
+        int commonChars = 0;
+        for (int idx = 0; idx < prefixLength && offset < end && prefix[idx] == key.charAt(offset); offset++, idx++) {
+            commonChars++;
+        }
+        return commonChars;
+    }
+
+    static int numCharsInCommonPrefix(String prefix, String key) {
+        int keyLength = key.length();
+        int prefixLength = prefix.length();
+        int commonChars = 0;
+        for (int idx = 0; idx < prefixLength && idx < keyLength && prefix.charAt(idx) == key.charAt(idx); idx++) {
+            commonChars++;
+        }
+        return commonChars;
+    }
+
+    // package private for unit testing
+    static <V> RadixTrieNode<V> getNode(RadixTrieNode<V> node, CharSequence key, int offset, int end) {
+        while (offset < end) {
+            node = node.findChild(key.charAt(offset));
+            if (node == null) {
+                return null;
+            }
+            // the first character matched when finding the child
+            char[] chars = node.chars;
+            int length = chars.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (chars[idx] != key.charAt(offset + idx)) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node.chars != null ? node : null;
+    }
+
+    // package private for unit testing
+    static <V> RadixTrieNode<V> getNode(RadixTrieNode<V> node, char[] key, int offset, int end) {
+        while (offset < end) {
+            node = node.findChild(key[offset]);
+            if (node == null) {
+                return null;
+            }
+            // the first character matched when finding the child
+            char[] chars = node.chars;
+            int length = chars.length;
+            if (end - offset < length) {
+                return null;
+            }
+            for (int idx = 1; idx < length; idx++) {
+                if (chars[idx] != key[offset + idx]) {
+                    return null;
+                }
+            }
+            offset += length;
+        }
+        return node.chars != null ? node : null;
+    }
+
+    /**
+     * Finds the highest node whose key starts with the given prefix. The prefix may end in the middle of the node's
+     * chars; the remaining chars are appended to nodeKey, when it is given.
+     */
+    static <V> RadixTrieNode<V> getPrefixNode(RadixTrieNode<V> node, CharSequence prefix, StringBuilder nodeKey) {
+        int offset = 0;
+        int end = prefix.length();
+        while (offset < end) {
+            RadixTrieNode<V> child = node.findChild(prefix.charAt(offset));
+            if (child == null) {
+                return null;
+            }
+            int commonChars = numCharsInCommonPrefix(child.chars, prefix, offset, end);
+            if (offset + commonChars == end) {
+                if (nodeKey != null) {
+                    nodeKey.append(child.chars, commonChars, child.chars.length - commonChars);
+                }
+                return child;
+            } else if (commonChars < child.chars.length) {
+                return null;
+            }
+            node = child;
+            offset += commonChars;
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node of the smallest key after the given key, or equal to it when inclusive, and appends its key to
+     * nodeKey. Descends along the key only, keeping the nearest subtree whose keys all come after it: the first child
+     * after the key's character at the deepest level, or a child whose chars diverge upwards from the key.
+     */
+    static <V> RadixTrieNode<V> ceilingNode(RadixTrieNode<V> root, String key, boolean inclusive, StringBuilder nodeKey) {
+        RadixTrieNode<V> candidate = null;
+        // the length of the candidate's parent key, a prefix of the key
+        int candidateOffset = 0;
+        RadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (true) {
+            if (offset == end) {
+                if (inclusive && node.value != null) {
+                    nodeKey.append(key);
+                    return node;
+                }
+                RadixTrieNode<V> first = firstChild(node, 0);
+                if (first != null) {
+                    candidate = first;
+                    candidateOffset = end;
+                }
+                break;
+            }
+            int index = node.childIndex(key.charAt(offset));
+            RadixTrieNode<V> greater = firstChild(node, index >= 0 ? index + 1 : -index - 1);
+            if (greater != null) {
+                candidate = greater;
+                candidateOffset = offset;
+            }
+            if (index < 0) {
+                break;
+            }
+            RadixTrieNode<V> child = node.children.get(index);
+            int commonChars = numCharsInCommonPrefix(child.chars, key, offset, end);
+            if (commonChars < child.chars.length) {
+                // the key ends within the chars of the child, or diverges from them
+                if (child.size > 0 && (offset + commonChars == end || child.chars[commonChars] > key.charAt(offset + commonChars))) {
+                    candidate = child;
+                    candidateOffset = offset;
+                }
+                break;
+            }
+            node = child;
+            offset += commonChars;
+        }
+        if (candidate == null) {
+            return null;
+        }
+        nodeKey.append(key, 0, candidateOffset).append(candidate.chars);
+        return firstValueNode(candidate, nodeKey);
+    }
+
+    /**
+     * Finds the node of the largest key before the given key, or equal to it when inclusive, and appends its key to
+     * nodeKey. Mirrors {@link #ceilingNode}, except that the nodes passed on the way hold keys that are prefixes of
+     * the key, so their own values come before it.
+     */
+    static <V> RadixTrieNode<V> floorNode(RadixTrieNode<V> root, String key, boolean inclusive, StringBuilder nodeKey) {
+        RadixTrieNode<V> candidate = null;
+        int candidateOffset = 0;
+        // whether the candidate only stands for its own value, not for its subtree
+        boolean valueOnly = false;
+        RadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (true) {
+            if (offset == end) {
+                if (inclusive && node.value != null) {
+                    nodeKey.append(key);
+                    return node;
+                }
+                break;
+            }
+            int index = node.childIndex(key.charAt(offset));
+            RadixTrieNode<V> smaller = lastChild(node, index >= 0 ? index : -index - 1);
+            if (smaller != null) {
+                candidate = smaller;
+                candidateOffset = offset;
+                valueOnly = false;
+            } else if (node.value != null) {
+                candidate = node;
+                candidateOffset = offset - node.chars.length;
+                valueOnly = true;
+            }
+            if (index < 0) {
+                break;
+            }
+            RadixTrieNode<V> child = node.children.get(index);
+            int commonChars = numCharsInCommonPrefix(child.chars, key, offset, end);
+            if (commonChars < child.chars.length) {
+                if (child.size > 0 && offset + commonChars < end && child.chars[commonChars] < key.charAt(offset + commonChars)) {
+                    candidate = child;
+                    candidateOffset = offset;
+                    valueOnly = false;
+                }
+                break;
+            }
+            node = child;
+            offset += commonChars;
+        }
+        if (candidate == null) {
+            return null;
+        }
+        nodeKey.append(key, 0, candidateOffset).append(candidate.chars);
+        return valueOnly ? candidate : lastValueNode(candidate, nodeKey);
+    }
+
+    /**
+     * Counts the keys before the given key, or up to it when inclusive, adding up the sizes of the subtrees left
+     * behind along the descent.
+     */
+    static <V> int countBefore(RadixTrieNode<V> root, String key, boolean inclusive) {
+        int count = 0;
+        RadixTrieNode<V> node = root;
+        int offset = 0;
+        int end = key.length();
+        while (true) {
+            if (offset == end) {
+                return inclusive && node.value != null ? count + 1 : count;
+            }
+            if (node.value != null) {
+                count++;
+            }
+            int index = node.childIndex(key.charAt(offset));
+            int smaller = index >= 0 ? index : -index - 1;
+            for (int i = 0; i < smaller; i++) {
+                count += node.children.get(i).size;
+            }
+            if (index < 0) {
+                return count;
+            }
+            RadixTrieNode<V> child = node.children.get(index);
+            int commonChars = numCharsInCommonPrefix(child.chars, key, offset, end);
+            if (commonChars < child.chars.length) {
+                if (offset + commonChars < end && child.chars[commonChars] < key.charAt(offset + commonChars)) {
+                    count += child.size;
+                }
+                return count;
+            }
+            node = child;
+            offset += commonChars;
+        }
+    }
+
+    /**
+     * @return the first child from the given index on holding values, or null if there is none
+     */
+    private static <V> RadixTrieNode<V> firstChild(RadixTrieNode<V> node, int from) {
+        List<RadixTrieNode<V>> children = node.children;
+        if (children != null) {
+            for (int i = from, n = children.size(); i < n; i++) {
+                RadixTrieNode<V> child = children.get(i);
+                if (child.size > 0) {
+                    return child;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the last child before the given index holding values, or null if there is none
+     */
+    private static <V> RadixTrieNode<V> lastChild(RadixTrieNode<V> node, int before) {
+        List<RadixTrieNode<V>> children = node.children;
+        if (children != null) {
+            for (int i = before - 1; i >= 0; i--) {
+                RadixTrieNode<V> child = children.get(i);
+                if (child.size > 0) {
+                    return child;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the node of the smallest key in the subtree of the given node, appending the rest of its key to nodeKey
+     */
+    private static <V> RadixTrieNode<V> firstValueNode(RadixTrieNode<V> node, StringBuilder nodeKey) {
+        while (node.value == null) {
+            node = firstChild(node, 0);
+            nodeKey.append(node.chars);
+        }
+        return node;
+    }
+
+    /**
+     * @return the node of the largest key in the subtree of the given node, appending the rest of its key to nodeKey
+     */
+    private static <V> RadixTrieNode<V> lastValueNode(RadixTrieNode<V> node, StringBuilder nodeKey) {
+        while (true) {
+            RadixTrieNode<V> last = lastChild(node, node.children == null ? 0 : node.children.size());
+            if (last == null) {
+                return node;
+            }
+            node = last;
+            nodeKey.append(node.chars);
+        }
+    }
+
+    @Override
+    public void clear() {
+        root = new RadixTrieNode<>();
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new KeySet();
+    }
+
+    /**
+     * @return a sequential stream of the entries, in sorted key order
+     */
+    public Stream<Map.Entry<String, V>> stream() {
+        return StreamSupport.stream(new EntrySpliterator(""), false);
+    }
+
+    /**
+     * @return a parallel stream of the entries, whose spliterator splits the trie into subtrees of balanced sizes
+     */
+    public Stream<Map.Entry<String, V>> parallelStream() {
+        return StreamSupport.stream(new EntrySpliterator(""), true);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * @return null: keys are in the natural order of strings, which is the order of their chars
+     */
+    @Override
+    public Comparator<? super String> comparator() {
+        return null;
+    }
+
+    @Override
+    public String firstKey() {
+        return key(first());
+    }
+
+    @Override
+    public String lastKey() {
+        return key(last());
+    }
+
+    @Override
+    public Map.Entry<String, V> firstEntry() {
+        return exportEntry(first());
+    }
+
+    @Override
+    public Map.Entry<String, V> lastEntry() {
+        return exportEntry(last());
+    }
+
+    @Override
+    public Map.Entry<String, V> pollFirstEntry() {
+        return pollEntry(first());
+    }
+
+    @Override
+    public Map.Entry<String, V> pollLastEntry() {
+        return pollEntry(last());
+    }
+
+    @Override
+    public Map.Entry<String, V> lowerEntry(String key) {
+        return exportEntry(floor(key, false));
+    }
+
+    @Override
+    public String lowerKey(String key) {
+        return keyOrNull(floor(key, false));
+    }
+
+    @Override
+    public Map.Entry<String, V> floorEntry(String key) {
+        return exportEntry(floor(key, true));
+    }
+
+    @Override
+    public String floorKey(String key) {
+        return keyOrNull(floor(key, true));
+    }
+
+    @Override
+    public Map.Entry<String, V> ceilingEntry(String key) {
+        return exportEntry(ceiling(key, true));
+    }
+
+    @Override
+    public String ceilingKey(String key) {
+        return keyOrNull(ceiling(key, true));
+    }
+
+    @Override
+    public Map.Entry<String, V> higherEntry(String key) {
+        return exportEntry(ceiling(key, false));
+    }
+
+    @Override
+    public String higherKey(String key) {
+        return keyOrNull(ceiling(key, false));
+    }
+
+    @Override
+    public NavigableMap<String, V> descendingMap() {
+        return new SubMap(null, false, null, false, true);
+    }
+
+    @Override
+    public NavigableSet<String> navigableKeySet() {
+        return new NavigableKeySet(this);
+    }
+
+    @Override
+    public NavigableSet<String> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * @return a live view of the keys in the range, whose size is counted with two descents, see
+     * {@link NavigableMap#subMap(Object, boolean, Object, boolean)}
+     */
+    @Override
+    public NavigableMap<String, V> subMap(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+        return new SubMap(checkBound(fromKey), fromInclusive, checkBound(toKey), toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<String, V> headMap(String toKey, boolean inclusive) {
+        return new SubMap(null, false, checkBound(toKey), inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<String, V> tailMap(String fromKey, boolean inclusive) {
+        return new SubMap(checkBound(fromKey), inclusive, null, false, false);
+    }
+
+    @Override
+    public SortedMap<String, V> subMap(String fromKey, String toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<String, V> headMap(String toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<String, V> tailMap(String fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    private static String checkBound(String key) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: null keys are not ordered");
+        }
+        return key;
+    }
+
+    private Entry first() {
+        return ceiling("", true);
+    }
+
+    private Entry last() {
+        StringBuilder nodeKey = new StringBuilder();
+        RadixTrieNode<V> node = lastValueNode(root, nodeKey);
+        return node.value == null ? null : newEntry(nodeKey.toString(), node);
+    }
+
+    private Entry ceiling(String key, boolean inclusive) {
+        StringBuilder nodeKey = new StringBuilder();
+        RadixTrieNode<V> node = ceilingNode(root, checkBound(key), inclusive, nodeKey);
+        return node == null ? null : newEntry(nodeKey.toString(), node);
+    }
+
+    private Entry floor(String key, boolean inclusive) {
+        StringBuilder nodeKey = new StringBuilder();
+        RadixTrieNode<V> node = floorNode(root, checkBound(key), inclusive, nodeKey);
+        return node == null ? null : newEntry(nodeKey.toString(), node);
+    }
+
+    private Map.Entry<String, V> pollEntry(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        Map.Entry<String, V> exported = exportEntry(entry);
+        remove(entry.key);
+        return exported;
+    }
+
+    /**
+     * @return a snapshot of the entry, as the navigation methods of a {@link NavigableMap} return entries that do not
+     * support {@link Map.Entry#setValue(Object)}
+     */
+    private static <V> Map.Entry<String, V> exportEntry(Map.Entry<String, V> entry) {
+        return entry == null ? null : new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+    }
+
+    private static String keyOrNull(Map.Entry<String, ?> entry) {
+        return entry == null ? null : entry.getKey();
+    }
+
+    private static String key(Map.Entry<String, ?> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.getKey();
+    }
+
+    private static <V> RadixTrieNode<V> createNode(RadixTrieNode<V> parent, CharSequence key, int offset, int end) {
+        int prefixLength = end - offset;
+        RadixTrieNode<V> node = parent.newNode();
+        node.chars = new char[prefixLength];
+        if (key instanceof String) {
+            ((String) key).getChars(offset, end, node.chars, 0);
+        } else {
+            for (int idx = 0; idx < prefixLength; idx++) {
+                node.chars[idx] = key.charAt(offset + idx);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Walks the trie depth first in sorted key order, with an explicit stack so that deep tries cannot overflow the
+     * call stack. Nodes are only visited as the iteration advances.
+     * <p>
+     * Removing the value of the node last returned may merge its parent, or itself, into the node on top of the stack,
+     * whose chars then start with the chars of the merged node; its entry is moved back to the key length of the merged
+     * node. Knowing the subtree size of the start node also means hasNext() never needs to look ahead.
+     */
+    private abstract class TrieIterator<T> implements Iterator<T> {
+        private final List<RadixTrieNode<V>> stack = new ArrayList<>();
+        // for every node on the stack, the length of its parent's key
+        private int[] parentLengths = new int[16];
+        private final StringBuilder keyPath = new StringBuilder();
+        private final boolean needsKeys;
+
+        private int remaining;
+        private String nextKey;
+        private RadixTrieNode<V> lastReturned;
+        private int expectedModCount = modCount;
+
+        /**
+         * Iterates over the subtree of the node with the given key, or over the whole trie for an empty key.
+         */
+        TrieIterator(String startKey, boolean needsKeys) {
+            this.needsKeys = needsKeys;
+            RadixTrieNode<V> node = root;
+            int offset = 0;
+            int end = startKey.length();
+            while (offset < end) {
+                node = node.findChild(startKey.charAt(offset));
+                if (node == null) {
+                    return;
+                }
+                offset += node.chars.length;
+            }
+            remaining = node.size;
+            if (node == root) {
+                pushChildren(root);
+            } else {
+                keyPath.append(startKey, 0, end - node.chars.length);
+                push(node, keyPath.length());
+            }
+        }
+
+        /**
+         * Iterates over the given number of keys from the given key on, for range views. The stack is seeded with the
+         * subtrees holding the keys after it, found as in {@link #ceilingNode}, the nearest on top; the key path starts
+         * as the key, of which the parent key of every seeded subtree is a prefix.
+         */
+        TrieIterator(String fromKey, boolean inclusive, int count, boolean needsKeys) {
+            this.needsKeys = needsKeys;
+            if (count <= 0) {
+                return;
+            }
+            remaining = count;
+            keyPath.append(fromKey);
+            RadixTrieNode<V> node = root;
+            int offset = 0;
+            int end = fromKey.length();
+            while (true) {
+                if (offset == end) {
+                    if (inclusive && node.value != null) {
+                        push(node, offset - node.chars.length);
+                    } else {
+                        pushChildren(node, 0, end);
+                    }
+                    return;
+                }
+                int index = node.childIndex(fromKey.charAt(offset));
+                pushChildren(node, index >= 0 ? index + 1 : -index - 1, offset);
+                if (index < 0) {
+                    return;
+                }
+                RadixTrieNode<V> child = node.children.get(index);
+                int commonChars = numCharsInCommonPrefix(child.chars, fromKey, offset, end);
+                if (commonChars < child.chars.length) {
+                    if (child.size > 0 && (offset + commonChars == end || child.chars[commonChars] > fromKey.charAt(offset + commonChars))) {
+                        push(child, offset);
+                    }
+                    return;
+                }
+                node = child;
+                offset += commonChars;
+            }
+        }
+
+        private void push(RadixTrieNode<V> node, int parentLength) {
+            int top = stack.size();
+            if (top == parentLengths.length) {
+                parentLengths = Arrays.copyOf(parentLengths, top * 2);
+            }
+            parentLengths[top] = parentLength;
+            stack.add(node);
+        }
+
+        private void pushChildren(RadixTrieNode<V> node) {
+            pushChildren(node, 0, keyPath.length());
+        }
+
+        /**
+         * Pushes the children from the given index on, whose parent key has the given length.
+         */
+        private void pushChildren(RadixTrieNode<V> node, int from, int parentLength) {
+            List<RadixTrieNode<V>> children = node.children;
+            if (children == null) {
+                return;
+            }
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.size() - 1; i >= from; i--) {
+                RadixTrieNode<V> child = children.get(i);
+                if (child.size > 0) {
+                    push(child, parentLength);
+                }
+            }
+        }
+
+        private RadixTrieNode<V> advance() {
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                RadixTrieNode<V> node = stack.remove(top);
+                keyPath.setLength(parentLengths[top]);
+                keyPath.append(node.chars);
+                pushChildren(node);
+                if (node.value != null) {
+                    return node;
+                }
+            }
+            // the subtree sizes promised more values than the trie holds
+            throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        RadixTrieNode<V> nextNode() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = advance();
+            remaining--;
+            nextKey = needsKeys ? keyPath.toString() : null;
+            return lastReturned;
+        }
+
+        /**
+         * @return the key of the node last returned by {@link #nextNode()}
+         */
+        String currentKey() {
+            return nextKey;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned.value = null;
+            int top = stack.size() - 1;
+            RadixTrieNode<V> next = top >= 0 ? stack.get(top) : null;
+            int nextLength = next != null ? next.chars.length : 0;
+            // the key path still holds the key of the node last returned
+            RadixTrieNode<V> merged = removeValue(root, keyPath, 0, keyPath.length());
+            if (merged != null && merged == next) {
+                parentLengths[top] -= merged.chars.length - nextLength;
+            }
+            size--;
+            modCount++;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyIterator extends TrieIterator<String> {
+        KeyIterator(String startKey) {
+            super(startKey, true);
+        }
+
+        KeyIterator(String fromKey, boolean inclusive, int count) {
+            super(fromKey, inclusive, count, true);
+        }
+
+        @Override
+        public String next() {
+            nextNode();
+            return currentKey();
+        }
+    }
+
+    private final class ValueIterator extends TrieIterator<V> {
+        ValueIterator(String startKey) {
+            super(startKey, false);
+        }
+
+        ValueIterator(String fromKey, boolean inclusive, int count) {
+            super(fromKey, inclusive, count, false);
+        }
+
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+
+    private final class EntryIterator extends TrieIterator<Map.Entry<String, V>> {
+        EntryIterator(String startKey) {
+            super(startKey, true);
+        }
+
+        EntryIterator(String fromKey, boolean inclusive, int count) {
+            super(fromKey, inclusive, count, true);
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            RadixTrieNode<V> node = nextNode();
+            return newEntry(currentKey(), node);
+        }
+    }
+
+    private Entry newEntry(String key, RadixTrieNode<V> node) {
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.node = node;
+        return entry;
+    }
+
+    /**
+     * Splits and traverses the trie in sorted key order. Like {@link TrieIterator}, it walks depth first with an
+     * explicit stack of the subtrees left, the next one on top, which also makes splitting cheap: the entries on top
+     * of the stack are handed over to the new spliterator, which covers the keys before the ones kept.
+     * <p>
+     * A split hands over entries up to half of the remaining keys. The entry straddling the middle is opened on the
+     * way, replacing it by its children and, as an entry of its own, its value, so the halves are balanced whatever
+     * the shape of the trie. Handed over entries carry their key prefix, as the new spliterator has no key path of
+     * its own yet; entries it pushes while traversing are relative to its key path, as in the iterator. Sizes are
+     * exact, and every split is sized.
+     * <p>
+     * The spliterator binds to the trie when it is created, and fails fast on structural modifications.
+     */
+    private abstract class TrieSpliterator<T> implements Spliterator<T> {
+        private final List<RadixTrieNode<V>> stack = new ArrayList<>();
+        // for every entry of the stack: the length of its parent's key, or the parent's key itself for handed over
+        // entries, and whether it only stands for the node's value
+        private int[] parentLengths = new int[16];
+        private String[] parentKeys = new String[16];
+        private boolean[] valueOnly = new boolean[16];
+        private final StringBuilder keyPath = new StringBuilder();
+        private long remaining;
+        final int expectedModCount;
+
+        TrieSpliterator(int expectedModCount) {
+            this.expectedModCount = expectedModCount;
+        }
+
+        /**
+         * Covers the subtree of the node with the given key, or the whole trie for an empty key.
+         */
+        TrieSpliterator(String startKey) {
+            this(modCount);
+            RadixTrieNode<V> node = root;
+            int offset = 0;
+            int end = startKey.length();
+            while (offset < end) {
+                node = node.findChild(startKey.charAt(offset));
+                if (node == null) {
+                    return;
+                }
+                offset += node.chars.length;
+            }
+            remaining = node.size;
+            if (node == root) {
+                pushChildren(root);
+            } else {
+                keyPath.append(startKey, 0, end - node.chars.length);
+                push(node, keyPath.length(), null, false);
+            }
+        }
+
+        private void push(RadixTrieNode<V> node, int parentLength, String parentKey, boolean isValue) {
+            int top = stack.size();
+            if (top == parentLengths.length) {
+                parentLengths = Arrays.copyOf(parentLengths, top * 2);
+                parentKeys = Arrays.copyOf(parentKeys, top * 2);
+                valueOnly = Arrays.copyOf(valueOnly, top * 2);
+            }
+            parentLengths[top] = parentLength;
+            parentKeys[top] = parentKey;
+            valueOnly[top] = isValue;
+            stack.add(node);
+        }
+
+        private void pushChildren(RadixTrieNode<V> node) {
+            List<RadixTrieNode<V>> children = node.children;
+            if (children == null) {
+                return;
+            }
+            int pathLength = keyPath.length();
+            // push in reverse, so that the smallest child is visited first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                RadixTrieNode<V> child = children.get(i);
+                if (child.size > 0) {
+                    push(child, pathLength, null, false);
+                }
+            }
+        }
+
+        /**
+         * Pops the entry on top of the stack, leaving the key of its node in the key path.
+         */
+        private RadixTrieNode<V> pop(int top) {
+            RadixTrieNode<V> node = stack.remove(top);
+            if (parentKeys[top] != null) {
+                // every entry below a handed over one was handed over too, none of them uses the key path
+                keyPath.setLength(0);
+                keyPath.append(parentKeys[top]);
+                parentKeys[top] = null;
+            } else {
+                keyPath.setLength(parentLengths[top]);
+            }
+            keyPath.append(node.chars);
+            return node;
+        }
+
+        /**
+         * @return the element for the node whose key is in the key path
+         */
+        abstract T element(RadixTrieNode<V> node);
+
+        /**
+         * @return a spliterator of the same kind, without entries
+         */
+        abstract TrieSpliterator<T> newSpliterator();
+
+        String key() {
+            return keyPath.toString();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                boolean isValue = valueOnly[top];
+                RadixTrieNode<V> node = pop(top);
+                if (!isValue) {
+                    pushChildren(node);
+                }
+                if (node.value != null) {
+                    remaining--;
+                    action.accept(element(node));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (tryAdvance(action)) {
+                // the action is applied by tryAdvance
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            long half = remaining / 2;
+            if (half == 0) {
+                return null;
+            }
+            List<RadixTrieNode<V>> nodes = new ArrayList<>();
+            List<String> keys = new ArrayList<>();
+            List<Boolean> values = new ArrayList<>();
+            long size = 0;
+            while (true) {
+                int top = stack.size() - 1;
+                RadixTrieNode<V> node = stack.get(top);
+                boolean isValue = valueOnly[top];
+                long next = isValue ? 1 : node.size;
+                // the last entry holds more than half of the keys, so it is never handed over
+                if (size + next <= half && top > 0) {
+                    stack.remove(top);
+                    nodes.add(node);
+                    keys.add(parentKeys[top] != null ? parentKeys[top] : keyPath.substring(0, parentLengths[top]));
+                    values.add(isValue);
+                    parentKeys[top] = null;
+                    size += next;
+                } else if (isValue || node.children == null) {
+                    break;
+                } else {
+                    // the entry straddles the middle: replace it by its children, and its value on top of them
+                    pop(top);
+                    int parentLength = keyPath.length() - node.chars.length;
+                    pushChildren(node);
+                    if (node.value != null) {
+                        push(node, parentLength, null, true);
+                    }
+                }
+            }
+            if (nodes.isEmpty()) {
+                return null;
+            }
+            TrieSpliterator<T> prefix = newSpliterator();
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                prefix.push(nodes.get(i), 0, keys.get(i), values.get(i));
+            }
+            prefix.remaining = size;
+            remaining -= size;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
+    private final class KeySpliterator extends TrieSpliterator<String> {
+        KeySpliterator(String startKey) {
+            super(startKey);
+        }
+
+        private KeySpliterator(int expectedModCount) {
+            super(expectedModCount);
+        }
+
+        @Override
+        String element(RadixTrieNode<V> node) {
+            return key();
+        }
+
+        @Override
+        TrieSpliterator<String> newSpliterator() {
+            return new KeySpliterator(expectedModCount);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | SORTED | DISTINCT;
+        }
+
+        @Override
+        public Comparator<? super String> getComparator() {
+            // keys are sorted in their natural order
+            return null;
+        }
+    }
+
+    private final class ValueSpliterator extends TrieSpliterator<V> {
+        ValueSpliterator(String startKey) {
+            super(startKey);
+        }
+
+        private ValueSpliterator(int expectedModCount) {
+            super(expectedModCount);
+        }
+
+        @Override
+        V element(RadixTrieNode<V> node) {
+            return node.value;
+        }
+
+        @Override
+        TrieSpliterator<V> newSpliterator() {
+            return new ValueSpliterator(expectedModCount);
+        }
+    }
+
+    private final class EntrySpliterator extends TrieSpliterator<Map.Entry<String, V>> {
+        EntrySpliterator(String startKey) {
+            super(startKey);
+        }
+
+        private EntrySpliterator(int expectedModCount) {
+            super(expectedModCount);
+        }
+
+        @Override
+        Map.Entry<String, V> element(RadixTrieNode<V> node) {
+            return newEntry(key(), node);
+        }
+
+        @Override
+        TrieSpliterator<Map.Entry<String, V>> newSpliterator() {
+            return new EntrySpliterator(expectedModCount);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | SORTED | DISTINCT;
+        }
+
+        @Override
+        public Comparator<? super Map.Entry<String, V>> getComparator() {
+            return Map.Entry.comparingByKey();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new KeyIterator("");
+        }
+
+        @Override
+        public Spliterator<String> spliterator() {
+            return new KeySpliterator("");
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return RadixTrie.this.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            RadixTrie.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator("");
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator("");
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            RadixTrie.this.clear();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, V>> {
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new EntryIterator("");
+        }
+
+        @Override
+        public Spliterator<Map.Entry<String, V>> spliterator() {
+            return new EntrySpliterator("");
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (contains(o)) {
+                RadixTrie.this.remove(((Map.Entry<?, ?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            RadixTrie.this.clear();
+        }
+    }
+
+    private final class PrefixMap extends AbstractMap<String, V> {
+        private final String prefix;
+
+        // the node covering the prefix and its key, re-resolved after structural modifications
+        private RadixTrieNode<V> node;
+        private String nodeKey;
+        private int resolvedModCount;
+        private boolean resolved;
+
+        PrefixMap(String prefix) {
+            this.prefix = prefix;
+        }
+
+        private RadixTrieNode<V> node() {
+            if (!resolved || resolvedModCount != modCount) {
+                StringBuilder key = new StringBuilder(prefix);
+                node = getPrefixNode(root, prefix, key);
+                nodeKey = key.toString();
+                resolvedModCount = modCount;
+                resolved = true;
+            }
+            return node;
+        }
+
+        private boolean inRange(Object key) {
+            return key instanceof String && ((String) key).startsWith(prefix);
+        }
+
+        @Override
+        public int size() {
+            RadixTrieNode<V> node = node();
+            return node == null ? 0 : node.size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && RadixTrie.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? RadixTrie.this.get(key) : null;
+        }
+
+        @Override
+        public V put(String key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key " + key + " does not start with the prefix " + prefix);
+            }
+            return RadixTrie.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? RadixTrie.this.remove(key) : null;
+        }
+
+        /**
+         * Unlinks the subtree holding the keys of the view at once, see {@link RadixTrie#removePrefix}.
+         */
+        @Override
+        public void clear() {
+            removePrefix(prefix);
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new AbstractSet<Map.Entry<String, V>>() {
+                @Override
+                public Iterator<Map.Entry<String, V>> iterator() {
+                    return node() == null ? Collections.<Map.Entry<String, V>>emptyIterator() : new EntryIterator(nodeKey);
+                }
+
+                @Override
+                public Spliterator<Map.Entry<String, V>> spliterator() {
+                    return node() == null ? Spliterators.<Map.Entry<String, V>>emptySpliterator() : new EntrySpliterator(nodeKey);
+                }
+
+                @Override
+                public int size() {
+                    return PrefixMap.this.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return node() == null ? Collections.<String>emptyIterator() : new KeyIterator(nodeKey);
+                }
+
+                @Override
+                public Spliterator<String> spliterator() {
+                    return node() == null ? Spliterators.<String>emptySpliterator() : new KeySpliterator(nodeKey);
+                }
+
+                @Override
+                public int size() {
+                    return PrefixMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    return PrefixMap.this.remove(o) != null;
+                }
+            };
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return node() == null ? Collections.<V>emptyIterator() : new ValueIterator(nodeKey);
+                }
+
+                @Override
+                public Spliterator<V> spliterator() {
+                    return node() == null ? Spliterators.<V>emptySpliterator() : new ValueSpliterator(nodeKey);
+                }
+
+                @Override
+                public int size() {
+                    return PrefixMap.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * The path of the previous key of a batch in ascending order: the nodes whose keys are prefixes of that key, from
+     * the root down, with the lengths of their keys. The next key resumes the descent from the deepest of these nodes
+     * within its common prefix with the previous key, so a run of keys under the same prefix finds the children and
+     * compares the chars of that prefix once.
+     * <p>
+     * Insertions only split nodes below the one the descent resumes from, so the nodes on the path keep their keys.
+     * Sizes are adjusted along the path, without the second descent of {@link #adjustSizes}.
+     */
+    private static final class BatchPath<V> {
+        static final Comparator<Map.Entry<String, ?>> KEY_ORDER = new Comparator<Map.Entry<String, ?>>() {
+            @Override
+            public int compare(Map.Entry<String, ?> e1, Map.Entry<String, ?> e2) {
+                return e1.getKey().compareTo(e2.getKey());
+            }
+        };
+        // ranges of keys up to this size are insertion sorted
+        private static final int INSERTION_SORT_THRESHOLD = 16;
+
+        private RadixTrieNode<V>[] nodes;
+        private int[] ends = new int[16];
+        private int depth;
+        private CharSequence previous;
+
+        @SuppressWarnings("unchecked")
+        BatchPath(RadixTrieNode<V> root) {
+            nodes = (RadixTrieNode<V>[]) new RadixTrieNode<?>[16];
+            nodes[0] = root;
+        }
+
+        void reset() {
+            Arrays.fill(nodes, 1, depth + 1, null);
+            depth = 0;
+            previous = null;
+        }
+
+        /**
+         * Pops the nodes that are not on the path of the key.
+         *
+         * @return the length of the key of the node left on top of the path
+         */
+        private int resume(CharSequence key) {
+            if (previous != null) {
+                // no node on the path is deeper than the chars compared here
+                int limit = Math.min(ends[depth], Math.min(previous.length(), key.length()));
+                int common = 0;
+                while (common < limit && previous.charAt(common) == key.charAt(common)) {
+                    common++;
+                }
+                while (ends[depth] > common) {
+                    nodes[depth--] = null;
+                }
+            }
+            previous = key;
+            return ends[depth];
+        }
+
+        private void push(RadixTrieNode<V> node, int end) {
+            if (++depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                ends = Arrays.copyOf(ends, depth * 2);
+            }
+            nodes[depth] = node;
+            ends[depth] = end;
+        }
+
+        V get(CharSequence key) {
+            int offset = resume(key);
+            RadixTrieNode<V> node = nodes[depth];
+            int end = key.length();
+            while (offset < end) {
+                node = node.findChild(key.charAt(offset));
+                if (node == null) {
+                    return null;
+                }
+                // the first character matched when finding the child
+                char[] chars = node.chars;
+                int length = chars.length;
+                if (end - offset < length) {
+                    return null;
+                }
+                for (int idx = 1; idx < length; idx++) {
+                    if (chars[idx] != key.charAt(offset + idx)) {
+                        return null;
+                    }
+                }
+                offset += length;
+                push(node, offset);
+            }
+            return node.value;
+        }
+
+        /**
+         * Puts a non null value, as {@link #getOrCreateNode} followed by {@link #adjustSizes} would.
+         *
+         * @return the previous value of the key; the caller counts the key in the size of the trie if it is null
+         */
+        V put(String key, V value) {
+            int offset = resume(key);
+            RadixTrieNode<V> node = nodes[depth];
+            int end = key.length();
+            while (offset < end) {
+                char first = key.charAt(offset);
+                RadixTrieNode<V> child = node.findChild(first);
+                if (child == null) {
+                    child = createNode(node, key, offset, end);
+                    node.addChild(-node.childIndex(first) - 1, child);
+                    offset = end;
+                } else {
+                    int commonCharacters = numCharsInCommonPrefix(child.chars, key, offset, end);
+                    if (commonCharacters < child.chars.length) {
+                        child = splitChild(node, child, commonCharacters);
+                    }
+                    offset += commonCharacters;
+                }
+                push(child, offset);
+                node = child;
+            }
+            V oldValue = node.value;
+            node.value = value;
+            if (oldValue == null) {
+                for (int i = 0; i <= depth; i++) {
+                    nodes[i].size++;
+                }
+            }
+            return oldValue;
+        }
+
+        /**
+         * @return the indexes of the keys in ascending key order, or null if the keys are already in that order
+         */
+        static int[] sortedOrder(CharSequence[] keys) {
+            int count = keys.length;
+            int i = 1;
+            while (i < count && compare(keys[i - 1], keys[i]) <= 0) {
+                i++;
+            }
+            if (i >= count) {
+                return null;
+            }
+            int[] order = new int[count];
+            for (i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            mergeSort(keys, order, order.clone(), 0, count);
+            return order;
+        }
+
+        /**
+         * Sorts order[low..high) by key, using scratch, a copy of the same range, as the source of the merges.
+         */
+        private static void mergeSort(CharSequence[] keys, int[] order, int[] scratch, int low, int high) {
+            if (high - low <= INSERTION_SORT_THRESHOLD) {
+                for (int i = low + 1; i < high; i++) {
+                    int index = order[i];
+                    int j = i;
+                    while (j > low && compare(keys[order[j - 1]], keys[index]) > 0) {
+                        order[j] = order[j - 1];
+                        j--;
+                    }
+                    order[j] = index;
+                }
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            // sort the halves into scratch, then merge them back into order
+            mergeSort(keys, scratch, order, low, mid);
+            mergeSort(keys, scratch, order, mid, high);
+            if (compare(keys[scratch[mid - 1]], keys[scratch[mid]]) <= 0) {
+                System.arraycopy(scratch, low, order, low, high - low);
+                return;
+            }
+            for (int i = low, p = low, q = mid; i < high; i++) {
+                if (q >= high || p < mid && compare(keys[scratch[p]], keys[scratch[q]]) <= 0) {
+                    order[i] = scratch[p++];
+                } else {
+                    order[i] = scratch[q++];
+                }
+            }
+        }
+
+        static int compare(CharSequence key1, CharSequence key2) {
+            if (key1 instanceof String && key2 instanceof String) {
+                return ((String) key1).compareTo((String) key2);
+            }
+            int length = Math.min(key1.length(), key2.length());
+            for (int idx = 0; idx < length; idx++) {
+                char c1 = key1.charAt(idx);
+                char c2 = key2.charAt(idx);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return key1.length() - key2.length();
+        }
+    }
+
+    /**
+     * A live view of the keys between two bounds, in ascending or descending order, see {@link #subMap}. A null bound
+     * leaves the range open on that side.
+     * <p>
+     * Navigation within the range is the navigation of the trie, clipped to the bounds. The size is the difference
+     * between the counts of keys before each bound, so it takes two descents, whatever the number of keys in the
+     * range. Ascending iterators are seeded at the lower bound and stop after that many keys; descending iterators
+     * step from key to key with a descent each.
+     */
+    private final class SubMap extends AbstractMap<String, V> implements NavigableMap<String, V> {
+        private final String low;
+        private final boolean lowInclusive;
+        private final String high;
+        private final boolean highInclusive;
+        private final boolean descending;
+
+        SubMap(String low, boolean lowInclusive, String high, boolean highInclusive, boolean descending) {
+            if (low != null && high != null && low.compareTo(high) > 0) {
+                throw new IllegalArgumentException("fromKey " + low + " is after toKey " + high);
+            }
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(String key) {
+            if (low == null) {
+                return false;
+            }
+            int c = key.compareTo(low);
+            return c < 0 || c == 0 && !lowInclusive;
+        }
+
+        private boolean tooHigh(String key) {
+            if (high == null) {
+                return false;
+            }
+            int c = key.compareTo(high);
+            return c > 0 || c == 0 && !highInclusive;
+        }
+
+        private boolean inRange(Object key) {
+            return key instanceof String && !tooLow((String) key) && !tooHigh((String) key);
+        }
+
+        /**
+         * @return whether a view bounded by the key stays within this one, as for {@link java.util.TreeMap}
+         */
+        private boolean inRange(String key, boolean inclusive) {
+            if (inclusive) {
+                return inRange(key);
+            }
+            return (low == null || key.compareTo(low) >= 0) && (high == null || key.compareTo(high) <= 0);
+        }
+
+        private RadixTrie<V>.Entry lowest() {
+            RadixTrie<V>.Entry entry = low == null ? first() : ceiling(low, lowInclusive);
+            return entry == null || tooHigh(entry.key) ? null : entry;
+        }
+
+        private RadixTrie<V>.Entry highest() {
+            RadixTrie<V>.Entry entry = high == null ? last() : floor(high, highInclusive);
+            return entry == null || tooLow(entry.key) ? null : entry;
+        }
+
+        private RadixTrie<V>.Entry ceilingInRange(String key, boolean inclusive) {
+            if (tooLow(checkBound(key))) {
+                return lowest();
+            }
+            RadixTrie<V>.Entry entry = ceiling(key, inclusive);
+            return entry == null || tooHigh(entry.key) ? null : entry;
+        }
+
+        private RadixTrie<V>.Entry floorInRange(String key, boolean inclusive) {
+            if (tooHigh(checkBound(key))) {
+                return highest();
+            }
+            RadixTrie<V>.Entry entry = floor(key, inclusive);
+            return entry == null || tooLow(entry.key) ? null : entry;
+        }
+
+        @Override
+        public int size() {
+            int count = high == null ? size : countBefore(root, high, highInclusive);
+            if (low != null) {
+                count -= countBefore(root, low, !lowInclusive);
+            }
+            // an empty range between two exclusive bounds on the same key counts -1
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && RadixTrie.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? RadixTrie.this.get(key) : null;
+        }
+
+        @Override
+        public V put(String key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key " + key + " is out of the range of the view");
+            }
+            return RadixTrie.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? RadixTrie.this.remove(key) : null;
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return descending ? Collections.reverseOrder() : null;
+        }
+
+        @Override
+        public String firstKey() {
+            return key(descending ? highest() : lowest());
+        }
+
+        @Override
+        public String lastKey() {
+            return key(descending ? lowest() : highest());
+        }
+
+        @Override
+        public Map.Entry<String, V> firstEntry() {
+            return exportEntry(descending ? highest() : lowest());
+        }
+
+        @Override
+        public Map.Entry<String, V> lastEntry() {
+            return exportEntry(descending ? lowest() : highest());
+        }
+
+        @Override
+        public Map.Entry<String, V> pollFirstEntry() {
+            return pollEntry(descending ? highest() : lowest());
+        }
+
+        @Override
+        public Map.Entry<String, V> pollLastEntry() {
+            return pollEntry(descending ? lowest() : highest());
+        }
+
+        @Override
+        public Map.Entry<String, V> lowerEntry(String key) {
+            return exportEntry(descending ? ceilingInRange(key, false) : floorInRange(key, false));
+        }
+
+        @Override
+        public String lowerKey(String key) {
+            return keyOrNull(descending ? ceilingInRange(key, false) : floorInRange(key, false));
+        }
+
+        @Override
+        public Map.Entry<String, V> floorEntry(String key) {
+            return exportEntry(descending ? ceilingInRange(key, true) : floorInRange(key, true));
+        }
+
+        @Override
+        public String floorKey(String key) {
+            return keyOrNull(descending ? ceilingInRange(key, true) : floorInRange(key, true));
+        }
+
+        @Override
+        public Map.Entry<String, V> ceilingEntry(String key) {
+            return exportEntry(descending ? floorInRange(key, true) : ceilingInRange(key, true));
+        }
+
+        @Override
+        public String ceilingKey(String key) {
+            return keyOrNull(descending ? floorInRange(key, true) : ceilingInRange(key, true));
+        }
+
+        @Override
+        public Map.Entry<String, V> higherEntry(String key) {
+            return exportEntry(descending ? floorInRange(key, false) : ceilingInRange(key, false));
+        }
+
+        @Override
+        public String higherKey(String key) {
+            return keyOrNull(descending ? floorInRange(key, false) : ceilingInRange(key, false));
+        }
+
+        @Override
+        public NavigableMap<String, V> descendingMap() {
+            return new SubMap(low, lowInclusive, high, highInclusive, !descending);
+        }
+
+        @Override
+        public NavigableSet<String> navigableKeySet() {
+            return new NavigableKeySet(this);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<String> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableMap<String, V> subMap(String fromKey, boolean fromInclusive, String toKey, boolean toInclusive) {
+            if (!inRange(checkBound(fromKey), fromInclusive)) {
+                throw new IllegalArgumentException("fromKey " + fromKey + " is out of the range of the view");
+            }
+            if (!inRange(checkBound(toKey), toInclusive)) {
+                throw new IllegalArgumentException("toKey " + toKey + " is out of the range of the view");
+            }
+            return descending
+                    ? new SubMap(toKey, toInclusive, fromKey, fromInclusive, true)
+                    : new SubMap(fromKey, fromInclusive, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<String, V> headMap(String toKey, boolean inclusive) {
+            if (!inRange(checkBound(toKey), inclusive)) {
+                throw new IllegalArgumentException("toKey " + toKey + " is out of the range of the view");
+            }
+            return descending
+                    ? new SubMap(toKey, inclusive, high, highInclusive, true)
+                    : new SubMap(low, lowInclusive, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<String, V> tailMap(String fromKey, boolean inclusive) {
+            if (!inRange(checkBound(fromKey), inclusive)) {
+                throw new IllegalArgumentException("fromKey " + fromKey + " is out of the range of the view");
+            }
+            return descending
+                    ? new SubMap(low, lowInclusive, fromKey, inclusive, true)
+                    : new SubMap(fromKey, inclusive, high, highInclusive, false);
+        }
+
+        @Override
+        public SortedMap<String, V> subMap(String fromKey, String toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, V> headMap(String toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, V> tailMap(String fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        Iterator<String> keyIterator() {
+            if (descending) {
+                return new DescendingIterator<String>(this) {
+                    @Override
+                    public String next() {
+                        return nextEntry().key;
+                    }
+                };
+            }
+            return new KeyIterator(low == null ? "" : low, low == null || lowInclusive, size());
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new AbstractSet<Map.Entry<String, V>>() {
+                @Override
+                public Iterator<Map.Entry<String, V>> iterator() {
+                    if (descending) {
+                        return new DescendingIterator<Map.Entry<String, V>>(SubMap.this) {
+                            @Override
+                            public Map.Entry<String, V> next() {
+                                return nextEntry();
+                            }
+                        };
+                    }
+                    return new EntryIterator(low == null ? "" : low, low == null || lowInclusive, SubMap.this.size());
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    V value = get(entry.getKey());
+                    return value != null && value.equals(entry.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (contains(o)) {
+                        RadixTrie.this.remove(((Map.Entry<?, ?>) o).getKey());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    if (descending) {
+                        return new DescendingIterator<V>(SubMap.this) {
+                            @Override
+                            public V next() {
+                                return nextEntry().getValue();
+                            }
+                        };
+                    }
+                    return new ValueIterator(low == null ? "" : low, low == null || lowInclusive, SubMap.this.size());
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over a range view in descending key order, finding each key with a descent from the key before it, so
+     * that it keeps going after removals through the trie or the iterator. It fails fast like the ascending iterators.
+     */
+    private abstract class DescendingIterator<T> implements Iterator<T> {
+        private final SubMap map;
+        private Entry next;
+        private boolean nextFound;
+        private String lastKey;
+        private boolean canRemove;
+        private int expectedModCount = modCount;
+
+        DescendingIterator(SubMap map) {
+            this.map = map;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!nextFound) {
+                next = lastKey == null ? map.highest() : map.floorInRange(lastKey, false);
+                nextFound = true;
+            }
+            return next != null;
+        }
+
+        Entry nextEntry() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            nextFound = false;
+            lastKey = next.key;
+            canRemove = true;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            RadixTrie.this.remove(lastKey);
+            canRemove = false;
+            nextFound = false;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * The keys of the trie or of one of its range views, as a {@link NavigableSet} delegating to the map.
+     */
+    private final class NavigableKeySet extends AbstractSet<String> implements NavigableSet<String> {
+        private final NavigableMap<String, V> map;
+        // the range view, or null for the keys of the whole trie
+        private final SubMap view;
+
+        NavigableKeySet(RadixTrie<V> trie) {
+            this.map = trie;
+            this.view = null;
+        }
+
+        NavigableKeySet(NavigableMap<String, V> view) {
+            // the trie only hands out range views of its own
+            this.map = view;
+            this.view = (SubMap) view;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return view != null ? view.keyIterator() : new KeyIterator("");
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return map.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public String first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public String last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public String lower(String key) {
+            return map.lowerKey(key);
+        }
+
+        @Override
+        public String floor(String key) {
+            return map.floorKey(key);
+        }
+
+        @Override
+        public String ceiling(String key) {
+            return map.ceilingKey(key);
+        }
+
+        @Override
+        public String higher(String key) {
+            return map.higherKey(key);
+        }
+
+        @Override
+        public String pollFirst() {
+            return keyOrNull(map.pollFirstEntry());
+        }
+
+        @Override
+        public String pollLast() {
+            return keyOrNull(map.pollLastEntry());
+        }
+
+        @Override
+        public NavigableSet<String> descendingSet() {
+            return new NavigableKeySet(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<String> subSet(String fromElement, boolean fromInclusive, String toElement, boolean toInclusive) {
+            return new NavigableKeySet(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<String> headSet(String toElement, boolean inclusive) {
+            return new NavigableKeySet(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<String> tailSet(String fromElement, boolean inclusive) {
+            return new NavigableKeySet(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    private final class Entry implements Map.Entry<String, V> {
+
+        RadixTrieNode<V> node;
+        String key;
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return node.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new NullPointerException("Cannot set a null value: null marks absent keys, use Iterator.remove() instead");
+            }
+            V oldValue = node.value;
+            if (oldValue == null) {
+                // the node may still be in the trie, where a value would have to be counted in the subtree sizes
+                throw new IllegalStateException("Cannot set the value of a removed entry: " + key);
+            }
+            node.value = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            V value = getValue();
+            return key.equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
 }
@@ -0,0 +1,311 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the nodes of a radix trie from keys in ascending order, in a single pass.
+ * <p>
+ * Only the nodes on the path of the previous key can still change, so the builder keeps that path on a stack. Each
+ * key is compared with the previous key only: the path is popped back to their common prefix, splitting the edge
+ * that the common prefix ends in, and the rest of the key is added as a leaf. A popped node is complete, so its
+ * subtree size and child index are computed once, when it is popped, instead of on every insert.
+ * <p>
+ * Unsorted keys are built by {@link BuildTask}, which splits them on their leading characters and builds the parts
+ * in parallel.
+ */
+final class RadixTrieBuilder<V> {
+
+    // runs of unsorted keys larger than this are built by a task of their own
+    static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+    // runs of unsorted keys at most this large are sorted and built from sorted order
+    static final int SORT_THRESHOLD = 32;
+
+    private static final Comparator<Map.Entry<String, ?>> KEY_ORDER = new Comparator<Map.Entry<String, ?>>() {
+        @Override
+        public int compare(Map.Entry<String, ?> e1, Map.Entry<String, ?> e2) {
+            return e1.getKey().compareTo(e2.getKey());
+        }
+    };
+
+    // the path of the previous key, with the length of the key at the end of each node
+    @SuppressWarnings("unchecked")
+    private RadixTrieNode<V>[] path = (RadixTrieNode<V>[]) new RadixTrieNode<?>[16];
+    private int[] ends = new int[16];
+    private int top;
+    private String previous;
+
+    /**
+     * @param depth the number of leading characters shared by all keys, which are not part of the trie built
+     */
+    RadixTrieBuilder(int depth) {
+        path[0] = new RadixTrieNode<>();
+        ends[0] = depth;
+    }
+
+    /**
+     * Adds a key greater than all keys added so far.
+     *
+     * @throws IllegalArgumentException if the key is not greater than the previous key
+     */
+    void add(String key, V value) {
+        int common;
+        if (previous == null) {
+            common = ends[0];
+        } else {
+            common = numCharsInCommonPrefix(previous, key, ends[0]);
+            if (common == key.length() || common < previous.length() && key.charAt(common) < previous.charAt(common)) {
+                throw new IllegalArgumentException("Keys are not in strictly ascending order: \"" + key + "\" after \"" + previous + "\"");
+            }
+        }
+        previous = key;
+        if (common == key.length()) {
+            // only the first key can end at the root
+            path[0].value = value;
+            return;
+        }
+        while (ends[top] > common) {
+            if (ends[top - 1] >= common) {
+                finishNode(path[top--]);
+            } else {
+                split(common);
+            }
+        }
+        RadixTrieNode<V> leaf = new RadixTrieNode<>();
+        leaf.chars = new char[key.length() - common];
+        key.getChars(common, key.length(), leaf.chars, 0);
+        leaf.value = value;
+        RadixTrieNode<V> parent = path[top];
+        if (parent.children == null) {
+            parent.children = new ArrayList<>();
+        }
+        parent.children.add(leaf);
+        if (++top == path.length) {
+            path = Arrays.copyOf(path, top * 2);
+            ends = Arrays.copyOf(ends, top * 2);
+        }
+        path[top] = leaf;
+        ends[top] = key.length();
+    }
+
+    /**
+     * Splits the node on top of the path where the given key length ends, replacing it with the first part.
+     */
+    private void split(int keyLength) {
+        RadixTrieNode<V> node = path[top];
+        int cut = keyLength - ends[top - 1];
+        RadixTrieNode<V> middle = new RadixTrieNode<>();
+        middle.chars = Arrays.copyOf(node.chars, cut);
+        node.chars = Arrays.copyOfRange(node.chars, cut, node.chars.length);
+        // everything below the node was popped already, so it is complete as well
+        finishNode(node);
+        middle.children = new ArrayList<>();
+        middle.children.add(node);
+        List<RadixTrieNode<V>> siblings = path[top - 1].children;
+        siblings.set(siblings.size() - 1, middle);
+        path[top] = middle;
+        ends[top] = keyLength;
+    }
+
+    /**
+     * @return the root of the trie holding all keys added
+     */
+    RadixTrieNode<V> finish() {
+        while (top >= 0) {
+            finishNode(path[top--]);
+        }
+        return path[0];
+    }
+
+    private static <V> void finishNode(RadixTrieNode<V> node) {
+        int size = node.value != null ? 1 : 0;
+        if (node.children != null) {
+            for (RadixTrieNode<V> child : node.children) {
+                size += child.size;
+            }
+        }
+        node.size = size;
+        node.reindex();
+    }
+
+    private static int numCharsInCommonPrefix(String s1, String s2, int offset) {
+        int end = Math.min(s1.length(), s2.length());
+        int idx = offset;
+        while (idx < end && s1.charAt(idx) == s2.charAt(idx)) {
+            idx++;
+        }
+        return idx;
+    }
+
+    /**
+     * Builds the subtree for a range of distinct, unsorted keys, as a most significant digit radix sort that creates
+     * the nodes as it goes.
+     * <p>
+     * The keys of a range are counting sorted on their character at the depth where they first differ, and every
+     * run of keys sharing that character becomes a child. Runs larger than {@link #SEQUENTIAL_THRESHOLD} are built by
+     * tasks of their own, the others in the current task; runs of at most {@link #SORT_THRESHOLD} keys are sorted and
+     * handed to a {@link RadixTrieBuilder}. A range that does not branch, such as the keys "a", "aa", "aaa" and so on,
+     * continues in a loop rather than a recursive call, so that long chains cannot overflow the stack.
+     * <p>
+     * The root task returns the root of the trie, any other task the child node whose label starts at the given
+     * offset.
+     */
+    static final class BuildTask<V> extends RecursiveTask<RadixTrieNode<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map.Entry<String, V>[] entries;
+        private final int low;
+        private final int high;
+        private final int offset;
+        private final boolean root;
+
+        BuildTask(Map.Entry<String, V>[] entries, int low, int high, int offset, boolean root) {
+            this.entries = entries;
+            this.low = low;
+            this.high = high;
+            this.offset = offset;
+            this.root = root;
+        }
+
+        @Override
+        protected RadixTrieNode<V> compute() {
+            return build(low, high, offset, root);
+        }
+
+        private RadixTrieNode<V> build(int low, int high, int offset, boolean root) {
+            if (!root && high - low <= SORT_THRESHOLD) {
+                Arrays.sort(entries, low, high, KEY_ORDER);
+                RadixTrieBuilder<V> builder = new RadixTrieBuilder<>(offset);
+                for (int idx = low; idx < high; idx++) {
+                    builder.add(entries[idx].getKey(), entries[idx].getValue());
+                }
+                // all keys share the character at the offset, so the root has a single child
+                return builder.finish().children.get(0);
+            }
+
+            List<RadixTrieNode<V>> chain = new ArrayList<>();
+            while (true) {
+                RadixTrieNode<V> node = new RadixTrieNode<>();
+                if (!chain.isEmpty()) {
+                    chain.get(chain.size() - 1).children = new ArrayList<>(Collections.singletonList(node));
+                }
+                chain.add(node);
+                int depth = offset;
+                if (!root) {
+                    depth = commonPrefixLength(low, high, offset);
+                    node.chars = new char[depth - offset];
+                    entries[low].getKey().getChars(offset, depth, node.chars, 0);
+                    // keys are distinct, so at most one of them ends at this node
+                    for (int idx = low; idx < high; idx++) {
+                        if (entries[idx].getKey().length() == depth) {
+                            node.value = entries[idx].getValue();
+                            swap(entries, low, idx);
+                            low++;
+                            break;
+                        }
+                    }
+                }
+                int[] runs = partition(low, high, depth);
+                int runCount = runs.length - 1;
+                if (runCount == 1 && high - low > SORT_THRESHOLD) {
+                    offset = depth;
+                    root = false;
+                    continue;
+                }
+
+                if (runCount == 0) {
+                    // the root of an empty map, which has no children list, as in a trie built any other way
+                    break;
+                }
+
+                @SuppressWarnings("unchecked")
+                BuildTask<V>[] forked = (BuildTask<V>[]) new BuildTask<?>[runCount];
+                for (int run = 0; run < runCount; run++) {
+                    if (runs[run + 1] - runs[run] > SEQUENTIAL_THRESHOLD) {
+                        forked[run] = new BuildTask<>(entries, runs[run], runs[run + 1], depth, false);
+                        forked[run].fork();
+                    }
+                }
+                node.children = new ArrayList<>(runCount);
+                for (int run = 0; run < runCount; run++) {
+                    node.children.add(forked[run] == null ? build(runs[run], runs[run + 1], depth, false) : null);
+                }
+                for (int run = 0; run < runCount; run++) {
+                    if (forked[run] != null) {
+                        node.children.set(run, forked[run].join());
+                    }
+                }
+                break;
+            }
+            for (int idx = chain.size() - 1; idx >= 0; idx--) {
+                finishNode(chain.get(idx));
+            }
+            return chain.get(0);
+        }
+
+        /**
+         * @return the length of the prefix shared by all keys in the range, which share at least offset + 1 chars
+         */
+        private int commonPrefixLength(int low, int high, int offset) {
+            String first = entries[low].getKey();
+            int depth = first.length();
+            for (int idx = low + 1; idx < high && depth > offset + 1; idx++) {
+                depth = Math.min(depth, numCharsInCommonPrefix(first, entries[idx].getKey(), offset + 1));
+            }
+            return depth;
+        }
+
+        /**
+         * Counting sorts the range on the character at the given depth.
+         *
+         * @return the boundaries of the runs of keys with the same character, starting with low and ending with high
+         */
+        private int[] partition(int low, int high, int depth) {
+            if (low == high) {
+                return new int[] {low};
+            }
+            char min = Character.MAX_VALUE;
+            char max = Character.MIN_VALUE;
+            for (int idx = low; idx < high; idx++) {
+                char c = entries[idx].getKey().charAt(depth);
+                min = c < min ? c : min;
+                max = c > max ? c : max;
+            }
+            int[] counts = new int[max - min + 2];
+            int runCount = 0;
+            for (int idx = low; idx < high; idx++) {
+                if (counts[entries[idx].getKey().charAt(depth) - min + 1]++ == 0) {
+                    runCount++;
+                }
+            }
+            int[] runs = new int[runCount + 1];
+            int run = 0;
+            for (int slot = 1; slot < counts.length; slot++) {
+                if (counts[slot] > 0) {
+                    runs[run++] = low + counts[slot - 1];
+                }
+                counts[slot] += counts[slot - 1];
+            }
+            runs[runCount] = high;
+            if (runCount > 1) {
+                Map.Entry<String, V>[] sorted = Arrays.copyOfRange(entries, low, high);
+                for (int idx = low; idx < high; idx++) {
+                    sorted[counts[entries[idx].getKey().charAt(depth) - min]++] = entries[idx];
+                }
+                System.arraycopy(sorted, 0, entries, low, sorted.length);
+            }
+            return runs;
+        }
+
+        private static <T> void swap(T[] array, int i, int j) {
+            T tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
@@ -1,15 +1,211 @@
 package org.datatoys.util.radixtree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A node in the radix tree.
+ * <p>
+ * The children are kept in a list sorted by their first character. No two children share a first character, so
+ * finding the child to descend into only needs that character. Depending on the fan-out of the node, the lookup uses
+ * one of three layouts:
+ * <ul>
+ * <li>up to {@link #SCAN_MAX_FANOUT} children: a scan over the children list, with no index at all</li>
+ * <li>dense nodes, whose first characters fill at least 1/{@link #DIRECT_MAX_SPAN_PER_CHILD} of their range:
+ * a direct table indexed by the character, covering only that range</li>
+ * <li>any other node: a sorted array of the first characters, searched with a binary search</li>
+ * </ul>
+ * The layout is switched whenever a child is added or removed through {@link #addChild} and {@link #removeChild}.
  */
 class RadixTrieNode<V> {
 
+    static final int SCAN_MAX_FANOUT = 4;
+    static final int DIRECT_MAX_SPAN_PER_CHILD = 2;
+
     char[] chars;
     List<RadixTrieNode<V>> children;
     V value;
+    // number of values in the subtree rooted at this node, including its own
+    int size;
+
+    // lookup index over the first character of each child; at most one of the two is set, see reindex()
+    char[] firstChars;
+    RadixTrieNode<V>[] direct;
+    char directBase;
+
+    /**
+     * @return a new node of the same kind as this one, for the nodes created when inserting below it
+     */
+    RadixTrieNode<V> newNode() {
+        return new RadixTrieNode<>();
+    }
+
+    /**
+     * Copies what this node keeps about its subtree to the given node, the new parent that takes over the whole
+     * subtree when this node is split.
+     */
+    void copySubtreeStatsTo(RadixTrieNode<V> node) {
+        node.size = size;
+    }
+
+    /**
+     * @return true if this node holds the value of a key
+     */
+    boolean hasValue() {
+        return value != null;
+    }
+
+    /**
+     * @return the child whose prefix starts with the given character, or null if there is none
+     */
+    RadixTrieNode<V> findChild(char c) {
+        RadixTrieNode<V>[] direct = this.direct;
+        if (direct != null) {
+            int slot = c - directBase;
+            return slot >= 0 && slot < direct.length ? direct[slot] : null;
+        }
+        List<RadixTrieNode<V>> children = this.children;
+        if (children == null) {
+            return null;
+        }
+        char[] firstChars = this.firstChars;
+        if (firstChars != null) {
+            int idx = Arrays.binarySearch(firstChars, c);
+            return idx >= 0 ? children.get(idx) : null;
+        }
+        for (int i = 0, n = children.size(); i < n; i++) {
+            RadixTrieNode<V> child = children.get(i);
+            char first = child.chars[0];
+            if (first == c) {
+                return child;
+            } else if (first > c) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the index in the children list of the child starting with the given character if there is one,
+     * otherwise (-(insertion point) - 1), with the same convention as {@link Arrays#binarySearch(char[], char)}
+     */
+    int childIndex(char c) {
+        List<RadixTrieNode<V>> children = this.children;
+        if (children == null) {
+            return -1;
+        }
+        if (firstChars != null) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+        int low = 0;
+        int high = children.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char first = children.get(mid).chars[0];
+            if (first < c) {
+                low = mid + 1;
+            } else if (first > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    void addChild(int index, RadixTrieNode<V> child) {
+        if (children == null) {
+            children = new ArrayList<>();
+        }
+        children.add(index, child);
+        RadixTrieNode<V>[] direct = this.direct;
+        int slot = child.chars[0] - directBase;
+        if (direct != null && slot >= 0 && slot < direct.length) {
+            // the table already covers the new character, no need to change the layout
+            direct[slot] = child;
+        } else {
+            reindex();
+        }
+    }
+
+    /**
+     * Removes a child, releasing the children list when it was the last one.
+     */
+    RadixTrieNode<V> removeChild(int index) {
+        RadixTrieNode<V> child = children.remove(index);
+        if (children.isEmpty()) {
+            children = null;
+        }
+        reindex();
+        return child;
+    }
+
+    /**
+     * Replaces a child by a node starting with the same character, which keeps the layout of the index.
+     */
+    void replaceChild(int index, RadixTrieNode<V> child) {
+        children.set(index, child);
+        if (direct != null) {
+            direct[child.chars[0] - directBase] = child;
+        }
+    }
+
+    /**
+     * Shrinks the children list to its size, see {@link ArrayList#trimToSize()}.
+     */
+    void trimToSize() {
+        if (children instanceof ArrayList) {
+            ((ArrayList<RadixTrieNode<V>>) children).trimToSize();
+        }
+    }
+
+    /**
+     * Moves the children of this node, along with their index, to the given node.
+     */
+    void moveChildrenTo(RadixTrieNode<V> node) {
+        node.children = children;
+        node.firstChars = firstChars;
+        node.direct = direct;
+        node.directBase = directBase;
+        children = null;
+        firstChars = null;
+        direct = null;
+        directBase = 0;
+    }
+
+    /**
+     * Picks the lookup layout for the current children and rebuilds its index.
+     */
+    @SuppressWarnings("unchecked")
+    void reindex() {
+        firstChars = null;
+        direct = null;
+        directBase = 0;
+        List<RadixTrieNode<V>> children = this.children;
+        int fanout = children == null ? 0 : children.size();
+        if (fanout <= SCAN_MAX_FANOUT) {
+            return;
+        }
+        char min = children.get(0).chars[0];
+        char max = children.get(fanout - 1).chars[0];
+        int span = max - min + 1;
+        if (span <= fanout * DIRECT_MAX_SPAN_PER_CHILD) {
+            RadixTrieNode<V>[] table = (RadixTrieNode<V>[]) new RadixTrieNode<?>[span];
+            for (int i = 0; i < fanout; i++) {
+                RadixTrieNode<V> child = children.get(i);
+                table[child.chars[0] - min] = child;
+            }
+            direct = table;
+            directBase = min;
+        } else {
+            char[] index = new char[fanout];
+            for (int i = 0; i < fanout; i++) {
+                index[i] = children.get(i).chars[0];
+            }
+            firstChars = index;
+        }
+    }
 
     public String toString() {
         return new String (chars);
@@ -0,0 +1,291 @@
+package org.datatoys.util.radixtree;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shape of a {@link RadixTrie} at the time {@link RadixTrie#stats()} was called: node and value counts, depths,
+ * fan-out and edge label length histograms, and an estimate of the memory the nodes retain. It describes a
+ * {@link BurstRadixTrie} as well, whose buckets count as leaves holding many values.
+ * <p>
+ * The memory estimate covers the structure of the trie only: the nodes, their edge labels, children lists, child
+ * indexes and buckets. Values are shared with the caller and not counted. Object sizes follow the HotSpot layout, with compressed
+ * references when the running JVM uses them. Children lists are assumed to have grown one child at a time, as
+ * {@link RadixTrie#put(String, Object)} grows them; lists of bulk loaded or trimmed tries are a little smaller.
+ */
+public final class RadixTrieStats {
+
+    private static final boolean COMPRESSED_OOPS = usesCompressedOops();
+    static final int REFERENCE_BYTES = COMPRESSED_OOPS ? 4 : 8;
+    static final int OBJECT_HEADER_BYTES = COMPRESSED_OOPS ? 12 : 16;
+    // the object header and the length
+    static final int ARRAY_HEADER_BYTES = COMPRESSED_OOPS ? 16 : 24;
+    // the size, modCount and elementData fields of an ArrayList
+    private static final long ARRAY_LIST_BYTES = align(OBJECT_HEADER_BYTES + 4 + 4 + REFERENCE_BYTES);
+    private static final int ARRAY_LIST_DEFAULT_CAPACITY = 10;
+
+    private int nodeCount;
+    private int valueCount;
+    private int maxDepth;
+    private long valueDepths;
+    private int[] fanouts = new int[8];
+    private int[] labelLengths = new int[8];
+    private long nodeBytes;
+    private long labelBytes;
+    private long childListBytes;
+    private long indexBytes;
+    private long bucketBytes;
+
+    private RadixTrieStats() {
+    }
+
+    static RadixTrieStats of(RadixTrieNode<?> root) {
+        RadixTrieStats stats = new RadixTrieStats();
+        Map<Class<?>, Long> nodeSizes = new HashMap<>();
+        List<RadixTrieNode<?>> stack = new ArrayList<>();
+        int[] depths = new int[16];
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            RadixTrieNode<?> node = stack.remove(top);
+            int depth = depths[top];
+            stats.add(node, depth, nodeSizes);
+            if (node.children != null) {
+                for (RadixTrieNode<?> child : node.children) {
+                    if (stack.size() == depths.length) {
+                        depths = Arrays.copyOf(depths, depths.length * 2);
+                    }
+                    depths[stack.size()] = depth + 1;
+                    stack.add(child);
+                }
+            }
+        }
+        return stats;
+    }
+
+    private void add(RadixTrieNode<?> node, int depth, Map<Class<?>, Long> nodeSizes) {
+        nodeCount++;
+        maxDepth = Math.max(maxDepth, depth);
+        if (node.hasValue()) {
+            valueCount++;
+            valueDepths += depth;
+        }
+        Long nodeSize = nodeSizes.get(node.getClass());
+        if (nodeSize == null) {
+            nodeSize = shallowSize(node.getClass());
+            nodeSizes.put(node.getClass(), nodeSize);
+        }
+        nodeBytes += nodeSize;
+
+        int fanout = node.children == null ? 0 : node.children.size();
+        fanouts = count(fanouts, fanout);
+        if (node.children != null) {
+            childListBytes += ARRAY_LIST_BYTES + arraySize(REFERENCE_BYTES, grownCapacity(fanout));
+        }
+        if (node.firstChars != null) {
+            indexBytes += arraySize(2, node.firstChars.length);
+        }
+        if (node.direct != null) {
+            indexBytes += arraySize(REFERENCE_BYTES, node.direct.length);
+        }
+        if (node.chars != null) {
+            labelLengths = count(labelLengths, node.chars.length);
+            labelBytes += arraySize(2, node.chars.length);
+        }
+        if (node instanceof BurstRadixTrieNode && ((BurstRadixTrieNode<?>) node).isBucket()) {
+            BurstRadixTrieNode<?> bucket = (BurstRadixTrieNode<?>) node;
+            valueCount += bucket.count;
+            valueDepths += (long) depth * bucket.count;
+            bucketBytes += arraySize(2, bucket.suffixes.length) + arraySize(4, bucket.ends.length)
+                    + arraySize(REFERENCE_BYTES, bucket.values.length);
+        }
+    }
+
+    private static int[] count(int[] histogram, int index) {
+        if (index >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, Math.max(index + 1, histogram.length * 2));
+        }
+        histogram[index]++;
+        return histogram;
+    }
+
+    private static int[] trim(int[] histogram) {
+        int length = histogram.length;
+        while (length > 0 && histogram[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(histogram, length);
+    }
+
+    /**
+     * @return the number of nodes, including the root
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of values held by the nodes and buckets, which is the number of keys
+     */
+    public int valueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return the number of edges from the root to the deepest node
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the average number of edges from the root to the node or bucket holding a value, the number of nodes a
+     * lookup of an existing key visits
+     */
+    public double averageDepth() {
+        return valueCount == 0 ? 0 : (double) valueDepths / valueCount;
+    }
+
+    /**
+     * @return the number of nodes by number of children: element i counts the nodes with i children
+     */
+    public int[] fanoutHistogram() {
+        return trim(fanouts);
+    }
+
+    /**
+     * @return the number of edges by label length: element i counts the edges whose label has i chars
+     */
+    public int[] labelLengthHistogram() {
+        return trim(labelLengths);
+    }
+
+    /**
+     * @return the number of edges labelled with a single char. When most edges are, the trie degenerates into a
+     * plain trie, paying a node per char.
+     */
+    public int singleCharEdges() {
+        return labelLengths.length > 1 ? labelLengths[1] : 0;
+    }
+
+    /**
+     * @return the estimated size of the node objects
+     */
+    public long nodeBytes() {
+        return nodeBytes;
+    }
+
+    /**
+     * @return the estimated size of the char arrays holding the edge labels
+     */
+    public long labelBytes() {
+        return labelBytes;
+    }
+
+    /**
+     * @return the estimated size of the children lists and their backing arrays
+     */
+    public long childListBytes() {
+        return childListBytes;
+    }
+
+    /**
+     * @return the estimated size of the child indexes of wide nodes, their first chars or direct tables
+     */
+    public long indexBytes() {
+        return indexBytes;
+    }
+
+    /**
+     * @return the estimated size of the suffix, end and value arrays of the buckets of a {@link BurstRadixTrie}, zero
+     * for other tries
+     */
+    public long bucketBytes() {
+        return bucketBytes;
+    }
+
+    /**
+     * @return the estimated number of bytes retained by the structure of the trie, excluding the values
+     */
+    public long estimatedBytes() {
+        return nodeBytes + labelBytes + childListBytes + indexBytes + bucketBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "RadixTrieStats{nodes=" + nodeCount
+                + ", values=" + valueCount
+                + ", maxDepth=" + maxDepth
+                + ", averageDepth=" + String.format("%.2f", averageDepth())
+                + ", singleCharEdges=" + singleCharEdges()
+                + ", estimatedBytes=" + estimatedBytes()
+                + " (nodes=" + nodeBytes + ", labels=" + labelBytes + ", childLists=" + childListBytes + ", indexes=" + indexBytes + ", buckets=" + bucketBytes + ")"
+                + ", fanouts=" + Arrays.toString(fanoutHistogram())
+                + ", labelLengths=" + Arrays.toString(labelLengthHistogram())
+                + "}";
+    }
+
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    static long arraySize(int elementBytes, int length) {
+        return align(ARRAY_HEADER_BYTES + (long) elementBytes * length);
+    }
+
+    /**
+     * @return the capacity of an ArrayList after adding the given number of elements one at a time
+     */
+    static int grownCapacity(int size) {
+        int capacity = ARRAY_LIST_DEFAULT_CAPACITY;
+        while (capacity < size) {
+            capacity += capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @return the size of an instance of the class: the header and the instance fields of the class and its
+     * superclasses, rounded up to the 8 byte alignment of objects
+     */
+    static long shallowSize(Class<?> type) {
+        long bytes = OBJECT_HEADER_BYTES;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    bytes += fieldSize(field.getType());
+                }
+            }
+        }
+        return align(bytes);
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == char.class || type == short.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    private static boolean usesCompressedOops() {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return hotSpot == null || Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot JVM, assume the common case of a heap under 32GB
+            return true;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A radix trie storing a score with every value, for ranked completion: {@link #topK(String, int)} returns the
+ * highest scored keys starting with a prefix.
+ * <p>
+ * Every node keeps the best score in its subtree, maintained along the path of every put and remove. The top k keys
+ * are then found best first from the node of the prefix: a subtree is only opened once its best score is the highest
+ * left, so the search stops after k values without enumerating the rest of the subtree, however many keys it holds.
+ * <p>
+ * Null values are not stored: putting a null value removes the key. This implementation is not thread safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ScoredRadixTrie<V> {
+
+    // package private for unit testing
+    ScoredRadixTrieNode<V> root = new ScoredRadixTrieNode<>();
+    private int size;
+    // the path of the last updated key, reused between updates
+    @SuppressWarnings("unchecked")
+    private ScoredRadixTrieNode<V>[] path = (ScoredRadixTrieNode<V>[]) new ScoredRadixTrieNode<?>[16];
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size < 1;
+    }
+
+    public void clear() {
+        root = new ScoredRadixTrieNode<>();
+        size = 0;
+    }
+
+    public boolean containsKey(CharSequence key) {
+        return get(key) != null;
+    }
+
+    public V get(CharSequence key) {
+        RadixTrieNode<V> node = RadixTrie.getNode(root, key, 0, key.length());
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * @return the score of the key, or defaultScore if the key has no value
+     */
+    public double getScore(CharSequence key, double defaultScore) {
+        RadixTrieNode<V> node = RadixTrie.getNode(root, key, 0, key.length());
+        return node != null && node.value != null ? ((ScoredRadixTrieNode<V>) node).score : defaultScore;
+    }
+
+    /**
+     * Maps the key to the value with the given score, replacing the value and score it had.
+     *
+     * @return the previous value of the key, or null if it had none
+     */
+    public V put(String key, V value, double score) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Supplied key is an empty string: cannot map values based on empty strings");
+        }
+        if (Double.isNaN(score)) {
+            throw new IllegalArgumentException("Supplied score is NaN: cannot rank keys by NaN");
+        }
+        if (value == null) {
+            return remove(key);
+        }
+        ScoredRadixTrieNode<V> node = (ScoredRadixTrieNode<V>) RadixTrie.getOrCreateNode(root, key, 0, key.length());
+        V oldValue = node.value;
+        node.value = value;
+        node.score = score;
+        if (oldValue == null) {
+            RadixTrie.adjustSizes(root, key, 0, key.length(), 1);
+            size++;
+        }
+        updateBest(key);
+        return oldValue;
+    }
+
+    /**
+     * @return the value the key had, or null if it had none
+     */
+    public V remove(String key) {
+        RadixTrieNode<V> node = RadixTrie.getNode(root, key, 0, key.length());
+        if (node == null || node.value == null) {
+            return null;
+        }
+        V oldValue = node.value;
+        node.value = null;
+        RadixTrie.removeValue(root, key, 0, key.length());
+        size--;
+        updateBest(key);
+        return oldValue;
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        RadixTrieNode<V> node = RadixTrie.getPrefixNode(root, prefix, null);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Recomputes the best scores on the path of a key that was just updated, bottom up. Only the nodes whose key is a
+     * prefix of the updated key can have changed; a node merged into the path by a removal kept its subtree.
+     */
+    private void updateBest(String key) {
+        ScoredRadixTrieNode<V> node = root;
+        int depth = 0;
+        int offset = 0;
+        int end = key.length();
+        path[0] = root;
+        while (offset < end) {
+            RadixTrieNode<V> child = node.findChild(key.charAt(offset));
+            if (child == null || RadixTrie.numCharsInCommonPrefix(child.chars, key, offset, end) < child.chars.length) {
+                break;
+            }
+            node = (ScoredRadixTrieNode<V>) child;
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth] = node;
+            offset += child.chars.length;
+        }
+        for (; depth >= 0; depth--) {
+            path[depth].updateBest();
+            path[depth] = null;
+        }
+    }
+
+    /**
+     * Finds the k highest scored keys starting with the given prefix, best first from the node of the prefix: the
+     * candidates are the values and subtrees met so far, ranked by their score or best score, and only the highest
+     * candidate is expanded, until k values are found.
+     *
+     * @return the entries of at most k keys, in descending order of score; keys with the same score come in no
+     * particular order
+     */
+    public List<Map.Entry<String, V>> topK(String prefix, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Invalid number of keys: " + k);
+        }
+        List<Map.Entry<String, V>> top = new ArrayList<>(Math.min(k, 16));
+        StringBuilder nodeKey = new StringBuilder(prefix);
+        RadixTrieNode<V> start = RadixTrie.getPrefixNode(root, prefix, nodeKey);
+        if (start == null || start.size == 0 || k == 0) {
+            return top;
+        }
+        String startKey = nodeKey.toString();
+        PriorityQueue<Candidate<V>> queue = new PriorityQueue<>();
+        queue.add(new Candidate<>((ScoredRadixTrieNode<V>) start, null, false));
+        while (!queue.isEmpty()) {
+            Candidate<V> candidate = queue.poll();
+            ScoredRadixTrieNode<V> node = candidate.node;
+            if (candidate.isValue) {
+                top.add(new SimpleImmutableEntry<>(keyOf(candidate.parent, startKey), node.value));
+                if (top.size() == k) {
+                    break;
+                }
+                continue;
+            }
+            if (node.value != null) {
+                queue.add(new Candidate<>(node, candidate, true));
+            }
+            if (node.children != null) {
+                for (RadixTrieNode<V> child : node.children) {
+                    if (child.size > 0) {
+                        queue.add(new Candidate<>((ScoredRadixTrieNode<V>) child, candidate, false));
+                    }
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the key of the node of a subtree candidate, rebuilt from the chain of candidates up to the start node
+     */
+    private static <V> String keyOf(Candidate<V> candidate, String startKey) {
+        List<char[]> labels = new ArrayList<>();
+        for (; candidate.parent != null; candidate = candidate.parent) {
+            labels.add(candidate.node.chars);
+        }
+        StringBuilder key = new StringBuilder(startKey);
+        for (int i = labels.size() - 1; i >= 0; i--) {
+            key.append(labels.get(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * A value, ranked by its score, or a subtree not opened yet, ranked by its best score. At equal scores values
+     * come first, as they need no further expansion. Candidates link to the subtree they were found in, so that keys
+     * are only built for the values returned.
+     */
+    private static final class Candidate<V> implements Comparable<Candidate<V>> {
+        final ScoredRadixTrieNode<V> node;
+        final Candidate<V> parent;
+        final boolean isValue;
+        final double priority;
+
+        Candidate(ScoredRadixTrieNode<V> node, Candidate<V> parent, boolean isValue) {
+            this.node = node;
+            this.parent = parent;
+            this.isValue = isValue;
+            this.priority = isValue ? node.score : node.best;
+        }
+
+        @Override
+        public int compareTo(Candidate<V> other) {
+            int byPriority = Double.compare(other.priority, priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return Boolean.compare(other.isValue, isValue);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.datatoys.util.radixtree;
+
+/**
+ * A node of {@link ScoredRadixTrie}, holding the score of its own value and the best score in its subtree.
+ */
+final class ScoredRadixTrieNode<V> extends RadixTrieNode<V> {
+
+    double score;
+    // the highest score of the values in the subtree rooted at this node, including its own
+    double best = Double.NEGATIVE_INFINITY;
+
+    @Override
+    RadixTrieNode<V> newNode() {
+        return new ScoredRadixTrieNode<>();
+    }
+
+    @Override
+    void copySubtreeStatsTo(RadixTrieNode<V> node) {
+        super.copySubtreeStatsTo(node);
+        ((ScoredRadixTrieNode<V>) node).best = best;
+    }
+
+    /**
+     * Recomputes the best score of the subtree from the node's own score and the best scores of its children.
+     */
+    void updateBest() {
+        double best = hasValue() ? score : Double.NEGATIVE_INFINITY;
+        if (children != null) {
+            for (int i = 0, n = children.size(); i < n; i++) {
+                best = Math.max(best, ((ScoredRadixTrieNode<V>) children.get(i)).best);
+            }
+        }
+        this.best = best;
+    }
+}
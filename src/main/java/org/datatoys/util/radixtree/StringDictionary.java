@@ -0,0 +1,132 @@
+package org.datatoys.util.radixtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * An order preserving dictionary encoding: every distinct key is given a dense int id from 0 to size - 1, equal to
+ * its rank in sorted order, so that comparing ids compares keys.
+ * <p>
+ * The keys are stored once, in a {@link FrozenRadixTrie} or a {@link MappedRadixTrie}, with no id stored at all:
+ * {@link #idOf} counts the keys before the key from the subtree sizes along its path, and {@link #keyOf} descends
+ * into the child whose subtree holds the id. Range and prefix predicates on the keys become ranges of ids, evaluated on
+ * the codes without decoding them:
+ * <pre>
+ * key &gt;= k            id &gt;= rankOf(k)
+ * key &lt; k             id &lt; rankOf(k)
+ * key starts with p    prefixRange(p)[0] &lt;= id &lt; prefixRange(p)[1]
+ * </pre>
+ * Ids are only stable for a given set of keys, which is why the dictionary is immutable: adding a key shifts the ids of
+ * all the keys after it. Empty keys can not be encoded, as in every trie of this package.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class StringDictionary implements Iterable<String> {
+
+    // the trie only records which keys are present, its values encode to no bytes in the mapped file
+    private static final ValueCodec<Boolean> PRESENT = new ValueCodec<Boolean>() {
+        @Override
+        public byte[] encode(Boolean value) {
+            return new byte[0];
+        }
+
+        @Override
+        public Boolean decode(ByteBuffer buffer, int offset, int length) {
+            return Boolean.TRUE;
+        }
+    };
+
+    private final FlatRadixTrie<Boolean> trie;
+
+    private StringDictionary(FlatRadixTrie<Boolean> trie) {
+        this.trie = trie;
+    }
+
+    /**
+     * Builds the dictionary of the distinct keys, which may be given in any order and repeated.
+     *
+     * @throws NullPointerException     if a key is null
+     * @throws IllegalArgumentException if a key is empty
+     */
+    public static StringDictionary of(Iterable<? extends CharSequence> keys) {
+        RadixTrie<Boolean> trie = new RadixTrie<>();
+        for (CharSequence key : keys) {
+            if (key == null) {
+                throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+            }
+            trie.put(key.toString(), Boolean.TRUE);
+        }
+        return new StringDictionary(trie.freeze());
+    }
+
+    /**
+     * Maps a dictionary file written with {@link #write(Path)}.
+     *
+     * @throws IOException if the file can not be read, or is not a radix trie file
+     */
+    public static StringDictionary open(Path path) throws IOException {
+        return new StringDictionary(MappedRadixTrie.open(path, PRESENT));
+    }
+
+    /**
+     * Writes the dictionary to a file, as a {@link MappedRadixTrie} whose values are empty.
+     */
+    public void write(Path path) throws IOException {
+        MappedRadixTrie.write(FrozenRadixTrie.copyOf(trie), PRESENT, path);
+    }
+
+    /**
+     * @return the number of keys, one more than the largest id
+     */
+    public int size() {
+        return trie.size();
+    }
+
+    /**
+     * @return the id of the key, or -1 if it is not in the dictionary
+     */
+    public int idOf(CharSequence key) {
+        return trie.indexOf(key);
+    }
+
+    /**
+     * @return the key with the given id
+     * @throws IndexOutOfBoundsException if the id is negative or not less than the size
+     */
+    public String keyOf(int id) {
+        return trie.keyAt(id);
+    }
+
+    /**
+     * @return the number of keys less than the given key, which need not be in the dictionary: the id of the key if it
+     * is, or else the id of the first key greater than it, or the size if there is none
+     */
+    public int rankOf(CharSequence key) {
+        return trie.rankOf(key);
+    }
+
+    /**
+     * @return the range of the ids of the keys starting with the prefix, as {from, to} with from inclusive and to
+     * exclusive, empty if no key starts with it
+     */
+    public int[] prefixRange(CharSequence prefix) {
+        int from = trie.rankOf(prefix);
+        return new int[]{from, from + trie.countWithPrefix(prefix)};
+    }
+
+    /**
+     * @return the keys in sorted order, which is the order of their ids
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return trie.keySet().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary[size=" + size() + "]";
+    }
+}
@@ -0,0 +1,146 @@
+package org.datatoys.util.radixtree;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map of strings stored as UTF-8 in a {@link ByteRadixTrie}, so that edge labels of ASCII text take one byte per
+ * character instead of two.
+ * <p>
+ * Keys are encoded once when they are put. Lookups, prefix counts and removals of keys made of ASCII characters
+ * only walk the trie straight from the characters, without encoding or allocating anything; other keys are encoded
+ * first.
+ * <p>
+ * Iteration is in the order of the UTF-8 bytes, which is the code point order of the keys. That is the order of
+ * {@link String#compareTo(String)} as well, except for characters above U+FFFF, which sort after U+E000..U+FFFF
+ * here. Keys must be well formed UTF-16: unpaired surrogates can not be encoded, and any key holding one is rejected
+ * with an {@link IllegalArgumentException}.
+ * <p>
+ * This implementation is not thread safe, and does not store null values.
+ */
+@SuppressWarnings("WeakerAccess")
+public class Utf8RadixTrie<V> extends AbstractMap<String, V> {
+
+    private final ByteRadixTrie<V> trie = new ByteRadixTrie<>();
+
+    @Override
+    public int size() {
+        return trie.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof String ? get((String) key) : null;
+    }
+
+    public V get(CharSequence key) {
+        return isAscii(key) ? trie.getAscii(key) : trie.get(encode(key));
+    }
+
+    @Override
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Supplied key is null: cannot map values based on null keys");
+        }
+        return trie.put(encode(key), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String keyStr = (String) key;
+        return isAscii(keyStr) ? trie.removeAscii(keyStr) : trie.remove(encode(keyStr));
+    }
+
+    @Override
+    public void clear() {
+        trie.clear();
+    }
+
+    /**
+     * @return the number of keys starting with the given prefix, answered without walking the matching keys
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        return isAscii(prefix) ? trie.countWithPrefixAscii(prefix) : trie.countWithPrefix(encode(prefix));
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                final Iterator<Map.Entry<byte[], V>> entries = trie.iterator();
+                return new Iterator<Map.Entry<String, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, V> next() {
+                        Map.Entry<byte[], V> entry = entries.next();
+                        return new SimpleImmutableEntry<>(new String(entry.getKey(), StandardCharsets.UTF_8), entry.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        entries.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return trie.size();
+            }
+
+            @Override
+            public void clear() {
+                trie.clear();
+            }
+        };
+    }
+
+    private static boolean isAscii(CharSequence key) {
+        for (int idx = 0, length = key.length(); idx < length; idx++) {
+            if (key.charAt(idx) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not well formed UTF-16
+     */
+    private static byte[] encode(CharSequence key) {
+        ByteBuffer buffer;
+        try {
+            // String.getBytes would silently replace an unpaired surrogate with '?', mapping distinct keys together
+            buffer = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .encode(CharBuffer.wrap(key));
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Supplied key is not well formed UTF-16: cannot encode it as UTF-8", e);
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
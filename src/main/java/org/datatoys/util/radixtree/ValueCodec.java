@@ -0,0 +1,63 @@
+package org.datatoys.util.radixtree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values of a {@link MappedRadixTrie} to and from bytes.
+ * <p>
+ * {@link #decode} reads straight out of the mapped file and may be called from several threads at once, so it must
+ * only use the absolute get methods of the buffer and never change its position or limit.
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * @return the bytes stored for the given (non null) value
+     */
+    byte[] encode(V value);
+
+    /**
+     * @return the value stored in the length bytes of the buffer starting at offset
+     */
+    V decode(ByteBuffer buffer, int offset, int length);
+
+    ValueCodec<String> UTF8 = new ValueCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer, int offset, int length) {
+            byte[] bytes = new byte[length];
+            for (int idx = 0; idx < length; idx++) {
+                bytes[idx] = buffer.get(offset + idx);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    ValueCodec<Integer> INTEGER = new ValueCodec<Integer>() {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int offset, int length) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    ValueCodec<Long> LONG = new ValueCodec<Long>() {
+        @Override
+        public byte[] encode(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        }
+
+        @Override
+        public Long decode(ByteBuffer buffer, int offset, int length) {
+            return buffer.getLong(offset);
+        }
+    };
+}
@@ -0,0 +1,196 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArenaRadixTrieTest {
+
+    /**
+     * Checks the invariants of a subtree and returns the total length of its labels: sizes match, the first chars kept
+     * by the parent match the labels in the arena, and nodes below the root hold a value or at least two children.
+     */
+    private static long checkNode(ArenaRadixTrie<?> trie, ArenaRadixTrieNode<?> node, boolean isRoot) {
+        int size = node.value != null ? 1 : 0;
+        long labelChars = isRoot ? 0 : node.length;
+        Assert.assertTrue(isRoot || node.value != null || node.childCount >= 2);
+        for (int i = 0; i < node.childCount; i++) {
+            ArenaRadixTrieNode<?> child = node.children[i];
+            Assert.assertTrue(child.length > 0);
+            Assert.assertEquals(trie.arena.slabs[child.slab][child.offset], node.firstChars[i]);
+            if (i > 0) {
+                Assert.assertTrue(node.firstChars[i - 1] < node.firstChars[i]);
+            }
+            labelChars += checkNode(trie, child, false);
+            size += child.size;
+        }
+        Assert.assertEquals(size, node.size);
+        return labelChars;
+    }
+
+    private static void assertSameContents(TreeMap<String, Integer> expected, ArenaRadixTrie<Integer> trie) {
+        // splits and merges in place keep the lengths adding up to the live chars
+        Assert.assertEquals(trie.arena.liveChars(), checkNode(trie, trie.root, true));
+        RadixTrieAssert.assertSameEntries(expected, trie.size(), trie.entrySet());
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        trie.put("test", 1);
+        trie.put("team", 2);
+        trie.put("toast", 3);
+        Assert.assertEquals(Integer.valueOf(1), trie.get("test"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("team"));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("toast"));
+        Assert.assertNull(trie.get("te"));
+        Assert.assertNull(trie.get("tests"));
+        Assert.assertEquals(Integer.valueOf(1), trie.put("test", 4));
+        trie.put("te", 5);
+        Assert.assertEquals(Integer.valueOf(5), trie.get("te"));
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals(3, trie.countWithPrefix("te"));
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("team"));
+        Assert.assertNull(trie.remove("team"));
+        Assert.assertNull(trie.remove("tea"));
+        Assert.assertEquals(Integer.valueOf(5), trie.put("te", null));
+        Assert.assertEquals(2, trie.size());
+        checkNode(trie, trie.root, true);
+    }
+
+    @Test
+    public void testSplitsDoNotCopyChars() {
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        trie.put("https://example.com/catalog", 1);
+        long chars = trie.arena.liveChars();
+        trie.put("https://example.com", 2);
+        trie.put("https://", 3);
+        // only the first key was appended, the other two split its label
+        Assert.assertEquals(chars, trie.arena.liveChars());
+        Assert.assertEquals(0, trie.arena.deadChars());
+        trie.put("https://example.org", 4);
+        Assert.assertEquals(chars + "org".length(), trie.arena.liveChars());
+
+        // the node of "https://example.com" merges back with its child "/catalog", which follows it in the arena
+        trie.remove("https://example.com");
+        Assert.assertEquals(0, trie.arena.deadChars());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("https://example.com/catalog"));
+        checkNode(trie, trie.root, true);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        Random random = new Random(19);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        for (int i = 0; i < 100000; i++) {
+            String key = Integer.toString(random.nextInt(20000), 3 + random.nextInt(8));
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), trie.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, i), trie.put(key, i));
+            }
+        }
+        assertSameContents(expected, trie);
+        for (int i = 0; i < 1000; i++) {
+            String prefix = Integer.toString(random.nextInt(20000), 3 + random.nextInt(8));
+            prefix = prefix.substring(0, 1 + random.nextInt(prefix.length()));
+            Assert.assertEquals(expected.subMap(prefix, prefix + Character.MAX_VALUE).size(), trie.countWithPrefix(prefix));
+        }
+    }
+
+    @Test
+    public void testRemovalsCompactTheArena() {
+        Random random = new Random(19);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        for (int i = 0; i < 50000; i++) {
+            String key = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            expected.put(key, i);
+            trie.put(key, i);
+        }
+        int slabs = trie.arena.slabCount();
+        Assert.assertTrue(slabs > 1);
+        List<String> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < keys.size(); i++) {
+            if (i % 10 != 0) {
+                trie.remove(keys.get(i));
+                expected.remove(keys.get(i));
+            }
+            Assert.assertTrue(trie.arena.deadChars() <= Math.max(trie.arena.liveChars(), CharArena.SLAB_SIZE));
+        }
+        Assert.assertTrue(trie.arena.slabCount() < slabs);
+        assertSameContents(expected, trie);
+
+        trie.compact();
+        Assert.assertEquals(0, trie.arena.deadChars());
+        assertSameContents(expected, trie);
+    }
+
+    @Test
+    public void testIteratorRemoveWithCompaction() {
+        Random random = new Random(19);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        for (int i = 0; i < 30000; i++) {
+            String key = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            expected.put(key, i);
+            trie.put(key, i);
+        }
+        int slabs = trie.arena.slabCount();
+        List<String> all = new ArrayList<>(expected.keySet());
+        List<String> visited = new ArrayList<>();
+        Iterator<Map.Entry<String, Integer>> iterator = trie.entrySet().iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            visited.add(key);
+            if (key.hashCode() % 5 != 0) {
+                iterator.remove();
+                expected.remove(key);
+            }
+        }
+        Assert.assertEquals(all, visited);
+        // the removals compacted the arena while the iteration went on
+        Assert.assertTrue(trie.arena.slabCount() < slabs);
+        assertSameContents(expected, trie);
+    }
+
+    @Test
+    public void testLabelsLongerThanASlab() {
+        char[] chars = new char[CharArena.SLAB_SIZE + 100];
+        Arrays.fill(chars, 'x');
+        String longKey = new String(chars);
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        trie.put("short", 1);
+        trie.put(longKey, 2);
+        trie.put(longKey + "y", 3);
+        trie.put("xx", 4);
+        Assert.assertEquals(Integer.valueOf(2), trie.get(longKey));
+        Assert.assertEquals(Integer.valueOf(3), trie.get(longKey + "y"));
+        Assert.assertEquals(Integer.valueOf(4), trie.get("xx"));
+        Assert.assertEquals(Arrays.asList("short", "xx", longKey, longKey + "y"), new ArrayList<>(trie.keySet()));
+        trie.compact();
+        Assert.assertEquals(Integer.valueOf(2), trie.get(longKey));
+        checkNode(trie, trie.root, true);
+    }
+
+    @Test
+    public void testClear() {
+        ArenaRadixTrie<Integer> trie = new ArenaRadixTrie<>();
+        trie.put("a", 1);
+        trie.put("ab", 2);
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertNull(trie.get("a"));
+        Assert.assertEquals(0, trie.arena.liveChars());
+        trie.put("b", 3);
+        Assert.assertEquals(Integer.valueOf(3), trie.get("b"));
+    }
+}
@@ -0,0 +1,226 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BurstRadixTrieTest {
+
+    /**
+     * Checks the invariants of a subtree and returns the number of keys it holds: sizes match, children are sorted by
+     * distinct first chars, buckets are sorted and within the threshold, and inner nodes below the root hold a value
+     * or at least two children.
+     */
+    private static int checkNode(BurstRadixTrieNode<?> node, boolean isRoot, int threshold) {
+        int size;
+        if (node.isBucket()) {
+            Assert.assertNull(node.children);
+            Assert.assertNull(node.value);
+            Assert.assertTrue(node.count <= threshold);
+            Assert.assertTrue(isRoot || node.count > 0);
+            for (int i = 1; i < node.count; i++) {
+                String previous = new String(node.suffixes, node.start(i - 1), node.ends[i - 1] - node.start(i - 1));
+                String current = new String(node.suffixes, node.start(i), node.ends[i] - node.start(i));
+                Assert.assertTrue(previous.compareTo(current) < 0);
+            }
+            size = node.count;
+        } else {
+            size = node.value != null ? 1 : 0;
+            int children = node.children == null ? 0 : node.children.size();
+            Assert.assertTrue(isRoot || size == 1 || children >= 2);
+            for (int i = 0; i < children; i++) {
+                RadixTrieNode<?> child = node.children.get(i);
+                if (i > 0) {
+                    Assert.assertTrue(node.children.get(i - 1).chars[0] < child.chars[0]);
+                }
+                Assert.assertSame(child, node.findChild(child.chars[0]));
+                size += checkNode((BurstRadixTrieNode<?>) child, false, threshold);
+            }
+        }
+        Assert.assertEquals(size, node.size);
+        return size;
+    }
+
+    private static void assertSameContents(TreeMap<String, Integer> expected, BurstRadixTrie<Integer> trie, int threshold) {
+        checkNode(trie.root, true, threshold);
+        RadixTrieAssert.assertSameEntries(expected, trie.size(), trie.entrySet());
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(2);
+        trie.put("test", 1);
+        trie.put("team", 2);
+        trie.put("toast", 3);
+        Assert.assertEquals(Integer.valueOf(1), trie.get("test"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("team"));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("toast"));
+        Assert.assertNull(trie.get("te"));
+        Assert.assertNull(trie.get("tests"));
+        Assert.assertFalse(trie.containsKey("t"));
+        Assert.assertFalse(trie.root.isBucket());
+
+        Assert.assertEquals(Integer.valueOf(1), trie.put("test", 4));
+        Assert.assertEquals(Integer.valueOf(4), trie.get("test"));
+        trie.put("te", 5);
+        Assert.assertEquals(Integer.valueOf(5), trie.get("te"));
+        Assert.assertEquals(4, trie.size());
+
+        Assert.assertEquals(Integer.valueOf(2), trie.remove("team"));
+        Assert.assertNull(trie.remove("team"));
+        Assert.assertNull(trie.remove("tea"));
+        Assert.assertEquals(3, trie.size());
+        checkNode(trie.root, true, 2);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        for (int threshold : new int[]{1, 4, 64}) {
+            Random random = new Random(18 + threshold);
+            TreeMap<String, Integer> expected = new TreeMap<>();
+            BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(threshold);
+            for (int i = 0; i < 20000; i++) {
+                String key = Integer.toString(random.nextInt(5000), 7 + random.nextInt(3));
+                if (random.nextInt(3) == 0) {
+                    Assert.assertEquals(expected.remove(key), trie.remove(key));
+                } else {
+                    Assert.assertEquals(expected.put(key, i), trie.put(key, i));
+                }
+            }
+            assertSameContents(expected, trie, threshold);
+            for (String key : expected.keySet()) {
+                Assert.assertEquals(expected.get(key), trie.get(key));
+            }
+            for (String key : new ArrayList<>(expected.keySet())) {
+                Assert.assertEquals(expected.remove(key), trie.remove(key));
+            }
+            assertSameContents(expected, trie, threshold);
+            Assert.assertTrue(trie.isEmpty());
+        }
+    }
+
+    @Test
+    public void testBurstLabelsGroupsWithTheirCommonPrefix() {
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(3);
+        trie.put("https://example.com/a", 1);
+        trie.put("https://example.com/b", 2);
+        trie.put("https://example.com/c", 3);
+        Assert.assertTrue(trie.root.isBucket());
+        trie.put("https://example.org/", 4);
+        // root -> "https://example." -> ("com/" bucket, "org/" bucket)
+        Assert.assertEquals(1, trie.root.children.size());
+        BurstRadixTrieNode<?> node = (BurstRadixTrieNode<?>) trie.root.children.get(0);
+        Assert.assertEquals("https://example.", new String(node.chars));
+        Assert.assertEquals(2, node.children.size());
+        Assert.assertEquals("com/", new String(node.children.get(0).chars));
+        Assert.assertEquals(3, ((BurstRadixTrieNode<?>) node.children.get(0)).count);
+        checkNode(trie.root, true, 3);
+    }
+
+    @Test
+    public void testNumericKeysNeedFarFewerNodes() {
+        Random random = new Random(18);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        BurstRadixTrie<Integer> burstTrie = new BurstRadixTrie<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 100000; i++) {
+            String key = String.valueOf(random.nextInt());
+            radixTrie.put(key, i);
+            burstTrie.put(key, i);
+            expected.put(key, i);
+        }
+        assertSameContents(expected, burstTrie, BurstRadixTrie.DEFAULT_BURST_THRESHOLD);
+        RadixTrieStats radixStats = radixTrie.stats();
+        RadixTrieStats burstStats = burstTrie.stats();
+        Assert.assertEquals(expected.size(), burstStats.valueCount());
+        Assert.assertTrue(burstStats.nodeCount() * 20 < radixStats.nodeCount());
+        Assert.assertTrue(burstStats.averageDepth() < radixStats.averageDepth());
+        Assert.assertTrue(burstStats.bucketBytes() > 0);
+        Assert.assertTrue(burstStats.estimatedBytes() < radixStats.estimatedBytes());
+    }
+
+    @Test
+    public void testCountWithPrefix() {
+        Random random = new Random(18);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(8);
+        for (int i = 0; i < 3000; i++) {
+            String key = Integer.toHexString(random.nextInt(1 << 16));
+            expected.put(key, i);
+            trie.put(key, i);
+        }
+        for (int i = 0; i < 500; i++) {
+            String prefix = Integer.toHexString(0x1000 + random.nextInt(0xF000)).substring(0, 1 + random.nextInt(3));
+            Assert.assertEquals(prefix, expected.subMap(prefix, prefix + Character.MAX_VALUE).size(), trie.countWithPrefix(prefix));
+        }
+        Assert.assertEquals(expected.size(), trie.countWithPrefix(""));
+        Assert.assertEquals(0, trie.countWithPrefix("xyz"));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Random random = new Random(18);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(4);
+        for (int i = 0; i < 5000; i++) {
+            String key = Integer.toString(random.nextInt(100000));
+            expected.put(key, i);
+            trie.put(key, i);
+        }
+        List<String> all = new ArrayList<>(expected.keySet());
+        List<String> visited = new ArrayList<>();
+        Iterator<Map.Entry<String, Integer>> iterator = trie.entrySet().iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next().getKey();
+            visited.add(key);
+            if (key.hashCode() % 3 != 0) {
+                iterator.remove();
+                expected.remove(key);
+            }
+        }
+        // removals do not skip or repeat any key
+        Assert.assertEquals(all, visited);
+        assertSameContents(expected, trie, 4);
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorIsFailFast() {
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>();
+        trie.put("a", 1);
+        trie.put("b", 2);
+        Iterator<String> keys = trie.keySet().iterator();
+        keys.next();
+        trie.put("c", 3);
+        keys.next();
+    }
+
+    @Test
+    public void testClearAndInvalidArguments() {
+        BurstRadixTrie<Integer> trie = new BurstRadixTrie<>(1);
+        trie.put("a", 1);
+        trie.put("b", 2);
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertNull(trie.get("a"));
+        Assert.assertNull(trie.put("a", 3));
+        Assert.assertEquals(Integer.valueOf(3), trie.put("a", null));
+        Assert.assertTrue(trie.isEmpty());
+        try {
+            trie.put("", 1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new BurstRadixTrie<Integer>(0);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
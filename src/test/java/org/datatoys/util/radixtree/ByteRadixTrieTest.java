@@ -0,0 +1,249 @@
+package org.datatoys.util.radixtree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteRadixTrieTest {
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static List<byte[]> keys(ByteRadixTrie<?> trie) {
+        List<byte[]> keys = new ArrayList<>();
+        for (Map.Entry<byte[], ?> entry : trie) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static int nodeCount(ByteRadixTrieNode<?> node) {
+        int count = 1;
+        if (node.children != null) {
+            for (ByteRadixTrieNode<?> child : node.children) {
+                count += nodeCount(child);
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testPutGet() {
+        ByteRadixTrie<String> trie = new ByteRadixTrie<>();
+        Assert.assertNull(trie.put(bytes(1, 2, 3), "a"));
+        Assert.assertNull(trie.put(bytes(1, 2), "b"));
+        Assert.assertNull(trie.put(bytes(1, 2, 0xFF), "c"));
+        Assert.assertEquals("a", trie.put(bytes(1, 2, 3), "d"));
+        Assert.assertEquals(3, trie.size());
+
+        Assert.assertEquals("d", trie.get(bytes(1, 2, 3)));
+        Assert.assertEquals("b", trie.get(bytes(1, 2)));
+        Assert.assertEquals("c", trie.get(bytes(9, 1, 2, 0xFF, 9), 1, 3));
+        Assert.assertNull(trie.get(bytes(1)));
+        Assert.assertNull(trie.get(bytes(1, 2, 3, 4)));
+        Assert.assertTrue(trie.containsKey(bytes(1, 2)));
+        Assert.assertEquals(3, trie.countWithPrefix(bytes(1)));
+        Assert.assertEquals(1, trie.countWithPrefix(bytes(1, 2, 0xFF)));
+        Assert.assertEquals(0, trie.countWithPrefix(bytes(2)));
+    }
+
+    @Test
+    public void testByteBufferKeys() {
+        ByteRadixTrie<String> trie = new ByteRadixTrie<>();
+        trie.put(ByteBuffer.wrap(bytes(0, 5, 6, 7, 0), 1, 3), "a");
+        Assert.assertEquals("a", trie.get(bytes(5, 6, 7)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(8);
+        direct.put(bytes(9, 9, 5, 6, 7));
+        direct.flip();
+        direct.position(2);
+        Assert.assertEquals("a", trie.get(direct));
+        Assert.assertTrue(trie.containsKey(direct));
+        Assert.assertEquals(2, direct.position());
+        direct.limit(4);
+        Assert.assertNull(trie.get(direct));
+
+        direct.limit(5);
+        Assert.assertEquals("a", trie.remove(direct));
+        Assert.assertEquals(2, direct.position());
+        Assert.assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testUnsignedOrder() {
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        int[] firsts = {0xFF, 0x00, 0x80, 0x7F, 0x01, 0xFE, 0x81};
+        for (int first : firsts) {
+            trie.put(bytes(first, 1), first);
+            trie.put(bytes(first), first);
+        }
+        List<byte[]> keys = keys(trie);
+        Assert.assertEquals(2 * firsts.length, keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            Assert.assertTrue(ByteRadixTrie.KEY_ORDER.compare(keys.get(i - 1), keys.get(i)) < 0);
+        }
+        Assert.assertArrayEquals(bytes(0x00), keys.get(0));
+        Assert.assertArrayEquals(bytes(0xFF, 1), keys.get(keys.size() - 1));
+    }
+
+    @Test
+    public void testWideNodes() {
+        ByteRadixTrie<Integer> dense = new ByteRadixTrie<>();
+        for (int b = 255; b >= 0; b--) {
+            dense.put(bytes(b, 0), b);
+        }
+        Assert.assertNotNull(dense.root.direct);
+        ByteRadixTrie<Integer> sparse = new ByteRadixTrie<>();
+        for (int b = 0; b < 256; b += 50) {
+            sparse.put(bytes(b, 0), b);
+        }
+        Assert.assertNotNull(sparse.root.firstBytes);
+        for (int b = 0; b < 256; b++) {
+            Assert.assertEquals(Integer.valueOf(b), dense.get(bytes(b, 0)));
+            Assert.assertEquals(b % 50 == 0 ? Integer.valueOf(b) : null, sparse.get(bytes(b, 0)));
+        }
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        Random random = new Random(15);
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        TreeMap<byte[], Integer> treeMap = new TreeMap<>(ByteRadixTrie.KEY_ORDER);
+        for (int i = 0; i < 50000; i++) {
+            byte[] key = new byte[1 + random.nextInt(6)];
+            for (int j = 0; j < key.length; j++) {
+                // a small alphabet, for shared prefixes
+                key[j] = (byte) (random.nextInt(6) * 50);
+            }
+            if (random.nextInt(4) == 0) {
+                Assert.assertEquals(treeMap.remove(key), trie.remove(key));
+            } else {
+                Assert.assertEquals(treeMap.put(key, i), trie.put(key, i));
+            }
+        }
+        Assert.assertEquals(treeMap.size(), trie.size());
+        Iterator<Map.Entry<byte[], Integer>> expected = treeMap.entrySet().iterator();
+        for (Map.Entry<byte[], Integer> entry : trie) {
+            Map.Entry<byte[], Integer> next = expected.next();
+            Assert.assertArrayEquals(next.getKey(), entry.getKey());
+            Assert.assertEquals(next.getValue(), entry.getValue());
+        }
+        Assert.assertFalse(expected.hasNext());
+        Assert.assertEquals(treeMap.subMap(bytes(50, 100), bytes(50, 101)).size(), trie.countWithPrefix(bytes(50, 100)));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        for (int i = 0; i < 100; i++) {
+            trie.put(bytes(i / 10, i % 10), i);
+        }
+        for (Iterator<Map.Entry<byte[], Integer>> it = trie.iterator(); it.hasNext(); ) {
+            if (it.next().getValue() % 2 == 0) {
+                it.remove();
+            }
+        }
+        Assert.assertEquals(50, trie.size());
+        Assert.assertEquals(5, trie.countWithPrefix(bytes(3)));
+        Assert.assertNull(trie.get(bytes(3, 4)));
+        Assert.assertEquals(Integer.valueOf(35), trie.get(bytes(3, 5)));
+        Assert.assertEquals(50, keys(trie).size());
+    }
+
+    @Test
+    public void testIteratorRemoveMerges() {
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        trie.put(bytes(1), 1);
+        trie.put(bytes(1, 2, 3), 2);
+        trie.put(bytes(5, 1), 3);
+        trie.put(bytes(5, 2), 4);
+        Iterator<Map.Entry<byte[], Integer>> it = trie.iterator();
+        // the only child of the removed key absorbs its bytes, as does the sibling of the removed leaf
+        Assert.assertArrayEquals(bytes(1), it.next().getKey());
+        it.remove();
+        Assert.assertArrayEquals(bytes(1, 2, 3), it.next().getKey());
+        Assert.assertArrayEquals(bytes(5, 1), it.next().getKey());
+        it.remove();
+        Assert.assertArrayEquals(bytes(5, 2), it.next().getKey());
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(3, nodeCount(trie.root));
+        Assert.assertEquals(Integer.valueOf(4), trie.get(bytes(5, 2)));
+    }
+
+    @Test
+    public void testRemoveKeepsTrieCompressed() {
+        Random random = new Random(10);
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        TreeMap<byte[], Integer> treeMap = new TreeMap<>(ByteRadixTrie.KEY_ORDER);
+        for (int i = 0; i < 100000; i++) {
+            byte[] key = new byte[1 + random.nextInt(4)];
+            random.nextBytes(key);
+            trie.put(key, i);
+            Assert.assertEquals(Integer.valueOf(i), trie.remove(key));
+        }
+        Assert.assertEquals(0, trie.size());
+        Assert.assertEquals(1, nodeCount(trie.root));
+
+        for (int i = 0; i < 20000; i++) {
+            // a small alphabet, so that keys are prefixes of each other and nodes get split and merged
+            byte[] key = new byte[1 + random.nextInt(3)];
+            for (int idx = 0; idx < key.length; idx++) {
+                key[idx] = (byte) random.nextInt(4);
+            }
+            if (random.nextBoolean()) {
+                Assert.assertEquals(treeMap.put(key, i), trie.put(key, i));
+            } else {
+                Assert.assertEquals(treeMap.remove(key), trie.remove(key));
+            }
+        }
+        for (Iterator<Map.Entry<byte[], Integer>> it = trie.iterator(); it.hasNext(); ) {
+            if (it.next().getValue() % 3 == 0) {
+                it.remove();
+            }
+        }
+        treeMap.values().removeIf(value -> value % 3 == 0);
+        Assert.assertEquals(treeMap.size(), trie.size());
+        Iterator<Map.Entry<byte[], Integer>> expected = treeMap.entrySet().iterator();
+        for (Map.Entry<byte[], Integer> entry : trie) {
+            Map.Entry<byte[], Integer> next = expected.next();
+            Assert.assertArrayEquals(next.getKey(), entry.getKey());
+            Assert.assertEquals(next.getValue(), entry.getValue());
+        }
+        Assert.assertFalse(expected.hasNext());
+        // the same keys put into a fresh trie give the smallest tree that holds them
+        ByteRadixTrie<Integer> fresh = new ByteRadixTrie<>();
+        for (Map.Entry<byte[], Integer> entry : treeMap.entrySet()) {
+            fresh.put(entry.getKey(), entry.getValue());
+        }
+        Assert.assertEquals(nodeCount(fresh.root), nodeCount(trie.root));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorIsFailFast() {
+        ByteRadixTrie<Integer> trie = new ByteRadixTrie<>();
+        trie.put(bytes(1), 1);
+        trie.put(bytes(2), 2);
+        Iterator<Map.Entry<byte[], Integer>> it = trie.iterator();
+        it.next();
+        trie.put(bytes(3), 3);
+        it.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() {
+        new ByteRadixTrie<Integer>().put(new byte[0], 1);
+    }
+}
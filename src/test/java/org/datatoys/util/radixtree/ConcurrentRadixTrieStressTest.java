@@ -0,0 +1,231 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Multi-threaded tests: every thread works on keys that share prefixes with the other threads' keys, so that inserts,
+ * splits and removals race on the same nodes.
+ */
+public class ConcurrentRadixTrieStressTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 2);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (final Callable<T> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static <V> void assertConsistent(ConcurrentRadixTrie<V> trie, Map<String, V> expected) {
+        TreeMap<String, V> sorted = new TreeMap<>(expected);
+        Assert.assertEquals(sorted.size(), trie.size());
+        Assert.assertEquals(new ArrayList<>(sorted.entrySet()), new ArrayList<>(trie.entrySet()));
+        for (Map.Entry<String, V> entry : sorted.entrySet()) {
+            Assert.assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testConcurrentInserts() throws Exception {
+        final ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        final int perThread = 20000;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            tasks.add(() -> {
+                // interleaved numbers: every thread inserts into every part of the trie
+                for (int i = 0; i < perThread; i++) {
+                    int n = i * THREADS + thread;
+                    trie.put(String.valueOf(n), n);
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+
+        Map<String, Integer> expected = new HashMap<>();
+        for (int n = 0; n < perThread * THREADS; n++) {
+            expected.put(String.valueOf(n), n);
+        }
+        assertConsistent(trie, expected);
+    }
+
+    @Test
+    public void testPutIfAbsentHasOneWinner() throws Exception {
+        final ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        final int keys = 20000;
+        List<Callable<Map<String, Integer>>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            tasks.add(() -> {
+                Map<String, Integer> won = new HashMap<>();
+                for (int i = 0; i < keys; i++) {
+                    String key = "com.example." + i;
+                    if (trie.putIfAbsent(key, thread) == null) {
+                        won.put(key, thread);
+                    }
+                }
+                return won;
+            });
+        }
+        Map<String, Integer> winners = new HashMap<>();
+        for (Map<String, Integer> won : runAll(tasks)) {
+            for (Map.Entry<String, Integer> entry : won.entrySet()) {
+                Assert.assertNull("two winners for " + entry.getKey(), winners.put(entry.getKey(), entry.getValue()));
+            }
+        }
+        Assert.assertEquals(keys, winners.size());
+        assertConsistent(trie, winners);
+    }
+
+    /**
+     * Increments counters on keys that are prefixes of each other while other threads keep splitting and burying the
+     * nodes above and around them. A lost update shows up as a total below the number of successful increments.
+     */
+    @Test
+    public void testNoLostUpdatesAcrossSplits() throws Exception {
+        final ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        final String[] counters = {"abcdef", "abcdefgh", "abcxyz", "abd"};
+        for (String counter : counters) {
+            trie.put(counter, 0);
+        }
+        final int increments = 20000;
+        final AtomicBoolean done = new AtomicBoolean();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            tasks.add(() -> {
+                if (thread % 2 == 0) {
+                    for (int i = 0; i < increments; i++) {
+                        trie.merge(counters[i % counters.length], 1, Integer::sum);
+                    }
+                    return increments;
+                }
+                // churn: keys that split the edges leading to the counters, and leaves that get buried again
+                String[] churn = {"a", "ab", "abc", "abcd", "abcdefg", "abcdx" + thread, "abcdefghi" + thread};
+                Random random = new Random(thread);
+                while (!done.get()) {
+                    String key = churn[random.nextInt(churn.length)];
+                    if (random.nextBoolean()) {
+                        trie.put(key, -1);
+                    } else {
+                        trie.remove(key);
+                    }
+                }
+                return 0;
+            });
+        }
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (Callable<Integer> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        int expected = 0;
+        for (int t = 0; t < futures.size(); t += 2) {
+            expected += futures.get(t).get(60, TimeUnit.SECONDS);
+        }
+        done.set(true);
+        for (Future<Integer> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        int total = 0;
+        for (String counter : counters) {
+            total += trie.get(counter);
+        }
+        Assert.assertEquals(expected, total);
+    }
+
+    /**
+     * Each thread owns the keys ending with its own suffix and keeps a model of them, while the keys of all threads
+     * share their prefixes. Meanwhile readers check that a key a writer never removes stays visible and only grows.
+     */
+    @Test
+    public void testChurnMatchesModel() throws Exception {
+        final ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        final int operations = 50000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger anomalies = new AtomicInteger();
+        trie.put("1", 0);
+
+        List<Callable<Map<String, Integer>>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            tasks.add(() -> {
+                Map<String, Integer> model = new HashMap<>();
+                Random random = new Random(thread);
+                for (int i = 0; i < operations; i++) {
+                    String key = random.nextInt(2000) + "#" + thread;
+                    if (random.nextInt(3) == 0) {
+                        Assert.assertEquals(model.remove(key), trie.remove(key));
+                    } else {
+                        Assert.assertEquals(model.put(key, i), trie.put(key, i));
+                    }
+                    if (thread == 0) {
+                        trie.put("1", i + 1);
+                    }
+                }
+                return model;
+            });
+        }
+        for (int r = 0; r < 2; r++) {
+            executor.submit(() -> {
+                int last = 0;
+                while (!done.get()) {
+                    Integer value = trie.get("1");
+                    if (value == null || value < last) {
+                        anomalies.incrementAndGet();
+                    } else {
+                        last = value;
+                    }
+                }
+                return null;
+            });
+        }
+        List<Map<String, Integer>> models = runAll(tasks);
+        done.set(true);
+
+        Map<String, Integer> expected = new HashMap<>();
+        for (Map<String, Integer> model : models) {
+            expected.putAll(model);
+        }
+        expected.put("1", operations);
+        Assert.assertEquals(0, anomalies.get());
+        assertConsistent(trie, expected);
+    }
+}
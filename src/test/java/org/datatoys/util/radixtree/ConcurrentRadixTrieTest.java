@@ -0,0 +1,124 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentRadixTrieTest {
+
+    @Test
+    public void testPutGet() {
+        ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        Assert.assertNull(trie.put("com.google.mail", 1));
+        Assert.assertNull(trie.put("com.google.plus", 2));
+        Assert.assertNull(trie.put("com.google", 3));
+        Assert.assertNull(trie.put("org.wikipedia", 4));
+        Assert.assertEquals(new Integer(3), trie.put("com.google", 5));
+
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals(new Integer(1), trie.get("com.google.mail"));
+        Assert.assertEquals(new Integer(5), trie.get("com.google"));
+        Assert.assertEquals(new Integer(5), trie.get(new StringBuilder("com.google")));
+        Assert.assertNull(trie.get("com.goo"));
+        Assert.assertNull(trie.get("com.google.mails"));
+        Assert.assertNull(trie.get(""));
+        Assert.assertFalse(trie.containsKey(new StringBuilder("com.google")));
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        Assert.assertNull(trie.putIfAbsent("com.google", 1));
+        Assert.assertEquals(new Integer(1), trie.putIfAbsent("com.google", 2));
+        Assert.assertNull(trie.replace("com.goo", 3));
+        Assert.assertNull(trie.get("com.goo"));
+        Assert.assertEquals(new Integer(1), trie.replace("com.google", 3));
+        Assert.assertFalse(trie.replace("com.google", 1, 4));
+        Assert.assertTrue(trie.replace("com.google", 3, 4));
+        Assert.assertFalse(trie.remove("com.google", 3));
+        Assert.assertTrue(trie.remove("com.google", 4));
+        Assert.assertTrue(trie.isEmpty());
+
+        Assert.assertEquals(new Integer(10), trie.computeIfAbsent("com.google.mail", key -> key.length() - 5));
+        Assert.assertEquals(new Integer(10), trie.computeIfAbsent("com.google.mail", key -> -1));
+        Assert.assertNull(trie.computeIfAbsent("com.google.plus", key -> null));
+        Assert.assertEquals(new Integer(11), trie.merge("com.google.mail", 1, Integer::sum));
+        Assert.assertEquals(1, trie.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        new ConcurrentRadixTrie<Integer>().put("com.google", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() {
+        new ConcurrentRadixTrie<Integer>().put("", 1);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        Random random = new Random(3);
+        ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        for (int i = 0; i < 100000; i++) {
+            String key = String.valueOf(random.nextInt(5000));
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(treeMap.put(key, i), trie.put(key, i));
+                    break;
+                case 2:
+                    Assert.assertEquals(treeMap.remove(key), trie.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(treeMap.get(key), trie.get(key));
+            }
+        }
+        Assert.assertEquals(treeMap.size(), trie.size());
+        Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(trie.entrySet()));
+    }
+
+    @Test
+    public void testIteratorAndEntryWriteThrough() {
+        ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        for (int i = 0; i < 100; i++) {
+            trie.put("key" + i, i);
+        }
+        for (Iterator<Map.Entry<String, Integer>> it = trie.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> entry = it.next();
+            if (entry.getValue() % 2 == 0) {
+                it.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        Assert.assertEquals(50, trie.size());
+        Assert.assertNull(trie.get("key10"));
+        Assert.assertEquals(new Integer(-11), trie.get("key11"));
+
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertFalse(trie.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testSetNullValueLeavesEntry() {
+        ConcurrentRadixTrie<Integer> trie = new ConcurrentRadixTrie<>();
+        trie.put("key", 1);
+        Map.Entry<String, Integer> entry = trie.entrySet().iterator().next();
+        try {
+            entry.setValue(null);
+            Assert.fail();
+        } catch (NullPointerException expected) {
+            // null values are rejected before anything is changed
+        }
+        Assert.assertEquals(new Integer(1), entry.getValue());
+        Assert.assertEquals(new Integer(1), trie.get("key"));
+    }
+}
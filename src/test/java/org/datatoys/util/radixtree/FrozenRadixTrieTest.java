@@ -0,0 +1,144 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrozenRadixTrieTest {
+
+    @Test
+    public void testGet() {
+        FrozenRadixTrie<Integer> frozen = RadixTrieAssert.domains().freeze();
+        Assert.assertEquals(5, frozen.size());
+        Assert.assertEquals(new Integer(1), frozen.get("com.google.mail"));
+        Assert.assertEquals(new Integer(3), frozen.get("com.google"));
+        Assert.assertEquals(new Integer(4), frozen.get(new StringBuilder("com.github")));
+        Assert.assertNull(frozen.get("com.goo"));
+        Assert.assertNull(frozen.get("com.google.mails"));
+        Assert.assertNull(frozen.get(""));
+        Assert.assertNull(frozen.get((Object) 5));
+        Assert.assertTrue(frozen.containsKey("org.wikipedia"));
+        Assert.assertFalse(frozen.containsKey("org"));
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        Random random = new Random(5);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = String.valueOf(random.nextInt());
+            radixTrie.put(key, i);
+            treeMap.put(key, i);
+        }
+        FrozenRadixTrie<Integer> frozen = radixTrie.freeze();
+        Assert.assertEquals(treeMap, frozen);
+        Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(frozen.entrySet()));
+        Assert.assertTrue(frozen.nodeCount() <= 2 * frozen.size() + 1);
+        for (String key : treeMap.keySet()) {
+            Assert.assertEquals(treeMap.get(key), frozen.get(key));
+            Assert.assertNull(frozen.get(key + "0"));
+        }
+        for (int i = 0; i < 200; i++) {
+            String prefix = String.valueOf(random.nextInt(2000) - 1000);
+            SortedMap<String, Integer> expected = treeMap.subMap(prefix, prefix + Character.MAX_VALUE);
+            Assert.assertEquals(expected.size(), frozen.countWithPrefix(prefix));
+            Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(frozen.prefixMap(prefix).entrySet()));
+        }
+    }
+
+    @Test
+    public void testPrefixes() {
+        FrozenRadixTrie<Integer> frozen = RadixTrieAssert.domains().freeze();
+        Assert.assertEquals(5, frozen.countWithPrefix(""));
+        Assert.assertEquals(3, frozen.countWithPrefix("com.goo"));
+        Assert.assertEquals(2, frozen.countWithPrefix("com.google."));
+        Assert.assertEquals(0, frozen.countWithPrefix("com.gx"));
+        Assert.assertTrue(frozen.hasPrefix("org"));
+        Assert.assertFalse(frozen.hasPrefix("net"));
+
+        Map<String, Integer> google = frozen.prefixMap("com.goo");
+        Assert.assertEquals(3, google.size());
+        Assert.assertEquals("com.google", google.keySet().iterator().next());
+        Assert.assertEquals(new Integer(2), google.get("com.google.plus"));
+        Assert.assertNull(google.get("com.github"));
+        Assert.assertTrue(frozen.prefixMap("net").isEmpty());
+    }
+
+    @Test
+    public void testLongestPrefixOf() {
+        FrozenRadixTrie<Integer> frozen = RadixTrieAssert.domains().freeze();
+        Assert.assertEquals("com.google.mail", frozen.longestPrefixOf("com.google.mail.inbox").getKey());
+        Assert.assertEquals(new Integer(3), frozen.longestPrefixOf("com.google.maps").getValue());
+        Assert.assertNull(frozen.longestPrefixOf("com.goo"));
+
+        List<Map.Entry<String, Integer>> prefixes = frozen.prefixesOf("com.google.plus");
+        Assert.assertEquals(2, prefixes.size());
+        Assert.assertEquals("com.google", prefixes.get(0).getKey());
+        Assert.assertEquals(new Integer(2), prefixes.get(1).getValue());
+        Assert.assertTrue(frozen.prefixesOf("net").isEmpty());
+    }
+
+    @Test
+    public void testFreezeCompressesRemovedKeys() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        radixTrie.remove("com.google");
+        radixTrie.remove("com.google.plus");
+        radixTrie.remove("com.github");
+        FrozenRadixTrie<Integer> frozen = radixTrie.freeze();
+
+        // root, "com.google.mail" and "org.wikipedia"
+        Assert.assertEquals(3, frozen.nodeCount());
+        Assert.assertEquals(2, frozen.size());
+        Assert.assertEquals(new Integer(1), frozen.get("com.google.mail"));
+        Assert.assertNull(frozen.get("com.google"));
+        Assert.assertEquals(1, frozen.countWithPrefix("com.google.m"));
+    }
+
+    @Test
+    public void testFrozenCopyIsIndependent() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        FrozenRadixTrie<Integer> frozen = radixTrie.freeze();
+        radixTrie.put("net.example", 6);
+        radixTrie.put("com.google", 7);
+        Assert.assertEquals(5, frozen.size());
+        Assert.assertNull(frozen.get("net.example"));
+        Assert.assertEquals(new Integer(3), frozen.get("com.google"));
+    }
+
+    @Test
+    public void testEmpty() {
+        FrozenRadixTrie<Integer> frozen = new RadixTrie<Integer>().freeze();
+        Assert.assertTrue(frozen.isEmpty());
+        Assert.assertFalse(frozen.entrySet().iterator().hasNext());
+        Assert.assertNull(frozen.get("a"));
+        Assert.assertEquals(1, frozen.nodeCount());
+    }
+
+    @Test
+    public void testCopyOf() {
+        TreeMap<String, Integer> treeMap = new TreeMap<>(RadixTrieAssert.domains());
+        FrozenRadixTrie<Integer> frozen = FrozenRadixTrie.copyOf(treeMap);
+        Assert.assertEquals(treeMap, frozen);
+        Assert.assertSame(frozen, FrozenRadixTrie.copyOf(frozen));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPutIsUnsupported() {
+        RadixTrieAssert.domains().freeze().put("net.example", 6);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemoveIsUnsupported() {
+        Iterator<String> it = RadixTrieAssert.domains().freeze().keySet().iterator();
+        it.next();
+        it.remove();
+    }
+}
@@ -0,0 +1,142 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntRadixTrieTest {
+
+    @Test
+    public void testPutGet() {
+        IntRadixTrie trie = new IntRadixTrie();
+        Assert.assertEquals(0, trie.putInt("com.google", 0));
+        Assert.assertEquals(0, trie.putInt("com.google.mail", 7));
+        Assert.assertEquals(0, trie.putInt("com.github", -3));
+        Assert.assertEquals(7, trie.putInt("com.google.mail", 8));
+        Assert.assertEquals(3, trie.size());
+
+        // 0 is a value like any other
+        Assert.assertEquals(0, trie.getInt("com.google", -1));
+        Assert.assertTrue(trie.containsKey("com.google"));
+        Assert.assertEquals(8, trie.getInt(new StringBuilder("com.google.mail"), -1));
+        Assert.assertEquals(-1, trie.getInt("com.goo", -1));
+        Assert.assertEquals(-1, trie.getInt("com", -1));
+        Assert.assertFalse(trie.containsKey("com"));
+        Assert.assertEquals(2, trie.countWithPrefix("com.goo"));
+        Assert.assertTrue(trie.hasPrefix("com.gi"));
+    }
+
+    @Test
+    public void testSplitKeepsValues() {
+        IntRadixTrie trie = new IntRadixTrie();
+        trie.putInt("abcdef", 1);
+        trie.putInt("abc", 2);
+        trie.putInt("abxy", 3);
+        trie.putInt("a", 4);
+        Assert.assertEquals(1, trie.getInt("abcdef", -1));
+        Assert.assertEquals(2, trie.getInt("abc", -1));
+        Assert.assertEquals(3, trie.getInt("abxy", -1));
+        Assert.assertEquals(4, trie.getInt("a", -1));
+        Assert.assertEquals(-1, trie.getInt("ab", -1));
+        Assert.assertEquals(4, trie.countWithPrefix("a"));
+        Assert.assertEquals(2, trie.countWithPrefix("abc"));
+    }
+
+    @Test
+    public void testCounting() {
+        Random random = new Random(17);
+        IntRadixTrie trie = new IntRadixTrie();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 100000; i++) {
+            String key = Integer.toString(random.nextInt(5000));
+            int count = expected.containsKey(key) ? expected.get(key) + 1 : 1;
+            expected.put(key, count);
+            Assert.assertEquals(count, trie.increment(key));
+        }
+        Assert.assertEquals(expected.size(), trie.size());
+        Assert.assertEquals(expected.get("42") + 10, trie.addTo("42", 10));
+        Assert.assertEquals(-5, trie.addTo("-5", -5));
+        expected.put("42", expected.get("42") + 10);
+        expected.put("-5", -5);
+
+        TreeMap<String, Integer> visited = new TreeMap<>();
+        String previous = "";
+        for (IntRadixTrie.Cursor cursor = trie.cursor(); cursor.next(); ) {
+            String key = cursor.key().toString();
+            Assert.assertTrue(previous.compareTo(key) < 0);
+            previous = key;
+            visited.put(key, cursor.value());
+        }
+        Assert.assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testRemove() {
+        IntRadixTrie trie = new IntRadixTrie();
+        trie.putInt("ab", 1);
+        trie.putInt("abc", 2);
+        Assert.assertEquals(1, trie.removeInt("ab"));
+        Assert.assertEquals(0, trie.removeInt("ab"));
+        Assert.assertEquals(0, trie.removeInt("a"));
+        Assert.assertFalse(trie.containsKey("ab"));
+        Assert.assertEquals(2, trie.getInt("abc", -1));
+        Assert.assertEquals(1, trie.size());
+        Assert.assertEquals(1, trie.countWithPrefix("a"));
+        Assert.assertEquals(1, trie.increment("ab"));
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertFalse(trie.cursor().next());
+    }
+
+    @Test
+    public void testPrefixCursor() {
+        IntRadixTrie trie = new IntRadixTrie();
+        for (String key : new String[] {"car", "cart", "carton", "cat", "dog"}) {
+            trie.putInt(key, key.length());
+        }
+        Map<String, Integer> visited = new TreeMap<>();
+        for (IntRadixTrie.Cursor cursor = trie.cursor("cart"); cursor.next(); ) {
+            visited.put(cursor.key().toString(), cursor.value());
+            cursor.setValue(0);
+        }
+        Assert.assertEquals("{cart=4, carton=6}", visited.toString());
+        Assert.assertEquals(0, trie.getInt("carton", -1));
+        Assert.assertEquals(3, trie.getInt("car", -1));
+
+        IntRadixTrie.Cursor cursor = trie.cursor("ca");
+        int count = 0;
+        while (cursor.next()) {
+            count++;
+        }
+        Assert.assertEquals(4, count);
+        Assert.assertFalse(trie.cursor("cb").next());
+        Assert.assertFalse(trie.cursor("cartons").next());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCursorBeforeNext() {
+        IntRadixTrie trie = new IntRadixTrie();
+        trie.putInt("a", 1);
+        trie.cursor().value();
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testCursorIsFailFast() {
+        IntRadixTrie trie = new IntRadixTrie();
+        trie.putInt("a", 1);
+        trie.putInt("b", 2);
+        IntRadixTrie.Cursor cursor = trie.cursor();
+        cursor.next();
+        trie.putInt("c", 3);
+        cursor.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() {
+        new IntRadixTrie().putInt("", 1);
+    }
+}
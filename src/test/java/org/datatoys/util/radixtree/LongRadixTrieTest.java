@@ -0,0 +1,57 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongRadixTrieTest {
+
+    @Test
+    public void testPutGet() {
+        LongRadixTrie trie = new LongRadixTrie();
+        Assert.assertEquals(0L, trie.putLong("offset", Long.MAX_VALUE));
+        Assert.assertEquals(0L, trie.putLong("off", 0L));
+        Assert.assertEquals(Long.MAX_VALUE, trie.putLong("offset", Long.MIN_VALUE));
+        Assert.assertEquals(Long.MIN_VALUE, trie.getLong("offset", -1L));
+        Assert.assertEquals(0L, trie.getLong("off", -1L));
+        Assert.assertEquals(-1L, trie.getLong("of", -1L));
+        Assert.assertEquals(2, trie.size());
+        Assert.assertEquals(0L, trie.removeLong("off"));
+        Assert.assertFalse(trie.containsKey("off"));
+        Assert.assertEquals(1, trie.countWithPrefix("o"));
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        Random random = new Random(18);
+        LongRadixTrie trie = new LongRadixTrie();
+        TreeMap<String, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 50000; i++) {
+            String key = Integer.toString(random.nextInt(3000), 7);
+            long delta = random.nextLong() >> 8;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Long old = expected.put(key, delta);
+                    Assert.assertEquals(old == null ? 0L : old, trie.putLong(key, delta));
+                    break;
+                case 1:
+                    long value = (expected.containsKey(key) ? expected.get(key) : 0L) + delta;
+                    expected.put(key, value);
+                    Assert.assertEquals(value, trie.addTo(key, delta));
+                    break;
+                default:
+                    Long removed = expected.remove(key);
+                    Assert.assertEquals(removed == null ? 0L : removed, trie.removeLong(key));
+            }
+        }
+        Assert.assertEquals(expected.size(), trie.size());
+        TreeMap<String, Long> visited = new TreeMap<>();
+        for (LongRadixTrie.Cursor cursor = trie.cursor(); cursor.next(); ) {
+            visited.put(cursor.key().toString(), cursor.value());
+        }
+        Assert.assertEquals(expected, visited);
+        Assert.assertEquals(expected.subMap("12", "13").size(), trie.countWithPrefix("12"));
+    }
+}
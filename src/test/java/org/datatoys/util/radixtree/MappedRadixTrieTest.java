@@ -0,0 +1,161 @@
+package org.datatoys.util.radixtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedRadixTrieTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        RadixTrie<String> radixTrie = new RadixTrie<>();
+        radixTrie.put("com.google.mail", "mail");
+        radixTrie.put("com.google.plus", "plus");
+        radixTrie.put("com.google", "google");
+        radixTrie.put("com.github", "");
+        radixTrie.put("org.wikipedia", "\u00e9t\u00e9");
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(radixTrie, ValueCodec.UTF8, path);
+
+        MappedRadixTrie<String> mapped = MappedRadixTrie.open(path, ValueCodec.UTF8);
+        Assert.assertEquals(5, mapped.size());
+        Assert.assertEquals(new TreeMap<>(radixTrie), mapped);
+        Assert.assertEquals("google", mapped.get("com.google"));
+        Assert.assertEquals("", mapped.get(new StringBuilder("com.github")));
+        Assert.assertEquals("\u00e9t\u00e9", mapped.get("org.wikipedia"));
+        Assert.assertTrue(mapped.containsKey("com.github"));
+        Assert.assertFalse(mapped.containsKey("com"));
+        Assert.assertNull(mapped.get("com.goo"));
+        Assert.assertEquals(3, mapped.countWithPrefix("com.goo"));
+        Assert.assertEquals(new ArrayList<>(radixTrie.prefixMap("com.g").entrySet()),
+            new ArrayList<>(mapped.prefixMap("com.g").entrySet()));
+        Assert.assertTrue(mapped.prefixMap("net").isEmpty());
+    }
+
+    @Test
+    public void testMatchesTreeMap() throws IOException {
+        Random random = new Random(8);
+        RadixTrie<Long> radixTrie = new RadixTrie<>();
+        TreeMap<String, Long> treeMap = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = String.valueOf(random.nextInt());
+            long value = random.nextLong();
+            radixTrie.put(key, value);
+            treeMap.put(key, value);
+        }
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(radixTrie, ValueCodec.LONG, path);
+        MappedRadixTrie<Long> mapped = MappedRadixTrie.open(path, ValueCodec.LONG);
+
+        Assert.assertEquals(radixTrie.freeze().nodeCount(), mapped.nodeCount());
+        Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(mapped.entrySet()));
+        for (String key : treeMap.keySet()) {
+            Assert.assertEquals(treeMap.get(key), mapped.get(key));
+            Assert.assertNull(mapped.get(key + "0"));
+        }
+        for (int i = 0; i < 200; i++) {
+            String prefix = String.valueOf(random.nextInt(2000) - 1000);
+            SortedMap<String, Long> expected = treeMap.subMap(prefix, prefix + Character.MAX_VALUE);
+            Assert.assertEquals(expected.size(), mapped.countWithPrefix(prefix));
+            Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(mapped.prefixMap(prefix).entrySet()));
+        }
+    }
+
+    @Test
+    public void testSmallSegments() throws IOException {
+        Random random = new Random(8);
+        RadixTrie<String> radixTrie = new RadixTrie<>();
+        TreeMap<String, String> treeMap = new TreeMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String key = Integer.toString(random.nextInt(100000), 2 + random.nextInt(30));
+            // values from empty to several segments long, straddling segment boundaries at every offset
+            char[] value = new char[random.nextInt(4) == 0 ? random.nextInt(200) : random.nextInt(8)];
+            Arrays.fill(value, (char) ('a' + random.nextInt(26)));
+            radixTrie.put(key, new String(value));
+            treeMap.put(key, new String(value));
+        }
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(radixTrie, ValueCodec.UTF8, path);
+        // segments of 64 bytes, the smallest that keeps the header in the first one
+        for (int segmentShift = 6; segmentShift <= MappedRadixTrie.SEGMENT_SHIFT; segmentShift += 12) {
+            MappedRadixTrie<String> mapped = MappedRadixTrie.open(path, ValueCodec.UTF8, segmentShift);
+            Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(mapped.entrySet()));
+            for (String key : treeMap.keySet()) {
+                Assert.assertEquals(treeMap.get(key), mapped.get(key));
+                Assert.assertEquals(treeMap.headMap(key).size(), mapped.indexOf(key));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyTrie() throws IOException {
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(new RadixTrie<Integer>(), ValueCodec.INTEGER, path);
+        MappedRadixTrie<Integer> mapped = MappedRadixTrie.open(path, ValueCodec.INTEGER);
+        Assert.assertTrue(mapped.isEmpty());
+        Assert.assertNull(mapped.get("a"));
+        Assert.assertFalse(mapped.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testCustomCodec() throws IOException {
+        ValueCodec<int[]> pairs = new ValueCodec<int[]>() {
+            @Override
+            public byte[] encode(int[] value) {
+                return ByteBuffer.allocate(8).putInt(value[0]).putInt(value[1]).array();
+            }
+
+            @Override
+            public int[] decode(ByteBuffer buffer, int offset, int length) {
+                return new int[] {buffer.getInt(offset), buffer.getInt(offset + 4)};
+            }
+        };
+        RadixTrie<int[]> radixTrie = new RadixTrie<>();
+        radixTrie.put("a", new int[] {1, 2});
+        radixTrie.put("ab", new int[] {3, 4});
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(radixTrie, pairs, path);
+        MappedRadixTrie<int[]> mapped = MappedRadixTrie.open(path, pairs);
+        Assert.assertArrayEquals(new int[] {1, 2}, mapped.get("a"));
+        Assert.assertArrayEquals(new int[] {3, 4}, mapped.get("ab"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, "not a radix trie file".getBytes("UTF-8"));
+        MappedRadixTrie.open(path, ValueCodec.UTF8);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedFiles() throws IOException {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.put("abc", 1);
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(radixTrie, ValueCodec.INTEGER, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        MappedRadixTrie.open(path, ValueCodec.INTEGER);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() throws IOException {
+        Path path = folder.newFile().toPath();
+        MappedRadixTrie.write(new RadixTrie<Integer>(), ValueCodec.INTEGER, path);
+        MappedRadixTrie.open(path, ValueCodec.INTEGER).put("a", 1);
+    }
+}
@@ -0,0 +1,235 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PersistentRadixTrieTest {
+
+    /**
+     * Checks that sizes add up, children are sorted by their first chars and nodes below the root hold a value or at
+     * least two children.
+     */
+    private static void checkNode(PersistentRadixTrieNode<?> node, boolean isRoot) {
+        int size = node.value != null ? 1 : 0;
+        int childCount = node.children == null ? 0 : node.children.length;
+        Assert.assertTrue(isRoot || node.value != null || childCount >= 2);
+        for (int i = 0; i < childCount; i++) {
+            PersistentRadixTrieNode<?> child = node.children[i];
+            Assert.assertTrue(child.chars.length > 0);
+            Assert.assertEquals(child.chars[0], node.firstChars[i]);
+            if (i > 0) {
+                Assert.assertTrue(node.firstChars[i - 1] < node.firstChars[i]);
+            }
+            checkNode(child, false);
+            size += child.size;
+        }
+        Assert.assertEquals(size, node.size);
+    }
+
+    private static void assertSameContents(Map<String, Integer> expected, PersistentRadixTrie<Integer> trie) {
+        checkNode(trie.root, true);
+        RadixTrieAssert.assertSameEntries(expected, trie.size(), trie);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentRadixTrie<Integer> empty = PersistentRadixTrie.empty();
+        PersistentRadixTrie<Integer> trie = empty.put("test", 1).put("team", 2).put("toast", 3);
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertEquals(3, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("test"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("team"));
+        Assert.assertNull(trie.get("te"));
+        Assert.assertNull(trie.get("tests"));
+        Assert.assertEquals(2, trie.countWithPrefix("te"));
+        Assert.assertEquals(1, trie.countWithPrefix("toa"));
+        Assert.assertEquals(0, trie.countWithPrefix("tx"));
+
+        Assert.assertSame(trie, trie.remove("tea"));
+        Assert.assertSame(trie, trie.put("test", trie.get("test")));
+        PersistentRadixTrie<Integer> removed = trie.remove("team");
+        Assert.assertNull(removed.get("team"));
+        Assert.assertEquals(2, removed.size());
+        Assert.assertNull(trie.put("test", null).get("test"));
+        checkNode(removed.root, true);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() {
+        PersistentRadixTrie.<Integer>empty().put(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() {
+        PersistentRadixTrie.<Integer>empty().put("", 1);
+    }
+
+    @Test
+    public void testVersionsAreUnaffectedByLaterChanges() {
+        Random random = new Random(20);
+        List<PersistentRadixTrie<Integer>> versions = new ArrayList<>();
+        List<TreeMap<String, Integer>> expectedVersions = new ArrayList<>();
+        PersistentRadixTrie<Integer> trie = PersistentRadixTrie.empty();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(5000), 3 + random.nextInt(8));
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key) != null, trie.remove(key) != trie);
+                trie = trie.remove(key);
+            } else {
+                expected.put(key, i);
+                trie = trie.put(key, i);
+            }
+            if (i % 500 == 0) {
+                versions.add(trie);
+                expectedVersions.add(new TreeMap<>(expected));
+            }
+        }
+        assertSameContents(expected, trie);
+        for (int i = 0; i < versions.size(); i++) {
+            assertSameContents(expectedVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    public void testUntouchedSubtreesAreShared() {
+        PersistentRadixTrie<Integer> trie = PersistentRadixTrie.<Integer>empty()
+                .put("apple", 1).put("apricot", 2).put("banana", 3).put("blueberry", 4);
+        PersistentRadixTrieNode<Integer> a = trie.root.findChild('a');
+        PersistentRadixTrieNode<Integer> b = trie.root.findChild('b');
+
+        PersistentRadixTrie<Integer> changed = trie.put("bilberry", 5);
+        Assert.assertSame(a, changed.root.findChild('a'));
+        Assert.assertNotSame(b, changed.root.findChild('b'));
+        Assert.assertNotSame(trie.root, changed.root);
+        Assert.assertSame(b.findChild('a'), changed.root.findChild('b').findChild('a'));
+
+        PersistentRadixTrie<Integer> removed = changed.remove("apple");
+        Assert.assertSame(changed.root.findChild('b'), removed.root.findChild('b'));
+        // "ap" is merged with its only remaining child
+        Assert.assertEquals("apricot", new String(removed.root.findChild('a').chars));
+        Assert.assertEquals("ap", new String(changed.root.findChild('a').chars));
+    }
+
+    @Test
+    public void testEditorChangesInPlaceUntilSnapshot() {
+        PersistentRadixTrie<Integer> base = PersistentRadixTrie.<Integer>empty().put("alpha", 1).put("beta", 2);
+        PersistentRadixTrie.Editor<Integer> editor = base.edit();
+        Assert.assertNull(editor.put("alpine", 3));
+        PersistentRadixTrieNode<Integer> copied = editor.snapshot().root.findChild('a');
+        Assert.assertNull(editor.put("alps", 4));
+        Assert.assertEquals(Integer.valueOf(3), editor.put("alpine", 5));
+        Assert.assertEquals(4, editor.size());
+
+        PersistentRadixTrie<Integer> first = editor.snapshot();
+        PersistentRadixTrieNode<Integer> owned = first.root.findChild('a');
+        // the first snapshot froze the node: the next change copied it once
+        Assert.assertNotSame(copied, owned);
+        Assert.assertSame(base.root.findChild('b'), first.root.findChild('b'));
+
+        Assert.assertEquals(Integer.valueOf(1), editor.remove("alpha"));
+        Assert.assertNull(editor.remove("alpha"));
+        editor.put("gamma", 6);
+        PersistentRadixTrie<Integer> second = editor.snapshot();
+
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("alpha", 1);
+        expected.put("beta", 2);
+        assertSameContents(expected, base);
+        expected.put("alpine", 5);
+        expected.put("alps", 4);
+        assertSameContents(expected, first);
+        expected.remove("alpha");
+        expected.put("gamma", 6);
+        assertSameContents(expected, second);
+    }
+
+    @Test
+    public void testRandomEditsMatchTreeMap() {
+        Random random = new Random(20);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        PersistentRadixTrie.Editor<Integer> editor = PersistentRadixTrie.<Integer>empty().edit();
+        List<PersistentRadixTrie<Integer>> snapshots = new ArrayList<>();
+        List<TreeMap<String, Integer>> expectedSnapshots = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            String key = Integer.toString(random.nextInt(20000), 3 + random.nextInt(8));
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), editor.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, i), editor.put(key, i));
+            }
+            if (random.nextInt(5000) == 0) {
+                snapshots.add(editor.snapshot());
+                expectedSnapshots.add(new TreeMap<>(expected));
+            }
+        }
+        PersistentRadixTrie<Integer> trie = editor.snapshot();
+        assertSameContents(expected, trie);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertSameContents(expectedSnapshots.get(i), snapshots.get(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            String prefix = Integer.toString(random.nextInt(20000), 3 + random.nextInt(8));
+            prefix = prefix.substring(0, 1 + random.nextInt(prefix.length()));
+            Assert.assertEquals(expected.subMap(prefix, prefix + Character.MAX_VALUE).size(), trie.countWithPrefix(prefix));
+        }
+        Assert.assertEquals(expected, trie.asMap());
+        Assert.assertEquals(expected, PersistentRadixTrie.copyOf(expected).asMap());
+    }
+
+    @Test
+    public void testReadersSeeConsistentVersions() throws InterruptedException {
+        // every version maps all keys to the same value, the number of the version
+        final int keys = 2000;
+        final int versions = 300;
+        PersistentRadixTrie.Editor<Integer> editor = PersistentRadixTrie.<Integer>empty().edit();
+        for (int k = 0; k < keys; k++) {
+            editor.put(Integer.toString(k, 7), 0);
+        }
+        final AtomicReference<PersistentRadixTrie<Integer>> published = new AtomicReference<>(editor.snapshot());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int last = 0;
+                        while (last < versions) {
+                            PersistentRadixTrie<Integer> trie = published.get();
+                            Integer version = trie.get("0");
+                            Assert.assertTrue(version >= last);
+                            Assert.assertEquals(keys, trie.size());
+                            for (Map.Entry<String, Integer> entry : trie) {
+                                Assert.assertEquals(version, entry.getValue());
+                            }
+                            last = version;
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (int v = 1; v <= versions; v++) {
+            for (int k = 0; k < keys; k++) {
+                editor.put(Integer.toString(k, 7), v);
+            }
+            published.set(editor.snapshot());
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+}
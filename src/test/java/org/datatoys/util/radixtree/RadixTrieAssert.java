@@ -0,0 +1,77 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+
+/**
+ * Fixtures and assertions on the contents and shape of radix tries, shared by the tests of the operations that build
+ * or reshape them.
+ */
+final class RadixTrieAssert {
+
+    private RadixTrieAssert() {
+    }
+
+    /**
+     * Returns a trie of reversed domain names, where com.google is both a key and the prefix of two other keys.
+     */
+    static RadixTrie<Integer> domains() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.put("com.google.mail", 1);
+        radixTrie.put("com.google.plus", 2);
+        radixTrie.put("com.google", 3);
+        radixTrie.put("com.github", 4);
+        radixTrie.put("org.wikipedia", 5);
+        return radixTrie;
+    }
+
+    /**
+     * Checks a size and the entries iterated in key order against the expected mappings.
+     */
+    static void assertSameEntries(Map<String, Integer> expected, int size,
+                                  Iterable<? extends Map.Entry<String, Integer>> entries) {
+        Assert.assertEquals(expected.size(), size);
+        List<Map.Entry<String, Integer>> actual = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            actual.add(entry);
+        }
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), actual);
+    }
+
+    /**
+     * Checks the trie against the expected mappings, in key order, and its shape against a trie built from them with
+     * puts.
+     */
+    static void assertSameContents(Map<String, Integer> expected, RadixTrie<Integer> trie) {
+        RadixTrie<Integer> rebuilt = new RadixTrie<>();
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            rebuilt.put(entry.getKey(), entry.getValue());
+        }
+        assertSameStructure(rebuilt.root, trie.root);
+        assertSameEntries(expected, trie.size(), trie.entrySet());
+    }
+
+    /**
+     * Checks that two tries have the same nodes, with the same values and sizes, that a node without children has no
+     * children list, and that every child can be found through the index of its parent.
+     */
+    static void assertSameStructure(RadixTrieNode<?> expected, RadixTrieNode<?> actual) {
+        Assert.assertArrayEquals(expected.chars, actual.chars);
+        Assert.assertEquals(expected.value, actual.value);
+        Assert.assertEquals(expected.size, actual.size);
+        int fanout = expected.children == null ? 0 : expected.children.size();
+        if (fanout == 0) {
+            Assert.assertNull(actual.children);
+        } else {
+            Assert.assertEquals(fanout, actual.children.size());
+        }
+        for (int i = 0; i < fanout; i++) {
+            RadixTrieNode<?> child = actual.children.get(i);
+            Assert.assertSame(child, actual.findChild(child.chars[0]));
+            assertSameStructure(expected.children.get(i), child);
+        }
+    }
+}
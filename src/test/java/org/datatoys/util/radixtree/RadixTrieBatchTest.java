@@ -0,0 +1,125 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieBatchTest {
+
+    /**
+     * Clustered keys such as "com.google.mail.17", many of them under the same few prefixes.
+     */
+    private static String clusteredKey(Random random) {
+        String[] hosts = {"com.google.mail", "com.google.maps", "com.google", "org.apache.commons", "net.example"};
+        return hosts[random.nextInt(hosts.length)] + "." + Integer.toString(random.nextInt(5000), 36);
+    }
+
+    @Test
+    public void testGetAll() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("test", 1);
+        trie.put("team", 2);
+        trie.put("toast", 3);
+        trie.put("te", 4);
+        List<CharSequence> keys = Arrays.<CharSequence>asList("toast", "te", "tea", "test", new StringBuilder("team"), "", "te", "x");
+        Assert.assertEquals(Arrays.asList(3, 4, null, 1, 2, null, 4, null), trie.getAll(keys));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetAllIntoShortArray() {
+        new RadixTrie<Integer>().getAll(new CharSequence[]{"a", "b"}, new Integer[1]);
+    }
+
+    @Test
+    public void testRandomGetAllMatchesGet() {
+        Random random = new Random(22);
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (int i = 0; i < 20000; i++) {
+            trie.put(clusteredKey(random), i);
+        }
+        CharSequence[] keys = new CharSequence[30000];
+        for (int i = 0; i < keys.length; i++) {
+            String key = clusteredKey(random);
+            keys[i] = random.nextInt(4) == 0 ? key.substring(0, random.nextInt(key.length() + 1)) : key;
+        }
+        Integer[] values = new Integer[keys.length];
+        trie.getAll(keys, values);
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(trie.get(keys[i]), values[i]);
+        }
+        // keys in ascending order are looked up in place
+        Arrays.sort(keys, new Comparator<CharSequence>() {
+            @Override
+            public int compare(CharSequence key1, CharSequence key2) {
+                return key1.toString().compareTo(key2.toString());
+            }
+        });
+        trie.getAll(keys, values);
+        for (int i = 0; i < keys.length; i++) {
+            Assert.assertEquals(trie.get(keys[i]), values[i]);
+        }
+    }
+
+    @Test
+    public void testPutAllMatchesPuts() {
+        Random random = new Random(22);
+        RadixTrie<Integer> expected = new RadixTrie<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        TreeMap<String, Integer> reference = new TreeMap<>();
+        for (int round = 0; round < 5; round++) {
+            // alternate between a hash map, sorted first, and a sorted map, walked as it is
+            Map<String, Integer> batch = round % 2 == 0 ? new HashMap<String, Integer>() : new TreeMap<String, Integer>();
+            for (int i = 0; i < 5000; i++) {
+                String key = clusteredKey(random);
+                batch.put(key, round * 10000 + i);
+            }
+            for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                expected.put(entry.getKey(), entry.getValue());
+            }
+            reference.putAll(batch);
+            trie.putAll(batch);
+            RadixTrieAssert.assertSameStructure(expected.root, trie.root);
+            Assert.assertEquals(reference.size(), trie.size());
+            Assert.assertEquals(new ArrayList<>(reference.entrySet()), new ArrayList<>(trie.entrySet()));
+        }
+    }
+
+    @Test
+    public void testPutAllWithNullValuesRemoves() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("com.google.mail", 1);
+        trie.put("com.google.maps", 2);
+        trie.put("com.google", 3);
+        TreeMap<String, Integer> batch = new TreeMap<>();
+        batch.put("com.google", null);
+        batch.put("com.google.mail", 4);
+        batch.put("com.google.maps", null);
+        batch.put("com.google.mail.inbox", 5);
+        trie.putAll(batch);
+        Assert.assertEquals(2, trie.size());
+        Assert.assertEquals(Integer.valueOf(4), trie.get("com.google.mail"));
+        Assert.assertEquals(Integer.valueOf(5), trie.get("com.google.mail.inbox"));
+        Assert.assertNull(trie.get("com.google"));
+
+        RadixTrie<Integer> expected = new RadixTrie<>();
+        expected.put("com.google.mail", 4);
+        expected.put("com.google.mail.inbox", 5);
+        RadixTrieAssert.assertSameStructure(expected.root, trie.root);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutAllEmptyKey() {
+        Map<String, Integer> batch = new HashMap<>();
+        batch.put("a", 1);
+        batch.put("", 2);
+        new RadixTrie<Integer>().putAll(batch);
+    }
+}
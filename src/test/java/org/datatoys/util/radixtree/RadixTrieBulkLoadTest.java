@@ -0,0 +1,151 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieBulkLoadTest {
+
+    private static RadixTrie<Integer> putOneByOne(Map<String, Integer> map) {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.putAll(map);
+        return radixTrie;
+    }
+
+    private static Map<String, Integer> randomKeys(Random random, int count, String... prefixes) {
+        Map<String, Integer> map = new HashMap<>();
+        while (map.size() < count) {
+            String key = prefixes[random.nextInt(prefixes.length)] + Integer.toString(random.nextInt(count * 4), 36);
+            map.put(key, map.size());
+        }
+        return map;
+    }
+
+    @Test
+    public void testFromSorted() {
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        for (String key : Arrays.asList("a", "ab", "abc", "abd", "abdef", "b", "ba", "c", "ca", "cab", "cb")) {
+            sorted.put(key, key.length());
+        }
+        RadixTrie<Integer> radixTrie = RadixTrie.fromSorted(sorted.entrySet().iterator());
+        RadixTrieAssert.assertSameStructure(putOneByOne(sorted).root, radixTrie.root);
+        Assert.assertEquals(sorted.size(), radixTrie.size());
+        Assert.assertEquals(new ArrayList<>(sorted.entrySet()), new ArrayList<>(radixTrie.entrySet()));
+        Assert.assertEquals(4, radixTrie.countWithPrefix("ab"));
+    }
+
+    @Test
+    public void testFromSortedStream() {
+        Map<String, Integer> map = randomKeys(new Random(9), 20000, "", "com.", "org.example.");
+        RadixTrie<Integer> radixTrie = RadixTrie.fromSorted(new TreeMap<>(map).entrySet().stream());
+        RadixTrieAssert.assertSameStructure(putOneByOne(map).root, radixTrie.root);
+    }
+
+    @Test
+    public void testFromSortedSkipsNullValues() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        entries.add(new AbstractMap.SimpleEntry<>("a", 1));
+        entries.add(new AbstractMap.SimpleEntry<String, Integer>("ab", null));
+        entries.add(new AbstractMap.SimpleEntry<>("b", 2));
+        RadixTrie<Integer> radixTrie = RadixTrie.fromSorted(entries.iterator());
+        Assert.assertEquals(2, radixTrie.size());
+        Assert.assertNull(radixTrie.get("ab"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSortedRejectsUnsortedKeys() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        entries.add(new AbstractMap.SimpleEntry<>("abc", 1));
+        entries.add(new AbstractMap.SimpleEntry<>("ab", 2));
+        RadixTrie.fromSorted(entries.iterator());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSortedRejectsDuplicateKeys() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        entries.add(new AbstractMap.SimpleEntry<>("ab", 1));
+        entries.add(new AbstractMap.SimpleEntry<>("ab", 2));
+        RadixTrie.fromSorted(entries.iterator());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSortedRejectsEmptyKeys() {
+        RadixTrie.fromSorted(Collections.singletonMap("", 1).entrySet().iterator());
+    }
+
+    @Test
+    public void testCopyOf() {
+        // a shared prefix longer than one character, and groups both above and below the sequential threshold
+        Map<String, Integer> map = randomKeys(new Random(10), 100000, "com.", "com.google.", "org.", "net.a", "x");
+        map.put("com.", -1);
+        map.put("com.google", -2);
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(map);
+        RadixTrieAssert.assertSameStructure(putOneByOne(map).root, radixTrie.root);
+        Assert.assertEquals(map.size(), radixTrie.size());
+        Assert.assertEquals(new ArrayList<>(new TreeMap<>(map).entrySet()), new ArrayList<>(radixTrie.entrySet()));
+    }
+
+    @Test
+    public void testCopyOfOnPool() {
+        Map<String, Integer> map = randomKeys(new Random(11), 50000, "", "a", "ab");
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            RadixTrieAssert.assertSameStructure(putOneByOne(map).root, RadixTrie.copyOf(map, pool).root);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCopyOfChain() {
+        // every key is a prefix of the next, so the build never branches
+        Map<String, Integer> map = new HashMap<>();
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 6000; i++) {
+            map.put(key.append('a').toString(), i);
+        }
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(map);
+        Assert.assertEquals(map.size(), radixTrie.size());
+        Assert.assertEquals(new Integer(5999), radixTrie.get(key.toString()));
+        Assert.assertEquals(6000 - 2999, radixTrie.countWithPrefix(key.substring(0, 3000)));
+    }
+
+    @Test
+    public void testCopyOfSortedAndEmptyMaps() {
+        Map<String, Integer> map = randomKeys(new Random(12), 1000, "p");
+        RadixTrieAssert.assertSameStructure(putOneByOne(map).root, RadixTrie.copyOf(new TreeMap<>(map)).root);
+        RadixTrieAssert.assertSameStructure(putOneByOne(map).root, RadixTrie.copyOf(putOneByOne(map)).root);
+        RadixTrie<Integer> empty = RadixTrie.copyOf(new HashMap<String, Integer>());
+        Assert.assertTrue(empty.isEmpty());
+        Assert.assertNull(empty.root.children);
+        Assert.assertFalse(empty.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testBuiltTrieIsMutable() {
+        Map<String, Integer> map = randomKeys(new Random(13), 30000, "", "abc");
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(map);
+        TreeMap<String, Integer> expected = new TreeMap<>(map);
+        Random random = new Random(14);
+        for (int i = 0; i < 10000; i++) {
+            String key = "ab" + Integer.toString(random.nextInt(100000), 36);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, i), radixTrie.put(key, i));
+            } else {
+                Assert.assertEquals(expected.remove(key), radixTrie.remove(key));
+            }
+        }
+        Assert.assertEquals(expected.size(), radixTrie.size());
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(radixTrie.entrySet()));
+    }
+}
@@ -0,0 +1,117 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieFuzzyTest {
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], row[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static List<String> keys(List<Map.Entry<String, Integer>> entries) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static RadixTrie<Integer> words() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        String[] words = {"hello", "help", "hell", "shell", "yellow", "world", "word", "sword", "wordy"};
+        for (int i = 0; i < words.length; i++) {
+            radixTrie.put(words[i], i);
+        }
+        return radixTrie;
+    }
+
+    @Test
+    public void testRankedMatches() {
+        RadixTrie<Integer> radixTrie = words();
+        Assert.assertEquals(Arrays.asList("hell", "hello", "help"), keys(radixTrie.fuzzyMatches("helo", 1)));
+        Assert.assertEquals(Arrays.asList("hell", "hello", "help", "shell"), keys(radixTrie.fuzzyMatches("helo", 2)));
+
+        // the exact match comes first, then the keys one edit away in key order
+        Assert.assertEquals(Arrays.asList("word", "sword", "wordy", "world"), keys(radixTrie.fuzzyMatches("word", 1)));
+        Assert.assertEquals(Integer.valueOf(6), radixTrie.fuzzyMatches("word", 1).get(0).getValue());
+    }
+
+    @Test
+    public void testMatchesAreSnapshots() {
+        RadixTrie<Integer> radixTrie = words();
+        Map.Entry<String, Integer> match = radixTrie.fuzzyMatches("shell", 0).get(0);
+        radixTrie.put("she", 10);
+        radixTrie.put("shell", 11);
+        Assert.assertEquals("shell", match.getKey());
+        Assert.assertEquals(Integer.valueOf(3), match.getValue());
+        try {
+            match.setValue(12);
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            // snapshots can not be written through
+        }
+        Assert.assertEquals(Integer.valueOf(10), radixTrie.get("she"));
+    }
+
+    @Test
+    public void testExactAndEmptyQuery() {
+        RadixTrie<Integer> radixTrie = words();
+        Assert.assertEquals(Arrays.asList("shell"), keys(radixTrie.fuzzyMatches("shell", 0)));
+        Assert.assertTrue(radixTrie.fuzzyMatches("shel", 0).isEmpty());
+        Assert.assertEquals(Arrays.asList("hell", "help", "word"), keys(radixTrie.fuzzyMatches("", 4)));
+        Assert.assertTrue(new RadixTrie<Integer>().fuzzyMatches("word", 2).isEmpty());
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(14);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(8); length > 0; length--) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            radixTrie.put(key.toString(), i);
+        }
+        for (int i = 0; i < 100; i++) {
+            String query = Integer.toString(random.nextInt(10000), 4).replace('0', 'a').replace('1', 'b').replace('2', 'c').replace('3', 'd');
+            int maxEdits = random.nextInt(3);
+            List<String> expected = new ArrayList<>();
+            for (int distance = 0; distance <= maxEdits; distance++) {
+                for (String key : radixTrie.keySet()) {
+                    if (levenshtein(key, query) == distance) {
+                        expected.add(key);
+                    }
+                }
+            }
+            Assert.assertEquals(expected, keys(radixTrie.fuzzyMatches(query, maxEdits)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeEdits() {
+        words().fuzzyMatches("word", -1);
+    }
+}
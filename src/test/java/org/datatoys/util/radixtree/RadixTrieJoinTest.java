@@ -0,0 +1,158 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieJoinTest {
+
+    private static final BinaryOperator<Integer> SUM = new BinaryOperator<Integer>() {
+        @Override
+        public Integer apply(Integer v1, Integer v2) {
+            return v1 + v2;
+        }
+    };
+
+    private static TreeMap<String, Integer> randomMap(Random random, int count, int radix) {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            map.put(Integer.toString(random.nextInt(20000), radix), random.nextInt(100));
+        }
+        return map;
+    }
+
+    private static RadixTrie<Integer> trieOf(Map<String, Integer> map) {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            trie.put(entry.getKey(), entry.getValue());
+        }
+        return trie;
+    }
+
+    @Test
+    public void testMerge() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("test", 1);
+        trie.put("toast", 2);
+        RadixTrie<Integer> other = new RadixTrie<>();
+        other.put("te", 10);
+        other.put("test", 20);
+        other.put("team", 30);
+        other.put("slow", 40);
+        trie.merge(other, SUM);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("te", 10);
+        expected.put("test", 21);
+        expected.put("team", 30);
+        expected.put("toast", 2);
+        expected.put("slow", 40);
+        RadixTrieAssert.assertSameContents(expected, trie);
+
+        // grafted subtrees are copies
+        other.put("slowly", 50);
+        other.remove("slow");
+        Assert.assertEquals(Integer.valueOf(40), trie.get("slow"));
+        Assert.assertNull(trie.get("slowly"));
+    }
+
+    @Test
+    public void testMergeWithNullResultsRemoves() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("te", 1);
+        trie.put("test", 2);
+        trie.put("team", 3);
+        RadixTrie<Integer> other = new RadixTrie<>();
+        other.put("test", 2);
+        other.put("te", 5);
+        trie.merge(other, new BinaryOperator<Integer>() {
+            @Override
+            public Integer apply(Integer v1, Integer v2) {
+                return v1.equals(v2) ? null : v2;
+            }
+        });
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("te", 5);
+        expected.put("team", 3);
+        RadixTrieAssert.assertSameContents(expected, trie);
+    }
+
+    @Test
+    public void testRetainAllAndRemoveAll() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("te", 1);
+        trie.put("test", 2);
+        trie.put("team", 3);
+        trie.put("toast", 4);
+        RadixTrie<String> other = new RadixTrie<>();
+        other.put("test", "a");
+        other.put("tea", "b");
+        other.put("toaster", "c");
+
+        RadixTrie<Integer> retained = trieOf(trie);
+        retained.retainAll(other);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("test", 2);
+        RadixTrieAssert.assertSameContents(expected, retained);
+
+        trie.removeAll(other);
+        expected.clear();
+        expected.put("te", 1);
+        expected.put("team", 3);
+        expected.put("toast", 4);
+        RadixTrieAssert.assertSameContents(expected, trie);
+
+        trie.retainAll(new RadixTrie<Object>());
+        Assert.assertTrue(trie.isEmpty());
+        RadixTrieAssert.assertSameContents(new TreeMap<String, Integer>(), trie);
+    }
+
+    @Test
+    public void testJoinWithItself() {
+        Random random = new Random(23);
+        TreeMap<String, Integer> map = randomMap(random, 2000, 7);
+        RadixTrie<Integer> trie = trieOf(map);
+        trie.retainAll(trie);
+        RadixTrieAssert.assertSameContents(map, trie);
+        trie.merge(trie, SUM);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entry.setValue(entry.getValue() * 2);
+        }
+        RadixTrieAssert.assertSameContents(map, trie);
+        trie.removeAll(trie);
+        RadixTrieAssert.assertSameContents(new TreeMap<String, Integer>(), trie);
+    }
+
+    @Test
+    public void testRandomJoinsMatchTreeMap() {
+        Random random = new Random(23);
+        for (int round = 0; round < 30; round++) {
+            // different radixes give keys of different lengths and shapes on both sides
+            TreeMap<String, Integer> left = randomMap(random, 1 + random.nextInt(3000), 2 + random.nextInt(9));
+            TreeMap<String, Integer> right = randomMap(random, random.nextInt(3000), 2 + random.nextInt(9));
+
+            RadixTrie<Integer> merged = trieOf(left);
+            merged.merge(trieOf(right), SUM);
+            TreeMap<String, Integer> expected = new TreeMap<>(left);
+            for (Map.Entry<String, Integer> entry : right.entrySet()) {
+                expected.merge(entry.getKey(), entry.getValue(), SUM);
+            }
+            RadixTrieAssert.assertSameContents(expected, merged);
+
+            RadixTrie<Integer> retained = trieOf(left);
+            retained.retainAll(trieOf(right));
+            expected = new TreeMap<>(left);
+            expected.keySet().retainAll(right.keySet());
+            RadixTrieAssert.assertSameContents(expected, retained);
+
+            RadixTrie<Integer> removed = trieOf(left);
+            removed.removeAll(trieOf(right));
+            expected = new TreeMap<>(left);
+            expected.keySet().removeAll(right.keySet());
+            RadixTrieAssert.assertSameContents(expected, removed);
+        }
+    }
+}
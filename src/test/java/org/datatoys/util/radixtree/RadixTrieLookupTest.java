@@ -0,0 +1,79 @@
+package org.datatoys.util.radixtree;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieLookupTest {
+
+    @Test
+    public void testGetCharSequence() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertEquals(new Integer(1), radixTrie.get(new StringBuilder("com.google.mail")));
+        Assert.assertEquals(new Integer(3), radixTrie.get(CharBuffer.wrap("com.google")));
+        Assert.assertNull(radixTrie.get(new StringBuilder("com.google.mai")));
+        Assert.assertNull(radixTrie.get(new StringBuilder("com.google.mails")));
+        Assert.assertNull(radixTrie.get(new StringBuilder("")));
+        Assert.assertTrue(radixTrie.containsKey(new StringBuilder("org.wikipedia")));
+        Assert.assertFalse(radixTrie.containsKey(new StringBuilder("org.")));
+    }
+
+    @Test
+    public void testGetCharArraySlice() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        char[] buf = "xxcom.google.plusxx".toCharArray();
+        Assert.assertEquals(new Integer(2), radixTrie.get(buf, 2, 15));
+        Assert.assertEquals(new Integer(3), radixTrie.get(buf, 2, 10));
+        Assert.assertNull(radixTrie.get(buf, 2, 16));
+        Assert.assertNull(radixTrie.get(buf, 0, 0));
+        Assert.assertTrue(radixTrie.containsKey(buf, 2, 15));
+        Assert.assertFalse(radixTrie.containsKey(buf, 1, 15));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetCharArraySliceOutOfBounds() {
+        RadixTrieAssert.domains().get("com".toCharArray(), 1, 3);
+    }
+
+    @Test
+    public void testGetNonStringObject() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertNull(radixTrie.get((Object) 1));
+        Assert.assertFalse(radixTrie.containsKey((Object) new StringBuilder("com.google")));
+    }
+
+    @Test
+    public void testVeryLongKeys() {
+        // a chain of one character nodes, far deeper than a recursive walk could handle
+        int depth = 200000;
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        RadixTrieNode<Integer> node = radixTrie.root;
+        node.size = depth;
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            RadixTrieNode<Integer> child = new RadixTrieNode<>();
+            child.chars = new char[]{(char) ('a' + i % 26)};
+            child.value = i;
+            child.size = depth - i;
+            node.children = new ArrayList<>();
+            node.children.add(child);
+            node = child;
+            key.append(child.chars[0]);
+        }
+
+        Assert.assertEquals(new Integer(depth - 1), radixTrie.get(key));
+        Assert.assertEquals(new Integer(depth / 2 - 1), radixTrie.get(key.substring(0, depth / 2)));
+
+        key.append("end");
+        radixTrie.put(key.toString(), -1);
+        Assert.assertEquals(new Integer(-1), radixTrie.get(key.toString()));
+
+        int count = 0;
+        for (Integer ignored : radixTrie.values()) {
+            count++;
+        }
+        Assert.assertEquals(depth + 1, count);
+    }
+}
@@ -0,0 +1,150 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieMatchTest {
+
+    private static RadixTrie<Integer> trieOf(String... keys) {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (int i = 0; i < keys.length; i++) {
+            trie.put(keys[i], i);
+        }
+        return trie;
+    }
+
+    private static List<String> keys(List<Map.Entry<String, Integer>> entries) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * The regular expression equivalent to a glob, the reference the trie is checked against.
+     */
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                if (c == '\\') {
+                    c = glob.charAt(++i);
+                }
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static List<String> filter(TreeMap<String, Integer> map, Pattern pattern) {
+        List<String> keys = new ArrayList<>();
+        for (String key : map.keySet()) {
+            if (pattern.matcher(key).matches()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void testGlob() {
+        RadixTrie<Integer> trie = trieOf("com.google.mail", "com.yahoo.mail", "com.google.maps", "com.mail",
+                "org.foo.bar", "org.foo.car", "org.foo.scar", "org.foo.ba");
+        Assert.assertEquals(Arrays.asList("com.google.mail", "com.yahoo.mail"), keys(trie.match("com.*.mail")));
+        Assert.assertEquals(Arrays.asList("org.foo.bar", "org.foo.car"), keys(trie.match("org.foo.?ar")));
+        Assert.assertEquals(Arrays.asList("com.google.mail", "com.google.maps"), keys(trie.match("com.google.*")));
+        Assert.assertEquals(Arrays.asList("com.google.mail", "com.mail", "com.yahoo.mail"), keys(trie.match("*mail")));
+        Assert.assertEquals(8, trie.match("*").size());
+        Assert.assertEquals(8, trie.match("**").size());
+        Assert.assertEquals(Arrays.asList("org.foo.ba"), keys(trie.match("org.foo.ba")));
+        Assert.assertTrue(trie.match("org.foo.b").isEmpty());
+        Assert.assertTrue(trie.match("").isEmpty());
+        Assert.assertTrue(trie.match("com.*.mail.*").isEmpty());
+
+        // the entries are snapshots, which later changes to the trie leave alone
+        Map.Entry<String, Integer> entry = trie.match("org.*.scar").get(0);
+        trie.put("org.foo.scar", 42);
+        trie.put("org.foo.s", 43);
+        Assert.assertEquals("org.foo.scar", entry.getKey());
+        Assert.assertEquals(Integer.valueOf(6), entry.getValue());
+        try {
+            entry.setValue(44);
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            // snapshots can not be written through
+        }
+        Assert.assertEquals(Integer.valueOf(42), trie.get("org.foo.scar"));
+    }
+
+    @Test
+    public void testGlobEscapes() {
+        RadixTrie<Integer> trie = trieOf("a*b", "a?b", "axb", "a\\b", "a*bc");
+        Assert.assertEquals(Arrays.asList("a*b"), keys(trie.match("a\\*b")));
+        Assert.assertEquals(Arrays.asList("a?b"), keys(trie.match("a\\?b")));
+        Assert.assertEquals(Arrays.asList("a\\b"), keys(trie.match("a\\\\b")));
+        Assert.assertEquals(Arrays.asList("a*b", "a?b", "a\\b", "axb"), keys(trie.match("a?b")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDanglingEscape() {
+        trieOf("a").match("a\\");
+    }
+
+    @Test
+    public void testRegex() {
+        RadixTrie<Integer> trie = trieOf("a", "ab", "abc", "b", "ba");
+        Assert.assertEquals(Arrays.asList("a", "ab"), keys(trie.match(Pattern.compile("a|ab"))));
+        Assert.assertEquals(Arrays.asList("ab", "abc", "ba"), keys(trie.match(Pattern.compile("[ab]{2}c?"))));
+        Assert.assertEquals(Arrays.asList("a", "ab", "abc", "b", "ba"), keys(trie.match(Pattern.compile(".*"))));
+        Assert.assertTrue(trie.match(Pattern.compile("c.*")).isEmpty());
+    }
+
+    @Test
+    public void testRandomPatternsMatchFilteredKeys() {
+        Random random = new Random(24);
+        String alphabet = "abc.";
+        TreeMap<String, Integer> map = new TreeMap<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(10); length > 0; length--) {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            map.put(key.toString(), i);
+            trie.put(key.toString(), i);
+        }
+        String globChars = "abc.abc.?*\\";
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder glob = new StringBuilder();
+            for (int length = random.nextInt(8); length > 0; length--) {
+                char c = globChars.charAt(random.nextInt(globChars.length()));
+                glob.append(c);
+                if (c == '\\') {
+                    glob.append("*?\\a".charAt(random.nextInt(4)));
+                }
+            }
+            Pattern regex = toRegex(glob.toString());
+            List<String> expected = filter(map, regex);
+            Assert.assertEquals(glob.toString(), expected, keys(trie.match(glob.toString())));
+            Assert.assertEquals(regex.pattern(), expected, keys(trie.match(regex)));
+        }
+        for (String regex : Arrays.asList("a(b|c)*", "(ab|a)+\\.?", "[^.]*\\.c", "a{2,3}.*b", "(?=.*c)a.*", ".?b+")) {
+            Pattern pattern = Pattern.compile(regex);
+            Assert.assertEquals(regex, filter(map, pattern), keys(trie.match(pattern)));
+        }
+    }
+}
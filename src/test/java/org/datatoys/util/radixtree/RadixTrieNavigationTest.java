@@ -0,0 +1,225 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieNavigationTest {
+
+    private static String randomKey(Random random) {
+        return Integer.toString(random.nextInt(3000), 2 + random.nextInt(6));
+    }
+
+    private static void fill(Random random, TreeMap<String, Integer> expected, RadixTrie<Integer> trie, int count) {
+        for (int i = 0; i < count; i++) {
+            String key = randomKey(random);
+            expected.put(key, i);
+            trie.put(key, i);
+        }
+    }
+
+    private static void assertSameNavigation(Random random, NavigableMap<String, Integer> expected, NavigableMap<String, Integer> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.navigableKeySet()));
+        Assert.assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(actual.values()));
+        Assert.assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(actual.descendingKeySet()));
+        Assert.assertEquals(expected.firstEntry(), actual.firstEntry());
+        Assert.assertEquals(expected.lastEntry(), actual.lastEntry());
+        for (int i = 0; i < 200; i++) {
+            String key = randomKey(random);
+            if (random.nextBoolean()) {
+                key = key.substring(0, random.nextInt(key.length() + 1));
+            }
+            Assert.assertEquals(key, expected.lowerEntry(key), actual.lowerEntry(key));
+            Assert.assertEquals(key, expected.floorEntry(key), actual.floorEntry(key));
+            Assert.assertEquals(key, expected.ceilingEntry(key), actual.ceilingEntry(key));
+            Assert.assertEquals(key, expected.higherEntry(key), actual.higherEntry(key));
+            Assert.assertEquals(key, expected.higherKey(key), actual.higherKey(key));
+            Assert.assertEquals(key, expected.get(key), actual.get(key));
+        }
+    }
+
+    @Test
+    public void testNavigation() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("test", 1);
+        trie.put("team", 2);
+        trie.put("toast", 3);
+        trie.put("te", 4);
+        Assert.assertEquals("te", trie.firstKey());
+        Assert.assertEquals("toast", trie.lastKey());
+        Assert.assertEquals("team", trie.ceilingKey("tea"));
+        Assert.assertEquals("te", trie.floorKey("tea"));
+        Assert.assertEquals("te", trie.lowerKey("team"));
+        Assert.assertEquals("test", trie.higherKey("team"));
+        Assert.assertEquals("test", trie.floorKey("tesz"));
+        Assert.assertEquals("toast", trie.floorKey("zzz"));
+        Assert.assertNull(trie.lowerKey("te"));
+        Assert.assertNull(trie.higherKey("toast"));
+        Assert.assertEquals(Arrays.asList("team", "test"), new ArrayList<>(trie.subMap("tea", "tf").keySet()));
+        Assert.assertEquals(Arrays.asList("toast", "test", "team", "te"), new ArrayList<>(trie.descendingKeySet()));
+        Assert.assertNull(trie.comparator());
+    }
+
+    @Test
+    public void testEmptyTrie() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        Assert.assertNull(trie.firstEntry());
+        Assert.assertNull(trie.lastEntry());
+        Assert.assertNull(trie.ceilingKey(""));
+        Assert.assertNull(trie.floorKey("a"));
+        Assert.assertNull(trie.pollFirstEntry());
+        Assert.assertTrue(trie.headMap("m").isEmpty());
+        try {
+            trie.firstKey();
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNavigationEntriesAreSnapshots() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("a", 1);
+        trie.firstEntry().setValue(2);
+    }
+
+    @Test
+    public void testEqualsOtherMaps() {
+        Random random = new Random(21);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        fill(random, expected, trie, 500);
+        Assert.assertEquals(expected, trie);
+        Assert.assertEquals(trie, expected);
+        Assert.assertEquals(expected.hashCode(), trie.hashCode());
+        Assert.assertEquals(expected.toString(), trie.toString());
+        Assert.assertEquals(expected.headMap("5"), trie.headMap("5"));
+        trie.put("x", -1);
+        Assert.assertNotEquals(trie, expected);
+        Assert.assertNotEquals(expected, trie);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullBound() {
+        new RadixTrie<Integer>().headMap(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvertedRange() {
+        new RadixTrie<Integer>().subMap("b", "a");
+    }
+
+    @Test
+    public void testRandomNavigationMatchesTreeMap() {
+        Random random = new Random(21);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        fill(random, expected, trie, 3000);
+        assertSameNavigation(random, expected, trie);
+        assertSameNavigation(random, expected.descendingMap(), trie.descendingMap());
+        for (int i = 0; i < 50; i++) {
+            String from = randomKey(random);
+            String to = randomKey(random);
+            if (from.compareTo(to) > 0) {
+                String swap = from;
+                from = to;
+                to = swap;
+            }
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            NavigableMap<String, Integer> expectedRange = expected.subMap(from, fromInclusive, to, toInclusive);
+            NavigableMap<String, Integer> range = trie.subMap(from, fromInclusive, to, toInclusive);
+            assertSameNavigation(random, expectedRange, range);
+            assertSameNavigation(random, expectedRange.descendingMap(), range.descendingMap());
+            assertSameNavigation(random, expected.headMap(to, toInclusive), trie.headMap(to, toInclusive));
+            assertSameNavigation(random, expected.tailMap(from, fromInclusive), trie.tailMap(from, fromInclusive));
+            // views of views, clipped by both ranges
+            if (!expectedRange.isEmpty()) {
+                String middle = expectedRange.ceilingKey(randomKey(random));
+                if (middle != null) {
+                    assertSameNavigation(random, expectedRange.tailMap(middle, false), range.tailMap(middle, false));
+                    assertSameNavigation(random, expectedRange.descendingMap().headMap(middle, true),
+                            range.descendingMap().headMap(middle, true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRangeViewsAreLive() {
+        Random random = new Random(21);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        fill(random, expected, trie, 2000);
+        NavigableMap<String, Integer> expectedRange = expected.subMap("1", true, "2", false);
+        NavigableMap<String, Integer> range = trie.subMap("1", true, "2", false);
+        range.put("1zz", -1);
+        expectedRange.put("1zz", -1);
+        trie.put("0zz", -2);
+        expected.put("0zz", -2);
+        Assert.assertNull(range.remove("0zz"));
+        try {
+            range.put("2", 1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(expectedRange.pollFirstEntry(), range.pollFirstEntry());
+        Assert.assertEquals(expectedRange.pollLastEntry(), range.pollLastEntry());
+        assertSameNavigation(random, expectedRange, range);
+        assertSameNavigation(random, expected, trie);
+    }
+
+    @Test
+    public void testIteratorRemovalInRanges() {
+        Random random = new Random(21);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        fill(random, expected, trie, 3000);
+        for (NavigableSet<String> keys : Arrays.asList(trie.subMap("10", false, "2", true).navigableKeySet(),
+                trie.tailMap("3", true).descendingKeySet(), trie.headMap("11", false).descendingKeySet())) {
+            int count = 0;
+            for (Iterator<String> it = keys.iterator(); it.hasNext(); ) {
+                String key = it.next();
+                if (count++ % 3 != 0) {
+                    it.remove();
+                    expected.remove(key);
+                }
+            }
+            assertSameNavigation(random, expected, trie);
+        }
+        NavigableSet<String> expectedKeys = expected.navigableKeySet().subSet("1", true, "4", false);
+        NavigableSet<String> keys = trie.navigableKeySet().subSet("1", true, "4", false);
+        Assert.assertEquals(expectedKeys.pollFirst(), keys.pollFirst());
+        Assert.assertEquals(expectedKeys.pollLast(), keys.pollLast());
+        keys.clear();
+        expectedKeys.clear();
+        assertSameNavigation(random, expected, trie);
+    }
+
+    @Test
+    public void testMapEntriesAreLiveInIteration() {
+        RadixTrie<Integer> trie = new RadixTrie<>();
+        trie.put("a", 1);
+        trie.put("ab", 2);
+        trie.put("b", 3);
+        for (Map.Entry<String, Integer> entry : trie.descendingMap().entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        Assert.assertEquals(Integer.valueOf(20), trie.get("ab"));
+        Assert.assertEquals(Integer.valueOf(30), trie.get("b"));
+    }
+}
@@ -0,0 +1,124 @@
+package org.datatoys.util.radixtree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieNodeTest {
+
+    private static RadixTrieNode<Integer> leaf(String chars) {
+        RadixTrieNode<Integer> node = new RadixTrieNode<>();
+        node.chars = chars.toCharArray();
+        return node;
+    }
+
+    private static void add(RadixTrieNode<Integer> parent, String chars) {
+        int idx = parent.childIndex(chars.charAt(0));
+        Assert.assertTrue("duplicate first character " + chars, idx < 0);
+        parent.addChild(-idx - 1, leaf(chars));
+    }
+
+    private static void assertSorted(RadixTrieNode<Integer> parent) {
+        for (int i = 1; i < parent.children.size(); i++) {
+            Assert.assertTrue(parent.children.get(i - 1).chars[0] < parent.children.get(i).chars[0]);
+        }
+    }
+
+    @Test
+    public void testSmallNodeIsScanned() {
+        RadixTrieNode<Integer> parent = new RadixTrieNode<>();
+        add(parent, "foo");
+        add(parent, "bar");
+        add(parent, "zap");
+
+        Assert.assertNull(parent.firstChars);
+        Assert.assertNull(parent.direct);
+        assertSorted(parent);
+        Assert.assertEquals("bar", parent.findChild('b').toString());
+        Assert.assertEquals("zap", parent.findChild('z').toString());
+        Assert.assertNull(parent.findChild('a'));
+        Assert.assertNull(parent.findChild('g'));
+        Assert.assertEquals(-3, parent.childIndex('g'));
+    }
+
+    @Test
+    public void testDenseNodeUsesDirectTable() {
+        RadixTrieNode<Integer> parent = new RadixTrieNode<>();
+        for (char c = '9'; c >= '0'; c--) {
+            add(parent, c + "123");
+        }
+
+        Assert.assertNotNull(parent.direct);
+        Assert.assertNull(parent.firstChars);
+        Assert.assertEquals(10, parent.direct.length);
+        assertSorted(parent);
+        for (char c = '0'; c <= '9'; c++) {
+            Assert.assertEquals(c + "123", parent.findChild(c).toString());
+        }
+        Assert.assertNull(parent.findChild('/'));
+        Assert.assertNull(parent.findChild(':'));
+        Assert.assertNull(parent.findChild('\uffff'));
+    }
+
+    @Test
+    public void testSparseNodeUsesSortedIndex() {
+        RadixTrieNode<Integer> parent = new RadixTrieNode<>();
+        String[] labels = {"alpha", "\u4e2d\u6587", "omega", "zulu", "Kilo", "#hash", "\u00e9t\u00e9"};
+        for (String label : labels) {
+            add(parent, label);
+        }
+
+        Assert.assertNotNull(parent.firstChars);
+        Assert.assertNull(parent.direct);
+        assertSorted(parent);
+        for (String label : labels) {
+            Assert.assertEquals(label, parent.findChild(label.charAt(0)).toString());
+            Assert.assertEquals(label, parent.children.get(parent.childIndex(label.charAt(0))).toString());
+        }
+        Assert.assertNull(parent.findChild('b'));
+    }
+
+    @Test
+    public void testLayoutFollowsFanout() {
+        RadixTrieNode<Integer> parent = new RadixTrieNode<>();
+        for (char c = 'a'; c < 'a' + RadixTrieNode.SCAN_MAX_FANOUT; c++) {
+            add(parent, String.valueOf(c));
+        }
+        Assert.assertNull(parent.direct);
+        Assert.assertNull(parent.firstChars);
+
+        add(parent, "e");
+        Assert.assertNotNull(parent.direct);
+
+        // a far away character makes the node sparse
+        add(parent, "~");
+        Assert.assertNull(parent.direct);
+        Assert.assertNotNull(parent.firstChars);
+
+        // and removing it makes it dense again
+        parent.removeChild(parent.childIndex('~'));
+        Assert.assertNotNull(parent.direct);
+        Assert.assertNull(parent.findChild('~'));
+
+        while (parent.children.size() > RadixTrieNode.SCAN_MAX_FANOUT) {
+            parent.removeChild(0);
+        }
+        Assert.assertNull(parent.direct);
+        Assert.assertNull(parent.firstChars);
+        Assert.assertNull(parent.findChild('a'));
+        Assert.assertEquals("e", parent.findChild('e').toString());
+    }
+
+    @Test
+    public void testMoveChildrenKeepsIndex() {
+        RadixTrieNode<Integer> parent = new RadixTrieNode<>();
+        for (char c = '0'; c <= '9'; c++) {
+            add(parent, String.valueOf(c));
+        }
+        RadixTrieNode<Integer> target = new RadixTrieNode<>();
+        parent.moveChildrenTo(target);
+
+        Assert.assertNull(parent.children);
+        Assert.assertNull(parent.findChild('5'));
+        Assert.assertEquals("5", target.findChild('5').toString());
+    }
+}
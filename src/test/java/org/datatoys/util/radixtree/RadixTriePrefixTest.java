@@ -0,0 +1,232 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTriePrefixTest {
+
+    private static int checkSizes(RadixTrieNode<Integer> node) {
+        int size = node.value != null ? 1 : 0;
+        if (node.children != null) {
+            for (RadixTrieNode<Integer> child : node.children) {
+                size += checkSizes(child);
+            }
+        }
+        Assert.assertEquals(size, node.size);
+        return size;
+    }
+
+    @Test
+    public void testCountWithPrefix() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertEquals(5, radixTrie.countWithPrefix(""));
+        Assert.assertEquals(4, radixTrie.countWithPrefix("com."));
+        Assert.assertEquals(4, radixTrie.countWithPrefix("com.g"));
+        // ends in the middle of the "oogle" edge
+        Assert.assertEquals(3, radixTrie.countWithPrefix("com.goo"));
+        Assert.assertEquals(3, radixTrie.countWithPrefix("com.google"));
+        Assert.assertEquals(2, radixTrie.countWithPrefix("com.google."));
+        Assert.assertEquals(1, radixTrie.countWithPrefix("com.google.mail"));
+        Assert.assertEquals(0, radixTrie.countWithPrefix("com.google.mails"));
+        Assert.assertEquals(0, radixTrie.countWithPrefix("net"));
+        Assert.assertEquals(0, radixTrie.countWithPrefix("com.gx"));
+
+        Assert.assertTrue(radixTrie.hasPrefix("org"));
+        Assert.assertTrue(radixTrie.hasPrefix(new StringBuilder("com.gi")));
+        Assert.assertFalse(radixTrie.hasPrefix("org.wikipedia.en"));
+        checkSizes(radixTrie.root);
+    }
+
+    @Test
+    public void testPrefixMapMatchesTreeMap() {
+        Random random = new Random(11);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = String.valueOf(random.nextInt(1000000));
+            radixTrie.put(key, i);
+            treeMap.put(key, i);
+        }
+        checkSizes(radixTrie.root);
+        for (int i = 0; i < 500; i++) {
+            String number = String.valueOf(random.nextInt(1000));
+            String prefix = number.substring(0, Math.min(number.length(), 1 + random.nextInt(3)));
+            SortedMap<String, Integer> expected = treeMap.subMap(prefix, prefix + Character.MAX_VALUE);
+            Map<String, Integer> actual = radixTrie.prefixMap(prefix);
+            Assert.assertEquals(expected.size(), actual.size());
+            Assert.assertEquals(expected.size(), radixTrie.countWithPrefix(prefix));
+            Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        }
+    }
+
+    @Test
+    public void testPrefixMapIsLive() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map<String, Integer> google = radixTrie.prefixMap("com.goo");
+        Assert.assertEquals(3, google.size());
+
+        radixTrie.put("com.goodreads", 6);
+        radixTrie.put("com.gap", 7);
+        Assert.assertEquals(4, google.size());
+        Assert.assertEquals(new Integer(6), google.get("com.goodreads"));
+        Assert.assertNull(google.get("com.gap"));
+        Assert.assertFalse(google.containsKey("com.gap"));
+        Assert.assertEquals("com.goodreads", google.keySet().iterator().next());
+
+        google.put("com.googleapis", 8);
+        Assert.assertEquals(new Integer(8), radixTrie.get("com.googleapis"));
+        Assert.assertEquals(new Integer(8), google.remove("com.googleapis"));
+        Assert.assertNull(google.remove("com.gap"));
+        Assert.assertEquals(new Integer(7), radixTrie.get("com.gap"));
+        checkSizes(radixTrie.root);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrefixMapRejectsKeysOutsidePrefix() {
+        RadixTrieAssert.domains().prefixMap("com.").put("org.apache", 1);
+    }
+
+    @Test
+    public void testPrefixMapRemove() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map<String, Integer> google = radixTrie.prefixMap("com.google.");
+        for (Iterator<String> it = google.keySet().iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+        }
+        Assert.assertTrue(google.isEmpty());
+        Assert.assertEquals(3, radixTrie.size());
+        Assert.assertEquals(1, radixTrie.countWithPrefix("com.goo"));
+        checkSizes(radixTrie.root);
+
+        radixTrie.prefixMap("com.").clear();
+        Assert.assertEquals(1, radixTrie.size());
+        Assert.assertEquals(0, radixTrie.countWithPrefix("com"));
+        // the subtree of the prefix is unlinked as a whole
+        Assert.assertEquals(1, radixTrie.root.children.size());
+        checkSizes(radixTrie.root);
+    }
+
+    @Test
+    public void testEmptyPrefixMap() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map<String, Integer> none = radixTrie.prefixMap("net.");
+        Assert.assertTrue(none.isEmpty());
+        Assert.assertFalse(none.entrySet().iterator().hasNext());
+        radixTrie.put("net.example", 9);
+        Assert.assertEquals(1, none.size());
+        Assert.assertEquals("net.example", none.keySet().iterator().next());
+    }
+
+    @Test
+    public void testSizesAfterNullPut() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertEquals(new Integer(3), radixTrie.put("com.google", null));
+        Assert.assertEquals(4, radixTrie.size());
+        Assert.assertEquals(2, radixTrie.countWithPrefix("com.goo"));
+        Assert.assertFalse(radixTrie.containsKey("com.google"));
+
+        Assert.assertNull(radixTrie.put("net.example", null));
+        Assert.assertEquals(4, radixTrie.size());
+        Assert.assertFalse(radixTrie.hasPrefix("net"));
+        checkSizes(radixTrie.root);
+    }
+
+    @Test
+    public void testSetValueOnRemovedEntry() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map.Entry<String, Integer> entry = radixTrie.prefixMap("com.github").entrySet().iterator().next();
+        radixTrie.remove("com.github");
+        try {
+            entry.setValue(10);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // the entry is not written back to the trie
+        }
+        Assert.assertNull(radixTrie.get("com.github"));
+        Assert.assertEquals(4, radixTrie.size());
+        checkSizes(radixTrie.root);
+    }
+
+    @Test
+    public void testLongestPrefixOf() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map.Entry<String, Integer> route = radixTrie.longestPrefixOf("com.google.mail.inbox");
+        Assert.assertEquals("com.google.mail", route.getKey());
+        Assert.assertEquals(new Integer(1), route.getValue());
+        Assert.assertEquals("com.google", radixTrie.longestPrefixOf(new StringBuilder("com.google.maps")).getKey());
+        Assert.assertEquals("com.google", radixTrie.longestPrefixOf("com.google").getKey());
+        Assert.assertEquals("com.github", radixTrie.longestPrefixOf("com.github.io").getKey());
+        Assert.assertNull(radixTrie.longestPrefixOf("com.goo"));
+        Assert.assertNull(radixTrie.longestPrefixOf("net.example"));
+        Assert.assertNull(radixTrie.longestPrefixOf(""));
+
+        // the entry is a snapshot, which later changes to the trie leave alone
+        radixTrie.put("com.google.mail", 10);
+        Assert.assertEquals(new Integer(1), route.getValue());
+        try {
+            route.setValue(11);
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+            // snapshots can not be written through
+        }
+        Assert.assertEquals(new Integer(10), radixTrie.get("com.google.mail"));
+    }
+
+    @Test
+    public void testPrefixesOf() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        radixTrie.put("com", 6);
+        List<Map.Entry<String, Integer>> prefixes = radixTrie.prefixesOf("com.google.plus.one");
+        Assert.assertEquals(3, prefixes.size());
+        Assert.assertEquals("com", prefixes.get(0).getKey());
+        Assert.assertEquals("com.google", prefixes.get(1).getKey());
+        Assert.assertEquals("com.google.plus", prefixes.get(2).getKey());
+        Assert.assertEquals(new Integer(2), prefixes.get(2).getValue());
+        // a shorter key splitting the node of a returned key leaves its entry alone
+        radixTrie.put("com.goo", 7);
+        Assert.assertEquals("com.google", prefixes.get(1).getKey());
+        Assert.assertEquals(new Integer(3), prefixes.get(1).getValue());
+        Assert.assertEquals(1, radixTrie.prefixesOf("com.gi").size());
+        Assert.assertTrue(radixTrie.prefixesOf("org").isEmpty());
+    }
+
+    @Test
+    public void testPrefixesOfMatchesGets() {
+        Random random = new Random(13);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        for (int i = 0; i < 2000; i++) {
+            radixTrie.put(Integer.toString(random.nextInt(5000), 3), i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            String key = Integer.toString(random.nextInt(50000), 3);
+            List<String> expected = new ArrayList<>();
+            for (int length = 1; length <= key.length(); length++) {
+                if (radixTrie.containsKey(key.substring(0, length))) {
+                    expected.add(key.substring(0, length));
+                }
+            }
+            List<String> actual = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : radixTrie.prefixesOf(key)) {
+                Assert.assertEquals(radixTrie.get(entry.getKey()), entry.getValue());
+                actual.add(entry.getKey());
+            }
+            Assert.assertEquals(expected, actual);
+            Map.Entry<String, Integer> longest = radixTrie.longestPrefixOf(key);
+            Assert.assertEquals(expected.isEmpty() ? null : expected.get(expected.size() - 1), longest == null ? null : longest.getKey());
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetNullValue() {
+        RadixTrieAssert.domains().entrySet().iterator().next().setValue(null);
+    }
+}
@@ -174,5 +174,31 @@ public class RadixTriePutGetTests {
         Assert.assertEquals(new Integer(3), radixTrie.get("com.google.plus"));
     }
 
+    @Test
+    public void testPutKeyThatIsPrefixOfExistingKey() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.put("com.google.mail", 1);
+        radixTrie.put("com.google", 2);
+        radixTrie.put("com", 3);
+
+        Assert.assertEquals(new Integer(1), radixTrie.get("com.google.mail"));
+        Assert.assertEquals(new Integer(2), radixTrie.get("com.google"));
+        Assert.assertEquals(new Integer(3), radixTrie.get("com"));
+        Assert.assertNull(radixTrie.get("com.goo"));
+        Assert.assertEquals(3, radixTrie.size());
+    }
 
+    @Test
+    public void testWideNodes() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        for (int i = 0; i < 65536; i += 7) {
+            radixTrie.put(String.valueOf((char) i) + "suffix", i);
+            radixTrie.put("x" + (char) i, i);
+        }
+        for (int i = 0; i < 65536; i++) {
+            Integer expected = i % 7 == 0 ? i : null;
+            Assert.assertEquals(expected, radixTrie.get(String.valueOf((char) i) + "suffix"));
+            Assert.assertEquals(expected, radixTrie.get("x" + (char) i));
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package org.datatoys.util.radixtree;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieRemoveTest {
+
+    private static void assertCompressed(Map<String, Integer> expected, RadixTrie<Integer> radixTrie) {
+        RadixTrie<Integer> rebuilt = new RadixTrie<>();
+        rebuilt.putAll(expected);
+        RadixTrieAssert.assertSameStructure(rebuilt.root, radixTrie.root);
+        Assert.assertEquals(expected.size(), radixTrie.size());
+    }
+
+    private static RadixTrie<Integer> trieOf(String... keys) {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        for (int i = 0; i < keys.length; i++) {
+            radixTrie.put(keys[i], i);
+        }
+        return radixTrie;
+    }
+
+    @Test
+    public void testRemoveUnlinksLeafAndMergesParent() {
+        RadixTrie<Integer> radixTrie = trieOf("test", "team");
+        Assert.assertEquals("te", radixTrie.root.children.get(0).toString());
+
+        Assert.assertEquals(Integer.valueOf(1), radixTrie.remove("team"));
+        Assert.assertEquals(1, radixTrie.root.children.size());
+        RadixTrieNode<Integer> test = radixTrie.root.children.get(0);
+        Assert.assertEquals("test", test.toString());
+        Assert.assertNull(test.children);
+        Assert.assertEquals(Integer.valueOf(0), radixTrie.get("test"));
+
+        Assert.assertEquals(Integer.valueOf(0), radixTrie.remove("test"));
+        Assert.assertNull(radixTrie.root.children);
+        Assert.assertEquals(0, radixTrie.root.size);
+    }
+
+    @Test
+    public void testRemoveMergesNodeWithOnlyChild() {
+        RadixTrie<Integer> radixTrie = trieOf("test", "tester", "testing");
+        radixTrie.remove("tester");
+        Assert.assertEquals(1, radixTrie.root.children.get(0).children.size());
+
+        radixTrie.remove("test");
+        RadixTrieNode<Integer> node = radixTrie.root.children.get(0);
+        Assert.assertEquals("testing", node.toString());
+        Assert.assertNull(node.children);
+        Assert.assertEquals(Integer.valueOf(2), radixTrie.get("testing"));
+        Assert.assertNull(radixTrie.get("test"));
+    }
+
+    @Test
+    public void testRemoveKeepsNodeWithValue() {
+        RadixTrie<Integer> radixTrie = trieOf("a", "ab", "ac");
+        radixTrie.remove("ab");
+        radixTrie.remove("ac");
+        RadixTrieNode<Integer> node = radixTrie.root.children.get(0);
+        Assert.assertEquals("a", node.toString());
+        Assert.assertEquals(Integer.valueOf(0), node.value);
+        Assert.assertNull(node.children);
+    }
+
+    @Test
+    public void testRemoveFromWideNode() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        Map<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            radixTrie.put("k" + i, i);
+            expected.put("k" + i, i);
+        }
+        // removing all but one child of the dense node merges it with the last one
+        for (int i = 0; i < 99; i++) {
+            radixTrie.remove("k" + i);
+            expected.remove("k" + i);
+            assertCompressed(expected, radixTrie);
+        }
+        Assert.assertEquals("k99", radixTrie.root.children.get(0).toString());
+    }
+
+    @Test
+    public void testRandomChurnStaysCompressed() {
+        Random random = new Random(21);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(3000), 7);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.remove(key), radixTrie.remove(key));
+            } else {
+                Assert.assertEquals(expected.put(key, i), radixTrie.put(key, i));
+            }
+        }
+        assertCompressed(expected, radixTrie);
+        Assert.assertEquals(expected, new TreeMap<>(radixTrie));
+    }
+
+    @Test
+    public void testIteratorRemoveStaysCompressed() {
+        Random random = new Random(22);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = Integer.toString(random.nextInt(20000), 5);
+            radixTrie.put(key, i);
+            expected.put(key, i);
+        }
+        Iterator<Map.Entry<String, Integer>> expectedIt = expected.entrySet().iterator();
+        for (Iterator<Map.Entry<String, Integer>> it = radixTrie.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Integer> entry = it.next();
+            Assert.assertEquals(expectedIt.next(), entry);
+            if (random.nextInt(3) > 0) {
+                it.remove();
+                expectedIt.remove();
+            }
+        }
+        Assert.assertFalse(expectedIt.hasNext());
+        assertCompressed(expected, radixTrie);
+    }
+
+    @Test
+    public void testIteratorRemoveOfMergedKeys() {
+        RadixTrie<Integer> radixTrie = trieOf("a", "ab", "abc", "abd", "b");
+        Iterator<String> it = radixTrie.keySet().iterator();
+        Assert.assertEquals("a", it.next());
+        Assert.assertEquals("ab", it.next());
+        // "ab" keeps its two children
+        it.remove();
+        Assert.assertEquals("abc", it.next());
+        // leaves "d" as the only child of the valueless "b" under "a", which merges them into "bd"
+        it.remove();
+        Assert.assertEquals("abd", it.next());
+        Assert.assertEquals("b", it.next());
+        Assert.assertFalse(it.hasNext());
+
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("a", 0);
+        expected.put("abd", 3);
+        expected.put("b", 4);
+        assertCompressed(expected, radixTrie);
+    }
+
+    @Test
+    public void testRemovePrefix() {
+        RadixTrie<Integer> radixTrie = trieOf("com.google", "com.google.plus", "com.github", "com.gap", "org.wikipedia");
+        Assert.assertEquals(2, radixTrie.removePrefix("com.goo"));
+        Assert.assertEquals(3, radixTrie.size());
+        Assert.assertEquals(0, radixTrie.removePrefix("com.goo"));
+        Assert.assertEquals(0, radixTrie.removePrefix("net."));
+        Assert.assertEquals(1, radixTrie.removePrefix("com.gi"));
+
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        expected.put("com.gap", 3);
+        expected.put("org.wikipedia", 4);
+        assertCompressed(expected, radixTrie);
+
+        Assert.assertEquals(2, radixTrie.removePrefix(""));
+        Assert.assertTrue(radixTrie.isEmpty());
+    }
+
+    @Test
+    public void testClearResetsSize() {
+        RadixTrie<Integer> radixTrie = trieOf("a", "b");
+        radixTrie.clear();
+        Assert.assertEquals(0, radixTrie.size());
+        Assert.assertTrue(radixTrie.isEmpty());
+        Assert.assertTrue(radixTrie.keySet().isEmpty());
+        radixTrie.put("c", 1);
+        Assert.assertEquals(1, radixTrie.size());
+    }
+
+    @Test
+    public void testTrimToSize() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            radixTrie.put(Integer.toString(i), i);
+            expected.put(Integer.toString(i), i);
+        }
+        radixTrie.trimToSize();
+        assertCompressed(expected, radixTrie);
+        radixTrie.put("1000", 1000);
+        Assert.assertEquals(Integer.valueOf(1000), radixTrie.get("1000"));
+    }
+
+    @Test
+    public void testPrimitiveRemoveStaysCompressed() {
+        IntRadixTrie counts = new IntRadixTrie();
+        counts.putInt("test", 1);
+        counts.putInt("team", 2);
+        counts.putInt("tester", 3);
+        counts.removeInt("team");
+        counts.removeInt("test");
+        RadixTrieNode<Void> node = counts.root.children.get(0);
+        Assert.assertEquals("tester", node.toString());
+        Assert.assertNull(node.children);
+        Assert.assertEquals(3, counts.getInt("tester", 0));
+        Assert.assertEquals(1, counts.size());
+    }
+}
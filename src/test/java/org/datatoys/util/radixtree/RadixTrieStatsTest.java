@@ -0,0 +1,67 @@
+package org.datatoys.util.radixtree;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieStatsTest {
+
+    @Test
+    public void testShape() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.put("com.google.mail", 1);
+        radixTrie.put("com.google.plus", 2);
+        radixTrie.put("com.google", 3);
+        radixTrie.put("com.github", 4);
+        radixTrie.put("org.wikipedia", 5);
+        // root -> ("com.g" -> ("ithub", "oogle" -> "." -> ("mail", "plus")), "org.wikipedia")
+        RadixTrieStats stats = radixTrie.stats();
+        Assert.assertEquals(8, stats.nodeCount());
+        Assert.assertEquals(5, stats.valueCount());
+        Assert.assertEquals(4, stats.maxDepth());
+        Assert.assertEquals((2 + 2 + 4 + 4 + 1) / 5.0, stats.averageDepth(), 1e-9);
+        Assert.assertArrayEquals(new int[]{4, 1, 3}, stats.fanoutHistogram());
+        Assert.assertEquals(1, stats.singleCharEdges());
+        int[] labelLengths = stats.labelLengthHistogram();
+        Assert.assertEquals(14, labelLengths.length);
+        Assert.assertEquals(1, labelLengths[13]);
+        Assert.assertEquals(3, labelLengths[5]);
+        Assert.assertEquals(2, labelLengths[4]);
+    }
+
+    @Test
+    public void testEmptyTrie() {
+        RadixTrieStats stats = new RadixTrie<Integer>().stats();
+        Assert.assertEquals(1, stats.nodeCount());
+        Assert.assertEquals(0, stats.valueCount());
+        Assert.assertEquals(0, stats.maxDepth());
+        Assert.assertEquals(0.0, stats.averageDepth(), 0.0);
+        Assert.assertArrayEquals(new int[]{1}, stats.fanoutHistogram());
+        Assert.assertArrayEquals(new int[0], stats.labelLengthHistogram());
+        Assert.assertEquals(RadixTrieStats.shallowSize(RadixTrieNode.class), stats.estimatedBytes());
+    }
+
+    @Test
+    public void testDegenerateKeysAreSingleCharEdges() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        for (int i = 0; i < 1000; i++) {
+            radixTrie.put(Integer.toString(i), i);
+        }
+        RadixTrieStats stats = radixTrie.stats();
+        // every key up to 3 digits, and every node holds a value
+        Assert.assertEquals(1001, stats.nodeCount());
+        Assert.assertEquals(1000, stats.singleCharEdges());
+        Assert.assertEquals(3, stats.maxDepth());
+        Assert.assertTrue(stats.indexBytes() > 0);
+        Assert.assertTrue(stats.toString().contains("singleCharEdges=1000"));
+    }
+
+    @Test
+    public void testLayoutArithmetic() {
+        Assert.assertEquals(16, RadixTrieStats.align(12));
+        Assert.assertEquals(16, RadixTrieStats.align(16));
+        Assert.assertEquals(10, RadixTrieStats.grownCapacity(1));
+        Assert.assertEquals(15, RadixTrieStats.grownCapacity(11));
+        Assert.assertEquals(22, RadixTrieStats.grownCapacity(16));
+        Assert.assertTrue(RadixTrieStats.shallowSize(ScoredRadixTrieNode.class) > RadixTrieStats.shallowSize(RadixTrieNode.class));
+    }
+}
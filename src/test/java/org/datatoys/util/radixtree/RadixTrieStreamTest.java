@@ -0,0 +1,124 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieStreamTest {
+
+    private static TreeMap<String, Integer> randomKeys(int count) {
+        Random random = new Random(16);
+        TreeMap<String, Integer> map = new TreeMap<>();
+        while (map.size() < count) {
+            map.put(Integer.toString(random.nextInt(count * 10), 8), map.size());
+        }
+        return map;
+    }
+
+    /**
+     * Splits the spliterator down to the given depth, and appends the keys of the pieces in encounter order.
+     */
+    private static void splitAndCollect(Spliterator<String> spliterator, int depth, List<String> keys) {
+        Spliterator<String> prefix = depth > 0 ? spliterator.trySplit() : null;
+        if (prefix != null) {
+            long total = prefix.estimateSize() + spliterator.estimateSize();
+            // halves of balanced sizes, apart from the last few keys
+            Assert.assertTrue(total < 8 || Math.abs(prefix.estimateSize() - spliterator.estimateSize()) <= total / 3);
+            splitAndCollect(prefix, depth - 1, keys);
+            splitAndCollect(spliterator, depth - 1, keys);
+        } else {
+            long size = spliterator.estimateSize();
+            int before = keys.size();
+            spliterator.forEachRemaining(keys::add);
+            Assert.assertEquals(size, keys.size() - before);
+            Assert.assertEquals(0, spliterator.estimateSize());
+        }
+    }
+
+    @Test
+    public void testStreamsAreSorted() {
+        TreeMap<String, Integer> expected = randomKeys(20000);
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(expected);
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), radixTrie.keySet().stream().collect(Collectors.toList()));
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), radixTrie.keySet().parallelStream().collect(Collectors.toList()));
+        Assert.assertEquals(new ArrayList<>(expected.values()), radixTrie.values().parallelStream().collect(Collectors.toList()));
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), radixTrie.parallelStream().collect(Collectors.toList()));
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), radixTrie.stream().collect(Collectors.toList()));
+        Assert.assertEquals(expected.size(), radixTrie.entrySet().parallelStream().count());
+        Assert.assertEquals(expected.firstKey(), radixTrie.keySet().parallelStream().findFirst().get());
+    }
+
+    @Test
+    public void testBalancedSplits() {
+        TreeMap<String, Integer> expected = randomKeys(50000);
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(expected);
+        List<String> keys = new ArrayList<>();
+        splitAndCollect(radixTrie.keySet().spliterator(), 6, keys);
+        Assert.assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+
+    @Test
+    public void testSplitsOfDeepChains() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        StringBuilder key = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            key.append('a');
+            radixTrie.put(key.toString(), i);
+            expected.add(key.toString());
+        }
+        List<String> keys = new ArrayList<>();
+        splitAndCollect(radixTrie.keySet().spliterator(), 8, keys);
+        Assert.assertEquals(expected, keys);
+    }
+
+    @Test
+    public void testCharacteristics() {
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(randomKeys(100));
+        Spliterator<String> keys = radixTrie.keySet().spliterator();
+        Assert.assertTrue(keys.hasCharacteristics(Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED));
+        Assert.assertNull(keys.getComparator());
+        Assert.assertEquals(100, keys.getExactSizeIfKnown());
+
+        Spliterator<Map.Entry<String, Integer>> entries = radixTrie.entrySet().spliterator();
+        Assert.assertTrue(entries.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT));
+        Assert.assertNotNull(entries.getComparator());
+
+        Spliterator<Integer> values = radixTrie.values().spliterator();
+        Assert.assertTrue(values.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED));
+        Assert.assertFalse(values.hasCharacteristics(Spliterator.SORTED));
+        Assert.assertFalse(values.hasCharacteristics(Spliterator.DISTINCT));
+    }
+
+    @Test
+    public void testPrefixViewStreams() {
+        TreeMap<String, Integer> expected = randomKeys(20000);
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(expected);
+        for (String prefix : new String[]{"1", "23", "7654", "9"}) {
+            Map<String, Integer> view = radixTrie.prefixMap(prefix);
+            Map<String, Integer> expectedView = expected.subMap(prefix, prefix + Character.MAX_VALUE);
+            Assert.assertEquals(new ArrayList<>(expectedView.keySet()), view.keySet().parallelStream().collect(Collectors.toList()));
+            Assert.assertEquals(new ArrayList<>(expectedView.values()), view.values().stream().collect(Collectors.toList()));
+            Assert.assertEquals(new ArrayList<>(expectedView.entrySet()), view.entrySet().parallelStream().collect(Collectors.toList()));
+            Assert.assertEquals(expectedView.size(), view.keySet().spliterator().getExactSizeIfKnown());
+        }
+        Assert.assertEquals(0, radixTrie.prefixMap("x").keySet().stream().count());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testSpliteratorIsFailFast() {
+        RadixTrie<Integer> radixTrie = RadixTrie.copyOf(randomKeys(100));
+        Spliterator<String> keys = radixTrie.keySet().spliterator();
+        keys.tryAdvance(key -> { });
+        radixTrie.put("new", 1);
+        keys.tryAdvance(key -> { });
+    }
+}
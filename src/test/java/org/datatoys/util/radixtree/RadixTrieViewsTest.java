@@ -0,0 +1,190 @@
+package org.datatoys.util.radixtree;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixTrieViewsTest {
+
+    @Test
+    public void testIterationIsSorted() {
+        Random random = new Random(7);
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        for (int i = 0; i < 10000; i++) {
+            String key = String.valueOf(random.nextInt());
+            radixTrie.put(key, i);
+            treeMap.put(key, i);
+        }
+        Assert.assertEquals(new ArrayList<>(treeMap.keySet()), new ArrayList<>(radixTrie.keySet()));
+        Assert.assertEquals(new ArrayList<>(treeMap.values()), new ArrayList<>(radixTrie.values()));
+        Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(radixTrie.entrySet()));
+        Assert.assertEquals(treeMap.keySet(), radixTrie.keySet());
+        Assert.assertEquals(treeMap.entrySet(), radixTrie.entrySet());
+    }
+
+    @Test
+    public void testViewsAreLive() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Set<String> keys = radixTrie.keySet();
+        Collection<Integer> values = radixTrie.values();
+        Set<Map.Entry<String, Integer>> entries = radixTrie.entrySet();
+
+        radixTrie.put("net.example", 6);
+        Assert.assertEquals(6, keys.size());
+        Assert.assertTrue(keys.contains("net.example"));
+        Assert.assertTrue(values.contains(6));
+        Assert.assertTrue(entries.contains(new AbstractMap.SimpleEntry<>("net.example", 6)));
+        Assert.assertFalse(entries.contains(new AbstractMap.SimpleEntry<>("net.example", 7)));
+        Assert.assertFalse(keys.contains("net"));
+    }
+
+    @Test
+    public void testIteratorRemoveWritesThrough() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        for (Iterator<String> it = radixTrie.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith("com.google.")) {
+                it.remove();
+            }
+        }
+        Assert.assertEquals(3, radixTrie.size());
+        Assert.assertNull(radixTrie.get("com.google.mail"));
+        Assert.assertNull(radixTrie.get("com.google.plus"));
+        Assert.assertEquals(new Integer(3), radixTrie.get("com.google"));
+
+        List<String> keys = new ArrayList<>(radixTrie.keySet());
+        Assert.assertEquals(Arrays.asList("com.github", "com.google", "org.wikipedia"), keys);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIteratorRemoveTwice() {
+        Iterator<Integer> it = RadixTrieAssert.domains().values().iterator();
+        it.next();
+        it.remove();
+        it.remove();
+    }
+
+    @Test
+    public void testSetValueWritesThrough() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        for (Map.Entry<String, Integer> entry : radixTrie.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        Assert.assertEquals(new Integer(10), radixTrie.get("com.google.mail"));
+        Assert.assertEquals(new Integer(50), radixTrie.get("org.wikipedia"));
+    }
+
+    @Test
+    public void testSetValueOnRemovedEntry() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Map.Entry<String, Integer> entry = null;
+        for (Map.Entry<String, Integer> candidate : radixTrie.entrySet()) {
+            if (candidate.getKey().equals("com.google.plus")) {
+                entry = candidate;
+            }
+        }
+        radixTrie.remove("com.google.plus");
+        Assert.assertNull(entry.getValue());
+        try {
+            entry.setValue(5);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // the entry is not written back to the trie
+        }
+        Assert.assertNull(radixTrie.get("com.google.plus"));
+        Assert.assertEquals(4, radixTrie.size());
+    }
+
+    @Test
+    public void testEntryOutlivesSplit() {
+        RadixTrie<Integer> radixTrie = new RadixTrie<>();
+        radixTrie.put("abc", 1);
+        radixTrie.put("abd", 2);
+        Map.Entry<String, Integer> entry = radixTrie.entrySet().iterator().next();
+        // both splits put a new node above the node of "abc"
+        radixTrie.put("ab", 9);
+        radixTrie.put("a", 8);
+        Assert.assertEquals("abc", entry.getKey());
+        Assert.assertEquals(new Integer(1), entry.getValue());
+        Assert.assertEquals(new Integer(1), entry.setValue(5));
+        Assert.assertEquals(new Integer(5), radixTrie.get("abc"));
+        Assert.assertEquals(new Integer(9), radixTrie.get("ab"));
+        Assert.assertEquals(new Integer(8), radixTrie.get("a"));
+
+        // and so do the splits of a batch and of a merge
+        radixTrie.put("xyz1", 3);
+        Map.Entry<String, Integer> leaf = radixTrie.prefixMap("xyz1").entrySet().iterator().next();
+        Map<String, Integer> batch = new TreeMap<>();
+        batch.put("xy", 4);
+        batch.put("xyz2", 5);
+        radixTrie.putAll(batch);
+        Map.Entry<String, Integer> inner = radixTrie.prefixMap("xy").entrySet().iterator().next();
+        RadixTrie<Integer> other = new RadixTrie<>();
+        other.put("x", 6);
+        radixTrie.merge(other, Integer::sum);
+        Assert.assertEquals("xyz1", leaf.getKey());
+        Assert.assertEquals(new Integer(3), leaf.setValue(30));
+        Assert.assertEquals("xy", inner.getKey());
+        Assert.assertEquals(new Integer(4), inner.setValue(40));
+        Assert.assertEquals(new Integer(30), radixTrie.get("xyz1"));
+        Assert.assertEquals(new Integer(40), radixTrie.get("xy"));
+        Assert.assertEquals(new Integer(6), radixTrie.get("x"));
+        Assert.assertEquals(new Integer(5), radixTrie.get("xyz2"));
+        Assert.assertEquals(8, radixTrie.size());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorIsFailFast() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Iterator<Map.Entry<String, Integer>> it = radixTrie.entrySet().iterator();
+        it.next();
+        radixTrie.put("com.googleapis", 6);
+        it.next();
+    }
+
+    @Test
+    public void testReplacingValueIsNotStructural() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Iterator<String> it = radixTrie.keySet().iterator();
+        it.next();
+        radixTrie.put("org.wikipedia", 7);
+        Assert.assertEquals("com.google", it.next());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testEmptyIterator() {
+        new RadixTrie<Integer>().entrySet().iterator().next();
+    }
+
+    @Test
+    public void testContainsValue() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertTrue(radixTrie.containsValue(4));
+        Assert.assertFalse(radixTrie.containsValue(6));
+        Assert.assertFalse(radixTrie.containsValue(null));
+    }
+
+    @Test
+    public void testViewRemove() {
+        RadixTrie<Integer> radixTrie = RadixTrieAssert.domains();
+        Assert.assertTrue(radixTrie.keySet().remove("com.google"));
+        Assert.assertFalse(radixTrie.keySet().remove("com.google"));
+        Assert.assertFalse(radixTrie.entrySet().remove(new AbstractMap.SimpleEntry<>("org.wikipedia", 2)));
+        Assert.assertTrue(radixTrie.entrySet().remove(new AbstractMap.SimpleEntry<>("org.wikipedia", 5)));
+        Assert.assertEquals(3, radixTrie.size());
+        Assert.assertEquals(new Integer(1), radixTrie.get("com.google.mail"));
+        Assert.assertEquals(new Integer(2), radixTrie.get("com.google.plus"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ScoredRadixTrieTest {
+
+    private static double checkBest(ScoredRadixTrieNode<?> node) {
+        double best = node.value != null ? node.score : Double.NEGATIVE_INFINITY;
+        if (node.children != null) {
+            for (RadixTrieNode<?> child : node.children) {
+                best = Math.max(best, checkBest((ScoredRadixTrieNode<?>) child));
+            }
+        }
+        Assert.assertEquals(best, node.best, 0.0);
+        return best;
+    }
+
+    private static List<String> keys(List<Map.Entry<String, String>> entries) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static ScoredRadixTrie<String> queries() {
+        ScoredRadixTrie<String> trie = new ScoredRadixTrie<>();
+        trie.put("car", "car", 50);
+        trie.put("cart", "cart", 10);
+        trie.put("carbon", "carbon", 5);
+        trie.put("cat", "cat", 80);
+        trie.put("catalog", "catalog", 30);
+        trie.put("coffee", "coffee", 90);
+        trie.put("dog", "dog", 100);
+        return trie;
+    }
+
+    @Test
+    public void testTopK() {
+        ScoredRadixTrie<String> trie = queries();
+        Assert.assertEquals(Arrays.asList("coffee", "cat", "car"), keys(trie.topK("c", 3)));
+        Assert.assertEquals(Arrays.asList("cat", "car", "catalog", "cart", "carbon"), keys(trie.topK("ca", 10)));
+        Assert.assertEquals(Arrays.asList("catalog"), keys(trie.topK("cata", 5)));
+        Assert.assertEquals(Arrays.asList("dog", "coffee"), keys(trie.topK("", 2)));
+        Assert.assertEquals("carbon", trie.topK("carb", 1).get(0).getValue());
+        Assert.assertTrue(trie.topK("x", 3).isEmpty());
+        Assert.assertTrue(trie.topK("c", 0).isEmpty());
+        checkBest(trie.root);
+    }
+
+    @Test
+    public void testScoreUpdatesAndRemovals() {
+        ScoredRadixTrie<String> trie = queries();
+        Assert.assertEquals("cat", trie.put("cat", "cat", 1));
+        Assert.assertEquals(1.0, trie.getScore("cat", -1), 0.0);
+        Assert.assertEquals(Arrays.asList("coffee", "car", "catalog"), keys(trie.topK("c", 3)));
+        checkBest(trie.root);
+
+        Assert.assertEquals("coffee", trie.remove("coffee"));
+        Assert.assertNull(trie.remove("coffee"));
+        Assert.assertEquals(-1.0, trie.getScore("coffee", -1), 0.0);
+        Assert.assertEquals(Arrays.asList("car", "catalog"), keys(trie.topK("c", 2)));
+        Assert.assertEquals(6, trie.size());
+        Assert.assertEquals(5, trie.countWithPrefix("c"));
+        checkBest(trie.root);
+
+        Assert.assertEquals("car", trie.put("car", null, 0));
+        Assert.assertFalse(trie.containsKey("car"));
+        Assert.assertEquals(Arrays.asList("catalog", "cart"), keys(trie.topK("ca", 2)));
+        checkBest(trie.root);
+    }
+
+    @Test
+    public void testMatchesSortedPrefixScan() {
+        Random random = new Random(15);
+        ScoredRadixTrie<Integer> trie = new ScoredRadixTrie<>();
+        TreeMap<String, Double> scores = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(5000), 6);
+            if (random.nextInt(4) == 0) {
+                Assert.assertEquals(scores.remove(key) != null, trie.remove(key) != null);
+            } else {
+                double score = random.nextDouble();
+                trie.put(key, i, score);
+                scores.put(key, score);
+            }
+        }
+        checkBest(trie.root);
+        Assert.assertEquals(scores.size(), trie.size());
+        for (String prefix : new String[]{"", "1", "2", "34", "105", "5555"}) {
+            List<Map.Entry<String, Double>> expected = new ArrayList<>(scores.subMap(prefix, prefix + Character.MAX_VALUE).entrySet());
+            Collections.sort(expected, new Comparator<Map.Entry<String, Double>>() {
+                @Override
+                public int compare(Map.Entry<String, Double> a, Map.Entry<String, Double> b) {
+                    return Double.compare(b.getValue(), a.getValue());
+                }
+            });
+            List<Map.Entry<String, Integer>> top = trie.topK(prefix, 20);
+            Assert.assertEquals(Math.min(20, expected.size()), top.size());
+            for (int i = 0; i < top.size(); i++) {
+                Assert.assertEquals(expected.get(i).getKey(), top.get(i).getKey());
+                Assert.assertEquals(trie.get(top.get(i).getKey()), top.get(i).getValue());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNScore() {
+        new ScoredRadixTrie<String>().put("a", "a", Double.NaN);
+    }
+}
@@ -0,0 +1,92 @@
+package org.datatoys.util.radixtree;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StringDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameDictionary(Random random, TreeSet<String> expected, StringDictionary dictionary) {
+        List<String> keys = new ArrayList<>(expected);
+        Assert.assertEquals(keys.size(), dictionary.size());
+        List<String> iterated = new ArrayList<>();
+        for (String key : dictionary) {
+            iterated.add(key);
+        }
+        Assert.assertEquals(keys, iterated);
+        for (int id = 0; id < keys.size(); id++) {
+            Assert.assertEquals(keys.get(id), dictionary.keyOf(id));
+            Assert.assertEquals(id, dictionary.idOf(keys.get(id)));
+        }
+        for (int i = 0; i < 2000; i++) {
+            String key = Integer.toString(random.nextInt(30000), 2 + random.nextInt(10));
+            key = key.substring(0, 1 + random.nextInt(key.length()));
+            int rank = expected.headSet(key).size();
+            Assert.assertEquals(key, rank, dictionary.rankOf(key));
+            Assert.assertEquals(key, expected.contains(key) ? rank : -1, dictionary.idOf(key));
+            int count = expected.subSet(key, key + Character.MAX_VALUE).size();
+            Assert.assertArrayEquals(key, new int[]{rank, rank + count}, dictionary.prefixRange(key));
+        }
+    }
+
+    @Test
+    public void testIdsFollowKeyOrder() {
+        StringDictionary dictionary = StringDictionary.of(Arrays.asList("test", "team", "toast", "te", "team", "tea"));
+        Assert.assertEquals(5, dictionary.size());
+        Assert.assertEquals(0, dictionary.idOf("te"));
+        Assert.assertEquals(1, dictionary.idOf("tea"));
+        Assert.assertEquals(2, dictionary.idOf("team"));
+        Assert.assertEquals(3, dictionary.idOf("test"));
+        Assert.assertEquals(4, dictionary.idOf("toast"));
+        Assert.assertEquals(-1, dictionary.idOf("tes"));
+        Assert.assertEquals(-1, dictionary.idOf(""));
+        Assert.assertEquals("team", dictionary.keyOf(2));
+        Assert.assertEquals(3, dictionary.rankOf("tes"));
+        Assert.assertEquals(0, dictionary.rankOf("a"));
+        Assert.assertEquals(5, dictionary.rankOf("z"));
+        Assert.assertArrayEquals(new int[]{0, 4}, dictionary.prefixRange("te"));
+        Assert.assertArrayEquals(new int[]{1, 3}, dictionary.prefixRange("tea"));
+        Assert.assertArrayEquals(new int[]{4, 4}, dictionary.prefixRange("tex"));
+        Assert.assertArrayEquals(new int[]{0, 5}, dictionary.prefixRange(""));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testKeyOfInvalidId() {
+        StringDictionary.of(Arrays.asList("a", "b")).keyOf(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKey() {
+        StringDictionary.of(Arrays.asList("a", ""));
+    }
+
+    @Test
+    public void testRandomDictionaryMatchesTreeSet() throws IOException {
+        Random random = new Random(25);
+        TreeSet<String> expected = new TreeSet<>();
+        List<String> column = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(30000), 2 + random.nextInt(10));
+            expected.add(key);
+            column.add(key);
+        }
+        StringDictionary dictionary = StringDictionary.of(column);
+        assertSameDictionary(random, expected, dictionary);
+
+        Path path = folder.newFile().toPath();
+        dictionary.write(path);
+        assertSameDictionary(random, expected, StringDictionary.open(path));
+    }
+}
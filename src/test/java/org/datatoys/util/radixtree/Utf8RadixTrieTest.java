@@ -0,0 +1,88 @@
+package org.datatoys.util.radixtree;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Utf8RadixTrieTest {
+
+    @Test
+    public void testPutGet() {
+        Utf8RadixTrie<Integer> trie = new Utf8RadixTrie<>();
+        trie.put("com.google", 1);
+        trie.put("com.google.mail", 2);
+        trie.put("caf\u00e9", 3);
+        trie.put("caf\u00e9s", 4);
+        trie.put("\u65e5\u672c", 5);
+        Assert.assertEquals(5, trie.size());
+        Assert.assertEquals(Integer.valueOf(1), trie.get("com.google"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get(new StringBuilder("com.google.mail")));
+        Assert.assertEquals(Integer.valueOf(3), trie.get("caf\u00e9"));
+        Assert.assertEquals(Integer.valueOf(5), trie.get("\u65e5\u672c"));
+        Assert.assertNull(trie.get("cafe"));
+        Assert.assertNull(trie.get("com.goo"));
+        Assert.assertNull(trie.get(""));
+        Assert.assertNull(trie.get((Object) 5));
+        Assert.assertEquals(2, trie.countWithPrefix("caf\u00e9"));
+        Assert.assertEquals(Integer.valueOf(3), trie.remove("caf\u00e9"));
+        Assert.assertFalse(trie.containsKey("caf\u00e9"));
+        Assert.assertEquals(4, trie.size());
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        Random random = new Random(16);
+        String alphabet = "ab.\u00e9\u0100\u4e2d";
+        Utf8RadixTrie<Integer> trie = new Utf8RadixTrie<>();
+        TreeMap<String, Integer> treeMap = new TreeMap<>();
+        for (int i = 0; i < 30000; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            Assert.assertEquals(treeMap.put(key.toString(), i), trie.put(key.toString(), i));
+        }
+        // without characters above U+FFFF, code point order is the order of String
+        Assert.assertEquals(new ArrayList<>(treeMap.entrySet()), new ArrayList<>(trie.entrySet()));
+        Assert.assertEquals(treeMap, trie);
+    }
+
+    @Test
+    public void testSupplementaryCharacters() {
+        Utf8RadixTrie<Integer> trie = new Utf8RadixTrie<>();
+        String emoji = new String(Character.toChars(0x1F600));
+        trie.put(emoji, 1);
+        trie.put("\uff01", 2);
+        Assert.assertEquals(Integer.valueOf(1), trie.get(emoji));
+        // code point order puts U+1F600 after U+FF01
+        Assert.assertEquals("\uff01", trie.keySet().iterator().next());
+    }
+
+    @Test
+    public void testAsciiRemoveAndCount() {
+        Utf8RadixTrie<Integer> trie = new Utf8RadixTrie<>();
+        trie.put("com.google", 1);
+        trie.put("com.google.mail", 2);
+        trie.put("com.github", 3);
+        trie.put("caf\u00e9", 4);
+        Assert.assertEquals(3, trie.countWithPrefix("com.g"));
+        Assert.assertEquals(2, trie.countWithPrefix(new StringBuilder("com.google")));
+        Assert.assertEquals(0, trie.countWithPrefix("com.gz"));
+        Assert.assertEquals(4, trie.countWithPrefix(""));
+        Assert.assertNull(trie.remove("com.goo"));
+        Assert.assertEquals(Integer.valueOf(1), trie.remove("com.google"));
+        Assert.assertNull(trie.remove("com.google"));
+        Assert.assertEquals(Integer.valueOf(3), trie.remove("com.github"));
+        Assert.assertEquals(1, trie.countWithPrefix("com.g"));
+        Assert.assertEquals(Integer.valueOf(2), trie.get("com.google.mail"));
+        Assert.assertEquals(2, trie.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpairedSurrogate() {
+        new Utf8RadixTrie<Integer>().put("a\ud800b", 1);
+    }
+}